@@ -0,0 +1,389 @@
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of devices per value of one field, kept up to date as devices are added, removed and changed.
+ * <p>
+ * Each distinct key has its own LongAdder, so a read is one hash lookup and a sum over the adder's cells, without
+ * taking any lock, and concurrent writers to the same key spread over the adder's cells instead of contending on one
+ * counter. Adding, removing or changing a device moves it between at most two counters.
+ * </p>
+ * <p>
+ * The view registers itself as a DeviceObserver of every device it counts. Like RangeIndex, it remembers the key each
+ * device is filed under and re-reads the field on every change, so notifications that arrive out of order from
+ * racing setters still leave the device counted under its latest value. The filed keys are kept in identity maps
+ * split into stripes by identity hash, each with its own lock, so writers only contend when their devices share a
+ * stripe. While a device moves, a reader may briefly see it under both keys or neither.
+ * </p>
+ * <p>
+ * byOpSystemVersion counts ignoring case, like IPad equality and IPadVersionIndex: "iPadOS 17" and "IPADOS 17" share
+ * one counter, which counts reports under the first spelling seen.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ * @param <T> is the type of device counted.
+ * @param <K> is the type of key counted by.
+ */
+public abstract class CountView<T extends IDevice, K> implements DeviceObserver
+{
+    private static final int    STRIPES  = 64;
+    private static final Object NULL_KEY = new Object();
+
+    private final DeviceField                          field;
+    private final IdentityHashMap<T, Object>[]         filed;
+    private final ConcurrentHashMap<Object, LongAdder> counts;
+    private final ConcurrentHashMap<Object, Object>    labels;
+    private final LongAdder                            size;
+
+    /**
+     * Constructor for CountView, called when its subclass is instantiated.
+     *
+     * @param field is the DeviceField the key is read from, or null if the key never changes.
+     */
+    @SuppressWarnings("unchecked")
+    CountView(final DeviceField field)
+    {
+        this.field  = field;
+        this.filed  = (IdentityHashMap<T, Object>[]) new IdentityHashMap<?, ?>[STRIPES];
+        this.counts = new ConcurrentHashMap<>();
+        this.labels = new ConcurrentHashMap<>();
+        this.size   = new LongAdder();
+
+        for(int i = 0; i < STRIPES; i++)
+        {
+            this.filed[i] = new IdentityHashMap<>();
+        }
+    }
+
+    /**
+     * Returns a view of phones per carrier; IPhone16s count as phones.
+     *
+     * @param <T> is the type of phone counted.
+     *
+     * @return a new, empty CountView.
+     */
+    public static <T extends IPhone> CountView<T, String> byCarrier()
+    {
+        return new CountView<T, String>(DeviceField.CARRIER)
+        {
+            @Override
+            String keyOf(final T phone)
+            {
+                return phone.getCarrier();
+            }
+        };
+    }
+
+    /**
+     * Returns a view of IPads per operating system version, ignoring case.
+     *
+     * @return a new, empty CountView.
+     */
+    public static CountView<IPad, String> byOpSystemVersion()
+    {
+        return new CountView<IPad, String>(DeviceField.OP_SYSTEM_VERSION)
+        {
+            @Override
+            String keyOf(final IPad pad)
+            {
+                return pad.getOpSystemVersion();
+            }
+
+            @Override
+            Object counterKey(final String os)
+            {
+                return os == null ? NULL_KEY : OsVersionTable.fold(os);
+            }
+        };
+    }
+
+    /**
+     * Returns a view of IPads with and without a case.
+     *
+     * @return a new, empty CountView.
+     */
+    public static CountView<IPad, Boolean> byHasCase()
+    {
+        return new CountView<IPad, Boolean>(DeviceField.HAS_CASE)
+        {
+            @Override
+            Boolean keyOf(final IPad pad)
+            {
+                return pad.getHasCase();
+            }
+        };
+    }
+
+    /**
+     * Returns a view of IPhone16s per memory size in GB, which never changes once a phone is built.
+     *
+     * @return a new, empty CountView.
+     */
+    public static CountView<IPhone16, Integer> byMemoryGB()
+    {
+        return new CountView<IPhone16, Integer>(null)
+        {
+            @Override
+            Integer keyOf(final IPhone16 phone)
+            {
+                return phone.getMemoryGB();
+            }
+        };
+    }
+
+    /**
+     * Returns the key a device is counted under.
+     *
+     * @param device is the counted device.
+     *
+     * @return the key, may be null.
+     */
+    abstract K keyOf(T device);
+
+    /**
+     * Returns the key of the counter a key is counted under; keys with equal counter keys share one counter.
+     *
+     * @param key is the key, may be null.
+     *
+     * @return the counter key, never null.
+     */
+    Object counterKey(final K key)
+    {
+        return box(key);
+    }
+
+    /**
+     * Adds a device and starts following its changes.
+     *
+     * @param device is the device to be added.
+     *
+     * @return a boolean; true if the device was added, false if it was already counted.
+     */
+    public boolean add(final T device)
+    {
+        final IdentityHashMap<T, Object> stripe;
+        stripe = this.stripe(device);
+
+        synchronized(stripe)
+        {
+            if(stripe.containsKey(device))
+            {
+                return false;
+            }
+
+            // observe first, so a change racing with the insert is either seen by keyOf or re-read by update
+            if(this.field != null)
+            {
+                device.addObserver(this);
+            }
+
+            final K      value;
+            final Object key;
+
+            value = this.keyOf(device);
+            key   = this.counterKey(value);
+
+            stripe.put(device, key);
+            this.counter(key, value).increment();
+            this.size.increment();
+
+            return true;
+        }
+    }
+
+    /**
+     * Removes a device and stops following its changes.
+     *
+     * @param device is the device to be removed.
+     *
+     * @return a boolean; true if the device was counted, otherwise false.
+     */
+    public boolean remove(final T device)
+    {
+        final IdentityHashMap<T, Object> stripe;
+        stripe = this.stripe(device);
+
+        synchronized(stripe)
+        {
+            if(!stripe.containsKey(device))
+            {
+                return false;
+            }
+
+            if(this.field != null)
+            {
+                device.removeObserver(this);
+            }
+
+            this.counts.get(stripe.remove(device)).decrement();
+            this.size.decrement();
+
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of devices counted under a key, without locking.
+     *
+     * @param key is the key, may be null.
+     *
+     * @return the number of devices as a long.
+     */
+    public long count(final K key)
+    {
+        final LongAdder counter;
+        counter = this.counts.get(this.counterKey(key));
+
+        return counter == null ? 0L : counter.sum();
+    }
+
+    /**
+     * Getter for the number of devices counted, without locking.
+     *
+     * @return the number of devices as a long.
+     */
+    public long size()
+    {
+        return this.size.sum();
+    }
+
+    /**
+     * Returns every key with at least one device and its count.
+     *
+     * @return a new map from key to count, each key spelled as the first device counted under it; a null carrier or
+     *         operating system version appears as a null key.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<K, Long> counts()
+    {
+        final Map<K, Long> result;
+        result = new LinkedHashMap<>();
+
+        this.counts.forEach((key, counter) ->
+        {
+            final long count;
+            count = counter.sum();
+
+            if(count > 0)
+            {
+                final Object label;
+                label = this.labels.get(key);
+
+                result.put(label == NULL_KEY ? null : (K) label, count);
+            }
+        });
+
+        return result;
+    }
+
+    /**
+     * Moves a device when its key changes through setHasCase.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+        if(field == this.field)
+        {
+            this.update((T) device);
+        }
+    }
+
+    /**
+     * Moves a device when its key changes through setCarrier or setOpSystemVersion.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value, may be null.
+     * @param newValue is the new value, may be null.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void textChanged(final IDevice device, final DeviceField field, final String oldValue, final String newValue)
+    {
+        if(field == this.field)
+        {
+            this.update((T) device);
+        }
+    }
+
+    /*
+     * Re-files a device under the current value of its field.
+     */
+    private void update(final T device)
+    {
+        final IdentityHashMap<T, Object> stripe;
+        stripe = this.stripe(device);
+
+        synchronized(stripe)
+        {
+            final Object old;
+            old = stripe.get(device);
+
+            if(old == null)
+            {
+                return;
+            }
+
+            final K      value;
+            final Object key;
+
+            value = this.keyOf(device);
+            key   = this.counterKey(value);
+
+            if(!key.equals(old))
+            {
+                this.counter(key, value).increment();
+                this.counts.get(old).decrement();
+                stripe.put(device, key);
+            }
+        }
+    }
+
+    /*
+     * Returns the stripe of filed keys a device belongs to.
+     */
+    private IdentityHashMap<T, Object> stripe(final T device)
+    {
+        final int hash;
+        hash = System.identityHashCode(device);
+
+        return this.filed[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /*
+     * Returns the counter of a counter key, creating it on first use and labelling it with the key it was created for.
+     * The label is stored first, so counts never sees a counter without one.
+     */
+    private LongAdder counter(final Object key, final K value)
+    {
+        final LongAdder counter;
+        counter = this.counts.get(key);
+
+        if(counter != null)
+        {
+            return counter;
+        }
+
+        this.labels.putIfAbsent(key, box(value));
+
+        return this.counts.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    /*
+     * Replaces a null key with a marker, since ConcurrentHashMap has no null keys.
+     */
+    private static Object box(final Object key)
+    {
+        return key == null ? NULL_KEY : key;
+    }
+}
@@ -0,0 +1,747 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stores devices off the Java heap, one DeviceRecord per device, in slabs of native memory.
+ * <p>
+ * Every slab is a direct buffer of SLAB_RECORDS records, so a fleet of 100 million devices costs about 2.4 GB of
+ * native memory (raise -XX:MaxDirectMemorySize to match) but only a hundred or so objects on the heap, and the garbage
+ * collector never scans the records themselves. Carriers and operating system versions are stored as ids into one
+ * StringDictionary, which stays on the heap because it only holds the distinct Strings.
+ * </p>
+ * <p>
+ * Devices are addressed by a long index, in the order they were added. The accessors mirror the getters and setters
+ * of the device classes, and materialize builds an ordinary device from a record when one is needed.
+ * </p>
+ * <p>
+ * The arena has an explicit lifecycle: close releases the native memory at once rather than when the buffers are
+ * collected, and any later access throws IllegalStateException. writeTo persists the arena as a snapshot file, which
+ * open maps straight back, so a saved fleet loads without decoding a single record.
+ * </p>
+ * <p>
+ * Not thread-safe; callers must synchronize writers externally and must not close the arena while it is in use.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceArena implements Closeable, DeviceRecord.StringTable
+{
+    static final int SLAB_SHIFT   = 20;
+    static final int SLAB_RECORDS = 1 << SLAB_SHIFT;
+
+    private static final int  SLAB_MASK     = SLAB_RECORDS - 1;
+    private static final int  INITIAL_SLABS = 4;
+    private static final long MAX_SIZE      = (long) Integer.MAX_VALUE << SLAB_SHIFT;
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static
+    {
+        Object unsafe;
+        Method invokeCleaner;
+
+        // sun.misc.Unsafe.invokeCleaner frees a direct buffer immediately; without it close leaves freeing to the GC
+        try
+        {
+            final Class<?> type;
+            final Field    field;
+
+            type  = Class.forName("sun.misc.Unsafe");
+            field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+
+            unsafe        = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        }
+        catch(final ReflectiveOperationException | RuntimeException e)
+        {
+            unsafe        = null;
+            invokeCleaner = null;
+        }
+
+        UNSAFE         = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final StringDictionary strings;
+    private Path                   source;
+    private ByteBuffer[]           slabs;
+    private int                    slabCount;
+    private long                   size;
+    private boolean                closed;
+
+    /**
+     * Constructor for an empty DeviceArena; slabs are allocated as devices are added.
+     */
+    public DeviceArena()
+    {
+        this.strings   = new StringDictionary();
+        this.source    = null;
+        this.slabs     = new ByteBuffer[INITIAL_SLABS];
+        this.slabCount = 0;
+        this.size      = 0;
+        this.closed    = false;
+    }
+
+    /**
+     * Opens a snapshot file as an arena.
+     * <p>
+     * Records are mapped copy-on-write: the arena can be changed and added to, but the file is only changed by a
+     * later writeTo. The file must be writable all the same, because Java only maps copy-on-write through a writable
+     * channel.
+     * </p>
+     *
+     * @param path is a snapshot file written by writeTo or DeviceSnapshot.
+     *
+     * @return the DeviceArena holding the snapshot's devices.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot.
+     */
+    public static DeviceArena open(final Path path) throws IOException
+    {
+        final DeviceArena arena;
+        arena = new DeviceArena();
+
+        try(final DeviceSnapshotReader reader = DeviceSnapshot.open(path);
+            // a copy-on-write mapping needs a writable channel, although nothing is written through it
+            final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            final long count;
+            final int  slabCount;
+
+            count     = reader.size();
+            slabCount = (int) ((count + SLAB_RECORDS - 1) >>> SLAB_SHIFT);
+
+            for(int id = 0; id < reader.stringCount(); id++)
+            {
+                arena.strings.encode(reader.string(id));
+            }
+
+            arena.slabs = new ByteBuffer[Math.max(INITIAL_SLABS, slabCount)];
+
+            for(int slab = 0; slab < slabCount; slab++)
+            {
+                final long first;
+                final long records;
+
+                first   = (long) slab << SLAB_SHIFT;
+                records = Math.min(SLAB_RECORDS, count - first);
+
+                arena.slabs[slab] = channel.map(FileChannel.MapMode.PRIVATE, DeviceSnapshot.HEADER_SIZE + first * DeviceRecord.RECORD_SIZE, records * DeviceRecord.RECORD_SIZE).order(DeviceRecord.ORDER);
+                arena.slabCount++;
+            }
+
+            arena.size   = count;
+            arena.source = path;
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            arena.close();
+            throw e;
+        }
+
+        return arena;
+    }
+
+    /**
+     * Adds a copy of an existing device to the arena.
+     *
+     * @param device is an IPhone, IPhone16, IPad or IPod.
+     *
+     * @return the index of the stored device.
+     */
+    public long add(final IDevice device)
+    {
+        final long index;
+        index = this.claim();
+
+        DeviceRecord.encode(this.slab(index), offsetOf(index), device, this.strings);
+
+        return index;
+    }
+
+    /**
+     * Adds an IPhone to the arena.
+     *
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     *
+     * @return the index of the stored IPhone.
+     */
+    public long addIPhone(final double mins, final String carrier)
+    {
+        return this.put(DeviceType.IPHONE, mins, this.strings.encode(carrier), 0, 0);
+    }
+
+    /**
+     * Adds an IPhone16 to the arena.
+     *
+     * @param mins      is the number of minutes remaining as a double.
+     * @param carrier   is the carrier as a String.
+     * @param cameraRes is true if the device has a high resolution camera.
+     * @param memoryGB  is the memory in GB as an int.
+     *
+     * @return the index of the stored IPhone16.
+     */
+    public long addIPhone16(final double mins, final String carrier, final boolean cameraRes, final int memoryGB)
+    {
+        return this.put(DeviceType.IPHONE16, mins, this.strings.encode(carrier), memoryGB, cameraRes ? DeviceRecord.FLAG_HIGH_RES_CAMERA : 0);
+    }
+
+    /**
+     * Adds an IPad to the arena.
+     *
+     * @param hasCase is true if the device has a case.
+     * @param os      is the operating system version as a String.
+     *
+     * @return the index of the stored IPad.
+     */
+    public long addIPad(final boolean hasCase, final String os)
+    {
+        return this.put(DeviceType.IPAD, 0.0, this.strings.encode(os), 0, hasCase ? DeviceRecord.FLAG_HAS_CASE : 0);
+    }
+
+    /**
+     * Adds an IPod to the arena.
+     *
+     * @param songs  is the number of songs stored as an int.
+     * @param maxVol is the maximum volume in decibels as a double.
+     *
+     * @return the index of the stored IPod.
+     */
+    public long addIPod(final int songs, final double maxVol)
+    {
+        return this.put(DeviceType.IPOD, maxVol, songs, 0, 0);
+    }
+
+    /**
+     * Getter for the number of devices.
+     *
+     * @return the number of devices as a long.
+     */
+    public long size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Getter for the native memory held by the arena's slabs.
+     *
+     * @return the number of bytes as a long.
+     */
+    public long capacityBytes()
+    {
+        long bytes;
+        bytes = 0L;
+
+        for(int slab = 0; slab < this.slabCount; slab++)
+        {
+            bytes += this.slabs[slab].capacity();
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the DeviceType of a device.
+     *
+     * @param index is the index of the device.
+     *
+     * @return the DeviceType of the device.
+     */
+    public DeviceType getType(final long index)
+    {
+        return DeviceRecord.typeAt(this.slab(index), offsetOf(index));
+    }
+
+    /**
+     * Getter for the minutes remaining of an IPhone or IPhone16.
+     *
+     * @param index is the index of an IPhone or IPhone16.
+     *
+     * @return the number of minutes remaining as a double.
+     */
+    public double getMinutesRemaining(final long index)
+    {
+        return this.phoneSlab(index).getDouble(offsetOf(index) + DeviceRecord.DOUBLE_OFFSET);
+    }
+
+    /**
+     * Sets the minutes remaining of an IPhone or IPhone16.
+     *
+     * @param index is the index of an IPhone or IPhone16.
+     * @param min   is the remaining minutes as a double.
+     */
+    public void setMinutesRemaining(final long index, final double min)
+    {
+        this.phoneSlab(index).putDouble(offsetOf(index) + DeviceRecord.DOUBLE_OFFSET, min);
+    }
+
+    /**
+     * Getter for the carrier of an IPhone or IPhone16.
+     *
+     * @param index is the index of an IPhone or IPhone16.
+     *
+     * @return the carrier as a String.
+     */
+    public String getCarrier(final long index)
+    {
+        return this.strings.decode(this.phoneSlab(index).getInt(offsetOf(index) + DeviceRecord.INT_OFFSET));
+    }
+
+    /**
+     * Sets the carrier of an IPhone or IPhone16.
+     *
+     * @param index   is the index of an IPhone or IPhone16.
+     * @param carrier is the carrier as a String.
+     */
+    public void setCarrier(final long index, final String carrier)
+    {
+        this.phoneSlab(index).putInt(offsetOf(index) + DeviceRecord.INT_OFFSET, this.strings.encode(carrier));
+    }
+
+    /**
+     * Getter for the high resolution camera feature of an IPhone16.
+     *
+     * @param index is the index of an IPhone16.
+     *
+     * @return true if the device has a high resolution camera, false otherwise.
+     */
+    public boolean hasHighResCamera(final long index)
+    {
+        return (this.typedSlab(index, DeviceType.IPHONE16).get(offsetOf(index) + DeviceRecord.FLAGS_OFFSET) & DeviceRecord.FLAG_HIGH_RES_CAMERA) != 0;
+    }
+
+    /**
+     * Getter for the memory of an IPhone16.
+     *
+     * @param index is the index of an IPhone16.
+     *
+     * @return the memory in GB as an int.
+     */
+    public int getMemoryGB(final long index)
+    {
+        return this.typedSlab(index, DeviceType.IPHONE16).getInt(offsetOf(index) + DeviceRecord.MEMORY_OFFSET);
+    }
+
+    /**
+     * Getter for the case of an IPad.
+     *
+     * @param index is the index of an IPad.
+     *
+     * @return true if the IPad has a case, false otherwise.
+     */
+    public boolean getHasCase(final long index)
+    {
+        return (this.typedSlab(index, DeviceType.IPAD).get(offsetOf(index) + DeviceRecord.FLAGS_OFFSET) & DeviceRecord.FLAG_HAS_CASE) != 0;
+    }
+
+    /**
+     * Sets the case of an IPad.
+     *
+     * @param index is the index of an IPad.
+     * @param x     is true if the IPad has a case.
+     */
+    public void setHasCase(final long index, final boolean x)
+    {
+        final ByteBuffer slab;
+        final int        position;
+        final int        flags;
+
+        slab     = this.typedSlab(index, DeviceType.IPAD);
+        position = offsetOf(index) + DeviceRecord.FLAGS_OFFSET;
+        flags    = slab.get(position);
+
+        slab.put(position, (byte) (x ? flags | DeviceRecord.FLAG_HAS_CASE : flags & ~DeviceRecord.FLAG_HAS_CASE));
+    }
+
+    /**
+     * Getter for the operating system version of an IPad.
+     *
+     * @param index is the index of an IPad.
+     *
+     * @return the operating system version as a String.
+     */
+    public String getOpSystemVersion(final long index)
+    {
+        return this.strings.decode(this.typedSlab(index, DeviceType.IPAD).getInt(offsetOf(index) + DeviceRecord.INT_OFFSET));
+    }
+
+    /**
+     * Sets the operating system version of an IPad.
+     *
+     * @param index is the index of an IPad.
+     * @param os    is the operating system version as a String.
+     */
+    public void setOpSystemVersion(final long index, final String os)
+    {
+        this.typedSlab(index, DeviceType.IPAD).putInt(offsetOf(index) + DeviceRecord.INT_OFFSET, this.strings.encode(os));
+    }
+
+    /**
+     * Getter for the number of songs stored on an IPod.
+     *
+     * @param index is the index of an IPod.
+     *
+     * @return the number of songs stored as an int.
+     */
+    public int getNumSongsStored(final long index)
+    {
+        return this.typedSlab(index, DeviceType.IPOD).getInt(offsetOf(index) + DeviceRecord.INT_OFFSET);
+    }
+
+    /**
+     * Sets the number of songs stored on an IPod.
+     *
+     * @param index is the index of an IPod.
+     * @param num   is the number of songs stored as an int.
+     */
+    public void setNumSongsStored(final long index, final int num)
+    {
+        this.typedSlab(index, DeviceType.IPOD).putInt(offsetOf(index) + DeviceRecord.INT_OFFSET, num);
+    }
+
+    /**
+     * Getter for the maximum volume of an IPod.
+     *
+     * @param index is the index of an IPod.
+     *
+     * @return the maximum volume in decibels as a double.
+     */
+    public double getMaxVolDecibels(final long index)
+    {
+        return this.typedSlab(index, DeviceType.IPOD).getDouble(offsetOf(index) + DeviceRecord.DOUBLE_OFFSET);
+    }
+
+    /**
+     * Builds an independent device with the current values of a record.
+     *
+     * @param index is the index of the device.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod.
+     */
+    public IDevice materialize(final long index)
+    {
+        return DeviceRecord.decode(this.slab(index), offsetOf(index), this);
+    }
+
+    /**
+     * Returns a String from the arena's string table.
+     *
+     * @param id is a string id, or StringDictionary.NULL_ID.
+     *
+     * @return the String, or null for StringDictionary.NULL_ID.
+     */
+    @Override
+    public String string(final int id)
+    {
+        return this.strings.decode(id);
+    }
+
+    /**
+     * Persists the arena as a snapshot file, replacing the file's contents, and forces it to disk.
+     * <p>
+     * The records are written straight from the slabs. The file can be read by DeviceSnapshot or opened again as an
+     * arena, but not written over the file this arena was opened from, which is still mapped.
+     * </p>
+     *
+     * @param path is the snapshot file to be written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(final Path path) throws IOException
+    {
+        this.checkOpen();
+
+        if(this.source != null && Files.exists(path) && Files.isSameFile(this.source, path))
+        {
+            throw new IllegalArgumentException("Cannot write an arena over the file it was opened from: " + path);
+        }
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+        {
+            final long       stringTableOffset;
+            final ByteBuffer header;
+            long             position;
+
+            position = DeviceSnapshot.HEADER_SIZE;
+
+            for(int slab = 0; slab < this.slabCount; slab++)
+            {
+                final long       records;
+                final ByteBuffer bytes;
+
+                records = Math.min(SLAB_RECORDS, this.size - ((long) slab << SLAB_SHIFT));
+                bytes   = this.slabs[slab].duplicate();
+                bytes.clear().limit((int) records * DeviceRecord.RECORD_SIZE);
+
+                position = writeFully(channel, bytes, position);
+            }
+
+            stringTableOffset = position;
+            position          = writeFully(channel, this.encodeStrings(), position);
+
+            header = ByteBuffer.allocate(DeviceSnapshot.HEADER_SIZE).order(DeviceRecord.ORDER);
+            header.putInt(DeviceSnapshot.MAGIC)
+                  .putShort(DeviceSnapshot.VERSION)
+                  .putShort((short) DeviceRecord.RECORD_SIZE)
+                  .putLong(this.size)
+                  .putLong(stringTableOffset)
+                  .putInt(this.strings.size())
+                  .putInt(0)
+                  .flip();
+
+            writeFully(channel, header, 0L);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Releases the native memory of every slab; the arena cannot be used afterwards.
+     */
+    @Override
+    public void close()
+    {
+        if(this.closed)
+        {
+            return;
+        }
+
+        this.closed = true;
+
+        for(int slab = 0; slab < this.slabCount; slab++)
+        {
+            release(this.slabs[slab]);
+            this.slabs[slab] = null;
+        }
+
+        this.slabs     = null;
+        this.slabCount = 0;
+        this.size      = 0;
+    }
+
+    /**
+     * Returns the offset of a record inside its slab.
+     *
+     * @param index is the record index.
+     *
+     * @return the offset in bytes.
+     */
+    static int offsetOf(final long index)
+    {
+        return ((int) index & SLAB_MASK) * DeviceRecord.RECORD_SIZE;
+    }
+
+    /*
+     * Appends one record built from raw field values.
+     */
+    private long put(final DeviceType type, final double number, final int word, final int memory, final int flags)
+    {
+        final long index;
+        index = this.claim();
+
+        DeviceRecord.write(this.slab(index), offsetOf(index), type, number, word, memory, flags);
+
+        return index;
+    }
+
+    /*
+     * Reserves the next index, allocating a slab when the last one is full.
+     */
+    private long claim()
+    {
+        this.checkOpen();
+
+        final long index;
+        final int  slab;
+
+        index = this.size;
+        slab  = (int) (index >>> SLAB_SHIFT);
+
+        if(index == MAX_SIZE)
+        {
+            throw new IllegalStateException("DeviceArena is full");
+        }
+
+        if(slab == this.slabCount)
+        {
+            if(this.slabCount == this.slabs.length)
+            {
+                this.slabs = Arrays.copyOf(this.slabs, this.slabCount * 2);
+            }
+
+            this.slabs[this.slabCount++] = newSlab();
+        }
+        else if(this.slabs[slab].capacity() == offsetOf(index))
+        {
+            // the last slab of an opened snapshot is mapped at its exact length; move it into a full slab
+            final ByteBuffer full;
+            final ByteBuffer mapped;
+
+            full   = newSlab();
+            mapped = this.slabs[slab];
+
+            full.put(mapped.duplicate().clear()).clear();
+            this.slabs[slab] = full;
+            release(mapped);
+        }
+
+        this.size++;
+
+        return index;
+    }
+
+    /*
+     * Returns the slab holding a record, after checking the arena is open and the index is in range.
+     */
+    private ByteBuffer slab(final long index)
+    {
+        this.checkOpen();
+
+        if(index < 0 || index >= this.size)
+        {
+            throw new IndexOutOfBoundsException("No device " + index + " in an arena of " + this.size);
+        }
+
+        return this.slabs[(int) (index >>> SLAB_SHIFT)];
+    }
+
+    /*
+     * Returns the slab holding an IPhone or IPhone16 record.
+     */
+    private ByteBuffer phoneSlab(final long index)
+    {
+        final ByteBuffer slab;
+        final DeviceType type;
+
+        slab = this.slab(index);
+        type = DeviceRecord.typeAt(slab, offsetOf(index));
+
+        if(type != DeviceType.IPHONE && type != DeviceType.IPHONE16)
+        {
+            throw new IllegalArgumentException("Device " + index + " is not an " + DeviceType.IPHONE);
+        }
+
+        return slab;
+    }
+
+    /*
+     * Returns the slab holding a record of exactly the expected type.
+     */
+    private ByteBuffer typedSlab(final long index, final DeviceType type)
+    {
+        final ByteBuffer slab;
+        slab = this.slab(index);
+
+        if(DeviceRecord.typeAt(slab, offsetOf(index)) != type)
+        {
+            throw new IllegalArgumentException("Device " + index + " is not an " + type);
+        }
+
+        return slab;
+    }
+
+    /*
+     * Throws if the arena has been closed.
+     */
+    private void checkOpen()
+    {
+        if(this.closed)
+        {
+            throw new IllegalStateException("DeviceArena is closed");
+        }
+    }
+
+    /*
+     * Encodes the string table as length-prefixed UTF-8, the layout snapshot files use.
+     */
+    private ByteBuffer encodeStrings()
+    {
+        final byte[][] utf8;
+        ByteBuffer     table;
+        long           bytes;
+
+        utf8  = new byte[this.strings.size()][];
+        bytes = 0L;
+
+        for(int id = 0; id < utf8.length; id++)
+        {
+            utf8[id] = this.strings.decode(id).getBytes(StandardCharsets.UTF_8);
+            bytes   += Integer.BYTES + utf8[id].length;
+        }
+
+        if(bytes > Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("String table too large: " + bytes + " bytes");
+        }
+
+        table = ByteBuffer.allocate((int) bytes).order(DeviceRecord.ORDER);
+
+        for(final byte[] value : utf8)
+        {
+            table.putInt(value.length).put(value);
+        }
+
+        return table.flip();
+    }
+
+    /*
+     * Writes a whole buffer at a file position and returns the position after it.
+     */
+    private static long writeFully(final FileChannel channel, final ByteBuffer source, final long position) throws IOException
+    {
+        long next;
+        next = position;
+
+        while(source.hasRemaining())
+        {
+            next += channel.write(source, next);
+        }
+
+        return next;
+    }
+
+    /*
+     * Allocates one empty slab of native memory.
+     */
+    private static ByteBuffer newSlab()
+    {
+        return ByteBuffer.allocateDirect(SLAB_RECORDS * DeviceRecord.RECORD_SIZE).order(DeviceRecord.ORDER);
+    }
+
+    /**
+     * Frees a direct or mapped buffer now if the JVM allows it, otherwise leaves it to the garbage collector.
+     * <p>
+     * Nothing may read or write the buffer, or any view of it, afterwards.
+     * </p>
+     *
+     * @param slab is a direct or mapped buffer that is not a slice or duplicate, may be null.
+     */
+    static void release(final ByteBuffer slab)
+    {
+        if(INVOKE_CLEANER == null || slab == null)
+        {
+            return;
+        }
+
+        try
+        {
+            INVOKE_CLEANER.invoke(UNSAFE, slab);
+        }
+        catch(final ReflectiveOperationException | RuntimeException e)
+        {
+            // already freed or not freeable; the garbage collector will reclaim it
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Receives batches of field changes from a DeviceChangeStream.
+ * <p>
+ * Each listener is called on its own thread, one batch at a time, with changes in the order they were published.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface DeviceChangeListener
+{
+    /**
+     * Called with the next batch of changes.
+     *
+     * @param batch is the batch of changes; only valid until this method returns.
+     */
+    void onChanges(DeviceChangeStream.Batch batch);
+}
@@ -0,0 +1,495 @@
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes IDevice field changes to a ring buffer and delivers them to listeners in batches.
+ * <p>
+ * The stream observes the devices passed to watch. Each change claims the next sequence number with one atomic
+ * increment, writes its slot's columns (device, field, old and new value) and publishes the slot by storing its
+ * sequence. Every slot has exactly one writer, and every listener has its own thread that is the single writer of its
+ * own read position, so neither side takes a lock. Listener threads hand out every contiguous run of published
+ * changes as one Batch, up to the batch size.
+ * </p>
+ * <p>
+ * When the ring is full, publishers wait for the slowest listener instead of dropping changes, so a slow listener
+ * slows the setters down rather than missing events. Unwatched devices, and changes made while there are no
+ * listeners, cost nothing beyond the setters' observer check. A listener that is added sees changes published from
+ * then on.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceChangeStream implements DeviceObserver, Closeable
+{
+    private static final int  DEFAULT_CAPACITY   = 1 << 14;
+    private static final int  DEFAULT_BATCH_SIZE = 256;
+    private static final long IDLE_NANOS         = 100_000L;
+    private static final long FULL_NANOS         = 1_000L;
+
+    private final int             capacity;
+    private final int             mask;
+    private final int             batchSize;
+    private final AtomicLong      cursor;
+    private final AtomicLongArray published;
+    private final IDevice[]       devices;
+    private final DeviceField[]   fields;
+    private final double[]        oldNumbers;
+    private final double[]        newNumbers;
+    private final String[]        oldTexts;
+    private final String[]        newTexts;
+
+    private volatile Subscription[] subscriptions;
+    private volatile long           gate;
+
+    /**
+     * Constructor for a DeviceChangeStream with a 16384-slot ring and batches of up to 256 changes.
+     */
+    public DeviceChangeStream()
+    {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Constructor for DeviceChangeStream.
+     *
+     * @param capacity  is the minimum number of slots; rounded up to a power of two.
+     * @param batchSize is the largest number of changes delivered in one batch.
+     */
+    public DeviceChangeStream(final int capacity, final int batchSize)
+    {
+        if(capacity < 2 || batchSize < 1)
+        {
+            throw new IllegalArgumentException("capacity must be at least 2 and batchSize at least 1");
+        }
+
+        this.capacity      = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask          = this.capacity - 1;
+        this.batchSize     = Math.min(batchSize, this.capacity);
+        this.cursor        = new AtomicLong();
+        this.published     = new AtomicLongArray(this.capacity);
+        this.devices       = new IDevice[this.capacity];
+        this.fields        = new DeviceField[this.capacity];
+        this.oldNumbers    = new double[this.capacity];
+        this.newNumbers    = new double[this.capacity];
+        this.oldTexts      = new String[this.capacity];
+        this.newTexts      = new String[this.capacity];
+        this.subscriptions = new Subscription[0];
+
+        for(int i = 0; i < this.capacity; i++)
+        {
+            this.published.set(i, -1L);
+        }
+    }
+
+    /**
+     * Starts publishing the changes of a device.
+     *
+     * @param device is the IDevice to be watched.
+     */
+    public void watch(final IDevice device)
+    {
+        device.addObserver(this);
+    }
+
+    /**
+     * Stops publishing the changes of a device.
+     *
+     * @param device is the IDevice to be unwatched.
+     *
+     * @return a boolean; true if the device was watched, otherwise false.
+     */
+    public boolean unwatch(final IDevice device)
+    {
+        return device.removeObserver(this);
+    }
+
+    /**
+     * Adds a listener on its own daemon thread.
+     *
+     * @param listener is the DeviceChangeListener to receive batches.
+     */
+    public synchronized void subscribe(final DeviceChangeListener listener)
+    {
+        final Subscription subscription;
+        subscription = new Subscription(listener);
+
+        // publishers that see the new subscription wait until it has a position; those that do not claimed
+        // sequences below the position it is about to read
+        this.subscriptions = append(this.subscriptions, subscription);
+        subscription.next  = this.cursor.get();
+
+        subscription.thread.start();
+    }
+
+    /**
+     * Removes a listener after the batch it is processing, if any.
+     *
+     * @param listener is the DeviceChangeListener to be removed.
+     *
+     * @return a boolean; true if the listener was subscribed, otherwise false.
+     */
+    public synchronized boolean unsubscribe(final DeviceChangeListener listener)
+    {
+        final Subscription[] current;
+        current = this.subscriptions;
+
+        for(int i = 0; i < current.length; i++)
+        {
+            if(current[i].listener == listener)
+            {
+                final Subscription[] next;
+                next = new Subscription[current.length - 1];
+
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+
+                this.subscriptions = next;
+                current[i].stop();
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes every listener and waits for their threads to finish.
+     */
+    @Override
+    public void close()
+    {
+        final Subscription[] current;
+
+        synchronized(this)
+        {
+            current            = this.subscriptions;
+            this.subscriptions = new Subscription[0];
+        }
+
+        for(final Subscription subscription : current)
+        {
+            subscription.stop();
+        }
+
+        for(final Subscription subscription : current)
+        {
+            try
+            {
+                subscription.thread.join();
+            }
+            catch(final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of changes published so far.
+     *
+     * @return the number of changes as a long.
+     */
+    public long published()
+    {
+        return this.cursor.get();
+    }
+
+    /**
+     * Publishes a numeric field change.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    @Override
+    public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+        if(this.subscriptions.length > 0)
+        {
+            this.publish(device, field, oldValue, newValue, null, null);
+        }
+    }
+
+    /**
+     * Publishes a text field change.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    @Override
+    public void textChanged(final IDevice device, final DeviceField field, final String oldValue, final String newValue)
+    {
+        if(this.subscriptions.length > 0)
+        {
+            this.publish(device, field, Double.NaN, Double.NaN, oldValue, newValue);
+        }
+    }
+
+    /*
+     * Claims a slot, waits until every listener has read the change last stored in it, fills it and publishes it.
+     */
+    private void publish(final IDevice device, final DeviceField field, final double oldNumber, final double newNumber, final String oldText, final String newText)
+    {
+        final long sequence;
+        final long wrap;
+        final int  slot;
+
+        sequence = this.cursor.getAndIncrement();
+        wrap     = sequence - this.capacity;
+        slot     = (int) sequence & this.mask;
+
+        if(wrap >= this.gate)
+        {
+            long slowest;
+
+            while(wrap >= (slowest = this.slowestReader()))
+            {
+                LockSupport.parkNanos(FULL_NANOS);
+            }
+
+            // never cache more than this sequence, so a listener subscribing meanwhile is seen on the next lap
+            this.gate = Math.min(slowest, sequence);
+        }
+
+        this.devices[slot]    = device;
+        this.fields[slot]     = field;
+        this.oldNumbers[slot] = oldNumber;
+        this.newNumbers[slot] = newNumber;
+        this.oldTexts[slot]   = oldText;
+        this.newTexts[slot]   = newText;
+
+        this.published.set(slot, sequence);
+    }
+
+    /*
+     * Returns the smallest next-to-read sequence of the listeners, or Long.MAX_VALUE if there are none.
+     */
+    private long slowestReader()
+    {
+        long slowest;
+        slowest = Long.MAX_VALUE;
+
+        for(final Subscription subscription : this.subscriptions)
+        {
+            slowest = Math.min(slowest, subscription.next);
+        }
+
+        return slowest;
+    }
+
+    /*
+     * Returns a copy of an array with one more element.
+     */
+    private static Subscription[] append(final Subscription[] array, final Subscription element)
+    {
+        final Subscription[] next;
+        next = Arrays.copyOf(array, array.length + 1);
+
+        next[array.length] = element;
+
+        return next;
+    }
+
+    /**
+     * A run of consecutive changes, read straight from the ring.
+     * <p>
+     * Numeric accessors return NaN for text fields and text accessors return null for numeric fields. A batch is only
+     * valid during the onChanges call it was passed to.
+     * </p>
+     */
+    public final class Batch
+    {
+        private long first;
+        private int  size;
+
+        /*
+         * Only a Subscription creates its Batch.
+         */
+        private Batch()
+        {
+        }
+
+        /**
+         * Getter for the sequence number of the first change in the batch.
+         *
+         * @return the sequence number as a long.
+         */
+        public long firstSequence()
+        {
+            return this.first;
+        }
+
+        /**
+         * Getter for the number of changes in the batch.
+         *
+         * @return the number of changes as an int.
+         */
+        public int size()
+        {
+            return this.size;
+        }
+
+        /**
+         * Getter for the device of a change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the IDevice that changed.
+         */
+        public IDevice device(final int index)
+        {
+            return DeviceChangeStream.this.devices[this.slot(index)];
+        }
+
+        /**
+         * Getter for the field of a change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the DeviceField that changed.
+         */
+        public DeviceField field(final int index)
+        {
+            return DeviceChangeStream.this.fields[this.slot(index)];
+        }
+
+        /**
+         * Getter for the previous value of a numeric change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the previous value, or NaN for a text field.
+         */
+        public double oldNumber(final int index)
+        {
+            return DeviceChangeStream.this.oldNumbers[this.slot(index)];
+        }
+
+        /**
+         * Getter for the new value of a numeric change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the new value, or NaN for a text field.
+         */
+        public double newNumber(final int index)
+        {
+            return DeviceChangeStream.this.newNumbers[this.slot(index)];
+        }
+
+        /**
+         * Getter for the previous value of a text change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the previous value, or null for a numeric field.
+         */
+        public String oldText(final int index)
+        {
+            return DeviceChangeStream.this.oldTexts[this.slot(index)];
+        }
+
+        /**
+         * Getter for the new value of a text change.
+         *
+         * @param index is the index of the change in the batch.
+         *
+         * @return the new value, or null for a numeric field.
+         */
+        public String newText(final int index)
+        {
+            return DeviceChangeStream.this.newTexts[this.slot(index)];
+        }
+
+        /*
+         * Maps an index in the batch to a ring slot.
+         */
+        private int slot(final int index)
+        {
+            if(index < 0 || index >= this.size)
+            {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for batch of " + this.size);
+            }
+
+            return (int) (this.first + index) & DeviceChangeStream.this.mask;
+        }
+    }
+
+    /*
+     * One listener, its thread and its read position.
+     */
+    private final class Subscription implements Runnable
+    {
+        private final DeviceChangeListener listener;
+        private final Thread               thread;
+        private final Batch                batch;
+        private volatile long              next;
+        private volatile boolean           running;
+
+        private Subscription(final DeviceChangeListener listener)
+        {
+            this.listener = listener;
+            this.batch    = new Batch();
+            this.next     = Long.MIN_VALUE;
+            this.running  = true;
+            this.thread   = new Thread(this, "DeviceChangeStream-listener");
+
+            this.thread.setDaemon(true);
+        }
+
+        private void stop()
+        {
+            this.running = false;
+            LockSupport.unpark(this.thread);
+        }
+
+        @Override
+        public void run()
+        {
+            while(this.running)
+            {
+                final long first;
+                long       end;
+
+                first = this.next;
+                end   = first;
+
+                while(end - first < DeviceChangeStream.this.batchSize
+                      && DeviceChangeStream.this.published.get((int) end & DeviceChangeStream.this.mask) == end)
+                {
+                    end++;
+                }
+
+                if(end == first)
+                {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+
+                this.batch.first = first;
+                this.batch.size  = (int) (end - first);
+
+                try
+                {
+                    this.listener.onChanges(this.batch);
+                }
+                catch(final RuntimeException e)
+                {
+                    Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), e);
+                }
+
+                // frees the slots for publishers
+                this.next = end;
+            }
+        }
+    }
+}
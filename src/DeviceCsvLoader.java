@@ -0,0 +1,834 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * Streams IDevices out of large comma-separated device dumps.
+ * <p>
+ * Each line starts with a type column followed by that type's constructor arguments:
+ * </p>
+ * <pre>
+ * IPHONE,minutesRemaining,carrier
+ * IPHONE16,minutesRemaining,carrier,highResCamera,memoryGB
+ * IPAD,hasCase,opSystemVersion
+ * IPOD,numSongsStored,maxVolDecibels
+ * </pre>
+ * <p>
+ * Blank lines and lines starting with '#' are skipped. The file is read through a FileChannel into a reused buffer
+ * and numbers and booleans are parsed straight from the bytes, so the only Strings created are the first copy of
+ * each distinct carrier and operating system version. A parser thread hands batches of devices to the consumer
+ * through a bounded queue, so memory stays flat however large the file is, and the consumer runs on the calling
+ * thread.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceCsvLoader
+{
+    private static final int BUFFER_BYTES     = 1 << 20;
+    private static final int BATCH_SIZE       = 1024;
+    private static final int QUEUE_BATCHES    = 16;
+    private static final int MAX_INTERNED     = 1 << 16;
+    private static final int FAST_DIGITS      = 15;
+    private static final int FAST_MAX_EXPONENT = 22;
+
+    private static final IDevice[] END_OF_INPUT = new IDevice[0];
+
+    private static final byte[] IPHONE   = "IPHONE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IPHONE16 = "IPHONE16".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IPAD     = "IPAD".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] IPOD     = "IPOD".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE     = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE    = "false".getBytes(StandardCharsets.US_ASCII);
+
+    private static final double[] POWERS_OF_TEN = new double[FAST_MAX_EXPONENT + 1];
+
+    static
+    {
+        POWERS_OF_TEN[0] = 1.0;
+
+        for(int i = 1; i < POWERS_OF_TEN.length; i++)
+        {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+        }
+    }
+
+    private final Path   path;
+    private final byte[] bytes;
+    private final int[]  fieldStarts;
+    private final int[]  fieldEnds;
+    private final Interner strings;
+    private long         lineNumber;
+
+    /**
+     * Constructor for DeviceCsvLoader.
+     *
+     * @param path is the device dump to be loaded.
+     */
+    public DeviceCsvLoader(final Path path)
+    {
+        this.path        = path;
+        this.bytes       = new byte[BUFFER_BYTES];
+        this.fieldStarts = new int[5];
+        this.fieldEnds   = new int[5];
+        this.strings     = new Interner();
+    }
+
+    /**
+     * Loads every device of a dump into a consumer.
+     *
+     * @param path     is the device dump to be loaded.
+     * @param consumer receives every device, in file order, on the calling thread.
+     *
+     * @return the LoadStats of the load.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public static LoadStats load(final Path path, final Consumer<? super IDevice> consumer) throws IOException
+    {
+        return new DeviceCsvLoader(path).load(consumer);
+    }
+
+    /**
+     * Loads every device of the dump into a consumer; a loader can only be used once.
+     *
+     * @param consumer receives every device, in file order, on the calling thread.
+     *
+     * @return the LoadStats of the load.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a line is malformed.
+     */
+    public LoadStats load(final Consumer<? super IDevice> consumer) throws IOException
+    {
+        final BlockingQueue<IDevice[]> queue;
+        final Throwable[]              failure;
+        final long[]                   totals;
+        final Thread                   parser;
+        final long                     begin;
+
+        queue   = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+        failure = new Throwable[1];
+        totals  = new long[2];
+        begin   = System.nanoTime();
+
+        parser = new Thread(() ->
+        {
+            try
+            {
+                totals[1] = this.parse(queue);
+            }
+            catch(final InterruptedException e)
+            {
+                // the caller gave up and no longer drains the queue, so there is nobody to tell
+                return;
+            }
+            catch(final Throwable t)
+            {
+                failure[0] = t;
+            }
+
+            try
+            {
+                queue.put(END_OF_INPUT);
+            }
+            catch(final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }, "DeviceCsvLoader-parser");
+
+        parser.setDaemon(true);
+        parser.start();
+
+        try
+        {
+            while(true)
+            {
+                final IDevice[] batch;
+                batch = queue.take();
+
+                if(batch == END_OF_INPUT)
+                {
+                    break;
+                }
+
+                for(final IDevice device : batch)
+                {
+                    consumer.accept(device);
+                }
+
+                totals[0] += batch.length;
+            }
+
+            parser.join();
+        }
+        catch(final InterruptedException e)
+        {
+            stop(parser, queue);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading " + this.path, e);
+        }
+        catch(final RuntimeException | Error e)
+        {
+            stop(parser, queue);
+            throw e;
+        }
+
+        if(failure[0] instanceof IOException)
+        {
+            throw (IOException) failure[0];
+        }
+
+        if(failure[0] instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure[0];
+        }
+
+        if(failure[0] != null)
+        {
+            throw new IOException("Failed to load " + this.path, failure[0]);
+        }
+
+        return new LoadStats(totals[0], totals[1], System.nanoTime() - begin);
+    }
+
+    /*
+     * Interrupts the parser, drops the batches nobody will consume and waits for the parser to end, so a failed load
+     * leaves no thread or batches behind. Once interrupted, the parser's next put fails at once, even if the queue is
+     * full.
+     */
+    private static void stop(final Thread parser, final BlockingQueue<IDevice[]> queue)
+    {
+        boolean interrupted;
+
+        interrupted = Thread.interrupted();
+        parser.interrupt();
+        queue.clear();
+
+        while(true)
+        {
+            try
+            {
+                parser.join();
+                break;
+            }
+            catch(final InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Reads the file a buffer at a time, parsing every complete line, and returns the number of bytes read.
+     */
+    private long parse(final BlockingQueue<IDevice[]> queue) throws IOException, InterruptedException
+    {
+        try(final FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ))
+        {
+            final ByteBuffer buffer;
+            IDevice[]        batch;
+            int              batchSize;
+            long             read;
+
+            buffer    = ByteBuffer.wrap(this.bytes);
+            batch     = new IDevice[BATCH_SIZE];
+            batchSize = 0;
+            read      = 0;
+
+            while(true)
+            {
+                final int  count;
+                final int  limit;
+                int        lineStart;
+
+                count = channel.read(buffer);
+
+                if(count > 0)
+                {
+                    read += count;
+                }
+
+                limit     = buffer.position();
+                lineStart = 0;
+
+                for(int i = 0; i < limit; i++)
+                {
+                    if(this.bytes[i] == '\n')
+                    {
+                        final IDevice device;
+                        device = this.parseLine(lineStart, i);
+
+                        if(device != null)
+                        {
+                            batch[batchSize++] = device;
+
+                            if(batchSize == BATCH_SIZE)
+                            {
+                                queue.put(batch);
+                                batch     = new IDevice[BATCH_SIZE];
+                                batchSize = 0;
+                            }
+                        }
+
+                        lineStart = i + 1;
+                    }
+                }
+
+                if(count < 0)
+                {
+                    if(lineStart < limit)
+                    {
+                        final IDevice device;
+                        device = this.parseLine(lineStart, limit);
+
+                        if(device != null)
+                        {
+                            batch[batchSize++] = device;
+                        }
+                    }
+
+                    break;
+                }
+
+                if(lineStart == 0 && limit == this.bytes.length)
+                {
+                    throw new IllegalArgumentException("Line " + (this.lineNumber + 1) + " is longer than " + BUFFER_BYTES + " bytes");
+                }
+
+                // keep the partial last line for the next read
+                System.arraycopy(this.bytes, lineStart, this.bytes, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+            }
+
+            if(batchSize > 0)
+            {
+                queue.put(Arrays.copyOf(batch, batchSize));
+            }
+
+            return read;
+        }
+    }
+
+    /*
+     * Parses one line into a device, or returns null for a blank or comment line.
+     */
+    private IDevice parseLine(final int start, final int lineEnd)
+    {
+        int end;
+        end = lineEnd;
+
+        this.lineNumber++;
+
+        if(end > start && this.bytes[end - 1] == '\r')
+        {
+            end--;
+        }
+
+        if(end == start || this.bytes[start] == '#')
+        {
+            return null;
+        }
+
+        final int fields;
+        fields = this.split(start, end);
+
+        final int typeStart;
+        final int typeEnd;
+
+        typeStart = this.fieldStarts[0];
+        typeEnd   = this.fieldEnds[0];
+
+        if(matches(IPHONE16, this.bytes, typeStart, typeEnd))
+        {
+            this.expectFields(fields, 5);
+
+            return new IPhone16(this.parseDouble(1), this.string(2), this.parseBoolean(3), this.parseInt(4));
+        }
+
+        if(matches(IPHONE, this.bytes, typeStart, typeEnd))
+        {
+            this.expectFields(fields, 3);
+
+            return new IPhone(this.parseDouble(1), this.string(2));
+        }
+
+        if(matches(IPAD, this.bytes, typeStart, typeEnd))
+        {
+            this.expectFields(fields, 3);
+
+            return new IPad(this.parseBoolean(1), this.string(2));
+        }
+
+        if(matches(IPOD, this.bytes, typeStart, typeEnd))
+        {
+            this.expectFields(fields, 3);
+
+            return new IPod(this.parseInt(1), this.parseDouble(2));
+        }
+
+        throw this.malformed("unknown device type \"" + new String(this.bytes, typeStart, typeEnd - typeStart, StandardCharsets.UTF_8) + "\"");
+    }
+
+    /*
+     * Records the bounds of up to five comma-separated fields and returns how many there were.
+     */
+    private int split(final int start, final int end)
+    {
+        int fields;
+        int fieldStart;
+
+        fields     = 0;
+        fieldStart = start;
+
+        for(int i = start; i <= end; i++)
+        {
+            if(i == end || this.bytes[i] == ',')
+            {
+                if(fields == this.fieldStarts.length)
+                {
+                    return fields + 1;
+                }
+
+                this.fieldStarts[fields] = fieldStart;
+                this.fieldEnds[fields]   = i;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+
+        return fields;
+    }
+
+    /*
+     * Fails the line unless it has exactly the expected number of fields.
+     */
+    private void expectFields(final int fields, final int expected)
+    {
+        if(fields != expected)
+        {
+            throw this.malformed("expected " + expected + " fields but found " + fields);
+        }
+    }
+
+    /*
+     * Parses an optionally signed decimal int.
+     */
+    private int parseInt(final int field)
+    {
+        final int start;
+        final int end;
+        int       i;
+        boolean   negative;
+        long      value;
+
+        start    = this.fieldStarts[field];
+        end      = this.fieldEnds[field];
+        i        = start;
+        negative = false;
+        value    = 0;
+
+        if(i < end && (this.bytes[i] == '-' || this.bytes[i] == '+'))
+        {
+            negative = this.bytes[i] == '-';
+            i++;
+        }
+
+        if(i == end)
+        {
+            throw this.malformed("empty number in field " + field);
+        }
+
+        for(; i < end; i++)
+        {
+            final int digit;
+            digit = this.bytes[i] - '0';
+
+            if(digit < 0 || digit > 9)
+            {
+                throw this.malformed("bad int in field " + field);
+            }
+
+            value = value * 10 + digit;
+
+            if(value > (long) Integer.MAX_VALUE + 1)
+            {
+                throw this.malformed("int overflow in field " + field);
+            }
+        }
+
+        value = negative ? -value : value;
+
+        if(value > Integer.MAX_VALUE)
+        {
+            throw this.malformed("int overflow in field " + field);
+        }
+
+        return (int) value;
+    }
+
+    /*
+     * Parses a decimal double. Up to 15 significant digits with a small exponent are converted exactly with one
+     * multiplication or division by a power of ten; anything else falls back to Double.parseDouble.
+     */
+    private double parseDouble(final int field)
+    {
+        final int start;
+        final int end;
+        int       i;
+        boolean   negative;
+        long      mantissa;
+        int       digits;
+        int       exponent;
+        boolean   seenDigit;
+
+        start     = this.fieldStarts[field];
+        end       = this.fieldEnds[field];
+        i         = start;
+        negative  = false;
+        mantissa  = 0;
+        digits    = 0;
+        exponent  = 0;
+        seenDigit = false;
+
+        if(i < end && (this.bytes[i] == '-' || this.bytes[i] == '+'))
+        {
+            negative = this.bytes[i] == '-';
+            i++;
+        }
+
+        for(; i < end && this.bytes[i] >= '0' && this.bytes[i] <= '9'; i++)
+        {
+            seenDigit = true;
+
+            if(mantissa != 0 || this.bytes[i] != '0')
+            {
+                mantissa = mantissa * 10 + (this.bytes[i] - '0');
+                digits++;
+            }
+        }
+
+        if(i < end && this.bytes[i] == '.')
+        {
+            for(i++; i < end && this.bytes[i] >= '0' && this.bytes[i] <= '9'; i++)
+            {
+                seenDigit = true;
+
+                if(mantissa != 0 || this.bytes[i] != '0')
+                {
+                    mantissa = mantissa * 10 + (this.bytes[i] - '0');
+                    digits++;
+                }
+
+                exponent--;
+            }
+        }
+
+        if(i < end && (this.bytes[i] == 'e' || this.bytes[i] == 'E') && seenDigit && digits <= FAST_DIGITS)
+        {
+            final int exponentStart;
+            exponentStart = this.fieldStarts[field];
+
+            this.fieldStarts[field] = i + 1;
+
+            try
+            {
+                exponent += this.parseInt(field);
+            }
+            catch(final IllegalArgumentException e)
+            {
+                return this.slowDouble(field, exponentStart);
+            }
+            finally
+            {
+                this.fieldStarts[field] = exponentStart;
+            }
+
+            i = end;
+        }
+
+        if(i != end || !seenDigit || digits > FAST_DIGITS || exponent < -FAST_MAX_EXPONENT || exponent > FAST_MAX_EXPONENT)
+        {
+            return this.slowDouble(field, start);
+        }
+
+        double value;
+        value = mantissa;
+
+        if(exponent < 0)
+        {
+            value /= POWERS_OF_TEN[-exponent];
+        }
+        else
+        {
+            value *= POWERS_OF_TEN[exponent];
+        }
+
+        return negative ? -value : value;
+    }
+
+    /*
+     * Parses a double the slow way, for the rare values the fast path cannot convert exactly.
+     */
+    private double slowDouble(final int field, final int start)
+    {
+        try
+        {
+            return Double.parseDouble(new String(this.bytes, start, this.fieldEnds[field] - start, StandardCharsets.US_ASCII));
+        }
+        catch(final NumberFormatException e)
+        {
+            throw this.malformed("bad double in field " + field);
+        }
+    }
+
+    /*
+     * Parses true or false, ignoring case.
+     */
+    private boolean parseBoolean(final int field)
+    {
+        if(matchesIgnoreCase(TRUE, this.bytes, this.fieldStarts[field], this.fieldEnds[field]))
+        {
+            return true;
+        }
+
+        if(matchesIgnoreCase(FALSE, this.bytes, this.fieldStarts[field], this.fieldEnds[field]))
+        {
+            return false;
+        }
+
+        throw this.malformed("bad boolean in field " + field);
+    }
+
+    /*
+     * Returns the interned String of a field.
+     */
+    private String string(final int field)
+    {
+        return this.strings.intern(this.bytes, this.fieldStarts[field], this.fieldEnds[field]);
+    }
+
+    /*
+     * Builds the exception for a malformed line.
+     */
+    private IllegalArgumentException malformed(final String message)
+    {
+        return new IllegalArgumentException(this.path + ":" + this.lineNumber + ": " + message);
+    }
+
+    /*
+     * Compares a field with an ASCII keyword.
+     */
+    private static boolean matches(final byte[] keyword, final byte[] bytes, final int start, final int end)
+    {
+        return end - start == keyword.length && Arrays.equals(keyword, 0, keyword.length, bytes, start, end);
+    }
+
+    /*
+     * Compares a field with a lower case ASCII keyword, ignoring case.
+     */
+    private static boolean matchesIgnoreCase(final byte[] keyword, final byte[] bytes, final int start, final int end)
+    {
+        if(end - start != keyword.length)
+        {
+            return false;
+        }
+
+        for(int i = 0; i < keyword.length; i++)
+        {
+            if((bytes[start + i] | 0x20) != keyword[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * The outcome of one load.
+     */
+    public static final class LoadStats
+    {
+        private final long rows;
+        private final long bytes;
+        private final long nanos;
+
+        /**
+         * Constructor for LoadStats.
+         *
+         * @param rows  is the number of devices loaded.
+         * @param bytes is the number of bytes read.
+         * @param nanos is the elapsed time in nanoseconds.
+         */
+        LoadStats(final long rows, final long bytes, final long nanos)
+        {
+            this.rows  = rows;
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Getter for the number of devices loaded.
+         *
+         * @return the number of rows as a long.
+         */
+        public long getRows()
+        {
+            return this.rows;
+        }
+
+        /**
+         * Getter for the number of bytes read.
+         *
+         * @return the number of bytes as a long.
+         */
+        public long getBytes()
+        {
+            return this.bytes;
+        }
+
+        /**
+         * Getter for the elapsed time.
+         *
+         * @return the elapsed time in nanoseconds.
+         */
+        public long getNanos()
+        {
+            return this.nanos;
+        }
+
+        /**
+         * Returns the load throughput.
+         *
+         * @return the number of devices loaded per second.
+         */
+        public double rowsPerSecond()
+        {
+            return this.nanos == 0 ? 0.0 : this.rows * 1.0e9 / this.nanos;
+        }
+
+        /**
+         * Returns the stats as a String.
+         *
+         * @return the stats as a String.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("Loaded %d devices (%d bytes) in %.3f s: %.0f rows/s", this.rows, this.bytes, this.nanos / 1.0e9, this.rowsPerSecond());
+        }
+    }
+
+    /*
+     * Turns repeated byte sequences into one shared String, creating a String only the first time.
+     * Stops caching at MAX_INTERNED entries so a column of unique values cannot grow it without bound.
+     */
+    private static final class Interner
+    {
+        private byte[][] keys;
+        private String[] values;
+        private int[]    hashes;
+        private int      size;
+
+        private Interner()
+        {
+            this.keys   = new byte[64][];
+            this.values = new String[64];
+            this.hashes = new int[64];
+        }
+
+        private String intern(final byte[] bytes, final int start, final int end)
+        {
+            int hash;
+            hash = 1;
+
+            for(int i = start; i < end; i++)
+            {
+                hash = 31 * hash + bytes[i];
+            }
+
+            final int mask;
+            int       slot;
+
+            mask = this.keys.length - 1;
+            slot = (hash ^ (hash >>> 16)) & mask;
+
+            while(this.keys[slot] != null)
+            {
+                if(this.hashes[slot] == hash && Arrays.equals(this.keys[slot], 0, this.keys[slot].length, bytes, start, end))
+                {
+                    return this.values[slot];
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            final String value;
+            value = new String(bytes, start, end - start, StandardCharsets.UTF_8);
+
+            if(this.size < MAX_INTERNED)
+            {
+                this.keys[slot]   = Arrays.copyOfRange(bytes, start, end);
+                this.values[slot] = value;
+                this.hashes[slot] = hash;
+                this.size++;
+
+                if(this.size * 2 > this.keys.length)
+                {
+                    this.grow();
+                }
+            }
+
+            return value;
+        }
+
+        private void grow()
+        {
+            final byte[][] oldKeys;
+            final String[] oldValues;
+            final int[]    oldHashes;
+
+            oldKeys   = this.keys;
+            oldValues = this.values;
+            oldHashes = this.hashes;
+
+            this.keys   = new byte[oldKeys.length * 2][];
+            this.values = new String[oldKeys.length * 2];
+            this.hashes = new int[oldKeys.length * 2];
+
+            for(int i = 0; i < oldKeys.length; i++)
+            {
+                if(oldKeys[i] != null)
+                {
+                    int slot;
+                    slot = (oldHashes[i] ^ (oldHashes[i] >>> 16)) & (this.keys.length - 1);
+
+                    while(this.keys[slot] != null)
+                    {
+                        slot = (slot + 1) & (this.keys.length - 1);
+                    }
+
+                    this.keys[slot]   = oldKeys[i];
+                    this.values[slot] = oldValues[i];
+                    this.hashes[slot] = oldHashes[i];
+                }
+            }
+        }
+    }
+}
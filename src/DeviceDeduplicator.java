@@ -0,0 +1,549 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.function.Consumer;
+
+/**
+ * A streaming stage that drops devices equal to one it has already passed, by each class's own equals.
+ * <p>
+ * Each DeviceType is deduplicated separately, because IPhone.equals accepts an IPhone16 with close minutes but
+ * IPhone16.equals never accepts a plain IPhone. Within a type, a device is a duplicate exactly when it equals a device
+ * passed before:
+ * </p>
+ * <ul>
+ * <li>IPods are keyed by song count, whose hashCode agrees with equals, so they are kept in a primitive int set.</li>
+ * <li>IPads are keyed by their case-folded version, kept in the deduplicator's own set rather than by shared
+ * OsVersionTable ids, so the cap below bounds it and the shared table is free to drop versions no tablet uses.</li>
+ * <li>IPhones and IPhone16s are kept in IPhoneIndexes, because their hashCode hashes the exact minutes while equals
+ * allows EPSILON of difference. The index probes neighbouring grid cells and lets equals decide, so the camera rule of
+ * IPhone16 applies as well. The index holds a private copy of each passed phone, so later changes to the caller's
+ * phone cannot move it.</li>
+ * </ul>
+ * <p>
+ * A Bloom filter sits in front of the exact indexes. A device whose key the filter has never seen is new without any
+ * lookup, which is the common case for feeds with few duplicates. Each exact index stops growing at maxExactPerType
+ * keys, which bounds memory for unbounded input. After that, devices the index does not hold are judged by the filter
+ * alone: a key the filter may have seen counts as a duplicate. For phones the filter remembers grid cells, so such a
+ * phone counts as a duplicate when it is within a few EPSILON of an earlier one. These calls are counted as
+ * approximate in the Stats.
+ * </p>
+ * <p>
+ * Not thread-safe; a feed is expected to be deduplicated on one thread.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceDeduplicator
+{
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private final int                   maxExactPerType;
+    private final long[]                filter;
+    private final int                   hashes;
+    private final IntSet                songs;
+    private final HashSet<String>       versions;
+    private final IPhoneIndex<IPhone>   phones;
+    private final IPhoneIndex<IPhone16> phone16s;
+    private final long[]                seen;
+    private final long[]                duplicates;
+    private final long[]                approximate;
+
+    /**
+     * Constructor for DeviceDeduplicator.
+     *
+     * @param maxExactPerType   is the largest number of distinct devices each type's exact index holds.
+     * @param expectedDistinct  is the number of distinct devices the Bloom filter is sized for.
+     * @param falsePositiveRate is the Bloom filter's target false positive rate at expectedDistinct, for example 0.01.
+     */
+    public DeviceDeduplicator(final int maxExactPerType, final long expectedDistinct, final double falsePositiveRate)
+    {
+        final double bits;
+
+        if(maxExactPerType < 0 || expectedDistinct < 1 || !(falsePositiveRate > 0.0 && falsePositiveRate < 1.0))
+        {
+            throw new IllegalArgumentException("Need maxExactPerType >= 0, expectedDistinct >= 1 and 0 < falsePositiveRate < 1");
+        }
+
+        // the standard Bloom filter sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hashes
+        bits = Math.ceil(-expectedDistinct * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+        if(bits > (double) Integer.MAX_VALUE * Long.SIZE)
+        {
+            throw new IllegalArgumentException("Bloom filter too large: " + (long) bits + " bits");
+        }
+
+        this.maxExactPerType = maxExactPerType;
+        this.filter          = new long[Math.max(1, (int) Math.ceil(bits / Long.SIZE))];
+        this.hashes          = Math.max(1, (int) Math.round(bits / expectedDistinct * Math.log(2)));
+        this.songs           = new IntSet();
+        this.versions        = new HashSet<>();
+        this.phones          = new IPhoneIndex<>();
+        this.phone16s        = new IPhoneIndex<>();
+        this.seen            = new long[DeviceType.values().length];
+        this.duplicates      = new long[DeviceType.values().length];
+        this.approximate     = new long[DeviceType.values().length];
+    }
+
+    /**
+     * Offers the next device of the feed.
+     *
+     * @param device is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @return a boolean; true if the device is new and should be passed on, false if it is a duplicate.
+     */
+    public boolean offer(final IDevice device)
+    {
+        final IDevice    element;
+        final DeviceType type;
+        final boolean    fresh;
+
+        element = DeviceFleet.concrete(device);
+        type    = DeviceType.of(element);
+
+        if(type == DeviceType.IPOD)
+        {
+            fresh = this.offerKey(type, this.songs, ((IPod) element).getNumSongsStored());
+        }
+        else if(type == DeviceType.IPAD)
+        {
+            fresh = this.offerVersion(type, ((IPad) element).getOsVersion());
+        }
+        else if(type == DeviceType.IPHONE16)
+        {
+            fresh = this.offerPhone(type, this.phone16s, (IPhone16) element, ((IPhone16) element).hasHighResCamera() ? 1 : 0);
+        }
+        else
+        {
+            fresh = this.offerPhone(type, this.phones, (IPhone) element, 0);
+        }
+
+        this.seen[type.ordinal()]++;
+
+        if(!fresh)
+        {
+            this.duplicates[type.ordinal()]++;
+        }
+
+        return fresh;
+    }
+
+    /**
+     * Passes every new device of a feed on to a consumer.
+     *
+     * @param feed     is the feed of devices.
+     * @param consumer is called with each device that is not a duplicate, in feed order.
+     */
+    public void filter(final Iterable<? extends IDevice> feed, final Consumer<? super IDevice> consumer)
+    {
+        for(final IDevice device : feed)
+        {
+            if(this.offer(device))
+            {
+                consumer.accept(device);
+            }
+        }
+    }
+
+    /**
+     * Returns the counters of one device type.
+     *
+     * @param type is the DeviceType.
+     *
+     * @return a new Stats.
+     */
+    public Stats stats(final DeviceType type)
+    {
+        return new Stats(type, this.seen[type.ordinal()], this.duplicates[type.ordinal()], this.approximate[type.ordinal()]);
+    }
+
+    /**
+     * Returns a summary of every device type, one line each.
+     *
+     * @return the summary as a String.
+     */
+    public String report()
+    {
+        final StringBuilder sb;
+        sb = new StringBuilder();
+
+        for(final DeviceType type : DeviceType.values())
+        {
+            sb.append(this.stats(type)).append(System.lineSeparator());
+        }
+
+        return sb.toString();
+    }
+
+    /*
+     * Decides an IPod, whose equality is equality of one int key.
+     */
+    private boolean offerKey(final DeviceType type, final IntSet exact, final int key)
+    {
+        final long filterKey;
+        filterKey = ((long) type.ordinal() << 32) | (key & 0xFFFFFFFFL);
+
+        if(!this.mightContain(filterKey))
+        {
+            this.remember(filterKey);
+
+            if(exact.size() < this.maxExactPerType)
+            {
+                exact.add(key);
+            }
+
+            return true;
+        }
+
+        if(exact.contains(key))
+        {
+            return false;
+        }
+
+        if(exact.size() < this.maxExactPerType)
+        {
+            // a filter false positive: the exact index still covers every key, so the device is new
+            exact.add(key);
+
+            return true;
+        }
+
+        this.approximate[type.ordinal()]++;
+
+        return false;
+    }
+
+    /*
+     * Decides an IPad, whose equality is equalsIgnoreCase of its version: the filter sees the case-folded hash and the
+     * exact set holds the case-folded spelling, or null.
+     */
+    private boolean offerVersion(final DeviceType type, final OsVersionTable.Version version)
+    {
+        final String folded;
+        final long   filterKey;
+
+        folded    = version.getSpelling() == null ? null : OsVersionTable.fold(version.getSpelling());
+        filterKey = ((long) type.ordinal() << 32) | (version.getFoldedHash() & 0xFFFFFFFFL);
+
+        if(!this.mightContain(filterKey))
+        {
+            this.remember(filterKey);
+
+            if(this.versions.size() < this.maxExactPerType)
+            {
+                this.versions.add(folded);
+            }
+
+            return true;
+        }
+
+        if(this.versions.contains(folded))
+        {
+            return false;
+        }
+
+        if(this.versions.size() < this.maxExactPerType)
+        {
+            // a filter false positive or a folded hash collision: the exact set still covers every version
+            this.versions.add(folded);
+
+            return true;
+        }
+
+        this.approximate[type.ordinal()]++;
+
+        return false;
+    }
+
+    /*
+     * Decides an IPhone or IPhone16 by probing its grid cell and both neighbours.
+     */
+    private <T extends IPhone> boolean offerPhone(final DeviceType type, final IPhoneIndex<T> exact, final T phone, final int camera)
+    {
+        final double minutes;
+        final long   cell;
+        boolean      maybe;
+
+        minutes = phone.getMinutesRemaining();
+
+        if(Double.isNaN(minutes) || Double.isInfinite(minutes))
+        {
+            // equals subtracts the minutes, which gives NaN, so no other phone is ever equal to this one
+            return true;
+        }
+
+        cell  = IPhoneIndex.cellOf(minutes);
+        maybe = false;
+
+        // counts the three cells instead of comparing with cell + 1, which overflows for saturated minutes
+        for(int offset = -1; offset <= 1 && !maybe; offset++)
+        {
+            maybe = this.mightContain(phoneKey(type, camera, cell + offset));
+        }
+
+        if(maybe && exact.contains(phone))
+        {
+            return false;
+        }
+
+        if(maybe && exact.size() >= this.maxExactPerType)
+        {
+            this.approximate[type.ordinal()]++;
+
+            return false;
+        }
+
+        this.remember(phoneKey(type, camera, cell));
+
+        if(exact.size() < this.maxExactPerType)
+        {
+            exact.add(copyOf(phone));
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns the filter key of a phone's grid cell; the camera keeps the two IPhone16 equality classes apart.
+     */
+    private static long phoneKey(final DeviceType type, final int camera, final long cell)
+    {
+        return (cell * 4 + camera) * 4 + type.ordinal();
+    }
+
+    /*
+     * Returns a private copy of a phone, so the index never sees later changes to the caller's phone.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T extends IPhone> T copyOf(final T phone)
+    {
+        return (T) phone.snapshot().thaw();
+    }
+
+    /*
+     * Returns whether the filter may have seen a key; the k probes are derived from two hashes by double hashing.
+     */
+    private boolean mightContain(final long key)
+    {
+        final long bits;
+        final long hash;
+        final int  first;
+        final int  second;
+
+        bits   = (long) this.filter.length * Long.SIZE;
+        hash   = mix(key);
+        first  = (int) hash;
+        second = (int) (hash >>> 32) | 1;
+
+        for(int i = 0; i < this.hashes; i++)
+        {
+            final long bit;
+            bit = Math.floorMod(first + (long) i * second, bits);
+
+            if((this.filter[(int) (bit >>> 6)] & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Adds a key to the filter.
+     */
+    private void remember(final long key)
+    {
+        final long bits;
+        final long hash;
+        final int  first;
+        final int  second;
+
+        bits   = (long) this.filter.length * Long.SIZE;
+        hash   = mix(key);
+        first  = (int) hash;
+        second = (int) (hash >>> 32) | 1;
+
+        for(int i = 0; i < this.hashes; i++)
+        {
+            final long bit;
+            bit = Math.floorMod(first + (long) i * second, bits);
+
+            this.filter[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /*
+     * Scrambles a key so both halves of the result are well distributed.
+     */
+    private static long mix(final long key)
+    {
+        long h;
+        h = key * PHI;
+        h ^= h >>> 32;
+        h *= PHI;
+
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * The counters of one device type.
+     */
+    public static final class Stats
+    {
+        private final DeviceType type;
+        private final long       seen;
+        private final long       duplicates;
+        private final long       approximate;
+
+        private Stats(final DeviceType type, final long seen, final long duplicates, final long approximate)
+        {
+            this.type        = type;
+            this.seen        = seen;
+            this.duplicates  = duplicates;
+            this.approximate = approximate;
+        }
+
+        /**
+         * Getter for the number of devices offered.
+         *
+         * @return the count as a long.
+         */
+        public long getSeen()
+        {
+            return this.seen;
+        }
+
+        /**
+         * Getter for the number of devices dropped as duplicates.
+         *
+         * @return the count as a long.
+         */
+        public long getDuplicates()
+        {
+            return this.duplicates;
+        }
+
+        /**
+         * Getter for the number of duplicates decided by the Bloom filter alone, after the exact index filled up.
+         *
+         * @return the count as a long.
+         */
+        public long getApproximate()
+        {
+            return this.approximate;
+        }
+
+        /**
+         * Getter for the share of offered devices that were duplicates.
+         *
+         * @return the rate between 0 and 1, or 0 if no device was offered.
+         */
+        public double duplicateRate()
+        {
+            return this.seen == 0 ? 0.0 : (double) this.duplicates / this.seen;
+        }
+
+        /**
+         * Returns the counters as a String.
+         *
+         * @return the type, counters and duplicate rate.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("%s: seen=%d duplicates=%d approximate=%d duplicateRate=%.4f", this.type, this.seen, this.duplicates, this.approximate, this.duplicateRate());
+        }
+    }
+
+    /*
+     * An open-addressed set of ints.
+     */
+    private static final class IntSet
+    {
+        private static final int INITIAL_CAPACITY = 16;
+
+        private int[]     keys;
+        private boolean[] used;
+        private int       size;
+
+        private IntSet()
+        {
+            this.keys = new int[INITIAL_CAPACITY];
+            this.used = new boolean[INITIAL_CAPACITY];
+        }
+
+        private int size()
+        {
+            return this.size;
+        }
+
+        private boolean contains(final int key)
+        {
+            final int mask;
+            int       slot;
+
+            mask = this.keys.length - 1;
+            slot = (int) mix(key) & mask;
+
+            while(this.used[slot])
+            {
+                if(this.keys[slot] == key)
+                {
+                    return true;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            return false;
+        }
+
+        private void add(final int key)
+        {
+            final int mask;
+            int       slot;
+
+            mask = this.keys.length - 1;
+            slot = (int) mix(key) & mask;
+
+            while(this.used[slot])
+            {
+                if(this.keys[slot] == key)
+                {
+                    return;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            this.keys[slot] = key;
+            this.used[slot] = true;
+            this.size++;
+
+            if(this.size * 2 > this.keys.length)
+            {
+                this.grow();
+            }
+        }
+
+        private void grow()
+        {
+            final int[]     oldKeys;
+            final boolean[] oldUsed;
+
+            oldKeys   = this.keys;
+            oldUsed   = this.used;
+            this.keys = new int[oldKeys.length * 2];
+            this.used = new boolean[oldKeys.length * 2];
+            this.size = 0;
+
+            for(int i = 0; i < oldKeys.length; i++)
+            {
+                if(oldUsed[i])
+                {
+                    this.add(oldKeys[i]);
+                }
+            }
+        }
+    }
+}
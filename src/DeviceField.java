@@ -0,0 +1,82 @@
+/**
+ * Identifies a mutable field of an IDevice in change notifications.
+ * <p>
+ * Numeric fields are reported to DeviceObservers as doubles: minutes as they are, songs as exact ints, and hasCase as
+ * 1.0 for true and 0.0 for false. Text fields are reported as Strings.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public enum DeviceField
+{
+    MINUTES_REMAINING(true),
+    CARRIER(false),
+    HAS_CASE(true),
+    OP_SYSTEM_VERSION(false),
+    NUM_SONGS_STORED(true);
+
+    private final boolean numeric;
+
+    /*
+     * Constructor for DeviceField.
+     */
+    DeviceField(final boolean numeric)
+    {
+        this.numeric = numeric;
+    }
+
+    /**
+     * Getter for whether changes of the field are reported through numberChanged.
+     *
+     * @return a boolean; true for numeric fields, false for text fields.
+     */
+    public boolean isNumeric()
+    {
+        return this.numeric;
+    }
+
+    /**
+     * Reads the current value of a numeric field, encoded as it is reported to DeviceObservers. Observers that must end
+     * on the device's latest value read it here rather than trusting a notification, which can arrive out of order.
+     *
+     * @param device is an IPhone or IPhone16 for MINUTES_REMAINING, an IPad for HAS_CASE, or an IPod for
+     *               NUM_SONGS_STORED.
+     *
+     * @return the current value as a double.
+     */
+    double currentNumber(final IDevice device)
+    {
+        switch(this)
+        {
+            case MINUTES_REMAINING:
+                return ((IPhone) device).getMinutesRemaining();
+            case HAS_CASE:
+                return ((IPad) device).getHasCase() ? 1.0 : 0.0;
+            case NUM_SONGS_STORED:
+                return ((IPod) device).getNumSongsStored();
+            default:
+                throw new IllegalStateException(this + " is not numeric");
+        }
+    }
+
+    /**
+     * Reads the current value of a text field.
+     *
+     * @param device is an IPhone or IPhone16 for CARRIER, or an IPad for OP_SYSTEM_VERSION.
+     *
+     * @return the current value, may be null.
+     */
+    String currentText(final IDevice device)
+    {
+        switch(this)
+        {
+            case CARRIER:
+                return ((IPhone) device).getCarrier();
+            case OP_SYSTEM_VERSION:
+                return ((IPad) device).getOpSystemVersion();
+            default:
+                throw new IllegalStateException(this + " is not text");
+        }
+    }
+}
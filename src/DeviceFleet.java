@@ -0,0 +1,1249 @@
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Stores a large fleet of IDevices in columns of primitives instead of one object per device.
+ * <p>
+ * Each kind of device has its own parallel arrays: minutes remaining as doubles, songs stored as ints, flags as bit
+ * sets, and carriers and operating system versions dictionary-encoded as ints.
+ * </p>
+ * <p>
+ * Devices are addressed by an int handle. The low two bits of a handle hold the DeviceType ordinal and the remaining
+ * bits hold the row in that type's columns. Handles are stable for the life of the fleet.
+ * </p>
+ * <p>
+ * The view method hands out lightweight flyweights which are IDevices backed by the columns, so existing callers of
+ * getPurpose, printDetails and toString keep working. Iteration visits IPhones, then IPhone16s, then IPads, then IPods.
+ * </p>
+ * <p>
+ * Not thread-safe; callers must synchronize writers externally.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceFleet implements Iterable<IDevice>
+{
+    private static final int TYPE_BITS        = 2;
+    private static final int TYPE_MASK        = (1 << TYPE_BITS) - 1;
+    private static final int MAX_ROWS         = Integer.MAX_VALUE >>> TYPE_BITS;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final StringDictionary carriers;
+    private final StringDictionary osVersions;
+
+    // IPhone columns
+    private double[] phoneMinutes;
+    private int[]    phoneCarrier;
+    private int      phoneCount;
+
+    // IPhone16 columns
+    private double[] phone16Minutes;
+    private int[]    phone16Carrier;
+    private int[]    phone16Memory;
+    private BitSet   phone16Camera;
+    private int      phone16Count;
+
+    // IPad columns
+    private int[]  padOs;
+    private BitSet padCase;
+    private int    padCount;
+
+    // IPod columns
+    private int[]    podSongs;
+    private double[] podMaxVol;
+    private int      podCount;
+
+    /**
+     * Constructor for an empty DeviceFleet.
+     */
+    public DeviceFleet()
+    {
+        this.carriers   = new StringDictionary();
+        this.osVersions = new StringDictionary();
+
+        this.phoneMinutes = new double[INITIAL_CAPACITY];
+        this.phoneCarrier = new int[INITIAL_CAPACITY];
+
+        this.phone16Minutes = new double[INITIAL_CAPACITY];
+        this.phone16Carrier = new int[INITIAL_CAPACITY];
+        this.phone16Memory  = new int[INITIAL_CAPACITY];
+        this.phone16Camera  = new BitSet();
+
+        this.padOs   = new int[INITIAL_CAPACITY];
+        this.padCase = new BitSet();
+
+        this.podSongs  = new int[INITIAL_CAPACITY];
+        this.podMaxVol = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a copy of an existing device to the fleet.
+     *
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a view of one.
+     *
+     * @return the handle of the stored device.
+     */
+    public int add(final IDevice element)
+    {
+        final IDevice device;
+        device = concrete(element);
+
+        switch(DeviceType.of(device))
+        {
+            case IPHONE16:
+            {
+                final IPhone16 phone;
+                phone = (IPhone16) device;
+
+                return this.addIPhone16(phone.getMinutesRemaining(), phone.getCarrier(), phone.hasHighResCamera(), phone.getMemoryGB());
+            }
+            case IPHONE:
+            {
+                final IPhone phone;
+                phone = (IPhone) device;
+
+                return this.addIPhone(phone.getMinutesRemaining(), phone.getCarrier());
+            }
+            case IPAD:
+            {
+                final IPad pad;
+                pad = (IPad) device;
+
+                return this.addIPad(pad.getHasCase(), pad.getOpSystemVersion());
+            }
+            default:
+            {
+                final IPod pod;
+                pod = (IPod) device;
+
+                return this.addIPod(pod.getNumSongsStored(), pod.getMaxVolDecibels());
+            }
+        }
+    }
+
+    /**
+     * Adds an IPhone to the fleet.
+     *
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     *
+     * @return the handle of the stored IPhone.
+     */
+    public int addIPhone(final double mins, final String carrier)
+    {
+        final int row;
+        row = this.phoneCount;
+
+        if(row == this.phoneMinutes.length)
+        {
+            final int capacity;
+            capacity = grow(row);
+
+            this.phoneMinutes = Arrays.copyOf(this.phoneMinutes, capacity);
+            this.phoneCarrier = Arrays.copyOf(this.phoneCarrier, capacity);
+        }
+
+        this.phoneMinutes[row] = mins;
+        this.phoneCarrier[row] = this.carriers.encode(carrier);
+        this.phoneCount++;
+
+        return handle(DeviceType.IPHONE, row);
+    }
+
+    /**
+     * Adds an IPhone16 to the fleet.
+     *
+     * @param mins      is the number of minutes remaining as a double.
+     * @param carrier   is the carrier as a String.
+     * @param cameraRes is a boolean; true if high resolution camera, otherwise false.
+     * @param memoryGB  is the memory storage in GB as an int.
+     *
+     * @return the handle of the stored IPhone16.
+     */
+    public int addIPhone16(final double mins, final String carrier, final boolean cameraRes, final int memoryGB)
+    {
+        final int row;
+        row = this.phone16Count;
+
+        if(row == this.phone16Minutes.length)
+        {
+            final int capacity;
+            capacity = grow(row);
+
+            this.phone16Minutes = Arrays.copyOf(this.phone16Minutes, capacity);
+            this.phone16Carrier = Arrays.copyOf(this.phone16Carrier, capacity);
+            this.phone16Memory  = Arrays.copyOf(this.phone16Memory, capacity);
+        }
+
+        this.phone16Minutes[row] = mins;
+        this.phone16Carrier[row] = this.carriers.encode(carrier);
+        this.phone16Memory[row]  = memoryGB;
+        this.phone16Camera.set(row, cameraRes);
+        this.phone16Count++;
+
+        return handle(DeviceType.IPHONE16, row);
+    }
+
+    /**
+     * Adds an IPad to the fleet.
+     *
+     * @param hasCase is a boolean; true if the IPad has a case, otherwise false.
+     * @param os      is the current operating system version as a String.
+     *
+     * @return the handle of the stored IPad.
+     */
+    public int addIPad(final boolean hasCase, final String os)
+    {
+        final int row;
+        row = this.padCount;
+
+        if(row == this.padOs.length)
+        {
+            this.padOs = Arrays.copyOf(this.padOs, grow(row));
+        }
+
+        this.padOs[row] = this.osVersions.encode(os);
+        this.padCase.set(row, hasCase);
+        this.padCount++;
+
+        return handle(DeviceType.IPAD, row);
+    }
+
+    /**
+     * Adds an IPod to the fleet.
+     *
+     * @param songs  is the number of songs currently stored as an int.
+     * @param maxVol is the maximum volume in decibels.
+     *
+     * @return the handle of the stored IPod.
+     */
+    public int addIPod(final int songs, final double maxVol)
+    {
+        final int row;
+        row = this.podCount;
+
+        if(row == this.podSongs.length)
+        {
+            final int capacity;
+            capacity = grow(row);
+
+            this.podSongs  = Arrays.copyOf(this.podSongs, capacity);
+            this.podMaxVol = Arrays.copyOf(this.podMaxVol, capacity);
+        }
+
+        this.podSongs[row]  = songs;
+        this.podMaxVol[row] = maxVol;
+        this.podCount++;
+
+        return handle(DeviceType.IPOD, row);
+    }
+
+    /**
+     * Getter for the total number of devices in the fleet.
+     *
+     * @return the number of devices as an int.
+     */
+    public int size()
+    {
+        return this.phoneCount + this.phone16Count + this.padCount + this.podCount;
+    }
+
+    /**
+     * Returns the number of devices of one type.
+     *
+     * @param type is the DeviceType to be counted.
+     *
+     * @return the number of devices of that type.
+     */
+    public int count(final DeviceType type)
+    {
+        switch(type)
+        {
+            case IPHONE:
+                return this.phoneCount;
+            case IPHONE16:
+                return this.phone16Count;
+            case IPAD:
+                return this.padCount;
+            default:
+                return this.podCount;
+        }
+    }
+
+    /**
+     * Builds the handle of a row of one type.
+     *
+     * @param type is the DeviceType of the row.
+     * @param row  is the row in that type's columns.
+     *
+     * @return the handle as an int.
+     */
+    public static int handle(final DeviceType type, final int row)
+    {
+        if(row < 0 || row > MAX_ROWS)
+        {
+            throw new IndexOutOfBoundsException("Row out of range: " + row);
+        }
+
+        return (row << TYPE_BITS) | type.ordinal();
+    }
+
+    /**
+     * Returns the DeviceType encoded in a handle.
+     *
+     * @param handle is a device handle.
+     *
+     * @return the DeviceType of the device.
+     */
+    public static DeviceType typeOf(final int handle)
+    {
+        return DeviceType.fromOrdinal(handle & TYPE_MASK);
+    }
+
+    /**
+     * Returns a device that is an instance of the class its DeviceType names.
+     * <p>
+     * Fleet views are not instances of IPhone, IPad or IPod, so callers that cast by DeviceType pass every device
+     * through here first. A view becomes a new, independent copy of its row; any other device is returned as is.
+     * </p>
+     *
+     * @param device is an IPhone, IPhone16, IPad or IPod, or a view of one.
+     *
+     * @return the device, or a copy of the view's row.
+     */
+    static IDevice concrete(final IDevice device)
+    {
+        if(device instanceof View)
+        {
+            return ((View) device).materialize();
+        }
+
+        return device;
+    }
+
+    /**
+     * Returns the row encoded in a handle.
+     *
+     * @param handle is a device handle.
+     *
+     * @return the row in the device type's columns.
+     */
+    public static int rowOf(final int handle)
+    {
+        return handle >>> TYPE_BITS;
+    }
+
+    /**
+     * Getter for the minutes remaining of an IPhone or IPhone16.
+     *
+     * @param handle is the handle of an IPhone or IPhone16.
+     *
+     * @return the number of minutes remaining as a double.
+     */
+    public double getMinutesRemaining(final int handle)
+    {
+        final int row;
+        row = this.checkedRow(handle);
+
+        if(typeOf(handle) == DeviceType.IPHONE16)
+        {
+            return this.phone16Minutes[row];
+        }
+
+        this.requireType(handle, DeviceType.IPHONE);
+
+        return this.phoneMinutes[row];
+    }
+
+    /**
+     * Sets the minutes remaining of an IPhone or IPhone16.
+     *
+     * @param handle is the handle of an IPhone or IPhone16.
+     * @param min    is the remaining minutes as a double.
+     */
+    public void setMinutesRemaining(final int handle, final double min)
+    {
+        final int row;
+        row = this.checkedRow(handle);
+
+        if(typeOf(handle) == DeviceType.IPHONE16)
+        {
+            this.phone16Minutes[row] = min;
+        }
+        else
+        {
+            this.requireType(handle, DeviceType.IPHONE);
+            this.phoneMinutes[row] = min;
+        }
+    }
+
+    /**
+     * Getter for the carrier of an IPhone or IPhone16.
+     *
+     * @param handle is the handle of an IPhone or IPhone16.
+     *
+     * @return the carrier as a String.
+     */
+    public String getCarrier(final int handle)
+    {
+        return this.carriers.decode(this.getCarrierId(handle));
+    }
+
+    /**
+     * Getter for the dictionary id of the carrier of an IPhone or IPhone16.
+     *
+     * @param handle is the handle of an IPhone or IPhone16.
+     *
+     * @return the carrier id as an int.
+     */
+    public int getCarrierId(final int handle)
+    {
+        final int row;
+        row = this.checkedRow(handle);
+
+        if(typeOf(handle) == DeviceType.IPHONE16)
+        {
+            return this.phone16Carrier[row];
+        }
+
+        this.requireType(handle, DeviceType.IPHONE);
+
+        return this.phoneCarrier[row];
+    }
+
+    /**
+     * Sets the carrier of an IPhone or IPhone16.
+     *
+     * @param handle  is the handle of an IPhone or IPhone16.
+     * @param carrier is the carrier as a String.
+     */
+    public void setCarrier(final int handle, final String carrier)
+    {
+        final int row;
+        row = this.checkedRow(handle);
+
+        if(typeOf(handle) == DeviceType.IPHONE16)
+        {
+            this.phone16Carrier[row] = this.carriers.encode(carrier);
+        }
+        else
+        {
+            this.requireType(handle, DeviceType.IPHONE);
+            this.phoneCarrier[row] = this.carriers.encode(carrier);
+        }
+    }
+
+    /**
+     * Getter for the high resolution camera feature of an IPhone16.
+     *
+     * @param handle is the handle of an IPhone16.
+     *
+     * @return true if the device has a high resolution camera, false otherwise.
+     */
+    public boolean hasHighResCamera(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPHONE16);
+
+        return this.phone16Camera.get(this.checkedRow(handle));
+    }
+
+    /**
+     * Getter for the memory storage of an IPhone16.
+     *
+     * @param handle is the handle of an IPhone16.
+     *
+     * @return the memory storage of the device in GB.
+     */
+    public int getMemoryGB(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPHONE16);
+
+        return this.phone16Memory[this.checkedRow(handle)];
+    }
+
+    /**
+     * Getter for whether an IPad has a case.
+     *
+     * @param handle is the handle of an IPad.
+     *
+     * @return a boolean; true if has a case, otherwise false.
+     */
+    public boolean getHasCase(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPAD);
+
+        return this.padCase.get(this.checkedRow(handle));
+    }
+
+    /**
+     * Setter for whether an IPad has a case.
+     *
+     * @param handle is the handle of an IPad.
+     * @param x      is a boolean.
+     */
+    public void setHasCase(final int handle, final boolean x)
+    {
+        this.requireType(handle, DeviceType.IPAD);
+        this.padCase.set(this.checkedRow(handle), x);
+    }
+
+    /**
+     * Getter for the operating system version of an IPad.
+     *
+     * @param handle is the handle of an IPad.
+     *
+     * @return the operating system version as a String.
+     */
+    public String getOpSystemVersion(final int handle)
+    {
+        return this.osVersions.decode(this.getOpSystemVersionId(handle));
+    }
+
+    /**
+     * Getter for the dictionary id of the operating system version of an IPad.
+     *
+     * @param handle is the handle of an IPad.
+     *
+     * @return the operating system version id as an int.
+     */
+    public int getOpSystemVersionId(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPAD);
+
+        return this.padOs[this.checkedRow(handle)];
+    }
+
+    /**
+     * Setter for the operating system version of an IPad.
+     *
+     * @param handle is the handle of an IPad.
+     * @param os     is the operating system version as a String.
+     */
+    public void setOpSystemVersion(final int handle, final String os)
+    {
+        this.requireType(handle, DeviceType.IPAD);
+        this.padOs[this.checkedRow(handle)] = this.osVersions.encode(os);
+    }
+
+    /**
+     * Getter for the number of songs stored on an IPod.
+     *
+     * @param handle is the handle of an IPod.
+     *
+     * @return number of songs stored as an int.
+     */
+    public int getNumSongsStored(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPOD);
+
+        return this.podSongs[this.checkedRow(handle)];
+    }
+
+    /**
+     * Sets the number of songs stored on an IPod.
+     *
+     * @param handle is the handle of an IPod.
+     * @param num    the number of songs stored as an int.
+     */
+    public void setNumSongsStored(final int handle, final int num)
+    {
+        this.requireType(handle, DeviceType.IPOD);
+        this.podSongs[this.checkedRow(handle)] = num;
+    }
+
+    /**
+     * Getter for the maximum volume of an IPod.
+     *
+     * @param handle is the handle of an IPod.
+     *
+     * @return max volume in decibels.
+     */
+    public double getMaxVolDecibels(final int handle)
+    {
+        this.requireType(handle, DeviceType.IPOD);
+
+        return this.podMaxVol[this.checkedRow(handle)];
+    }
+
+    /**
+     * Getter for the carrier dictionary.
+     *
+     * @return the carrier dictionary.
+     */
+    StringDictionary carriers()
+    {
+        return this.carriers;
+    }
+
+    /**
+     * Getter for the operating system version dictionary.
+     *
+     * @return the operating system version dictionary.
+     */
+    StringDictionary osVersions()
+    {
+        return this.osVersions;
+    }
+
+    /**
+     * Returns a flyweight IDevice backed by this fleet's columns.
+     * <p>
+     * The view reads the columns on every call, so it always reflects the current values.
+     * </p>
+     *
+     * @param handle is a device handle.
+     *
+     * @return a View of the device.
+     */
+    public View view(final int handle)
+    {
+        this.checkedRow(handle);
+
+        switch(typeOf(handle))
+        {
+            case IPHONE:
+                return new PhoneView(this, handle);
+            case IPHONE16:
+                return new Phone16View(this, handle);
+            case IPAD:
+                return new PadView(this, handle);
+            default:
+                return new PodView(this, handle);
+        }
+    }
+
+    /**
+     * Builds a new, independent IPhone, IPhone16, IPad or IPod from a stored device.
+     *
+     * @param handle is a device handle.
+     *
+     * @return a new IDevice holding the stored values.
+     */
+    public IDevice materialize(final int handle)
+    {
+        switch(typeOf(handle))
+        {
+            case IPHONE:
+                return new IPhone(this.getMinutesRemaining(handle), this.getCarrier(handle));
+            case IPHONE16:
+                return new IPhone16(this.getMinutesRemaining(handle), this.getCarrier(handle), this.hasHighResCamera(handle), this.getMemoryGB(handle));
+            case IPAD:
+                return new IPad(this.getHasCase(handle), this.getOpSystemVersion(handle));
+            default:
+                return new IPod(this.getNumSongsStored(handle), this.getMaxVolDecibels(handle));
+        }
+    }
+
+    /**
+     * Returns an iterator over views of every device, grouped by type.
+     *
+     * @return an Iterator of IDevice views.
+     */
+    @Override
+    public Iterator<IDevice> iterator()
+    {
+        return new Iterator<IDevice>()
+        {
+            private int typeOrdinal = 0;
+            private int row         = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                while(this.typeOrdinal <= TYPE_MASK)
+                {
+                    if(this.row < DeviceFleet.this.count(DeviceType.fromOrdinal(this.typeOrdinal)))
+                    {
+                        return true;
+                    }
+
+                    this.typeOrdinal++;
+                    this.row = 0;
+                }
+
+                return false;
+            }
+
+            @Override
+            public IDevice next()
+            {
+                if(!this.hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                return DeviceFleet.this.view(handle(DeviceType.fromOrdinal(this.typeOrdinal), this.row++));
+            }
+        };
+    }
+
+    /*
+     * Validates that a handle points at an existing row and returns the row.
+     */
+    private int checkedRow(final int handle)
+    {
+        final int row;
+        row = rowOf(handle);
+
+        if(handle < 0 || row >= this.count(typeOf(handle)))
+        {
+            throw new IndexOutOfBoundsException("No device with handle " + handle);
+        }
+
+        return row;
+    }
+
+    /*
+     * Validates that a handle is of the expected type.
+     */
+    private void requireType(final int handle, final DeviceType type)
+    {
+        if(typeOf(handle) != type)
+        {
+            throw new IllegalArgumentException("Handle " + handle + " is not an " + type);
+        }
+    }
+
+    /*
+     * Returns the next column capacity.
+     */
+    private static int grow(final int capacity)
+    {
+        if(capacity >= MAX_ROWS)
+        {
+            throw new IllegalStateException("DeviceFleet is full");
+        }
+
+        return (int) Math.min((long) capacity * 2, MAX_ROWS + 1L);
+    }
+
+    /**
+     * A flyweight IDevice backed by a DeviceFleet row.
+     * <p>
+     * Views are equal by the same rules as the class they stand in for, but only to other views.
+     * </p>
+     */
+    public abstract static class View extends IDevice
+    {
+        final DeviceFleet fleet;
+        final int         handle;
+
+        /**
+         * Constructor for View.
+         *
+         * @param purpose is the device's purpose as a String.
+         * @param fleet   is the DeviceFleet holding the device.
+         * @param handle  is the device handle.
+         */
+        View(final String purpose, final DeviceFleet fleet, final int handle)
+        {
+            super(purpose);
+
+            this.fleet  = fleet;
+            this.handle = handle;
+        }
+
+        /**
+         * Getter for the DeviceFleet backing this view.
+         *
+         * @return the DeviceFleet.
+         */
+        public final DeviceFleet getFleet()
+        {
+            return this.fleet;
+        }
+
+        /**
+         * Getter for the handle of the device.
+         *
+         * @return the device handle as an int.
+         */
+        public final int getHandle()
+        {
+            return this.handle;
+        }
+
+        /**
+         * Builds a new, independent device holding the same values.
+         *
+         * @return a new IDevice.
+         */
+        public final IDevice materialize()
+        {
+            return this.fleet.materialize(this.handle);
+        }
+
+        /**
+         * Visits a new, independent device holding the same values, since a view is not an instance of the class
+         * the visitor method takes.
+         *
+         * @param visitor is the DeviceVisitor to be called.
+         * @param <R>     is the type of the result.
+         *
+         * @return the result of the visitor method.
+         */
+        @Override
+        public final <R> R accept(final DeviceVisitor<R> visitor)
+        {
+            return this.materialize().accept(visitor);
+        }
+
+        /**
+         * Takes an immutable copy of the row's current values.
+         *
+         * @return the ImmutableDevice.
+         */
+        @Override
+        public final ImmutableDevice snapshot()
+        {
+            return this.materialize().snapshot();
+        }
+    }
+
+    /**
+     * A view of an IPhone row.
+     */
+    public static class PhoneView extends View
+    {
+        /**
+         * Constructor for PhoneView.
+         *
+         * @param fleet  is the DeviceFleet holding the device.
+         * @param handle is the device handle.
+         */
+        PhoneView(final DeviceFleet fleet, final int handle)
+        {
+            super(IPhone.IPHONE_PURPOSE, fleet, handle);
+        }
+
+        /**
+         * Getter for the number of minutes remaining.
+         *
+         * @return the number of minutes remaining as a double.
+         */
+        public final double getMinutesRemaining()
+        {
+            return this.fleet.getMinutesRemaining(this.handle);
+        }
+
+        /**
+         * Getter for the carrier.
+         *
+         * @return the carrier as a String.
+         */
+        public final String getCarrier()
+        {
+            return this.fleet.getCarrier(this.handle);
+        }
+
+        /**
+         * Sets the number of remaining minutes.
+         *
+         * @param min is the remaining minutes as a double.
+         */
+        public final void setMinutesRemaining(final double min)
+        {
+            this.fleet.setMinutesRemaining(this.handle, min);
+        }
+
+        /**
+         * Sets the carrier.
+         *
+         * @param carrier is the carrier as a String.
+         */
+        public final void setCarrier(final String carrier)
+        {
+            this.fleet.setCarrier(this.handle, carrier);
+        }
+
+        /**
+         * Prints the IPhone's details as a String.
+         */
+        @Override
+        public final void printDetails()
+        {
+            System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
+        }
+
+        /**
+         * Appends the IPhone's details; IPhone16 views print the same details as any phone view.
+         *
+         * @param sb is the StringBuilder to be appended to.
+         *
+         * @return the StringBuilder.
+         */
+        @Override
+        public final StringBuilder appendDetailsTo(final StringBuilder sb)
+        {
+            this.appendPurposeTo(sb);
+
+            return DeviceFormat.appendPhoneFields(sb, this.getMinutesRemaining(), this.getCarrier());
+        }
+
+        /**
+         * Appends the IPhone's details as returned by toString.
+         *
+         * @param sb is the StringBuilder to be appended to.
+         *
+         * @return the StringBuilder.
+         */
+        @Override
+        public StringBuilder appendTo(final StringBuilder sb)
+        {
+            super.appendTo(sb);
+
+            return DeviceFormat.appendPhoneFields(sb, this.getMinutesRemaining(), this.getCarrier());
+        }
+
+        /**
+         * Phone views are equal if they have some number of remaining minutes.
+         *
+         * @param o is the view to be compared to.
+         *
+         * @return a boolean; true if equal otherwise false.
+         */
+        @Override
+        public boolean equals(final Object o)
+        {
+            if(o == this)
+            {
+                return true;
+            }
+
+            if(!(o instanceof PhoneView))
+            {
+                return false;
+            }
+
+            return Math.abs(this.getMinutesRemaining() - ((PhoneView) o).getMinutesRemaining()) < IPhone.EPSILON;
+        }
+
+        /**
+         * Returns a hashcode.
+         *
+         * @return a hashcode as an int.
+         */
+        @Override
+        public int hashCode()
+        {
+            return Double.hashCode(this.getMinutesRemaining());
+        }
+    }
+
+    /**
+     * A view of an IPhone16 row.
+     */
+    public static final class Phone16View extends PhoneView
+    {
+        /**
+         * Constructor for Phone16View.
+         *
+         * @param fleet  is the DeviceFleet holding the device.
+         * @param handle is the device handle.
+         */
+        Phone16View(final DeviceFleet fleet, final int handle)
+        {
+            super(fleet, handle);
+        }
+
+        /**
+         * Getter for the high resolution camera feature.
+         *
+         * @return true if the device has a high resolution camera, false otherwise.
+         */
+        public boolean hasHighResCamera()
+        {
+            return this.fleet.hasHighResCamera(this.handle);
+        }
+
+        /**
+         * Getter for the memory storage of the device.
+         *
+         * @return the memory storage of the device in GB.
+         */
+        public int getMemoryGB()
+        {
+            return this.fleet.getMemoryGB(this.handle);
+        }
+
+        /**
+         * Appends the IPhone16's details as returned by toString.
+         *
+         * @param sb is the StringBuilder to be appended to.
+         *
+         * @return the StringBuilder.
+         */
+        @Override
+        public StringBuilder appendTo(final StringBuilder sb)
+        {
+            super.appendTo(sb);
+
+            return DeviceFormat.appendPhone16Fields(sb, this.hasHighResCamera(), this.getMemoryGB());
+        }
+
+        /**
+         * IPhone16 views are equal if they have the same camera resolution and some number of remaining minutes.
+         *
+         * @param o is the view to be compared to.
+         *
+         * @return a boolean; true if equal otherwise false.
+         */
+        @Override
+        public boolean equals(final Object o)
+        {
+            if(o == this)
+            {
+                return true;
+            }
+
+            if(!(o instanceof Phone16View))
+            {
+                return false;
+            }
+
+            final Phone16View that;
+            that = (Phone16View) o;
+
+            if(that.hasHighResCamera() != this.hasHighResCamera())
+            {
+                return false;
+            }
+
+            return Math.abs(this.getMinutesRemaining() - that.getMinutesRemaining()) < IPhone.EPSILON;
+        }
+
+        /**
+         * Returns a hashcode.
+         *
+         * @return a hashcode as an int.
+         */
+        @Override
+        public int hashCode()
+        {
+            return Double.hashCode(this.getMinutesRemaining());
+        }
+    }
+
+    /**
+     * A view of an IPad row.
+     */
+    public static final class PadView extends View
+    {
+        /**
+         * Constructor for PadView.
+         *
+         * @param fleet  is the DeviceFleet holding the device.
+         * @param handle is the device handle.
+         */
+        PadView(final DeviceFleet fleet, final int handle)
+        {
+            super(IPad.IPAD_PURPOSE, fleet, handle);
+        }
+
+        /**
+         * Getter for whether the IPad has a case.
+         *
+         * @return a boolean; true if has a case, otherwise false.
+         */
+        public boolean getHasCase()
+        {
+            return this.fleet.getHasCase(this.handle);
+        }
+
+        /**
+         * Getter for operating system version.
+         *
+         * @return the operating system version as a String.
+         */
+        public String getOpSystemVersion()
+        {
+            return this.fleet.getOpSystemVersion(this.handle);
+        }
+
+        /**
+         * Setter for whether the IPad has a case or not.
+         *
+         * @param x is a boolean.
+         */
+        public void setHasCase(final boolean x)
+        {
+            this.fleet.setHasCase(this.handle, x);
+        }
+
+        /**
+         * Setter for the operating software version.
+         *
+         * @param os is the operating software version as a String.
+         */
+        public void setOpSystemVersion(final String os)
+        {
+            this.fleet.setOpSystemVersion(this.handle, os);
+        }
+
+        /**
+         * Prints the IPad's details as a String.
+         */
+        @Override
+        public void printDetails()
+        {
+            System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
+        }
+
+        /**
+         * Appends the IPad's details as returned by toString.
+         *
+         * @param sb is the StringBuilder to be appended to.
+         *
+         * @return the StringBuilder.
+         */
+        @Override
+        public StringBuilder appendTo(final StringBuilder sb)
+        {
+            super.appendTo(sb);
+
+            return DeviceFormat.appendPadFields(sb, this.getHasCase(), this.getOpSystemVersion());
+        }
+
+        /**
+         * IPad views are equal if they have some operating system version.
+         *
+         * @param o is the view to be compared to.
+         *
+         * @return a boolean; true if equal otherwise false.
+         */
+        @Override
+        public boolean equals(final Object o)
+        {
+            if(o == this)
+            {
+                return true;
+            }
+
+            if(!(o instanceof PadView))
+            {
+                return false;
+            }
+
+            return this.getOpSystemVersion().equalsIgnoreCase(((PadView) o).getOpSystemVersion());
+        }
+
+        /**
+         * Returns a hashcode.
+         *
+         * @return a hashcode as an int.
+         */
+        @Override
+        public int hashCode()
+        {
+            return OsVersionTable.foldedHash(this.getOpSystemVersion());
+        }
+    }
+
+    /**
+     * A view of an IPod row.
+     */
+    public static final class PodView extends View
+    {
+        /**
+         * Constructor for PodView.
+         *
+         * @param fleet  is the DeviceFleet holding the device.
+         * @param handle is the device handle.
+         */
+        PodView(final DeviceFleet fleet, final int handle)
+        {
+            super(IPod.IPOD_PURPOSE, fleet, handle);
+        }
+
+        /**
+         * Getter for number of songs stored.
+         *
+         * @return number of songs stored as an int.
+         */
+        public int getNumSongsStored()
+        {
+            return this.fleet.getNumSongsStored(this.handle);
+        }
+
+        /**
+         * Getter for maximum volume in decibels.
+         *
+         * @return max volume in decibels.
+         */
+        public double getMaxVolDecibels()
+        {
+            return this.fleet.getMaxVolDecibels(this.handle);
+        }
+
+        /**
+         * Sets the number of songs currently stored.
+         *
+         * @param num the number of songs stored as an int.
+         */
+        public void setNumSongsStored(final int num)
+        {
+            this.fleet.setNumSongsStored(this.handle, num);
+        }
+
+        /**
+         * Prints the IPod's details.
+         */
+        @Override
+        public void printDetails()
+        {
+            System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
+        }
+
+        /**
+         * Appends the IPod's details as returned by toString.
+         *
+         * @param sb is the StringBuilder to be appended to.
+         *
+         * @return the StringBuilder.
+         */
+        @Override
+        public StringBuilder appendTo(final StringBuilder sb)
+        {
+            super.appendTo(sb);
+
+            return DeviceFormat.appendPodFields(sb, this.getNumSongsStored(), this.getMaxVolDecibels());
+        }
+
+        /**
+         * IPod views are equal if they have some number of songs currently stored.
+         *
+         * @param o is the view to be compared to.
+         *
+         * @return a boolean; true if equal otherwise false.
+         */
+        @Override
+        public boolean equals(final Object o)
+        {
+            if(o == this)
+            {
+                return true;
+            }
+
+            if(!(o instanceof PodView))
+            {
+                return false;
+            }
+
+            return this.getNumSongsStored() == ((PodView) o).getNumSongsStored();
+        }
+
+        /**
+         * Returns a hashcode.
+         *
+         * @return a hashcode as an int.
+         */
+        @Override
+        public int hashCode()
+        {
+            return Integer.hashCode(this.getNumSongsStored());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Renders IDevice details into a StringBuilder without going through String.format.
+ * <p>
+ * The output is byte-identical to the %s, %b, %d and %f conversions the devices used to format with. Numbers are
+ * written by hand while the default format locale uses ASCII digits, a '.' decimal separator and a '-' minus sign;
+ * any other locale falls back to String.format so localized output stays the same as before.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceFormat
+{
+    static final int RENDER_CAPACITY = 192;
+
+    private static final int    FRACTION_DIGITS = 6;
+    private static final long   FRACTION_SCALE  = 1_000_000L;
+    private static final double FAST_LIMIT      = 1.0e6;
+    private static final double TIE_MARGIN      = 0.01;
+
+    private static volatile LocaleCheck localeCheck = LocaleCheck.of(Locale.getDefault(Locale.Category.FORMAT));
+
+    /*
+     * Not instantiable.
+     */
+    private DeviceFormat()
+    {
+    }
+
+    /**
+     * Appends the purpose line shared by every IDevice.
+     *
+     * @param sb      is the StringBuilder to be appended to.
+     * @param purpose is the device's purpose as a String.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendPurpose(final StringBuilder sb, final String purpose)
+    {
+        return sb.append("The purpose of this IDevice is ").append(purpose).append(".\n");
+    }
+
+    /**
+     * Appends the IPhone lines: minutes remaining and carrier.
+     *
+     * @param sb      is the StringBuilder to be appended to.
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendPhoneFields(final StringBuilder sb, final double mins, final String carrier)
+    {
+        sb.append("This device has ");
+        appendFixed(sb, mins);
+
+        return sb.append(" minutes remaining.\nThe carrier is ").append(carrier).append(".\n");
+    }
+
+    /**
+     * Appends the IPhone16 lines: camera resolution and memory. Like the original format, they end without a newline.
+     *
+     * @param sb        is the StringBuilder to be appended to.
+     * @param cameraRes is a boolean; true if high resolution camera, otherwise false.
+     * @param memoryGB  is the memory storage in GB as an int.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendPhone16Fields(final StringBuilder sb, final boolean cameraRes, final int memoryGB)
+    {
+        sb.append("This device has a high resolution camera: ").append(cameraRes).append("\nThis device has ");
+        appendInt(sb, memoryGB);
+
+        return sb.append(" GB of memory.");
+    }
+
+    /**
+     * Appends the IPad lines: case and operating system version.
+     *
+     * @param sb      is the StringBuilder to be appended to.
+     * @param hasCase is a boolean; true if the IPad has a case, otherwise false.
+     * @param os      is the operating system version as a String.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendPadFields(final StringBuilder sb, final boolean hasCase, final String os)
+    {
+        return sb.append("This device has a case: ").append(hasCase).append(".\nThe current operating system version is ").append(os).append(".\n");
+    }
+
+    /**
+     * Appends the IPod lines: songs stored and maximum volume.
+     *
+     * @param sb     is the StringBuilder to be appended to.
+     * @param songs  is the number of songs stored as an int.
+     * @param maxVol is the maximum volume in decibels.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendPodFields(final StringBuilder sb, final int songs, final double maxVol)
+    {
+        sb.append("The number of songs stored is ");
+        appendInt(sb, songs);
+        sb.append(".\nThe maximum volume in decibels is ");
+        appendFixed(sb, maxVol);
+
+        return sb.append(".\n");
+    }
+
+    /**
+     * Appends an int exactly as the %d conversion would.
+     *
+     * @param sb    is the StringBuilder to be appended to.
+     * @param value is the int to be appended.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendInt(final StringBuilder sb, final int value)
+    {
+        if(!asciiLocale())
+        {
+            return sb.append(String.format("%d", value));
+        }
+
+        return sb.append(value);
+    }
+
+    /**
+     * Appends a double exactly as the %f conversion would: six fraction digits, rounded half-up.
+     * <p>
+     * Values below one million whose seventh fraction digit is not close to a tie are rounded with integer
+     * arithmetic. Everything else rounds the shortest decimal digits of the double, which is what Formatter does.
+     * </p>
+     *
+     * @param sb    is the StringBuilder to be appended to.
+     * @param value is the double to be appended.
+     *
+     * @return the StringBuilder.
+     */
+    public static StringBuilder appendFixed(final StringBuilder sb, final double value)
+    {
+        if(!asciiLocale())
+        {
+            return sb.append(String.format("%f", value));
+        }
+
+        if(Double.isNaN(value))
+        {
+            return sb.append("NaN");
+        }
+
+        // Formatter prints a sign for every value that compares below 0.0, including -0.0
+        if(Double.compare(value, 0.0) < 0)
+        {
+            sb.append('-');
+        }
+
+        final double magnitude;
+        magnitude = Math.abs(value);
+
+        if(Double.isInfinite(magnitude))
+        {
+            return sb.append("Infinity");
+        }
+
+        if(magnitude < FAST_LIMIT)
+        {
+            final double scaled;
+            final double fraction;
+
+            scaled   = magnitude * FRACTION_SCALE;
+            fraction = scaled - Math.floor(scaled);
+
+            if(Math.abs(fraction - 0.5) > TIE_MARGIN)
+            {
+                final long units;
+                final long fractionPart;
+
+                units        = (long) Math.floor(scaled + 0.5);
+                fractionPart = units % FRACTION_SCALE;
+
+                sb.append(units / FRACTION_SCALE).append('.');
+
+                for(long digit = FRACTION_SCALE / 10; digit > fractionPart && digit > 1; digit /= 10)
+                {
+                    sb.append('0');
+                }
+
+                return sb.append(fractionPart);
+            }
+        }
+
+        return sb.append(new BigDecimal(Double.toString(magnitude)).setScale(FRACTION_DIGITS, RoundingMode.HALF_UP).toPlainString());
+    }
+
+    /*
+     * Returns whether the default format locale writes numbers the same way the hand-written paths do.
+     */
+    private static boolean asciiLocale()
+    {
+        final Locale      current;
+        final LocaleCheck check;
+
+        current = Locale.getDefault(Locale.Category.FORMAT);
+        check   = localeCheck;
+
+        if(check.locale == current)
+        {
+            return check.ascii;
+        }
+
+        final LocaleCheck updated;
+        updated = LocaleCheck.of(current);
+
+        localeCheck = updated;
+
+        return updated.ascii;
+    }
+
+    /*
+     * Caches whether a locale formats numbers with plain ASCII symbols.
+     */
+    private static final class LocaleCheck
+    {
+        private final Locale  locale;
+        private final boolean ascii;
+
+        private LocaleCheck(final Locale locale, final boolean ascii)
+        {
+            this.locale = locale;
+            this.ascii  = ascii;
+        }
+
+        private static LocaleCheck of(final Locale locale)
+        {
+            final DecimalFormatSymbols symbols;
+            symbols = DecimalFormatSymbols.getInstance(locale);
+
+            return new LocaleCheck(locale, symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.' && symbols.getMinusSign() == '-');
+        }
+    }
+}
@@ -0,0 +1,392 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A set of devices split by type tag into one array per concrete class, for bulk operations.
+ * <p>
+ * Every loop here walks one array whose elements all have the same class, so each call site inside it only ever sees
+ * one receiver type and the JIT can inline it, where a loop over a mixed collection would go megamorphic. The price
+ * is order: results come grouped by DeviceType in declaration order, keeping input order only within a type.
+ * </p>
+ * <p>
+ * Grouping is not free. In tests/DispatchBenchmark, grouping a million devices and then looping once cost about twice
+ * the per-device time of a single instanceof chain; the loops themselves are several times faster once the groups
+ * exist. Group once and reuse the groups across several passes, or use IDevice.accept for a single pass.
+ * </p>
+ * <p>
+ * Groups are immutable; filter returns a new DeviceGroups. Devices are held by reference, except fleet views, which
+ * are materialized into independent copies when grouped: the groups do not see later changes to the fleet, and changes
+ * made through the grouped copies do not reach it.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceGroups
+{
+    private static final int INITIAL_GROUP_SIZE = 16;
+
+    private final IPhone[]   phones;
+    private final IPhone16[] phone16s;
+    private final IPad[]     pads;
+    private final IPod[]     pods;
+
+    /*
+     * Only of and filter create DeviceGroups.
+     */
+    private DeviceGroups(final IPhone[] phones, final IPhone16[] phone16s, final IPad[] pads, final IPod[] pods)
+    {
+        this.phones   = phones;
+        this.phone16s = phone16s;
+        this.pads     = pads;
+        this.pods     = pods;
+    }
+
+    /**
+     * Splits devices by type tag. Fleet views are copied into independent devices, disconnected from their fleet.
+     *
+     * @param devices is the collection of devices to be grouped.
+     *
+     * @return the DeviceGroups.
+     */
+    public static DeviceGroups of(final Iterable<? extends IDevice> devices)
+    {
+        IPhone[]   phones;
+        IPhone16[] phone16s;
+        IPad[]     pads;
+        IPod[]     pods;
+        int        phoneCount;
+        int        phone16Count;
+        int        padCount;
+        int        podCount;
+
+        phones       = new IPhone[INITIAL_GROUP_SIZE];
+        phone16s     = new IPhone16[INITIAL_GROUP_SIZE];
+        pads         = new IPad[INITIAL_GROUP_SIZE];
+        pods         = new IPod[INITIAL_GROUP_SIZE];
+        phoneCount   = 0;
+        phone16Count = 0;
+        padCount     = 0;
+        podCount     = 0;
+
+        for(final IDevice element : devices)
+        {
+            final IDevice device;
+            device = DeviceFleet.concrete(element);
+
+            final DeviceType type;
+            type = DeviceType.of(device);
+
+            if(type == DeviceType.IPHONE)
+            {
+                if(phoneCount == phones.length)
+                {
+                    phones = Arrays.copyOf(phones, phoneCount * 2);
+                }
+
+                phones[phoneCount++] = (IPhone) device;
+            }
+            else if(type == DeviceType.IPHONE16)
+            {
+                if(phone16Count == phone16s.length)
+                {
+                    phone16s = Arrays.copyOf(phone16s, phone16Count * 2);
+                }
+
+                phone16s[phone16Count++] = (IPhone16) device;
+            }
+            else if(type == DeviceType.IPAD)
+            {
+                if(padCount == pads.length)
+                {
+                    pads = Arrays.copyOf(pads, padCount * 2);
+                }
+
+                pads[padCount++] = (IPad) device;
+            }
+            else
+            {
+                if(podCount == pods.length)
+                {
+                    pods = Arrays.copyOf(pods, podCount * 2);
+                }
+
+                pods[podCount++] = (IPod) device;
+            }
+        }
+
+        return new DeviceGroups(Arrays.copyOf(phones, phoneCount),
+                                Arrays.copyOf(phone16s, phone16Count),
+                                Arrays.copyOf(pads, padCount),
+                                Arrays.copyOf(pods, podCount));
+    }
+
+    /**
+     * Getter for the IPhones that are not IPhone16s.
+     *
+     * @return an unmodifiable list of IPhones.
+     */
+    public List<IPhone> phones()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.phones));
+    }
+
+    /**
+     * Getter for the IPhone16s.
+     *
+     * @return an unmodifiable list of IPhone16s.
+     */
+    public List<IPhone16> phone16s()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.phone16s));
+    }
+
+    /**
+     * Getter for the IPads.
+     *
+     * @return an unmodifiable list of IPads.
+     */
+    public List<IPad> pads()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.pads));
+    }
+
+    /**
+     * Getter for the IPods.
+     *
+     * @return an unmodifiable list of IPods.
+     */
+    public List<IPod> pods()
+    {
+        return Collections.unmodifiableList(Arrays.asList(this.pods));
+    }
+
+    /**
+     * Returns the number of devices of one type.
+     *
+     * @param type is the DeviceType to be counted.
+     *
+     * @return the number of devices as an int.
+     */
+    public int count(final DeviceType type)
+    {
+        // compares the tag like IDevice.accept does, rather than switching on it
+        if(type == DeviceType.IPHONE)
+        {
+            return this.phones.length;
+        }
+
+        if(type == DeviceType.IPHONE16)
+        {
+            return this.phone16s.length;
+        }
+
+        if(type == DeviceType.IPAD)
+        {
+            return this.pads.length;
+        }
+
+        return this.pods.length;
+    }
+
+    /**
+     * Getter for the number of devices.
+     *
+     * @return the number of devices as an int.
+     */
+    public int size()
+    {
+        return this.phones.length + this.phone16s.length + this.pads.length + this.pods.length;
+    }
+
+    /**
+     * Calls the visitor on every device, one type at a time.
+     *
+     * @param visitor is the DeviceVisitor to be called; its results are ignored.
+     */
+    public void forEach(final DeviceVisitor<?> visitor)
+    {
+        for(final IPhone phone : this.phones)
+        {
+            visitor.visitIPhone(phone);
+        }
+
+        for(final IPhone16 phone : this.phone16s)
+        {
+            visitor.visitIPhone16(phone);
+        }
+
+        for(final IPad pad : this.pads)
+        {
+            visitor.visitIPad(pad);
+        }
+
+        for(final IPod pod : this.pods)
+        {
+            visitor.visitIPod(pod);
+        }
+    }
+
+    /**
+     * Keeps the devices a visitor accepts.
+     *
+     * @param predicate is the DeviceVisitor returning true for devices to be kept.
+     *
+     * @return a new DeviceGroups with the kept devices.
+     */
+    public DeviceGroups filter(final DeviceVisitor<Boolean> predicate)
+    {
+        final IPhone[]   keptPhones;
+        final IPhone16[] keptPhone16s;
+        final IPad[]     keptPads;
+        final IPod[]     keptPods;
+        int              phoneCount;
+        int              phone16Count;
+        int              padCount;
+        int              podCount;
+
+        keptPhones   = new IPhone[this.phones.length];
+        keptPhone16s = new IPhone16[this.phone16s.length];
+        keptPads     = new IPad[this.pads.length];
+        keptPods     = new IPod[this.pods.length];
+        phoneCount   = 0;
+        phone16Count = 0;
+        padCount     = 0;
+        podCount     = 0;
+
+        for(final IPhone phone : this.phones)
+        {
+            if(predicate.visitIPhone(phone))
+            {
+                keptPhones[phoneCount++] = phone;
+            }
+        }
+
+        for(final IPhone16 phone : this.phone16s)
+        {
+            if(predicate.visitIPhone16(phone))
+            {
+                keptPhone16s[phone16Count++] = phone;
+            }
+        }
+
+        for(final IPad pad : this.pads)
+        {
+            if(predicate.visitIPad(pad))
+            {
+                keptPads[padCount++] = pad;
+            }
+        }
+
+        for(final IPod pod : this.pods)
+        {
+            if(predicate.visitIPod(pod))
+            {
+                keptPods[podCount++] = pod;
+            }
+        }
+
+        return new DeviceGroups(Arrays.copyOf(keptPhones, phoneCount),
+                                Arrays.copyOf(keptPhone16s, phone16Count),
+                                Arrays.copyOf(keptPads, padCount),
+                                Arrays.copyOf(keptPods, podCount));
+    }
+
+    /**
+     * Sums the minutes remaining of every IPhone and IPhone16.
+     *
+     * @return the total minutes as a double.
+     */
+    public double totalMinutesRemaining()
+    {
+        double total;
+        total = 0.0;
+
+        for(final IPhone phone : this.phones)
+        {
+            total += phone.getMinutesRemaining();
+        }
+
+        for(final IPhone16 phone : this.phone16s)
+        {
+            total += phone.getMinutesRemaining();
+        }
+
+        return total;
+    }
+
+    /**
+     * Sums the songs stored on every IPod.
+     *
+     * @return the total number of songs as a long.
+     */
+    public long totalSongsStored()
+    {
+        long total;
+        total = 0L;
+
+        for(final IPod pod : this.pods)
+        {
+            total += pod.getNumSongsStored();
+        }
+
+        return total;
+    }
+
+    /**
+     * Counts the IPads with a case.
+     *
+     * @return the number of IPads with a case as an int.
+     */
+    public int countWithCase()
+    {
+        int count;
+        count = 0;
+
+        for(final IPad pad : this.pads)
+        {
+            if(pad.getHasCase())
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Appends what printDetails prints for every device, one type at a time.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    public StringBuilder render(final StringBuilder sb)
+    {
+        final String separator;
+        separator = System.lineSeparator();
+
+        for(final IPhone phone : this.phones)
+        {
+            phone.appendDetailsTo(sb).append(separator);
+        }
+
+        for(final IPhone16 phone : this.phone16s)
+        {
+            phone.appendDetailsTo(sb).append(separator);
+        }
+
+        for(final IPad pad : this.pads)
+        {
+            pad.appendDetailsTo(sb).append(separator);
+        }
+
+        for(final IPod pod : this.pods)
+        {
+            pod.appendDetailsTo(sb).append(separator);
+        }
+
+        return sb;
+    }
+}
@@ -0,0 +1,827 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongSupplier;
+
+/**
+ * The history of every change to the minutes remaining of tracked IPhones and the songs stored on tracked IPods.
+ * <p>
+ * Each tracked device gets its own time series, which observes the device and records the field's value with a
+ * timestamp when tracking starts and on every change. The value is read when the point is recorded, so racing
+ * changes whose notifications arrive out of order may repeat a value or skip one, but the series always ends on the
+ * device's current value. Points are compressed into HistoryChunks with delta-of-delta timestamps and XOR-compressed
+ * values, so a device whose minutes tick down at a steady pace costs a few bits per point. Full chunks are sealed onto
+ * the heap or, when a spill file is given, into memory-mapped regions of that file, which keeps long histories out of
+ * the Java heap.
+ * </p>
+ * <p>
+ * Reads find the first chunk that can hold the start of a range by binary search on the chunks' last timestamps and
+ * decode only the chunks the range overlaps. downsample reduces a range to fixed-width buckets; downsampleCarrier
+ * does the same for every tracked phone whose carrier currently matches, pooling their changes and summing their
+ * values at the end of each bucket.
+ * </p>
+ * <p>
+ * Timestamps come from a clock, System.currentTimeMillis by default, and never go backwards within one device: a
+ * change stamped before the previous one is recorded at the previous timestamp. Recording and reading a device lock
+ * only that device's series. A PointConsumer must not change the device being read.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceHistory implements Closeable
+{
+    private static final long SPILL_REGION = 1L << 26;
+
+    private final LongSupplier                    clock;
+    private final FileChannel                     spill;
+    private final List<MappedByteBuffer>          regions;
+    private final IdentityHashMap<IDevice, Series> series;
+    private final ReentrantReadWriteLock          open;
+    private long                                  spilledBytes;
+    private boolean                               closed;
+
+    /**
+     * Receives the points of a range read.
+     */
+    @FunctionalInterface
+    public interface PointConsumer
+    {
+        /**
+         * Called with one point.
+         *
+         * @param timestamp is the time of the point.
+         * @param value     is the value of the point.
+         */
+        void accept(long timestamp, double value);
+    }
+
+    /**
+     * Constructor for DeviceHistory that keeps every chunk on the heap and stamps points with
+     * System.currentTimeMillis.
+     */
+    public DeviceHistory()
+    {
+        this.clock   = System::currentTimeMillis;
+        this.spill   = null;
+        this.regions = new ArrayList<>();
+        this.series  = new IdentityHashMap<>();
+        this.open    = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Constructor for DeviceHistory.
+     *
+     * @param clock     is the source of timestamps.
+     * @param spillFile is the file that sealed chunks are mapped into, or null to keep them on the heap; it is
+     *                  truncated now and deleted when the history is closed.
+     *
+     * @throws IOException if the spill file cannot be created.
+     */
+    public DeviceHistory(final LongSupplier clock, final Path spillFile) throws IOException
+    {
+        if(clock == null)
+        {
+            throw new IllegalArgumentException("Clock must not be null");
+        }
+
+        this.clock   = clock;
+        this.spill   = spillFile == null ? null : FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        this.regions = new ArrayList<>();
+        this.series  = new IdentityHashMap<>();
+        this.open    = new ReentrantReadWriteLock();
+    }
+
+    /**
+     * Starts recording a phone's minutes remaining, beginning with its current value.
+     *
+     * @param phone is the IPhone or IPhone16 to be tracked.
+     *
+     * @return a boolean; true if the phone was added, false if it was already tracked.
+     */
+    public boolean track(final IPhone phone)
+    {
+        return this.track(phone, DeviceField.MINUTES_REMAINING);
+    }
+
+    /**
+     * Starts recording an IPod's songs stored, beginning with its current value.
+     *
+     * @param pod is the IPod to be tracked.
+     *
+     * @return a boolean; true if the IPod was added, false if it was already tracked.
+     */
+    public boolean track(final IPod pod)
+    {
+        return this.track(pod, DeviceField.NUM_SONGS_STORED);
+    }
+
+    /**
+     * Stops recording a device and drops its history.
+     *
+     * @param device is the tracked IPhone, IPhone16 or IPod.
+     *
+     * @return a boolean; true if the device was tracked, otherwise false.
+     */
+    public boolean untrack(final IDevice device)
+    {
+        final Series removed;
+
+        this.open.readLock().lock();
+
+        try
+        {
+            this.checkOpen();
+
+            synchronized(this.series)
+            {
+                removed = this.series.remove(device);
+            }
+        }
+        finally
+        {
+            this.open.readLock().unlock();
+        }
+
+        if(removed != null)
+        {
+            device.removeObserver(removed);
+        }
+
+        return removed != null;
+    }
+
+    /**
+     * Reads a device's points from a timestamp, inclusive, to another, exclusive.
+     *
+     * @param device   is a tracked IPhone, IPhone16 or IPod.
+     * @param from     is the first timestamp wanted.
+     * @param to       is the first timestamp not wanted.
+     * @param consumer is the consumer of the points, in time order.
+     *
+     * @return the number of points passed to the consumer.
+     */
+    public int range(final IDevice device, final long from, final long to, final PointConsumer consumer)
+    {
+        this.open.readLock().lock();
+
+        try
+        {
+            return this.seriesOf(device).read(from, to, false, consumer);
+        }
+        finally
+        {
+            this.open.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reduces a device's history over a range to buckets of equal width.
+     *
+     * @param device is a tracked IPhone, IPhone16 or IPod.
+     * @param from   is the start of the first bucket.
+     * @param to     is the end of the range; the last bucket is cut short at it.
+     * @param width  is the width of each bucket.
+     *
+     * @return a new Downsampled with one bucket per width from from to to.
+     */
+    public Downsampled downsample(final IDevice device, final long from, final long to, final long width)
+    {
+        final Downsampled result;
+        result = new Downsampled(from, to, width);
+
+        this.open.readLock().lock();
+
+        try
+        {
+            result.add(this.seriesOf(device));
+        }
+        finally
+        {
+            this.open.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    /**
+     * Reduces the history of every tracked phone with a carrier to buckets of equal width.
+     * <p>
+     * Phones are matched on their carrier at the time of the call. Counts, minimums, maximums and means pool every
+     * phone's changes in a bucket; last is the sum of the phones' minutes remaining at the end of the bucket.
+     * </p>
+     *
+     * @param carrier is the carrier, may be null.
+     * @param from    is the start of the first bucket.
+     * @param to      is the end of the range; the last bucket is cut short at it.
+     * @param width   is the width of each bucket.
+     *
+     * @return a new Downsampled with one bucket per width from from to to.
+     */
+    public Downsampled downsampleCarrier(final String carrier, final long from, final long to, final long width)
+    {
+        final Downsampled  result;
+        final List<Series> matching;
+
+        result   = new Downsampled(from, to, width);
+        matching = new ArrayList<>();
+
+        this.open.readLock().lock();
+
+        try
+        {
+            this.checkOpen();
+
+            synchronized(this.series)
+            {
+                for(final Series s : this.series.values())
+                {
+                    if(s.field == DeviceField.MINUTES_REMAINING && Objects.equals(((IPhone) s.device).getCarrier(), carrier))
+                    {
+                        matching.add(s);
+                    }
+                }
+            }
+
+            for(final Series s : matching)
+            {
+                result.add(s);
+            }
+        }
+        finally
+        {
+            this.open.readLock().unlock();
+        }
+
+        return result;
+    }
+
+    /**
+     * Getter for the number of points recorded for the tracked devices.
+     *
+     * @return the number of points as a long.
+     */
+    public long pointCount()
+    {
+        long points;
+        points = 0;
+
+        for(final Series s : this.allSeries())
+        {
+            synchronized(s)
+            {
+                points += s.points;
+            }
+        }
+
+        return points;
+    }
+
+    /**
+     * Getter for the size of the tracked devices' compressed points, on the heap and spilled.
+     *
+     * @return the number of bytes as a long.
+     */
+    public long encodedBytes()
+    {
+        long bytes;
+        bytes = 0;
+
+        for(final Series s : this.allSeries())
+        {
+            synchronized(s)
+            {
+                for(final HistoryChunk chunk : s.chunks)
+                {
+                    bytes += chunk.encodedBytes();
+                }
+
+                bytes += s.current.encodedBytes();
+            }
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Getter for the number of bytes sealed into the spill file, including chunks of untracked devices.
+     *
+     * @return the number of bytes as a long; 0 without a spill file.
+     */
+    public long spilledBytes()
+    {
+        synchronized(this.regions)
+        {
+            return this.spilledBytes;
+        }
+    }
+
+    /**
+     * Stops recording every device, unmaps and deletes the spill file, and drops every history.
+     *
+     * @throws IOException if the spill file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        final List<Series> tracked;
+        tracked = this.allSeries();
+
+        for(final Series s : tracked)
+        {
+            s.device.removeObserver(s);
+        }
+
+        this.open.writeLock().lock();
+
+        try
+        {
+            if(this.closed)
+            {
+                return;
+            }
+
+            this.closed = true;
+
+            synchronized(this.series)
+            {
+                this.series.clear();
+            }
+
+            synchronized(this.regions)
+            {
+                for(final MappedByteBuffer region : this.regions)
+                {
+                    DeviceArena.release(region);
+                }
+
+                this.regions.clear();
+            }
+
+            if(this.spill != null)
+            {
+                this.spill.close();
+            }
+        }
+        finally
+        {
+            this.open.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Starts a series for a device, with its current value as the first point.
+     */
+    private boolean track(final IDevice device, final DeviceField field)
+    {
+        final Series created;
+
+        this.open.readLock().lock();
+
+        try
+        {
+            this.checkOpen();
+
+            synchronized(this.series)
+            {
+                if(this.series.containsKey(device))
+                {
+                    return false;
+                }
+
+                created = new Series(device, field);
+                this.series.put(device, created);
+            }
+
+            // observe before the first point is read, so a change racing with it is recorded after it
+            device.addObserver(created);
+            created.record();
+        }
+        finally
+        {
+            this.open.readLock().unlock();
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns the series of a tracked device.
+     */
+    private Series seriesOf(final IDevice device)
+    {
+        final Series found;
+
+        this.checkOpen();
+
+        synchronized(this.series)
+        {
+            found = this.series.get(device);
+        }
+
+        if(found == null)
+        {
+            throw new IllegalArgumentException("Device is not tracked: " + device);
+        }
+
+        return found;
+    }
+
+    /*
+     * Returns a copy of the list of series.
+     */
+    private List<Series> allSeries()
+    {
+        synchronized(this.series)
+        {
+            return new ArrayList<>(this.series.values());
+        }
+    }
+
+    /*
+     * Throws if the history is closed; called holding the read lock.
+     */
+    private void checkOpen()
+    {
+        if(this.closed)
+        {
+            throw new IllegalStateException("DeviceHistory is closed");
+        }
+    }
+
+    /*
+     * Seals a full chunk onto the heap, or into the current region of the spill file, mapping a new region when the
+     * current one is full.
+     */
+    private void seal(final HistoryChunk chunk)
+    {
+        if(this.spill == null)
+        {
+            chunk.seal(null);
+            return;
+        }
+
+        synchronized(this.regions)
+        {
+            MappedByteBuffer region;
+            region = this.regions.isEmpty() ? null : this.regions.get(this.regions.size() - 1);
+
+            if(region == null || region.remaining() < chunk.encodedBytes())
+            {
+                try
+                {
+                    region = this.spill.map(FileChannel.MapMode.READ_WRITE, this.regions.size() * SPILL_REGION, SPILL_REGION);
+                }
+                catch(final IOException e)
+                {
+                    // the chunk stays readable on the heap; only the spilling failed
+                    chunk.seal(null);
+                    return;
+                }
+
+                this.regions.add(region);
+            }
+
+            this.spilledBytes += chunk.encodedBytes();
+            chunk.seal(region);
+        }
+    }
+
+    /**
+     * A device's history reduced to buckets of equal width.
+     * <p>
+     * Bucket i covers from + i * width, inclusive, to the next bucket's start, exclusive. count, min, max and mean
+     * describe the changes recorded in the bucket; last is the value at the end of the bucket, carried forward from
+     * earlier buckets, or NaN while no value is known yet.
+     * </p>
+     */
+    public static final class Downsampled
+    {
+        private final long      from;
+        private final long      to;
+        private final long      width;
+        private final int[]     counts;
+        private final double[]  mins;
+        private final double[]  maxes;
+        private final double[]  sums;
+        private final double[]  lasts;
+        private final boolean[] known;
+
+        /*
+         * Creates empty buckets.
+         */
+        private Downsampled(final long from, final long to, final long width)
+        {
+            final long buckets;
+
+            if(width <= 0 || to < from)
+            {
+                throw new IllegalArgumentException("Invalid range " + from + " to " + to + " in buckets of " + width);
+            }
+
+            buckets = (to - from + width - 1) / width;
+
+            if(buckets > Integer.MAX_VALUE - 8)
+            {
+                throw new IllegalArgumentException("Too many buckets: " + buckets);
+            }
+
+            this.from   = from;
+            this.to     = to;
+            this.width  = width;
+            this.counts = new int[(int) buckets];
+            this.mins   = new double[(int) buckets];
+            this.maxes  = new double[(int) buckets];
+            this.sums   = new double[(int) buckets];
+            this.lasts  = new double[(int) buckets];
+            this.known  = new boolean[(int) buckets];
+
+            Arrays.fill(this.mins, Double.NaN);
+            Arrays.fill(this.maxes, Double.NaN);
+            Arrays.fill(this.lasts, Double.NaN);
+        }
+
+        /**
+         * Getter for the number of buckets.
+         *
+         * @return the number of buckets as an int.
+         */
+        public int buckets()
+        {
+            return this.counts.length;
+        }
+
+        /**
+         * Returns the start of a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the timestamp as a long.
+         */
+        public long bucketStart(final int bucket)
+        {
+            Objects.checkIndex(bucket, this.counts.length);
+
+            return this.from + bucket * this.width;
+        }
+
+        /**
+         * Returns the number of changes recorded in a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the number of changes as an int.
+         */
+        public int count(final int bucket)
+        {
+            return this.counts[bucket];
+        }
+
+        /**
+         * Returns the smallest value recorded in a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the value as a double, or NaN if the bucket recorded no change.
+         */
+        public double min(final int bucket)
+        {
+            return this.mins[bucket];
+        }
+
+        /**
+         * Returns the largest value recorded in a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the value as a double, or NaN if the bucket recorded no change.
+         */
+        public double max(final int bucket)
+        {
+            return this.maxes[bucket];
+        }
+
+        /**
+         * Returns the mean of the values recorded in a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the mean as a double, or NaN if the bucket recorded no change.
+         */
+        public double mean(final int bucket)
+        {
+            return this.counts[bucket] == 0 ? Double.NaN : this.sums[bucket] / this.counts[bucket];
+        }
+
+        /**
+         * Returns the value at the end of a bucket.
+         *
+         * @param bucket is the bucket number.
+         *
+         * @return the value as a double, or NaN if no value is known yet.
+         */
+        public double last(final int bucket)
+        {
+            return this.lasts[bucket];
+        }
+
+        /*
+         * Adds one series' points, summing its carried-forward values into last.
+         */
+        private void add(final Series source)
+        {
+            final double[]  seriesLasts;
+            final boolean[] seriesKnown;
+            final double[]  carry;
+            final boolean[] carried;
+
+            seriesLasts = new double[this.counts.length];
+            seriesKnown = new boolean[this.counts.length];
+            carry       = new double[1];
+            carried     = new boolean[1];
+
+            source.read(this.from, this.to, true, (timestamp, value) ->
+            {
+                if(timestamp < this.from)
+                {
+                    carry[0]   = value;
+                    carried[0] = true;
+                    return;
+                }
+
+                final int bucket;
+                bucket = (int) ((timestamp - this.from) / this.width);
+
+                if(this.counts[bucket] == 0)
+                {
+                    this.mins[bucket]  = value;
+                    this.maxes[bucket] = value;
+                }
+                else
+                {
+                    this.mins[bucket]  = Math.min(this.mins[bucket], value);
+                    this.maxes[bucket] = Math.max(this.maxes[bucket], value);
+                }
+
+                this.counts[bucket]++;
+                this.sums[bucket]  += value;
+                seriesLasts[bucket] = value;
+                seriesKnown[bucket] = true;
+            });
+
+            // a recorded NaN is a value like any other, so whether a value is known is tracked apart from it
+            double  last;
+            boolean known;
+
+            last  = carry[0];
+            known = carried[0];
+
+            for(int i = 0; i < this.counts.length; i++)
+            {
+                if(seriesKnown[i])
+                {
+                    last  = seriesLasts[i];
+                    known = true;
+                }
+
+                if(known)
+                {
+                    this.lasts[i] = this.known[i] ? this.lasts[i] + last : last;
+                    this.known[i] = true;
+                }
+            }
+        }
+    }
+
+    /*
+     * One device's chunks; observes the device and records its field.
+     */
+    private final class Series implements DeviceObserver
+    {
+        private final IDevice                 device;
+        private final DeviceField             field;
+        private final ArrayList<HistoryChunk> chunks;
+        private HistoryChunk                  current;
+        private long                          lastTimestamp;
+        private long                          points;
+
+        private Series(final IDevice device, final DeviceField field)
+        {
+            this.device        = device;
+            this.field         = field;
+            this.chunks        = new ArrayList<>();
+            this.current       = new HistoryChunk();
+            this.lastTimestamp = Long.MIN_VALUE;
+        }
+
+        @Override
+        public void numberChanged(final IDevice changed, final DeviceField changedField, final double oldValue, final double newValue)
+        {
+            if(changedField == this.field)
+            {
+                DeviceHistory.this.open.readLock().lock();
+
+                try
+                {
+                    if(!DeviceHistory.this.closed)
+                    {
+                        this.record();
+                    }
+                }
+                finally
+                {
+                    DeviceHistory.this.open.readLock().unlock();
+                }
+            }
+        }
+
+        /*
+         * Appends the field's current value stamped now, sealing the current chunk when it fills up. The value is read
+         * under the series lock rather than taken from the notification, which can arrive after a later change's.
+         */
+        private synchronized void record()
+        {
+            final double value;
+            final long   timestamp;
+
+            value     = this.field.currentNumber(this.device);
+            timestamp = Math.max(DeviceHistory.this.clock.getAsLong(), this.lastTimestamp);
+
+            this.current.append(timestamp, value);
+            this.lastTimestamp = timestamp;
+            this.points++;
+
+            if(this.current.isFull())
+            {
+                DeviceHistory.this.seal(this.current);
+                this.chunks.add(this.current);
+                this.current = new HistoryChunk();
+            }
+        }
+
+        /*
+         * Decodes the chunks that overlap a range; withPrevious also passes the last point before the range first.
+         */
+        private synchronized int read(final long from, final long to, final boolean withPrevious, final PointConsumer consumer)
+        {
+            int low;
+            int high;
+            int delivered;
+
+            // binary search for the first sealed chunk that ends at or after from
+            low  = 0;
+            high = this.chunks.size();
+
+            while(low < high)
+            {
+                final int middle;
+                middle = (low + high) >>> 1;
+
+                if(this.chunks.get(middle).lastTimestamp() < from)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+
+            delivered = 0;
+
+            if(withPrevious && low > 0)
+            {
+                final HistoryChunk previous;
+                previous = this.chunks.get(low - 1);
+
+                consumer.accept(previous.lastTimestamp(), previous.lastValue());
+            }
+
+            for(int i = low; i <= this.chunks.size(); i++)
+            {
+                final HistoryChunk chunk;
+                chunk = i < this.chunks.size() ? this.chunks.get(i) : this.current;
+
+                if(chunk.count() == 0 || chunk.firstTimestamp() >= to)
+                {
+                    break;
+                }
+
+                // the first chunk read may start before from; its earlier points are the ones withPrevious wants
+                delivered += chunk.read(withPrevious && i == low ? Long.MIN_VALUE : from, to, consumer);
+            }
+
+            return delivered;
+        }
+    }
+}
@@ -0,0 +1,503 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Optional call counters and latency histograms for the hot IDevice methods, per device type.
+ * <p>
+ * Recording is switched on with -Ddevice.metrics=true. The switch is a static final boolean, so when it is off the
+ * JIT folds every start and record call away and the instrumented methods cost what they did before. When it is on,
+ * each (DeviceType, Op) pair keeps a call count, a total, a maximum and a histogram with one bucket per power of two
+ * nanoseconds, all on LongAdders so that threads recording the same operation do not contend on one counter.
+ * </p>
+ * <p>
+ * Snapshots are available from snapshot, as plain text from dump, and over JMX under "device:type=DeviceMetrics",
+ * which is registered on the platform MBeanServer when recording is enabled. Counters read while threads are
+ * recording are not an atomic snapshot, but every finished call is eventually counted exactly once.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceMetrics
+{
+    /**
+     * Whether recording is enabled; fixed at startup by the device.metrics system property.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("device.metrics");
+
+    static final String OBJECT_NAME = "device:type=DeviceMetrics";
+
+    private static final int BUCKETS = 64;
+    private static final int OPS     = Op.values().length;
+
+    private static final Metric[] METRICS = new Metric[DeviceType.values().length * OPS];
+
+    static
+    {
+        for(int i = 0; i < METRICS.length; i++)
+        {
+            METRICS[i] = new Metric();
+        }
+
+        if(ENABLED)
+        {
+            register();
+        }
+    }
+
+    /**
+     * The instrumented operations.
+     */
+    public enum Op
+    {
+        EQUALS,
+        HASH_CODE,
+        TO_STRING,
+        PRINT_DETAILS,
+        SET_MINUTES_REMAINING,
+        SET_CARRIER,
+        SET_HAS_CASE,
+        SET_OP_SYSTEM_VERSION,
+        SET_NUM_SONGS_STORED
+    }
+
+    /*
+     * Only static members.
+     */
+    private DeviceMetrics()
+    {
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time to be passed to record, or 0 if recording is disabled.
+     */
+    public static long start()
+    {
+        return ENABLED ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records one finished call of an operation.
+     * <p>
+     * Calls on subclasses of IDevice outside IPhone, IPhone16, IPad, IPod and the fleet views are not recorded.
+     * </p>
+     *
+     * @param device is the device the operation was called on.
+     * @param op     is the operation.
+     * @param start  is the value start returned when the call began.
+     */
+    public static void record(final IDevice device, final Op op, final long start)
+    {
+        if(ENABLED)
+        {
+            final DeviceType type;
+            type = typeOf(device);
+
+            if(type != null)
+            {
+                METRICS[index(type, op)].record(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Returns the metrics of every operation recorded at least once, grouped by DeviceType.
+     *
+     * @return the snapshots.
+     */
+    public static List<Snapshot> snapshot()
+    {
+        final List<Snapshot> snapshots;
+        snapshots = new ArrayList<>();
+
+        for(final DeviceType type : DeviceType.values())
+        {
+            for(final Op op : Op.values())
+            {
+                final Snapshot snapshot;
+                snapshot = METRICS[index(type, op)].snapshot(type, op);
+
+                if(snapshot.getCount() > 0)
+                {
+                    snapshots.add(snapshot);
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(snapshots);
+    }
+
+    /**
+     * Returns the metrics as a plain-text table, one line per recorded operation.
+     *
+     * @return the table as a String.
+     */
+    public static String dump()
+    {
+        final StringBuilder sb;
+        sb = new StringBuilder();
+
+        sb.append(String.format("%-9s %-21s %12s %12s %12s %12s %12s%n", "type", "operation", "count", "mean ns", "p50 ns", "p99 ns", "max ns"));
+
+        for(final Snapshot snapshot : snapshot())
+        {
+            sb.append(String.format("%-9s %-21s %12d %12.1f %12d %12d %12d%n",
+                                    snapshot.getType(),
+                                    snapshot.getOp(),
+                                    snapshot.getCount(),
+                                    snapshot.getMeanNanos(),
+                                    snapshot.percentile(0.50),
+                                    snapshot.percentile(0.99),
+                                    snapshot.getMaxNanos()));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset()
+    {
+        for(final Metric metric : METRICS)
+        {
+            metric.reset();
+        }
+    }
+
+    /**
+     * Registers the JMX view on the platform MBeanServer, if it is not registered yet.
+     */
+    public static synchronized void register()
+    {
+        try
+        {
+            final ObjectName name;
+            name = new ObjectName(OBJECT_NAME);
+
+            if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name))
+            {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        }
+        catch(final JMException e)
+        {
+            throw new IllegalStateException("Cannot register " + OBJECT_NAME, e);
+        }
+    }
+
+    /*
+     * Classifies a device, including fleet views, which have no type tag; other untagged devices are null.
+     */
+    private static DeviceType typeOf(final IDevice device)
+    {
+        if(device instanceof DeviceFleet.View)
+        {
+            return DeviceFleet.typeOf(((DeviceFleet.View) device).getHandle());
+        }
+
+        return device.getType();
+    }
+
+    /*
+     * Returns the slot of a (DeviceType, Op) pair.
+     */
+    private static int index(final DeviceType type, final Op op)
+    {
+        return type.ordinal() * OPS + op.ordinal();
+    }
+
+    /*
+     * Returns the histogram bucket of a latency: bucket i holds [2^i, 2^(i+1)) nanoseconds, and bucket 0 also holds 0.
+     */
+    private static int bucketOf(final long nanos)
+    {
+        return nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /**
+     * The metrics of one operation on one DeviceType at one point in time.
+     */
+    public static final class Snapshot
+    {
+        private final DeviceType type;
+        private final Op         op;
+        private final long       count;
+        private final long       totalNanos;
+        private final long       maxNanos;
+        private final long[]     buckets;
+
+        /*
+         * Only DeviceMetrics creates Snapshots.
+         */
+        private Snapshot(final DeviceType type, final Op op, final long count, final long totalNanos, final long maxNanos, final long[] buckets)
+        {
+            this.type       = type;
+            this.op         = op;
+            this.count      = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos   = maxNanos;
+            this.buckets    = buckets;
+        }
+
+        /**
+         * Getter for the device type.
+         *
+         * @return the DeviceType.
+         */
+        public DeviceType getType()
+        {
+            return this.type;
+        }
+
+        /**
+         * Getter for the operation.
+         *
+         * @return the Op.
+         */
+        public Op getOp()
+        {
+            return this.op;
+        }
+
+        /**
+         * Getter for the number of calls.
+         *
+         * @return the number of calls as a long.
+         */
+        public long getCount()
+        {
+            return this.count;
+        }
+
+        /**
+         * Getter for the total time spent in the operation.
+         *
+         * @return the total time in nanoseconds.
+         */
+        public long getTotalNanos()
+        {
+            return this.totalNanos;
+        }
+
+        /**
+         * Getter for the slowest call.
+         *
+         * @return the maximum latency in nanoseconds.
+         */
+        public long getMaxNanos()
+        {
+            return this.maxNanos;
+        }
+
+        /**
+         * Returns the mean latency.
+         *
+         * @return the mean latency in nanoseconds, or 0 if there were no calls.
+         */
+        public double getMeanNanos()
+        {
+            return this.count == 0 ? 0.0 : (double) this.totalNanos / this.count;
+        }
+
+        /**
+         * Returns the number of calls in one histogram bucket.
+         *
+         * @param bucket is the bucket; bucket i holds latencies in [2^i, 2^(i+1)) nanoseconds.
+         *
+         * @return the number of calls as a long.
+         */
+        public long getBucket(final int bucket)
+        {
+            return this.buckets[bucket];
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of the histogram bucket it falls in, capped at the maximum.
+         *
+         * @param fraction is the percentile between 0 and 1, for example 0.99.
+         *
+         * @return the estimated latency in nanoseconds, or 0 if there were no calls.
+         */
+        public long percentile(final double fraction)
+        {
+            final long total;
+            final long rank;
+            long       seen;
+
+            total = Math.max(this.count, sum(this.buckets));
+
+            if(total == 0)
+            {
+                return 0L;
+            }
+
+            rank = Math.max(1L, (long) Math.ceil(fraction * total));
+            seen = 0L;
+
+            for(int i = 0; i < BUCKETS; i++)
+            {
+                seen += this.buckets[i];
+
+                if(seen >= rank)
+                {
+                    final long upper;
+                    upper = i >= BUCKETS - 2 ? Long.MAX_VALUE : (2L << i) - 1;
+
+                    return Math.min(upper, this.maxNanos);
+                }
+            }
+
+            return this.maxNanos;
+        }
+
+        /*
+         * Sums the histogram buckets.
+         */
+        private static long sum(final long[] buckets)
+        {
+            long total;
+            total = 0L;
+
+            for(final long bucket : buckets)
+            {
+                total += bucket;
+            }
+
+            return total;
+        }
+    }
+
+    /*
+     * The striped counters of one (DeviceType, Op) pair.
+     */
+    private static final class Metric
+    {
+        private final LongAdder       count;
+        private final LongAdder       totalNanos;
+        private final LongAccumulator maxNanos;
+        private final LongAdder[]     buckets;
+
+        private Metric()
+        {
+            this.count      = new LongAdder();
+            this.totalNanos = new LongAdder();
+            this.maxNanos   = new LongAccumulator(Math::max, 0L);
+            this.buckets    = new LongAdder[BUCKETS];
+
+            for(int i = 0; i < BUCKETS; i++)
+            {
+                this.buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(final long nanos)
+        {
+            this.count.increment();
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulate(nanos);
+            this.buckets[bucketOf(nanos)].increment();
+        }
+
+        private Snapshot snapshot(final DeviceType type, final Op op)
+        {
+            final long[] counts;
+            counts = new long[BUCKETS];
+
+            for(int i = 0; i < BUCKETS; i++)
+            {
+                counts[i] = this.buckets[i].sum();
+            }
+
+            return new Snapshot(type, op, this.count.sum(), this.totalNanos.sum(), this.maxNanos.get(), counts);
+        }
+
+        private void reset()
+        {
+            this.count.reset();
+            this.totalNanos.reset();
+            this.maxNanos.reset();
+
+            for(final LongAdder bucket : this.buckets)
+            {
+                bucket.reset();
+            }
+        }
+    }
+
+    /*
+     * The MXBean registered under OBJECT_NAME.
+     */
+    private static final class Bean implements DeviceMetricsMXBean
+    {
+        @Override
+        public boolean isEnabled()
+        {
+            return ENABLED;
+        }
+
+        @Override
+        public Map<String, Long> getCounts()
+        {
+            final Map<String, Long> counts;
+            counts = new LinkedHashMap<>();
+
+            for(final Snapshot snapshot : snapshot())
+            {
+                counts.put(snapshot.getType() + "." + snapshot.getOp(), snapshot.getCount());
+            }
+
+            return counts;
+        }
+
+        @Override
+        public Map<String, Double> getMeanNanos()
+        {
+            final Map<String, Double> means;
+            means = new LinkedHashMap<>();
+
+            for(final Snapshot snapshot : snapshot())
+            {
+                means.put(snapshot.getType() + "." + snapshot.getOp(), snapshot.getMeanNanos());
+            }
+
+            return means;
+        }
+
+        @Override
+        public Map<String, Long> getP99Nanos()
+        {
+            final Map<String, Long> p99s;
+            p99s = new LinkedHashMap<>();
+
+            for(final Snapshot snapshot : snapshot())
+            {
+                p99s.put(snapshot.getType() + "." + snapshot.getOp(), snapshot.percentile(0.99));
+            }
+
+            return p99s;
+        }
+
+        @Override
+        public String getDump()
+        {
+            return dump();
+        }
+
+        @Override
+        public void reset()
+        {
+            DeviceMetrics.reset();
+        }
+    }
+}
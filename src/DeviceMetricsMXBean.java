@@ -0,0 +1,54 @@
+import java.util.Map;
+
+/**
+ * The JMX view of DeviceMetrics.
+ * <p>
+ * Keys of the maps are "TYPE.OPERATION", for example "IPHONE16.EQUALS", and only operations that were recorded at
+ * least once are present.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public interface DeviceMetricsMXBean
+{
+    /**
+     * Getter for whether recording is enabled.
+     *
+     * @return a boolean; true if metrics are being recorded, otherwise false.
+     */
+    boolean isEnabled();
+
+    /**
+     * Getter for the number of calls of each operation.
+     *
+     * @return the call counts by key.
+     */
+    Map<String, Long> getCounts();
+
+    /**
+     * Getter for the mean latency of each operation.
+     *
+     * @return the mean latencies in nanoseconds by key.
+     */
+    Map<String, Double> getMeanNanos();
+
+    /**
+     * Getter for the estimated 99th percentile latency of each operation.
+     *
+     * @return the 99th percentile latencies in nanoseconds by key.
+     */
+    Map<String, Long> getP99Nanos();
+
+    /**
+     * Getter for the plain-text dump.
+     *
+     * @return the dump as a String.
+     */
+    String getDump();
+
+    /**
+     * Clears every counter and histogram.
+     */
+    void reset();
+}
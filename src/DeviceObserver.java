@@ -0,0 +1,37 @@
+/**
+ * Receives changes to the fields of the IDevices it is registered with.
+ * <p>
+ * Callbacks run synchronously on the thread that changed the field, after the new value is stored, so reading the
+ * field from a callback sees the new value or a later one. They must be short and must not throw; an exception
+ * propagates to the code that changed the field.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public interface DeviceObserver
+{
+    /**
+     * Called when a numeric field changes.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    default void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+    }
+
+    /**
+     * Called when a text field changes.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value, may be null.
+     * @param newValue is the new value, may be null.
+     */
+    default void textChanged(final IDevice device, final DeviceField field, final String oldValue, final String newValue)
+    {
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Prints the details of many IDevices through one buffered channel.
+ * <p>
+ * The output is the same as calling printDetails on every device in turn, but each device is rendered into one
+ * reused StringBuilder, encoded into one reused ByteBuffer, and the stream is flushed once at the end instead of
+ * taking the System.out lock and flushing per device.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DevicePrinter
+{
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    /*
+     * Not instantiable.
+     */
+    private DevicePrinter()
+    {
+    }
+
+    /**
+     * Prints the details of every device to System.out, flushing once.
+     *
+     * @param devices is the collection of devices to be printed.
+     */
+    public static void printAll(final Iterable<? extends IDevice> devices)
+    {
+        printAll(devices, System.out, stdoutCharset());
+    }
+
+    /**
+     * Prints the details of every device to a stream, flushing once.
+     *
+     * @param devices is the collection of devices to be printed.
+     * @param out     is the stream to be written to.
+     * @param charset is the charset the text is encoded with.
+     */
+    public static void printAll(final Iterable<? extends IDevice> devices, final OutputStream out, final Charset charset)
+    {
+        try
+        {
+            writeAll(devices, Channels.newChannel(out), charset);
+            out.flush();
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the details of every device to a channel.
+     *
+     * @param devices is the collection of devices to be printed.
+     * @param channel is the channel to be written to.
+     * @param charset is the charset the text is encoded with.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if the channel cannot be written.
+     */
+    public static long writeAll(final Iterable<? extends IDevice> devices, final WritableByteChannel channel, final Charset charset) throws IOException
+    {
+        final String         separator;
+        final StringBuilder  sb;
+        final CharsetEncoder encoder;
+        final ByteBuffer     bytes;
+        long                 written;
+
+        separator = System.lineSeparator();
+        sb        = new StringBuilder(BUFFER_CHARS + DeviceFormat.RENDER_CAPACITY);
+        encoder   = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes     = ByteBuffer.allocate((int) (BUFFER_CHARS * encoder.maxBytesPerChar()) + 16);
+        written   = 0;
+
+        for(final IDevice device : devices)
+        {
+            device.appendDetailsTo(sb).append(separator);
+
+            if(sb.length() >= BUFFER_CHARS)
+            {
+                written += drain(sb, encoder, bytes, channel, false);
+            }
+        }
+
+        written += drain(sb, encoder, bytes, channel, true);
+
+        return written;
+    }
+
+    /*
+     * Encodes the pending characters and writes them out, keeping any split surrogate pair for the next drain.
+     */
+    private static long drain(final StringBuilder sb, final CharsetEncoder encoder, final ByteBuffer bytes, final WritableByteChannel channel, final boolean endOfInput) throws IOException
+    {
+        final CharBuffer chars;
+        long             written;
+
+        chars   = CharBuffer.wrap(sb);
+        written = 0;
+
+        while(true)
+        {
+            final CoderResult result;
+            result = encoder.encode(chars, bytes, endOfInput);
+
+            if(result.isError())
+            {
+                result.throwException();
+            }
+
+            written += flip(bytes, channel);
+
+            if(result.isUnderflow())
+            {
+                break;
+            }
+        }
+
+        if(endOfInput)
+        {
+            while(encoder.flush(bytes).isOverflow())
+            {
+                written += flip(bytes, channel);
+            }
+
+            written += flip(bytes, channel);
+            encoder.reset();
+        }
+
+        sb.delete(0, chars.position());
+
+        return written;
+    }
+
+    /*
+     * Writes out everything in the byte buffer and clears it.
+     */
+    private static int flip(final ByteBuffer bytes, final WritableByteChannel channel) throws IOException
+    {
+        final int length;
+
+        bytes.flip();
+        length = bytes.remaining();
+
+        while(bytes.hasRemaining())
+        {
+            channel.write(bytes);
+        }
+
+        bytes.clear();
+
+        return length;
+    }
+
+    /**
+     * Returns the charset System.out encodes with, which is the charset printDetails output is in.
+     *
+     * @return the Charset.
+     */
+    static Charset stdoutCharset()
+    {
+        final String name;
+        name = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+
+        try
+        {
+            return name == null ? Charset.defaultCharset() : Charset.forName(name);
+        }
+        catch(final IllegalArgumentException e)
+        {
+            return Charset.defaultCharset();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The fixed-width binary layout of one IDevice, shared by snapshot files and other binary stores.
+ * <p>
+ * Every record is RECORD_SIZE bytes, little-endian, so record i of a file starts at a computable offset:
+ * </p>
+ * <pre>
+ *  0  double  minutes remaining (IPhone, IPhone16) or maximum volume in decibels (IPod)
+ *  8  int     carrier string id (IPhone, IPhone16), operating system string id (IPad) or songs stored (IPod)
+ * 12  int     memory in GB (IPhone16)
+ * 16  byte    DeviceType ordinal
+ * 17  byte    flags: FLAG_HIGH_RES_CAMERA (IPhone16), FLAG_HAS_CASE (IPad)
+ * 18  6 bytes reserved, zero
+ * </pre>
+ * <p>
+ * Strings are stored as ids into a string table kept next to the records; StringDictionary.NULL_ID stands for null.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceRecord
+{
+    static final ByteOrder ORDER       = ByteOrder.LITTLE_ENDIAN;
+    static final int       RECORD_SIZE = 24;
+
+    static final int DOUBLE_OFFSET = 0;
+    static final int INT_OFFSET    = 8;
+    static final int MEMORY_OFFSET = 12;
+    static final int TYPE_OFFSET   = 16;
+    static final int FLAGS_OFFSET  = 17;
+
+    static final int FLAG_HIGH_RES_CAMERA = 1;
+    static final int FLAG_HAS_CASE        = 1 << 1;
+
+    /*
+     * Not instantiable.
+     */
+    private DeviceRecord()
+    {
+    }
+
+    /**
+     * Writes one device as a record at an absolute position of a buffer.
+     *
+     * @param buffer  is a little-endian buffer with at least RECORD_SIZE bytes after offset.
+     * @param offset  is the position of the record.
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     * @param strings is the string table that carriers and operating system versions are encoded into.
+     */
+    public static void encode(final ByteBuffer buffer, final int offset, final IDevice element, final StringDictionary strings)
+    {
+        final IDevice    device;
+        final DeviceType type;
+        double           number;
+        int              word;
+        int              memory;
+        int              flags;
+
+        device = DeviceFleet.concrete(element);
+        type   = DeviceType.of(device);
+        number = 0.0;
+        word   = 0;
+        memory = 0;
+        flags  = 0;
+
+        switch(type)
+        {
+            case IPHONE:
+            case IPHONE16:
+            {
+                final IPhone phone;
+                phone = (IPhone) device;
+
+                number = phone.getMinutesRemaining();
+                word   = strings.encode(phone.getCarrier());
+
+                // an IPhone16 also stores its memory and camera
+                if(type == DeviceType.IPHONE16)
+                {
+                    memory = ((IPhone16) phone).getMemoryGB();
+                    flags  = ((IPhone16) phone).hasHighResCamera() ? FLAG_HIGH_RES_CAMERA : 0;
+                }
+                break;
+            }
+            case IPAD:
+            {
+                final IPad pad;
+                pad = (IPad) device;
+
+                word  = strings.encode(pad.getOpSystemVersion());
+                flags = pad.getHasCase() ? FLAG_HAS_CASE : 0;
+                break;
+            }
+            default:
+            {
+                final IPod pod;
+                pod = (IPod) device;
+
+                number = pod.getMaxVolDecibels();
+                word   = pod.getNumSongsStored();
+            }
+        }
+
+        write(buffer, offset, type, number, word, memory, flags);
+    }
+
+    /**
+     * Writes one record from raw field values at an absolute position of a buffer, zeroing the reserved bytes. Every
+     * writer of records goes through here, so the layout is written in one place.
+     *
+     * @param buffer is a little-endian buffer with at least RECORD_SIZE bytes after offset.
+     * @param offset is the position of the record.
+     * @param type   is the DeviceType of the record.
+     * @param number is the minutes remaining or maximum volume, or 0.0.
+     * @param word   is the string id or songs stored.
+     * @param memory is the memory in GB, or 0.
+     * @param flags  is the flag bits.
+     */
+    static void write(final ByteBuffer buffer, final int offset, final DeviceType type, final double number, final int word, final int memory, final int flags)
+    {
+        buffer.putDouble(offset + DOUBLE_OFFSET, number);
+        buffer.putInt(offset + INT_OFFSET, word);
+        buffer.putInt(offset + MEMORY_OFFSET, memory);
+        buffer.put(offset + TYPE_OFFSET, (byte) type.ordinal());
+        buffer.put(offset + FLAGS_OFFSET, (byte) flags);
+        buffer.putShort(offset + FLAGS_OFFSET + 1, (short) 0);
+        buffer.putInt(offset + FLAGS_OFFSET + 3, 0);
+    }
+
+    /**
+     * Builds a new device from a record at an absolute position of a buffer.
+     *
+     * @param buffer  is a little-endian buffer holding the record.
+     * @param offset  is the position of the record.
+     * @param strings is the string table the record's string ids refer to.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod.
+     */
+    public static IDevice decode(final ByteBuffer buffer, final int offset, final StringTable strings)
+    {
+        final int flags;
+        flags = buffer.get(offset + FLAGS_OFFSET);
+
+        switch(typeAt(buffer, offset))
+        {
+            case IPHONE:
+                return new IPhone(buffer.getDouble(offset + DOUBLE_OFFSET), strings.string(buffer.getInt(offset + INT_OFFSET)));
+            case IPHONE16:
+                return new IPhone16(buffer.getDouble(offset + DOUBLE_OFFSET), strings.string(buffer.getInt(offset + INT_OFFSET)), (flags & FLAG_HIGH_RES_CAMERA) != 0, buffer.getInt(offset + MEMORY_OFFSET));
+            case IPAD:
+                return new IPad((flags & FLAG_HAS_CASE) != 0, strings.string(buffer.getInt(offset + INT_OFFSET)));
+            default:
+                return new IPod(buffer.getInt(offset + INT_OFFSET), buffer.getDouble(offset + DOUBLE_OFFSET));
+        }
+    }
+
+    /**
+     * Returns the DeviceType of a record.
+     *
+     * @param buffer is a little-endian buffer holding the record.
+     * @param offset is the position of the record.
+     *
+     * @return the DeviceType of the record.
+     */
+    public static DeviceType typeAt(final ByteBuffer buffer, final int offset)
+    {
+        final int ordinal;
+        ordinal = buffer.get(offset + TYPE_OFFSET);
+
+        if(ordinal < 0 || ordinal > DeviceType.IPOD.ordinal())
+        {
+            throw new IllegalStateException("Corrupt record type " + ordinal + " at offset " + offset);
+        }
+
+        return DeviceType.fromOrdinal(ordinal);
+    }
+
+    /**
+     * Resolves the string ids stored in records.
+     */
+    public interface StringTable
+    {
+        /**
+         * Returns the String with the given id.
+         *
+         * @param id is a string id, or StringDictionary.NULL_ID.
+         *
+         * @return the String, or null for StringDictionary.NULL_ID.
+         */
+        String string(int id);
+    }
+}
@@ -0,0 +1,363 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the printDetails report of a whole fleet, rendering in parallel and writing in order.
+ * <p>
+ * Devices are cut into chunks, and every chunk is rendered and encoded to bytes by its own task, on a virtual thread
+ * when the JVM has them and on a pool of one platform thread per core otherwise. A single writer thread takes the
+ * chunks back in submission order and writes them to the sink, so the output is byte-for-byte what calling
+ * printDetails on every device in turn would print, without taking the System.out lock per device.
+ * </p>
+ * <p>
+ * At most a fixed number of chunks are rendered or waiting to be written at any time. When the sink is slower than
+ * rendering, the caller blocks on submitting the next chunk, so memory stays bounded whatever the fleet size.
+ * </p>
+ * <p>
+ * The writer thread is never interrupted: an interrupted write closes an interruptible channel, and with it the
+ * caller's stream or the process's standard output. If the caller is interrupted, the writer is told to stop by a flag
+ * and an end marker instead, and finishes any write it is blocked in on its own.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceReportGenerator
+{
+    private static final int DEFAULT_CHUNK_DEVICES = 512;
+    private static final int DEFAULT_IN_FLIGHT     = 64;
+
+    private final int     chunkDevices;
+    private final int     inFlight;
+    private final Charset charset;
+
+    /**
+     * Constructor for a DeviceReportGenerator with the default chunk size and in-flight limit, encoding with the
+     * charset System.out uses, as printDetails does.
+     */
+    public DeviceReportGenerator()
+    {
+        this(DEFAULT_CHUNK_DEVICES, DEFAULT_IN_FLIGHT, DevicePrinter.stdoutCharset());
+    }
+
+    /**
+     * Constructor for DeviceReportGenerator.
+     *
+     * @param chunkDevices is the number of devices rendered by one task.
+     * @param inFlight     is the largest number of chunks rendered or waiting to be written at once.
+     * @param charset      is the charset the report is encoded with.
+     */
+    public DeviceReportGenerator(final int chunkDevices, final int inFlight, final Charset charset)
+    {
+        if(chunkDevices < 1 || inFlight < 1)
+        {
+            throw new IllegalArgumentException("chunkDevices and inFlight must be positive");
+        }
+
+        this.chunkDevices = chunkDevices;
+        this.inFlight     = inFlight;
+        this.charset      = charset;
+    }
+
+    /**
+     * Writes the report to standard output, after flushing anything already printed through System.out.
+     *
+     * @param devices is the list of devices to be reported.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if standard output cannot be written.
+     */
+    public long toStdout(final List<? extends IDevice> devices) throws IOException
+    {
+        System.out.flush();
+
+        // not closed, and never interrupted while writing: closing it would close the process's standard output
+        return this.write(devices, new FileOutputStream(FileDescriptor.out).getChannel());
+    }
+
+    /**
+     * Writes the report to a file, replacing its contents, or to a named pipe.
+     *
+     * @param devices is the list of devices to be reported.
+     * @param path    is the file or named pipe to be written to.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public long toFile(final List<? extends IDevice> devices, final Path path) throws IOException
+    {
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            return this.write(devices, channel);
+        }
+    }
+
+    /**
+     * Writes the report to a stream, such as the input of another process, and flushes it.
+     *
+     * @param devices is the list of devices to be reported.
+     * @param out     is the stream to be written to; it is not closed.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    public long toStream(final List<? extends IDevice> devices, final OutputStream out) throws IOException
+    {
+        final long written;
+        written = this.write(devices, Channels.newChannel(out));
+
+        out.flush();
+
+        return written;
+    }
+
+    /**
+     * Writes the report to a channel.
+     *
+     * @param devices is the list of devices to be reported.
+     * @param channel is the channel to be written to; it is not closed.
+     *
+     * @return the number of bytes written.
+     *
+     * @throws IOException if the channel cannot be written.
+     */
+    public long write(final List<? extends IDevice> devices, final WritableByteChannel channel) throws IOException
+    {
+        final BlockingQueue<Future<ByteBuffer>> pending;
+        final ExecutorService                   renderers;
+        final ChunkWriter                       writer;
+        final Thread                            writerThread;
+
+        // the queue holds chunks waiting to be written; one more may be in the writer's hands
+        pending      = new ArrayBlockingQueue<>(Math.max(1, this.inFlight - 1));
+        renderers    = newRenderers();
+        writer       = new ChunkWriter(pending, channel);
+        writerThread = new Thread(writer, "DeviceReportGenerator-writer");
+
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        try
+        {
+            for(int from = 0; from < devices.size() && writer.failure == null; from += this.chunkDevices)
+            {
+                final int start;
+                final int end;
+
+                start = from;
+                end   = Math.min(devices.size(), from + this.chunkDevices);
+
+                pending.put(renderers.submit(() -> this.render(devices, start, end)));
+            }
+
+            pending.put(new Done());
+            writerThread.join();
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+
+            // the queue only holds chunks not yet taken, so after clearing it the end marker always fits
+            writer.cancelled = true;
+            pending.clear();
+            pending.offer(new Done());
+
+            throw new IOException("Interrupted while writing the report", e);
+        }
+        finally
+        {
+            renderers.shutdownNow();
+        }
+
+        if(writer.failure instanceof IOException)
+        {
+            throw (IOException) writer.failure;
+        }
+
+        if(writer.failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) writer.failure;
+        }
+
+        if(writer.failure != null)
+        {
+            throw new IOException("Failed to write the report", writer.failure);
+        }
+
+        return writer.written;
+    }
+
+    /*
+     * Renders one chunk of devices and encodes it.
+     */
+    private ByteBuffer render(final List<? extends IDevice> devices, final int start, final int end) throws CharacterCodingException
+    {
+        final String        separator;
+        final StringBuilder sb;
+
+        separator = System.lineSeparator();
+        sb        = new StringBuilder((end - start) * DeviceFormat.RENDER_CAPACITY);
+
+        for(int i = start; i < end; i++)
+        {
+            devices.get(i).appendDetailsTo(sb).append(separator);
+        }
+
+        return this.charset.newEncoder()
+                           .onMalformedInput(CodingErrorAction.REPLACE)
+                           .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                           .encode(CharBuffer.wrap(sb));
+    }
+
+    /*
+     * Returns a virtual-thread-per-task executor when the JVM has one, otherwise a pool with one thread per core.
+     */
+    private static ExecutorService newRenderers()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(final ReflectiveOperationException e)
+        {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), task ->
+            {
+                final Thread thread;
+                thread = new Thread(task, "DeviceReportGenerator-renderer");
+
+                thread.setDaemon(true);
+
+                return thread;
+            });
+        }
+    }
+
+    /*
+     * Takes rendered chunks in submission order and writes them out.
+     */
+    private static final class ChunkWriter implements Runnable
+    {
+        private final BlockingQueue<Future<ByteBuffer>> pending;
+        private final WritableByteChannel               channel;
+        private volatile Throwable                      failure;
+        private volatile boolean                        cancelled;
+        private long                                    written;
+
+        private ChunkWriter(final BlockingQueue<Future<ByteBuffer>> pending, final WritableByteChannel channel)
+        {
+            this.pending = pending;
+            this.channel = channel;
+        }
+
+        @Override
+        public void run()
+        {
+            while(true)
+            {
+                final Future<ByteBuffer> next;
+
+                try
+                {
+                    next = this.pending.take();
+                }
+                catch(final InterruptedException e)
+                {
+                    this.failure = e;
+                    return;
+                }
+
+                if(next instanceof Done)
+                {
+                    return;
+                }
+
+                if(this.failure != null || this.cancelled)
+                {
+                    // keep draining so the producer never blocks on a full queue after a failure
+                    next.cancel(true);
+                    continue;
+                }
+
+                try
+                {
+                    final ByteBuffer bytes;
+                    bytes = next.get();
+
+                    this.written += bytes.remaining();
+
+                    while(bytes.hasRemaining())
+                    {
+                        this.channel.write(bytes);
+                    }
+                }
+                catch(final ExecutionException e)
+                {
+                    this.failure = e.getCause();
+                }
+                catch(final Throwable t)
+                {
+                    this.failure = t;
+                }
+            }
+        }
+    }
+
+    /*
+     * The completed future that marks the end of the report.
+     */
+    private static final class Done implements Future<ByteBuffer>
+    {
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning)
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            return false;
+        }
+
+        @Override
+        public boolean isDone()
+        {
+            return true;
+        }
+
+        @Override
+        public ByteBuffer get()
+        {
+            return null;
+        }
+
+        @Override
+        public ByteBuffer get(final long timeout, final TimeUnit unit)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The versioned binary snapshot file format for IDevices.
+ * <p>
+ * A snapshot is a HEADER_SIZE byte header, then fixed-width DeviceRecords, then a string table holding every carrier
+ * and operating system version once. All values are little-endian:
+ * </p>
+ * <pre>
+ *  0  int   MAGIC
+ *  4  short VERSION
+ *  6  short record size in bytes
+ *  8  long  number of records
+ * 16  long  file offset of the string table
+ * 24  int   number of strings
+ * 28  int   reserved, zero
+ * </pre>
+ * <p>
+ * Each string table entry is its UTF-8 length as an int followed by its UTF-8 bytes, in id order.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceSnapshot
+{
+    static final int   MAGIC       = 0x56454449;
+    static final short VERSION     = 1;
+    static final int   HEADER_SIZE = 32;
+
+    static final int VERSION_OFFSET       = 4;
+    static final int RECORD_SIZE_OFFSET   = 6;
+    static final int COUNT_OFFSET         = 8;
+    static final int STRINGS_OFFSET       = 16;
+    static final int STRING_COUNT_OFFSET  = 24;
+
+    /*
+     * Not instantiable.
+     */
+    private DeviceSnapshot()
+    {
+    }
+
+    /**
+     * Writes every device to a new snapshot file, replacing any existing file.
+     *
+     * @param path    is the snapshot file.
+     * @param devices is the collection of devices to be written.
+     *
+     * @return the number of devices written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static long write(final Path path, final Iterable<? extends IDevice> devices) throws IOException
+    {
+        try(final DeviceSnapshotWriter writer = new DeviceSnapshotWriter(path))
+        {
+            for(final IDevice device : devices)
+            {
+                writer.write(device);
+            }
+
+            return writer.count();
+        }
+    }
+
+    /**
+     * Opens a snapshot file for lazy, random-access reading.
+     *
+     * @param path is the snapshot file.
+     *
+     * @return a DeviceSnapshotReader over the file.
+     *
+     * @throws IOException if the file cannot be opened or is not a snapshot.
+     */
+    public static DeviceSnapshotReader open(final Path path) throws IOException
+    {
+        return new DeviceSnapshotReader(path);
+    }
+}
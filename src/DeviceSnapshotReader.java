@@ -0,0 +1,356 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reads a snapshot file lazily through memory-mapped buffers.
+ * <p>
+ * Opening a snapshot only reads the header and the string table offsets. Records are mapped a chunk at a time on
+ * first access and decoded on demand, so a multi-GB snapshot is usable as soon as it is opened. Each string is
+ * decoded once, the first time a record refers to it.
+ * </p>
+ * <p>
+ * Safe for concurrent readers. The mapped buffers stay valid until they are garbage collected, even after close.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceSnapshotReader implements Closeable, Iterable<IDevice>, DeviceRecord.StringTable
+{
+    private static final long CHUNK_RECORDS      = (1L << 30) / DeviceRecord.RECORD_SIZE;
+    private static final long STRING_CHUNK_BYTES = 1L << 30;
+
+    private final FileChannel                      channel;
+    private final long                             count;
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+    private final ByteBuffer[]                     stringChunks;
+    private final long[]                           stringOffsets;
+    private final String[]                         stringCache;
+
+    /**
+     * Constructor for DeviceSnapshotReader.
+     *
+     * @param path is the snapshot file.
+     *
+     * @throws IOException if the file cannot be opened or is not a snapshot.
+     */
+    public DeviceSnapshotReader(final Path path) throws IOException
+    {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try
+        {
+            final ByteBuffer header;
+            final long       stringTableOffset;
+            final int        stringCount;
+
+            header = ByteBuffer.allocate(DeviceSnapshot.HEADER_SIZE).order(DeviceRecord.ORDER);
+
+            while(header.hasRemaining())
+            {
+                if(this.channel.read(header, header.position()) < 0)
+                {
+                    throw new IOException("Truncated snapshot header: " + path);
+                }
+            }
+
+            if(header.getInt(0) != DeviceSnapshot.MAGIC)
+            {
+                throw new IOException("Not a device snapshot: " + path);
+            }
+
+            if(header.getShort(DeviceSnapshot.VERSION_OFFSET) != DeviceSnapshot.VERSION || header.getShort(DeviceSnapshot.RECORD_SIZE_OFFSET) != DeviceRecord.RECORD_SIZE)
+            {
+                throw new IOException("Unsupported snapshot version " + header.getShort(DeviceSnapshot.VERSION_OFFSET) + ": " + path);
+            }
+
+            this.count        = header.getLong(DeviceSnapshot.COUNT_OFFSET);
+            stringTableOffset = header.getLong(DeviceSnapshot.STRINGS_OFFSET);
+            stringCount       = header.getInt(DeviceSnapshot.STRING_COUNT_OFFSET);
+
+            if(this.count < 0 || stringTableOffset != DeviceSnapshot.HEADER_SIZE + this.count * DeviceRecord.RECORD_SIZE || stringTableOffset > this.channel.size())
+            {
+                throw new IOException("Corrupt snapshot header: " + path);
+            }
+
+            final long tableBytes;
+            tableBytes = this.channel.size() - stringTableOffset;
+
+            this.chunks        = new AtomicReferenceArray<>((int) ((this.count + CHUNK_RECORDS - 1) / CHUNK_RECORDS));
+            this.stringChunks  = new ByteBuffer[(int) ((tableBytes + STRING_CHUNK_BYTES - 1) / STRING_CHUNK_BYTES)];
+            this.stringOffsets = new long[stringCount];
+            this.stringCache   = new String[stringCount];
+
+            // one mapping cannot exceed 2 GB, so a large string table is mapped in pieces
+            for(int chunk = 0; chunk < this.stringChunks.length; chunk++)
+            {
+                final long first;
+                first = chunk * STRING_CHUNK_BYTES;
+
+                this.stringChunks[chunk] = this.channel.map(FileChannel.MapMode.READ_ONLY, stringTableOffset + first, Math.min(STRING_CHUNK_BYTES, tableBytes - first)).order(DeviceRecord.ORDER);
+            }
+
+            long offset;
+            offset = 0;
+
+            for(int id = 0; id < stringCount; id++)
+            {
+                this.stringOffsets[id] = offset;
+                offset += Integer.BYTES + this.stringLength(offset);
+
+                if(offset > tableBytes)
+                {
+                    throw new IOException("Corrupt snapshot string table: " + path);
+                }
+            }
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Getter for the number of devices in the snapshot.
+     *
+     * @return the number of devices as a long.
+     */
+    public long size()
+    {
+        return this.count;
+    }
+
+    /**
+     * Returns the DeviceType of a record without decoding it.
+     *
+     * @param index is the record index.
+     *
+     * @return the DeviceType of the record.
+     */
+    public DeviceType typeAt(final long index)
+    {
+        return DeviceRecord.typeAt(this.chunk(index), offsetOf(index));
+    }
+
+    /**
+     * Decodes one record into a new device.
+     *
+     * @param index is the record index.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod.
+     */
+    public IDevice get(final long index)
+    {
+        return DeviceRecord.decode(this.chunk(index), offsetOf(index), this);
+    }
+
+    /**
+     * Returns a String from the snapshot's string table.
+     *
+     * @param id is a string id, or StringDictionary.NULL_ID.
+     *
+     * @return the String, or null for StringDictionary.NULL_ID.
+     */
+    @Override
+    public String string(final int id)
+    {
+        if(id == StringDictionary.NULL_ID)
+        {
+            return null;
+        }
+
+        String value;
+        value = this.stringCache[id];
+
+        if(value == null)
+        {
+            final long   offset;
+            final byte[] utf8;
+
+            offset = this.stringOffsets[id];
+            utf8   = new byte[this.stringLength(offset)];
+
+            this.readStrings(offset + Integer.BYTES, utf8);
+
+            // a racing thread may decode the same String; either copy is fine
+            value                = new String(utf8, StandardCharsets.UTF_8);
+            this.stringCache[id] = value;
+        }
+
+        return value;
+    }
+
+    /**
+     * Getter for the number of distinct Strings in the snapshot.
+     *
+     * @return the number of Strings as an int.
+     */
+    public int stringCount()
+    {
+        return this.stringOffsets.length;
+    }
+
+    /**
+     * Returns an iterator that decodes every record in order.
+     *
+     * @return an Iterator of new devices.
+     */
+    @Override
+    public Iterator<IDevice> iterator()
+    {
+        return new Iterator<IDevice>()
+        {
+            private long next = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return this.next < DeviceSnapshotReader.this.count;
+            }
+
+            @Override
+            public IDevice next()
+            {
+                if(!this.hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+
+                return DeviceSnapshotReader.this.get(this.next++);
+            }
+        };
+    }
+
+    /**
+     * Closes the file channel; already mapped chunks stay readable.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+    /**
+     * Returns the mapped chunk holding a record, mapping it on first use.
+     *
+     * @param index is the record index.
+     *
+     * @return the chunk as a little-endian buffer.
+     */
+    ByteBuffer chunk(final long index)
+    {
+        if(index < 0 || index >= this.count)
+        {
+            throw new IndexOutOfBoundsException("No record " + index + " in a snapshot of " + this.count);
+        }
+
+        final int  chunkIndex;
+        ByteBuffer chunk;
+
+        chunkIndex = (int) (index / CHUNK_RECORDS);
+        chunk      = this.chunks.get(chunkIndex);
+
+        if(chunk == null)
+        {
+            chunk = this.mapChunk(chunkIndex);
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Returns the offset of a record inside its chunk.
+     *
+     * @param index is the record index.
+     *
+     * @return the offset in bytes.
+     */
+    static int offsetOf(final long index)
+    {
+        return (int) (index % CHUNK_RECORDS) * DeviceRecord.RECORD_SIZE;
+    }
+
+    /*
+     * Reads the length prefix of a string table entry.
+     */
+    private int stringLength(final long offset)
+    {
+        final byte[] prefix;
+        prefix = new byte[Integer.BYTES];
+
+        this.readStrings(offset, prefix);
+
+        return ByteBuffer.wrap(prefix).order(DeviceRecord.ORDER).getInt();
+    }
+
+    /*
+     * Copies bytes of the string table into an array, across mapped pieces where an entry straddles them.
+     */
+    private void readStrings(final long offset, final byte[] into)
+    {
+        long position;
+        int  copied;
+
+        position = offset;
+        copied   = 0;
+
+        while(copied < into.length)
+        {
+            final ByteBuffer chunk;
+            final int        start;
+            final int        length;
+
+            chunk  = this.stringChunks[(int) (position / STRING_CHUNK_BYTES)];
+            start  = (int) (position % STRING_CHUNK_BYTES);
+            length = Math.min(into.length - copied, chunk.capacity() - start);
+
+            chunk.get(start, into, copied, length);
+
+            position += length;
+            copied   += length;
+        }
+    }
+
+    /*
+     * Maps one chunk of records; synchronized so each chunk is mapped once.
+     */
+    private synchronized ByteBuffer mapChunk(final int chunkIndex)
+    {
+        ByteBuffer chunk;
+        chunk = this.chunks.get(chunkIndex);
+
+        if(chunk == null)
+        {
+            final long first;
+            final long records;
+
+            first   = chunkIndex * CHUNK_RECORDS;
+            records = Math.min(CHUNK_RECORDS, this.count - first);
+
+            try
+            {
+                chunk = this.channel.map(FileChannel.MapMode.READ_ONLY, DeviceSnapshot.HEADER_SIZE + first * DeviceRecord.RECORD_SIZE, records * DeviceRecord.RECORD_SIZE).order(DeviceRecord.ORDER);
+            }
+            catch(final IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+
+            this.chunks.set(chunkIndex, chunk);
+        }
+
+        return chunk;
+    }
+}
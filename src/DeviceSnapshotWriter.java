@@ -0,0 +1,172 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams IDevices into a snapshot file.
+ * <p>
+ * Records are buffered and written sequentially through a FileChannel; the string table and header are written when
+ * the writer is closed. A snapshot is only valid after close returns. Not thread-safe.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceSnapshotWriter implements Closeable
+{
+    private static final int RECORDS_PER_BUFFER = 4096;
+
+    private final FileChannel      channel;
+    private final ByteBuffer       buffer;
+    private final StringDictionary strings;
+    private long                   count;
+    private long                   position;
+    private boolean                closed;
+
+    /**
+     * Constructor for DeviceSnapshotWriter; creates or truncates the file.
+     *
+     * @param path is the snapshot file.
+     *
+     * @throws IOException if the file cannot be opened.
+     */
+    public DeviceSnapshotWriter(final Path path) throws IOException
+    {
+        this.channel  = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.buffer   = ByteBuffer.allocateDirect(DeviceRecord.RECORD_SIZE * RECORDS_PER_BUFFER).order(DeviceRecord.ORDER);
+        this.strings  = new StringDictionary();
+        this.count    = 0;
+        this.position = DeviceSnapshot.HEADER_SIZE;
+        this.closed   = false;
+    }
+
+    /**
+     * Appends one device to the snapshot.
+     *
+     * @param device is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final IDevice device) throws IOException
+    {
+        if(this.closed)
+        {
+            throw new IllegalStateException("DeviceSnapshotWriter is closed");
+        }
+
+        if(this.buffer.remaining() < DeviceRecord.RECORD_SIZE)
+        {
+            this.flushBuffer();
+        }
+
+        DeviceRecord.encode(this.buffer, this.buffer.position(), device, this.strings);
+        this.buffer.position(this.buffer.position() + DeviceRecord.RECORD_SIZE);
+        this.count++;
+    }
+
+    /**
+     * Getter for the number of devices written so far.
+     *
+     * @return the number of devices as a long.
+     */
+    public long count()
+    {
+        return this.count;
+    }
+
+    /**
+     * Writes the string table and header, forces the file to disk and closes it.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(this.closed)
+        {
+            return;
+        }
+
+        this.closed = true;
+
+        try
+        {
+            final long stringTableOffset;
+
+            this.flushBuffer();
+            stringTableOffset = this.position;
+
+            for(int id = 0; id < this.strings.size(); id++)
+            {
+                final byte[] utf8;
+                utf8 = this.strings.decode(id).getBytes(StandardCharsets.UTF_8);
+
+                if(this.buffer.remaining() < Integer.BYTES + utf8.length)
+                {
+                    this.flushBuffer();
+                }
+
+                if(this.buffer.remaining() < Integer.BYTES + utf8.length)
+                {
+                    final ByteBuffer large;
+                    large = ByteBuffer.allocate(Integer.BYTES + utf8.length).order(DeviceRecord.ORDER);
+                    large.putInt(utf8.length).put(utf8).flip();
+                    this.writeFully(large);
+                }
+                else
+                {
+                    this.buffer.putInt(utf8.length).put(utf8);
+                }
+            }
+
+            this.flushBuffer();
+
+            final ByteBuffer header;
+            header = ByteBuffer.allocate(DeviceSnapshot.HEADER_SIZE).order(DeviceRecord.ORDER);
+            header.putInt(DeviceSnapshot.MAGIC)
+                  .putShort(DeviceSnapshot.VERSION)
+                  .putShort((short) DeviceRecord.RECORD_SIZE)
+                  .putLong(this.count)
+                  .putLong(stringTableOffset)
+                  .putInt(this.strings.size())
+                  .putInt(0)
+                  .flip();
+
+            while(header.hasRemaining())
+            {
+                this.channel.write(header, header.position());
+            }
+
+            this.channel.force(true);
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+
+    /*
+     * Writes whatever is in the buffer at the current file position.
+     */
+    private void flushBuffer() throws IOException
+    {
+        this.buffer.flip();
+        this.writeFully(this.buffer);
+        this.buffer.clear();
+    }
+
+    /*
+     * Writes a whole buffer at the current file position and advances it.
+     */
+    private void writeFully(final ByteBuffer source) throws IOException
+    {
+        while(source.hasRemaining())
+        {
+            this.position += this.channel.write(source, this.position);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Identifies the concrete kind of an IDevice.
+ * <p>
+ * Used as a compact type tag by the fleet stores, which keep each kind of device in its own columns.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public enum DeviceType
+{
+    IPHONE,
+    IPHONE16,
+    IPAD,
+    IPOD;
+
+    private static final DeviceType[] VALUES = values();
+
+    /**
+     * Returns the DeviceType with the given ordinal, without copying the values array.
+     *
+     * @param ordinal is the ordinal of the DeviceType.
+     *
+     * @return the DeviceType with that ordinal.
+     */
+    public static DeviceType fromOrdinal(final int ordinal)
+    {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Returns the DeviceType of a concrete device.
+     * <p>
+     * Reads the device's type tag, so there is no instanceof chain to keep in order. Fleet views and other untagged
+     * subclasses of IDevice are rejected, because callers cast the device to the class the DeviceType names.
+     * </p>
+     *
+     * @param device is the device to be classified.
+     *
+     * @return the DeviceType of the device.
+     *
+     * @throws IllegalArgumentException if the device is not an IPhone, IPhone16, IPad or IPod.
+     */
+    public static DeviceType of(final IDevice device)
+    {
+        if(device == null || device.getType() == null)
+        {
+            throw new IllegalArgumentException("Unsupported device: " + device);
+        }
+
+        return device.getType();
+    }
+}
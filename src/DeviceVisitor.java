@@ -0,0 +1,49 @@
+/**
+ * An operation with one method per concrete kind of IDevice.
+ * <p>
+ * IDevice.accept calls the method matching the device's type tag, so an IPhone16 is only ever passed to
+ * visitIPhone16 and never to visitIPhone.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ * @param <R> is the type of the result.
+ */
+public interface DeviceVisitor<R>
+{
+    /**
+     * Visits an IPhone that is not an IPhone16.
+     *
+     * @param phone is the IPhone.
+     *
+     * @return the result.
+     */
+    R visitIPhone(IPhone phone);
+
+    /**
+     * Visits an IPhone16.
+     *
+     * @param phone is the IPhone16.
+     *
+     * @return the result.
+     */
+    R visitIPhone16(IPhone16 phone);
+
+    /**
+     * Visits an IPad.
+     *
+     * @param pad is the IPad.
+     *
+     * @return the result.
+     */
+    R visitIPad(IPad pad);
+
+    /**
+     * Visits an IPod.
+     *
+     * @param pod is the IPod.
+     *
+     * @return the result.
+     */
+    R visitIPod(IPod pod);
+}
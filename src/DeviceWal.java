@@ -0,0 +1,956 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only write-ahead log of every change made to a fixed set of devices through their setters, with
+ * checkpoints and crash recovery.
+ * <p>
+ * The log observes its devices. Each change is appended as one entry holding its log sequence number (LSN), the
+ * device's index, the DeviceField and the new value, and a dedicated flusher thread writes appended entries to the
+ * current segment file and forces them to disk. Whatever is appended while one force is running goes out with the
+ * next, so concurrent writers share forces and a burst of changes costs a few forces rather than one each. With
+ * Durability.SYNC a setter returns once its entry is on disk; with Durability.ASYNC it returns once the entry is
+ * appended, and sync waits for everything appended so far.
+ * </p>
+ * <p>
+ * checkpoint starts a new segment, writes a DeviceSnapshot of the devices, and then deletes the older segments and
+ * snapshots. The snapshot is taken while setters keep running, so it may already hold some changes logged after it
+ * began; that is harmless, because every entry stores an absolute new value and replaying one that is already
+ * applied changes nothing. recover loads the latest snapshot and replays the segments after it in LSN order,
+ * stopping at the first torn or corrupt entry at the end of the log, which it cuts off.
+ * </p>
+ * <p>
+ * Entries are little-endian:
+ * </p>
+ * <pre>
+ *  0  int    entry length in bytes
+ *  4  int    CRC32C of bytes 8 to the end of the entry
+ *  8  long   LSN
+ * 16  int    device index
+ * 20  byte   DeviceField ordinal
+ * 21  double new value (numeric fields), or
+ *     int    UTF-8 length, -1 for null, followed by the UTF-8 bytes (text fields)
+ * </pre>
+ * <p>
+ * Segments are named wal-LSN.log after the first LSN they may hold and start with a SEGMENT_HEADER_SIZE byte header;
+ * snapshots are named checkpoint-LSN.snap after the first LSN they may not hold. Notifications of racing changes, such
+ * as concurrent IPhone.debitMinutes calls, can reach the log in a different order than the changes were made, so an
+ * entry logs the field's value read under the log lock rather than the value the notification carries. The last
+ * entry for a field therefore always holds the value the device ended with, and recovery restores it.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class DeviceWal implements DeviceObserver, Closeable
+{
+    static final int   MAGIC               = 0x4C415744;
+    static final short VERSION             = 1;
+    static final int   SEGMENT_HEADER_SIZE = 16;
+
+    private static final int    ENTRY_HEADER_SIZE = 21;
+    private static final int    INITIAL_BUFFER    = 1 << 16;
+    private static final int    MAX_PENDING       = 1 << 24;
+    private static final String SEGMENT_PREFIX    = "wal-";
+    private static final String SEGMENT_SUFFIX    = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".snap";
+
+    private final Path                              directory;
+    private final Durability                        durability;
+    private final List<IDevice>                     devices;
+    private final IdentityHashMap<IDevice, Integer> indexes;
+    private final ReentrantLock                     lock;
+    private final Condition                         flushNeeded;
+    private final Condition                         flushed;
+    private final Thread                            flusher;
+    private final CRC32C                            crc;
+    private final long                              replayed;
+
+    private ByteBuffer  pending;
+    private ByteBuffer  spare;
+    private FileChannel segment;
+    private long        lastLsn;
+    private long        durableLsn;
+    private long        syncs;
+    private IOException failure;
+    private boolean     closed;
+
+    /**
+     * When a setter returns relative to its entry reaching the disk.
+     */
+    public enum Durability
+    {
+        /** The setter returns once its entry has been forced to disk. */
+        SYNC,
+        /** The setter returns once its entry is appended; call sync to wait for the disk. */
+        ASYNC
+    }
+
+    /*
+     * Starts logging changes to the devices, after recovery has brought them up to lastLsn.
+     */
+    private DeviceWal(final Path directory, final Durability durability, final List<IDevice> devices, final long lastLsn, final long replayed) throws IOException
+    {
+        if(durability == null)
+        {
+            throw new IllegalArgumentException("Durability must not be null");
+        }
+
+        this.directory   = directory;
+        this.durability  = durability;
+        this.devices     = Collections.unmodifiableList(devices);
+        this.indexes     = new IdentityHashMap<>(devices.size() * 2);
+        this.lock        = new ReentrantLock();
+        this.flushNeeded = this.lock.newCondition();
+        this.flushed     = this.lock.newCondition();
+        this.crc         = new CRC32C();
+        this.replayed    = replayed;
+        this.pending     = ByteBuffer.allocate(INITIAL_BUFFER).order(DeviceRecord.ORDER);
+        this.spare       = ByteBuffer.allocate(INITIAL_BUFFER).order(DeviceRecord.ORDER);
+        this.lastLsn     = lastLsn;
+        this.durableLsn  = lastLsn;
+
+        for(int i = 0; i < devices.size(); i++)
+        {
+            if(this.indexes.put(devices.get(i), i) != null)
+            {
+                throw new IllegalArgumentException("Device listed twice at index " + i);
+            }
+        }
+
+        this.segment = openSegment(directory, lastLsn + 1);
+
+        for(final IDevice device : devices)
+        {
+            device.addObserver(this);
+        }
+
+        this.flusher = new Thread(this::flushLoop, "DeviceWal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Starts a new log of changes to a list of devices, writing them as its first checkpoint.
+     *
+     * @param directory  is the directory the log is kept in; created if missing, and must hold no other log.
+     * @param devices    is the list of IPhones, IPhone16s, IPads and IPods to be logged; a device's index in the list
+     *                   identifies it in the log.
+     * @param durability is when setters return relative to the disk.
+     *
+     * @return a new DeviceWal observing the devices.
+     *
+     * @throws IOException if the directory already holds a log or cannot be written.
+     */
+    public static DeviceWal create(final Path directory, final List<? extends IDevice> devices, final Durability durability) throws IOException
+    {
+        final List<IDevice> copy;
+
+        Files.createDirectories(directory);
+
+        if(!segments(directory).isEmpty() || !checkpoints(directory).isEmpty())
+        {
+            throw new IOException("Directory already holds a log: " + directory);
+        }
+
+        copy = new ArrayList<>(devices);
+        writeCheckpoint(directory, copy, 1);
+
+        return new DeviceWal(directory, durability, copy, 0, 0);
+    }
+
+    /**
+     * Rebuilds the devices from the latest checkpoint and the log after it, and resumes logging their changes.
+     *
+     * @param directory  is the directory the log is kept in.
+     * @param durability is when setters return relative to the disk.
+     *
+     * @return a new DeviceWal whose devices hold every change that reached the log.
+     *
+     * @throws IOException if there is no checkpoint, or the log is corrupt before its last entry.
+     */
+    public static DeviceWal recover(final Path directory, final Durability durability) throws IOException
+    {
+        final TreeMap<Long, Path> checkpoints;
+        final TreeMap<Long, Path> segments;
+        final List<IDevice>       devices;
+        final long                start;
+        long                      lastLsn;
+        long                      replayed;
+
+        checkpoints = checkpoints(directory);
+
+        if(checkpoints.isEmpty())
+        {
+            throw new IOException("No checkpoint in " + directory);
+        }
+
+        start   = checkpoints.lastKey();
+        devices = new ArrayList<>();
+
+        try(final DeviceSnapshotReader reader = DeviceSnapshot.open(checkpoints.lastEntry().getValue()))
+        {
+            for(final IDevice device : reader)
+            {
+                devices.add(device);
+            }
+        }
+
+        segments = segments(directory);
+        lastLsn  = start - 1;
+        replayed = 0;
+
+        for(final Map.Entry<Long, Path> entry : segments.entrySet())
+        {
+            // a segment that ends before the checkpoint is left over from a checkpoint that did not finish cleaning up
+            final Long next;
+            next = segments.higherKey(entry.getKey());
+
+            if(next != null && next <= start)
+            {
+                continue;
+            }
+
+            final long[] progress;
+            progress = replay(entry.getValue(), devices, start, lastLsn, next == null);
+
+            lastLsn   = progress[0];
+            replayed += progress[1];
+        }
+
+        return new DeviceWal(directory, durability, devices, lastLsn, replayed);
+    }
+
+    /**
+     * Getter for the logged devices.
+     *
+     * @return an unmodifiable list of the devices, in index order.
+     */
+    public List<IDevice> devices()
+    {
+        return this.devices;
+    }
+
+    /**
+     * Getter for the number of entries replayed when the log was recovered.
+     *
+     * @return the number of entries as a long; 0 for a log that was created.
+     */
+    public long replayedEntries()
+    {
+        return this.replayed;
+    }
+
+    /**
+     * Getter for the LSN of the last entry appended.
+     *
+     * @return the LSN as a long.
+     */
+    public long lastLsn()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return this.lastLsn;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Getter for the number of times the flusher has forced entries to disk.
+     *
+     * @return the number of forces as a long.
+     */
+    public long syncCount()
+    {
+        this.lock.lock();
+
+        try
+        {
+            return this.syncs;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until every entry appended so far is on disk.
+     *
+     * @throws IOException if the log can no longer be written.
+     */
+    public void sync() throws IOException
+    {
+        this.lock.lock();
+
+        try
+        {
+            this.awaitDurable(this.lastLsn);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a new segment, writes a snapshot of the devices, and deletes the segments and snapshots it replaces.
+     * <p>
+     * Setters wait while the current segment is finished and the next one opened, but not while the snapshot is
+     * written.
+     * </p>
+     *
+     * @throws IOException if the snapshot or the new segment cannot be written.
+     */
+    public synchronized void checkpoint() throws IOException
+    {
+        final long start;
+
+        this.lock.lock();
+
+        try
+        {
+            final FileChannel next;
+
+            this.awaitDurable(this.lastLsn);
+            start = this.lastLsn + 1;
+
+            // the flusher is idle until the next append, which cannot happen while the lock is held
+            next = openSegment(this.directory, start);
+            this.segment.close();
+            this.segment = next;
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        writeCheckpoint(this.directory, this.devices, start);
+
+        for(final Map.Entry<Long, Path> entry : checkpoints(this.directory).headMap(start).entrySet())
+        {
+            Files.deleteIfExists(entry.getValue());
+        }
+
+        for(final Map.Entry<Long, Path> entry : segments(this.directory).headMap(start).entrySet())
+        {
+            Files.deleteIfExists(entry.getValue());
+        }
+    }
+
+    /**
+     * Stops observing the devices, forces the remaining entries to disk and closes the log.
+     *
+     * @throws IOException if the remaining entries cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        for(final IDevice device : this.devices)
+        {
+            device.removeObserver(this);
+        }
+
+        this.lock.lock();
+
+        try
+        {
+            if(this.closed)
+            {
+                return;
+            }
+
+            try
+            {
+                this.awaitDurable(this.lastLsn);
+            }
+            finally
+            {
+                this.closed = true;
+                this.flushNeeded.signalAll();
+            }
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+
+        try
+        {
+            this.flusher.join();
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        this.segment.close();
+    }
+
+    /**
+     * Logs a change to a numeric field.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     *
+     * @throws UncheckedIOException if the log can no longer be written; the device keeps the new value.
+     */
+    @Override
+    public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+        this.append(device, field);
+    }
+
+    /**
+     * Logs a change to a text field.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value, may be null.
+     * @param newValue is the new value, may be null.
+     *
+     * @throws UncheckedIOException if the log can no longer be written; the device keeps the new value.
+     */
+    @Override
+    public void textChanged(final IDevice device, final DeviceField field, final String oldValue, final String newValue)
+    {
+        this.append(device, field);
+    }
+
+    /*
+     * Appends one entry holding the field's current value and, with Durability.SYNC, waits until it is on disk.
+     */
+    private void append(final IDevice device, final DeviceField field)
+    {
+        final Integer index;
+        index = this.indexes.get(device);
+
+        if(index == null)
+        {
+            return;
+        }
+
+        this.lock.lock();
+
+        try
+        {
+            final double number;
+            final byte[] text;
+            final int    length;
+            final long   lsn;
+            final int    start;
+
+            // hold writers back while the flusher is far behind, so ASYNC writers cannot grow the buffer without end
+            while(this.pending.position() > MAX_PENDING && this.failure == null && !this.closed)
+            {
+                this.flushed.awaitUninterruptibly();
+            }
+
+            this.checkWritable();
+
+            // read under the lock: whichever notification logs last, it logs the value the device holds now
+            if(field.isNumeric())
+            {
+                number = field.currentNumber(device);
+                text   = null;
+            }
+            else
+            {
+                final String value;
+                value = field.currentText(device);
+
+                number = 0.0;
+                text   = value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+            }
+
+            length = ENTRY_HEADER_SIZE + (field.isNumeric() ? Double.BYTES : Integer.BYTES + (text == null ? 0 : text.length));
+
+            if(this.pending.remaining() < length)
+            {
+                this.pending = grow(this.pending, length);
+            }
+
+            lsn   = ++this.lastLsn;
+            start = this.pending.position();
+
+            this.pending.putInt(length).putInt(0).putLong(lsn).putInt(index).put((byte) field.ordinal());
+
+            if(field.isNumeric())
+            {
+                this.pending.putDouble(number);
+            }
+            else
+            {
+                this.pending.putInt(text == null ? -1 : text.length);
+
+                if(text != null)
+                {
+                    this.pending.put(text);
+                }
+            }
+
+            this.crc.reset();
+            this.crc.update(this.pending.array(), this.pending.arrayOffset() + start + 8, length - 8);
+            this.pending.putInt(start + 4, (int) this.crc.getValue());
+
+            this.flushNeeded.signal();
+
+            if(this.durability == Durability.SYNC)
+            {
+                this.awaitDurable(lsn);
+            }
+        }
+        catch(final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            this.lock.unlock();
+        }
+    }
+
+    /*
+     * Waits, holding the lock, until an LSN is on disk.
+     */
+    private void awaitDurable(final long lsn) throws IOException
+    {
+        while(this.durableLsn < lsn)
+        {
+            this.checkWritable();
+            this.flushed.awaitUninterruptibly();
+        }
+    }
+
+    /*
+     * Throws if a write has failed or the log is closed.
+     */
+    private void checkWritable() throws IOException
+    {
+        if(this.failure != null)
+        {
+            throw new IOException("Write-ahead log failed", this.failure);
+        }
+
+        if(this.closed)
+        {
+            throw new IOException("Write-ahead log is closed");
+        }
+    }
+
+    /*
+     * Writes and forces everything appended while the previous batch was being written, until the log is closed.
+     */
+    private void flushLoop()
+    {
+        while(true)
+        {
+            final ByteBuffer  batch;
+            final FileChannel channel;
+            final long        batchLsn;
+
+            this.lock.lock();
+
+            try
+            {
+                while(this.pending.position() == 0 && !this.closed)
+                {
+                    this.flushNeeded.awaitUninterruptibly();
+                }
+
+                if(this.pending.position() == 0)
+                {
+                    return;
+                }
+
+                batch        = this.pending;
+                this.pending = this.spare;
+                this.spare   = batch;
+                channel      = this.segment;
+                batchLsn     = this.lastLsn;
+
+                // the buffer was swapped out, so writers held back by MAX_PENDING can go on
+                this.flushed.signalAll();
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+
+            IOException error;
+            error = null;
+
+            try
+            {
+                batch.flip();
+
+                while(batch.hasRemaining())
+                {
+                    channel.write(batch);
+                }
+
+                channel.force(false);
+            }
+            catch(final IOException e)
+            {
+                error = e;
+            }
+
+            batch.clear();
+
+            this.lock.lock();
+
+            try
+            {
+                if(error != null)
+                {
+                    this.failure = error;
+                }
+                else
+                {
+                    this.durableLsn = batchLsn;
+                    this.syncs++;
+                }
+
+                this.flushed.signalAll();
+
+                if(error != null)
+                {
+                    return;
+                }
+            }
+            finally
+            {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /*
+     * Replays the entries of one segment onto the devices, returning the last LSN applied and the number replayed.
+     */
+    private static long[] replay(final Path path, final List<IDevice> devices, final long start, final long previousLsn, final boolean last) throws IOException
+    {
+        final CRC32C     crc;
+        final ByteBuffer bytes;
+        long             lsn;
+        long             replayed;
+        int              position;
+
+        crc      = new CRC32C();
+        lsn      = previousLsn;
+        replayed = 0;
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            if(channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("Segment too large to replay, checkpoint more often: " + path);
+            }
+
+            // read rather than mapped, so a torn tail can be cut off on every platform
+            bytes = ByteBuffer.allocate((int) channel.size()).order(DeviceRecord.ORDER);
+
+            while(bytes.hasRemaining() && channel.read(bytes) >= 0)
+            {
+            }
+
+            bytes.flip();
+        }
+
+        if(bytes.limit() < SEGMENT_HEADER_SIZE || bytes.getInt(0) != MAGIC || bytes.getShort(4) != VERSION)
+        {
+            if(last && bytes.limit() < SEGMENT_HEADER_SIZE)
+            {
+                // the process died while creating the segment
+                return new long[] {lsn, replayed};
+            }
+
+            throw new IOException("Not a write-ahead log segment: " + path);
+        }
+
+        position = SEGMENT_HEADER_SIZE;
+
+        while(position < bytes.limit())
+        {
+            final int  length;
+            final long entryLsn;
+
+            length = bytes.limit() - position >= ENTRY_HEADER_SIZE ? bytes.getInt(position) : -1;
+
+            if(length < ENTRY_HEADER_SIZE || length > bytes.limit() - position || !checksumMatches(crc, bytes, position, length))
+            {
+                if(!last)
+                {
+                    throw new IOException("Corrupt entry at offset " + position + " of " + path);
+                }
+
+                // a torn write at the end of the log; the entries after it never reached the disk
+                try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+                {
+                    channel.truncate(position);
+                    channel.force(true);
+                }
+
+                break;
+            }
+
+            entryLsn = bytes.getLong(position + 8);
+
+            if(entryLsn >= start)
+            {
+                if(entryLsn != lsn + 1)
+                {
+                    throw new IOException("Missing entries before LSN " + entryLsn + " in " + path);
+                }
+
+                apply(bytes, position, devices);
+                lsn = entryLsn;
+                replayed++;
+            }
+
+            position += length;
+        }
+
+        return new long[] {lsn, replayed};
+    }
+
+    /*
+     * Checks an entry's CRC32C.
+     */
+    private static boolean checksumMatches(final CRC32C crc, final ByteBuffer bytes, final int position, final int length)
+    {
+        final ByteBuffer body;
+        body = bytes.duplicate();
+
+        body.limit(position + length).position(position + 8);
+
+        crc.reset();
+        crc.update(body);
+
+        return (int) crc.getValue() == bytes.getInt(position + 4);
+    }
+
+    /*
+     * Applies one entry through the device's own setter.
+     */
+    private static void apply(final ByteBuffer bytes, final int position, final List<IDevice> devices) throws IOException
+    {
+        final int         index;
+        final int         ordinal;
+        final DeviceField field;
+        final IDevice     device;
+        final double      number;
+        final String      text;
+
+        index   = bytes.getInt(position + 16);
+        ordinal = bytes.get(position + 20);
+
+        if(index < 0 || index >= devices.size() || ordinal < 0 || ordinal >= DeviceField.values().length)
+        {
+            throw new IOException("Corrupt entry for device " + index + ", field " + ordinal);
+        }
+
+        field  = DeviceField.values()[ordinal];
+        device = devices.get(index);
+
+        if(field.isNumeric())
+        {
+            number = bytes.getDouble(position + ENTRY_HEADER_SIZE);
+            text   = null;
+        }
+        else
+        {
+            final int    length;
+            final byte[] utf8;
+
+            length = bytes.getInt(position + ENTRY_HEADER_SIZE);
+            number = 0.0;
+
+            if(length < 0)
+            {
+                text = null;
+            }
+            else
+            {
+                utf8 = new byte[length];
+                bytes.get(position + ENTRY_HEADER_SIZE + Integer.BYTES, utf8);
+                text = new String(utf8, StandardCharsets.UTF_8);
+            }
+        }
+
+        switch(field)
+        {
+            case MINUTES_REMAINING:
+                ((IPhone) device).setMinutesRemaining(number);
+                break;
+            case CARRIER:
+                ((IPhone) device).setCarrier(text);
+                break;
+            case HAS_CASE:
+                ((IPad) device).setHasCase(number != 0.0);
+                break;
+            case OP_SYSTEM_VERSION:
+                ((IPad) device).setOpSystemVersion(text);
+                break;
+            default:
+                ((IPod) device).setNumSongsStored((int) number);
+        }
+    }
+
+    /*
+     * Creates a segment whose first entry will have the given LSN, replacing an empty one left by a crash.
+     */
+    private static FileChannel openSegment(final Path directory, final long firstLsn) throws IOException
+    {
+        final FileChannel channel;
+        final ByteBuffer  header;
+
+        channel = FileChannel.open(directory.resolve(SEGMENT_PREFIX + name(firstLsn) + SEGMENT_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        header  = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).order(DeviceRecord.ORDER);
+
+        header.putInt(MAGIC).putShort(VERSION).putShort((short) 0).putLong(firstLsn).flip();
+
+        try
+        {
+            while(header.hasRemaining())
+            {
+                channel.write(header);
+            }
+
+            channel.force(true);
+            forceDirectory(directory);
+        }
+        catch(final IOException e)
+        {
+            channel.close();
+            throw e;
+        }
+
+        return channel;
+    }
+
+    /*
+     * Writes a snapshot of the devices under a temporary name and renames it into place once it is on disk.
+     */
+    private static void writeCheckpoint(final Path directory, final List<IDevice> devices, final long firstLsn) throws IOException
+    {
+        final Path target;
+        final Path temporary;
+
+        target    = directory.resolve(CHECKPOINT_PREFIX + name(firstLsn) + CHECKPOINT_SUFFIX);
+        temporary = directory.resolve(CHECKPOINT_PREFIX + name(firstLsn) + CHECKPOINT_SUFFIX + ".tmp");
+
+        DeviceSnapshot.write(temporary, devices);
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(directory);
+    }
+
+    /*
+     * Forces a directory's entries to disk, on file systems that allow it.
+     */
+    private static void forceDirectory(final Path directory)
+    {
+        try(final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        }
+        catch(final IOException e)
+        {
+            // not every platform can open a directory; the files themselves are already forced
+        }
+    }
+
+    /*
+     * Returns the segments in a directory by first LSN.
+     */
+    private static TreeMap<Long, Path> segments(final Path directory) throws IOException
+    {
+        return list(directory, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    }
+
+    /*
+     * Returns the checkpoints in a directory by first LSN not included.
+     */
+    private static TreeMap<Long, Path> checkpoints(final Path directory) throws IOException
+    {
+        return list(directory, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+    }
+
+    /*
+     * Returns the files in a directory named prefix + LSN + suffix, by LSN.
+     */
+    private static TreeMap<Long, Path> list(final Path directory, final String prefix, final String suffix) throws IOException
+    {
+        final TreeMap<Long, Path> files;
+        files = new TreeMap<>();
+
+        try(final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix))
+        {
+            for(final Path path : stream)
+            {
+                final String fileName;
+                fileName = path.getFileName().toString();
+
+                try
+                {
+                    files.put(Long.parseLong(fileName.substring(prefix.length(), fileName.length() - suffix.length()), 16), path);
+                }
+                catch(final NumberFormatException e)
+                {
+                    // not one of ours
+                }
+            }
+        }
+
+        return files;
+    }
+
+    /*
+     * Returns an LSN as a fixed-width hexadecimal file name part, so names sort in LSN order.
+     */
+    private static String name(final long lsn)
+    {
+        return String.format("%016x", lsn);
+    }
+
+    /*
+     * Returns a larger copy of a buffer with room for at least the given number of bytes more.
+     */
+    private static ByteBuffer grow(final ByteBuffer buffer, final int needed)
+    {
+        final ByteBuffer larger;
+        larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed)).order(DeviceRecord.ORDER);
+
+        buffer.flip();
+        larger.put(buffer);
+
+        return larger;
+    }
+}
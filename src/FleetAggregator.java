@@ -0,0 +1,1313 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes totals and distributions over a fleet: sum, min, max, mean, percentiles and histograms, overall or grouped
+ * by carrier, operating system version or memory tier.
+ * <p>
+ * Building an aggregator copies the fields of every device once into dense primitive columns: minutes and carrier ids
+ * for IPhones and IPhone16s, memory tier and camera for IPhone16s, case and operating system ids for IPads, songs and
+ * maximum volume for IPods. Booleans are stored as 0.0 and 1.0, so the mean of a boolean column is the share of
+ * devices with the feature. Every aggregation after that is a loop over double and int arrays, with no boxing and no
+ * call per device.
+ * </p>
+ * <p>
+ * The summing loops keep four independent accumulators so consecutive additions do not wait on each other. Minimum
+ * and maximum are plain compare-and-select, which the JIT turns into conditional moves. Math.min and Math.max measured
+ * more than twice as slow because of their NaN and negative zero handling. Columns longer than LEAF_SIZE are split into
+ * ranges that are aggregated in parallel on a ForkJoinPool and merged.
+ * </p>
+ * <p>
+ * NaN, which minutes remaining and maximum volume can hold, is skipped by every aggregation: it counts toward no count,
+ * sum, minimum, maximum, mean, percentile or histogram bucket. Stats and Histogram report how many NaN values they
+ * skipped, so a column that is partly NaN is never mistaken for a smaller one.
+ * </p>
+ * <p>
+ * Operating system versions are grouped ignoring case, like IPad equality and IPadVersionIndex: "iPadOS 17" and
+ * "IPADOS 17" fall in one group, labelled with the first spelling seen.
+ * </p>
+ * <p>
+ * An aggregator is a snapshot of the devices when it was built; it is immutable and safe to use from several threads.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class FleetAggregator
+{
+    static final int LEAF_SIZE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final ForkJoinPool pool;
+
+    // IPhone and IPhone16 columns
+    private final double[] phoneMinutes;
+    private final int[]    phoneCarrier;
+    private final String[] carrierLabels;
+
+    // IPhone16 columns
+    private final int[]    phone16Tier;
+    private final double[] phone16Camera;
+    private final String[] tierLabels;
+
+    // IPad columns
+    private final int[]    padOs;
+    private final double[] padCase;
+    private final String[] osLabels;
+
+    // IPod columns
+    private final double[] podSongs;
+    private final double[] podMaxVol;
+
+    /*
+     * Only the of methods create FleetAggregators.
+     */
+    private FleetAggregator(final Columns columns, final ForkJoinPool pool)
+    {
+        final int[] memory;
+        final int[] tiers;
+
+        this.pool = pool;
+
+        this.phoneMinutes  = Arrays.copyOf(columns.phoneMinutes, columns.phoneCount);
+        this.phoneCarrier  = Arrays.copyOf(columns.phoneCarrier, columns.phoneCount);
+        this.carrierLabels = columns.labels(columns.carriers);
+
+        // memory sizes become dense tier ids in ascending order of size
+        memory = Arrays.copyOf(columns.phone16Memory, columns.phone16Count);
+        tiers  = distinct(memory);
+
+        for(int i = 0; i < memory.length; i++)
+        {
+            memory[i] = Arrays.binarySearch(tiers, memory[i]);
+        }
+
+        this.phone16Tier   = memory;
+        this.phone16Camera = Arrays.copyOf(columns.phone16Camera, columns.phone16Count);
+        this.tierLabels    = new String[tiers.length];
+
+        for(int i = 0; i < tiers.length; i++)
+        {
+            this.tierLabels[i] = Integer.toString(tiers[i]);
+        }
+
+        this.padOs    = Arrays.copyOf(columns.padOs, columns.padCount);
+        this.padCase  = Arrays.copyOf(columns.padCase, columns.padCount);
+        this.osLabels = columns.labels(columns.osVersions);
+
+        this.podSongs  = Arrays.copyOf(columns.podSongs, columns.podCount);
+        this.podMaxVol = Arrays.copyOf(columns.podMaxVol, columns.podCount);
+    }
+
+    /**
+     * Builds an aggregator over a collection of devices that runs on the common ForkJoinPool.
+     *
+     * @param devices is a collection of IPhones, IPhone16s, IPads, IPods or fleet views of them.
+     *
+     * @return the FleetAggregator.
+     */
+    public static FleetAggregator of(final Iterable<? extends IDevice> devices)
+    {
+        return of(devices, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds an aggregator over a collection of devices.
+     *
+     * @param devices is a collection of IPhones, IPhone16s, IPads, IPods or fleet views of them.
+     * @param pool    is the ForkJoinPool that aggregations run on.
+     *
+     * @return the FleetAggregator.
+     */
+    public static FleetAggregator of(final Iterable<? extends IDevice> devices, final ForkJoinPool pool)
+    {
+        final Columns columns;
+        columns = new Columns();
+
+        for(final IDevice element : devices)
+        {
+            final IDevice device;
+            device = DeviceFleet.concrete(element);
+
+            columns.add(device);
+        }
+
+        return new FleetAggregator(columns, pool);
+    }
+
+    /**
+     * Builds an aggregator over a DeviceFleet that runs on the common ForkJoinPool.
+     *
+     * @param fleet is the DeviceFleet to be aggregated.
+     *
+     * @return the FleetAggregator.
+     */
+    public static FleetAggregator of(final DeviceFleet fleet)
+    {
+        return of(fleet, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds an aggregator over a DeviceFleet, reading its columns by handle without creating any devices.
+     *
+     * @param fleet is the DeviceFleet to be aggregated.
+     * @param pool  is the ForkJoinPool that aggregations run on.
+     *
+     * @return the FleetAggregator.
+     */
+    public static FleetAggregator of(final DeviceFleet fleet, final ForkJoinPool pool)
+    {
+        final Columns columns;
+        columns = new Columns();
+
+        for(int row = 0; row < fleet.count(DeviceType.IPHONE); row++)
+        {
+            final int handle;
+            handle = DeviceFleet.handle(DeviceType.IPHONE, row);
+
+            columns.addPhone(fleet.getMinutesRemaining(handle), fleet.getCarrier(handle));
+        }
+
+        for(int row = 0; row < fleet.count(DeviceType.IPHONE16); row++)
+        {
+            final int handle;
+            handle = DeviceFleet.handle(DeviceType.IPHONE16, row);
+
+            columns.addPhone(fleet.getMinutesRemaining(handle), fleet.getCarrier(handle));
+            columns.addPhone16(fleet.getMemoryGB(handle), fleet.hasHighResCamera(handle));
+        }
+
+        for(int row = 0; row < fleet.count(DeviceType.IPAD); row++)
+        {
+            final int handle;
+            handle = DeviceFleet.handle(DeviceType.IPAD, row);
+
+            columns.addPad(fleet.getHasCase(handle), fleet.getOpSystemVersion(handle));
+        }
+
+        for(int row = 0; row < fleet.count(DeviceType.IPOD); row++)
+        {
+            final int handle;
+            handle = DeviceFleet.handle(DeviceType.IPOD, row);
+
+            columns.addPod(fleet.getNumSongsStored(handle), fleet.getMaxVolDecibels(handle));
+        }
+
+        return new FleetAggregator(columns, pool);
+    }
+
+    /**
+     * Summarizes the minutes remaining of every IPhone and IPhone16.
+     *
+     * @return the Stats of the minutes remaining.
+     */
+    public Stats minutesRemaining()
+    {
+        return stats(this.phoneMinutes, this.pool);
+    }
+
+    /**
+     * Summarizes the minutes remaining of IPhones and IPhone16s per carrier.
+     *
+     * @return the Grouped minutes, labelled by carrier; a null carrier is labelled null.
+     */
+    public Grouped minutesRemainingByCarrier()
+    {
+        return groupBy(this.phoneCarrier, this.carrierLabels, this.phoneMinutes, this.pool);
+    }
+
+    /**
+     * Returns exact percentiles of the minutes remaining of every IPhone and IPhone16.
+     *
+     * @param fractions are the percentiles between 0 and 1, for example 0.5 and 0.99.
+     *
+     * @return the minutes at each percentile, in the order requested.
+     */
+    public double[] minutesRemainingPercentiles(final double... fractions)
+    {
+        return percentiles(this.phoneMinutes, fractions);
+    }
+
+    /**
+     * Counts the minutes remaining of every IPhone and IPhone16 into equal-width buckets.
+     *
+     * @param low     is the lower bound of the first bucket.
+     * @param high    is the upper bound of the last bucket.
+     * @param buckets is the number of buckets.
+     *
+     * @return the Histogram of the minutes remaining.
+     */
+    public Histogram minutesRemainingHistogram(final double low, final double high, final int buckets)
+    {
+        return histogram(this.phoneMinutes, low, high, buckets, this.pool);
+    }
+
+    /**
+     * Summarizes whether IPhone16s have a high resolution camera, per memory tier.
+     *
+     * @return the Grouped camera flags, labelled by memory in GB; each group's mean is its share of cameras.
+     */
+    public Grouped highResCameraShareByMemoryGB()
+    {
+        return groupBy(this.phone16Tier, this.tierLabels, this.phone16Camera, this.pool);
+    }
+
+    /**
+     * Summarizes whether IPads have a case, per operating system version, ignoring case.
+     *
+     * @return the Grouped case flags, labelled by operating system version and looked up ignoring case; each group's
+     *         mean is its attach rate.
+     */
+    public Grouped caseRateByOpSystemVersion()
+    {
+        return groupBy(this.padOs, this.osLabels, this.padCase, this.pool, true);
+    }
+
+    /**
+     * Summarizes the number of songs stored on every IPod.
+     *
+     * @return the Stats of the songs stored.
+     */
+    public Stats numSongsStored()
+    {
+        return stats(this.podSongs, this.pool);
+    }
+
+    /**
+     * Summarizes the maximum volume of every IPod.
+     *
+     * @return the Stats of the maximum volume in decibels.
+     */
+    public Stats maxVolDecibels()
+    {
+        return stats(this.podMaxVol, this.pool);
+    }
+
+    /**
+     * Summarizes a column of values, in parallel when it is longer than LEAF_SIZE.
+     *
+     * @param values is the column.
+     * @param pool   is the ForkJoinPool the ranges are aggregated on.
+     *
+     * @return the Stats of the column.
+     */
+    public static Stats stats(final double[] values, final ForkJoinPool pool)
+    {
+        if(values.length <= LEAF_SIZE)
+        {
+            return stats(values, 0, values.length);
+        }
+
+        return pool.invoke(new StatsTask(values, 0, values.length));
+    }
+
+    /**
+     * Summarizes a range of a column on the calling thread.
+     *
+     * @param values is the column.
+     * @param from   is the first index, inclusive.
+     * @param to     is the last index, exclusive.
+     *
+     * @return the Stats of the range.
+     */
+    public static Stats stats(final double[] values, final int from, final int to)
+    {
+        double sum0;
+        double sum1;
+        double sum2;
+        double sum3;
+        double min0;
+        double min1;
+        double max0;
+        double max1;
+        long   nans;
+        int    i;
+
+        nans = 0;
+        sum0 = 0.0;
+        sum1 = 0.0;
+        sum2 = 0.0;
+        sum3 = 0.0;
+        min0 = Double.POSITIVE_INFINITY;
+        min1 = Double.POSITIVE_INFINITY;
+        max0 = Double.NEGATIVE_INFINITY;
+        max1 = Double.NEGATIVE_INFINITY;
+
+        for(i = from; i + 3 < to; i += 4)
+        {
+            final double a;
+            final double b;
+            final double c;
+            final double d;
+
+            a = values[i];
+            b = values[i + 1];
+            c = values[i + 2];
+            d = values[i + 3];
+
+            // NaN is added as 0.0 and counted; the compare-and-select below already skips it
+            nans += (a != a ? 1 : 0) + (b != b ? 1 : 0) + (c != c ? 1 : 0) + (d != d ? 1 : 0);
+            sum0 += a == a ? a : 0.0;
+            sum1 += b == b ? b : 0.0;
+            sum2 += c == c ? c : 0.0;
+            sum3 += d == d ? d : 0.0;
+            min0 = a < min0 ? a : min0;
+            min1 = b < min1 ? b : min1;
+            min0 = c < min0 ? c : min0;
+            min1 = d < min1 ? d : min1;
+            max0 = a > max0 ? a : max0;
+            max1 = b > max1 ? b : max1;
+            max0 = c > max0 ? c : max0;
+            max1 = d > max1 ? d : max1;
+        }
+
+        for(; i < to; i++)
+        {
+            final double value;
+            value = values[i];
+
+            nans += value != value ? 1 : 0;
+            sum0 += value == value ? value : 0.0;
+            min0 = value < min0 ? value : min0;
+            max0 = value > max0 ? value : max0;
+        }
+
+        return new Stats(to - from - nans, nans, (sum0 + sum1) + (sum2 + sum3), Math.min(min0, min1), Math.max(max0, max1));
+    }
+
+    /**
+     * Summarizes a column per group, in parallel when it is longer than LEAF_SIZE.
+     *
+     * @param keys   is the group id of each value, from 0 to labels.length - 1.
+     * @param labels is the label of each group.
+     * @param values is the column, as long as keys.
+     * @param pool   is the ForkJoinPool the ranges are aggregated on.
+     *
+     * @return the Grouped values.
+     */
+    public static Grouped groupBy(final int[] keys, final String[] labels, final double[] values, final ForkJoinPool pool)
+    {
+        return groupBy(keys, labels, values, pool, false);
+    }
+
+    /*
+     * Summarizes a column per group; labels are looked up ignoring case if ignoreCase is true.
+     */
+    private static Grouped groupBy(final int[] keys, final String[] labels, final double[] values, final ForkJoinPool pool, final boolean ignoreCase)
+    {
+        final Partial partial;
+
+        if(keys.length != values.length)
+        {
+            throw new IllegalArgumentException("keys and values differ in length: " + keys.length + " and " + values.length);
+        }
+
+        if(values.length <= LEAF_SIZE)
+        {
+            partial = Partial.of(keys, values, labels.length, 0, values.length);
+        }
+        else
+        {
+            partial = pool.invoke(new GroupTask(keys, values, labels.length, 0, values.length));
+        }
+
+        return new Grouped(labels, ignoreCase, partial, keys, values);
+    }
+
+    /**
+     * Counts a column into equal-width buckets, in parallel when it is longer than LEAF_SIZE.
+     * <p>
+     * Values below low or at or above high are counted separately, and so is NaN.
+     * </p>
+     *
+     * @param values  is the column.
+     * @param low     is the lower bound of the first bucket.
+     * @param high    is the upper bound of the last bucket.
+     * @param buckets is the number of buckets.
+     * @param pool    is the ForkJoinPool the ranges are counted on.
+     *
+     * @return the Histogram of the column.
+     */
+    public static Histogram histogram(final double[] values, final double low, final double high, final int buckets, final ForkJoinPool pool)
+    {
+        final long[] counts;
+
+        if(buckets < 1 || !(low < high))
+        {
+            throw new IllegalArgumentException("Need at least one bucket and low < high");
+        }
+
+        if(values.length <= LEAF_SIZE)
+        {
+            counts = count(values, low, high, buckets, 0, values.length);
+        }
+        else
+        {
+            counts = pool.invoke(new HistogramTask(values, low, high, buckets, 0, values.length));
+        }
+
+        return new Histogram(low, high, counts);
+    }
+
+    /**
+     * Returns exact percentiles of a column by sorting a copy of it, skipping NaN.
+     *
+     * @param values    is the column.
+     * @param fractions are the percentiles between 0 and 1.
+     *
+     * @return the value at each percentile, in the order requested; NaN for a column with no other values.
+     */
+    public static double[] percentiles(final double[] values, final double... fractions)
+    {
+        final double[] sorted;
+        int            to;
+
+        sorted = values.clone();
+
+        Arrays.parallelSort(sorted);
+
+        // the sort puts every NaN last
+        to = sorted.length;
+
+        while(to > 0 && sorted[to - 1] != sorted[to - 1])
+        {
+            to--;
+        }
+
+        return pick(sorted, 0, to, fractions);
+    }
+
+    /*
+     * Returns the nearest-rank percentiles of a sorted range.
+     */
+    private static double[] pick(final double[] sorted, final int from, final int to, final double... fractions)
+    {
+        final double[] result;
+        result = new double[fractions.length];
+
+        for(int i = 0; i < fractions.length; i++)
+        {
+            if(fractions[i] < 0.0 || fractions[i] > 1.0)
+            {
+                throw new IllegalArgumentException("Percentile must be between 0 and 1: " + fractions[i]);
+            }
+
+            if(from == to)
+            {
+                result[i] = Double.NaN;
+            }
+            else
+            {
+                final int rank;
+                rank = (int) Math.max(1L, (long) Math.ceil(fractions[i] * (to - from)));
+
+                result[i] = sorted[from + rank - 1];
+            }
+        }
+
+        return result;
+    }
+
+    /*
+     * Counts a range of a column into buckets; the last three slots hold the values below low, the values above high
+     * and the NaN values.
+     */
+    private static long[] count(final double[] values, final double low, final double high, final int buckets, final int from, final int to)
+    {
+        final long[]  counts;
+        final double  scale;
+
+        counts = new long[buckets + 3];
+        scale  = buckets / (high - low);
+
+        for(int i = from; i < to; i++)
+        {
+            final double value;
+            value = values[i];
+
+            if(value < low)
+            {
+                counts[buckets]++;
+            }
+            else if(value >= high)
+            {
+                counts[buckets + 1]++;
+            }
+            else if(value == value)
+            {
+                // rounding can put a value just below high at index buckets
+                counts[Math.min(buckets - 1, (int) ((value - low) * scale))]++;
+            }
+            else
+            {
+                counts[buckets + 2]++;
+            }
+        }
+
+        return counts;
+    }
+
+    /*
+     * Returns the sorted distinct values of an int column.
+     */
+    private static int[] distinct(final int[] values)
+    {
+        final int[] sorted;
+        int         size;
+
+        sorted = values.clone();
+        size   = 0;
+
+        Arrays.sort(sorted);
+
+        for(int i = 0; i < sorted.length; i++)
+        {
+            if(i == 0 || sorted[i] != sorted[i - 1])
+            {
+                sorted[size++] = sorted[i];
+            }
+        }
+
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /**
+     * The count, sum, minimum, maximum and mean of a column, and the number of NaN values left out of them.
+     */
+    public static final class Stats
+    {
+        private final long   count;
+        private final long   nanCount;
+        private final double sum;
+        private final double min;
+        private final double max;
+
+        private Stats(final long count, final long nanCount, final double sum, final double min, final double max)
+        {
+            this.count    = count;
+            this.nanCount = nanCount;
+            this.sum      = sum;
+            this.min      = min;
+            this.max      = max;
+        }
+
+        /**
+         * Getter for the number of values, not counting NaN.
+         *
+         * @return the count as a long.
+         */
+        public long getCount()
+        {
+            return this.count;
+        }
+
+        /**
+         * Getter for the number of NaN values, which were skipped.
+         *
+         * @return the count as a long.
+         */
+        public long getNaNCount()
+        {
+            return this.nanCount;
+        }
+
+        /**
+         * Getter for the sum of the values.
+         *
+         * @return the sum as a double.
+         */
+        public double getSum()
+        {
+            return this.sum;
+        }
+
+        /**
+         * Getter for the smallest value.
+         *
+         * @return the minimum as a double, or NaN if there are no values.
+         */
+        public double getMin()
+        {
+            return this.count == 0 ? Double.NaN : this.min;
+        }
+
+        /**
+         * Getter for the largest value.
+         *
+         * @return the maximum as a double, or NaN if there are no values.
+         */
+        public double getMax()
+        {
+            return this.count == 0 ? Double.NaN : this.max;
+        }
+
+        /**
+         * Getter for the mean of the values.
+         *
+         * @return the mean as a double, or NaN if there are no values.
+         */
+        public double getMean()
+        {
+            return this.count == 0 ? Double.NaN : this.sum / this.count;
+        }
+
+        /**
+         * Combines the Stats of two disjoint ranges.
+         *
+         * @param other is the Stats of the other range.
+         *
+         * @return the Stats of both ranges.
+         */
+        public Stats merge(final Stats other)
+        {
+            return new Stats(this.count + other.count, this.nanCount + other.nanCount, this.sum + other.sum, Math.min(this.min, other.min), Math.max(this.max, other.max));
+        }
+
+        /**
+         * Returns the Stats as a String.
+         *
+         * @return the count, sum, minimum, maximum, mean and number of NaN values.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("count=%d sum=%.4f min=%.4f max=%.4f mean=%.4f nan=%d", this.count, this.sum, this.getMin(), this.getMax(), this.getMean(), this.nanCount);
+        }
+    }
+
+    /**
+     * The Stats of a column per group, and exact percentiles within each group.
+     */
+    public static final class Grouped
+    {
+        private final String[] labels;
+        private final boolean  ignoreCase;
+        private final Partial  partial;
+        private final int[]    keys;
+        private final double[] values;
+        private double[]       sorted;
+        private int[]          offsets;
+
+        private Grouped(final String[] labels, final boolean ignoreCase, final Partial partial, final int[] keys, final double[] values)
+        {
+            this.labels     = labels;
+            this.ignoreCase = ignoreCase;
+            this.partial    = partial;
+            this.keys       = keys;
+            this.values     = values;
+        }
+
+        /**
+         * Getter for the group labels, including groups with no values.
+         *
+         * @return an unmodifiable list of labels, indexed by group id.
+         */
+        public List<String> labels()
+        {
+            return Collections.unmodifiableList(Arrays.asList(this.labels));
+        }
+
+        /**
+         * Returns the Stats of one group.
+         *
+         * @param label is the label of the group.
+         *
+         * @return the Stats of the group, with a count of 0 if there is no such group.
+         */
+        public Stats get(final String label)
+        {
+            final int group;
+            group = this.indexOf(label);
+
+            return group < 0 ? new Stats(0, 0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY) : this.get(group);
+        }
+
+        /**
+         * Returns the Stats of one group.
+         *
+         * @param group is the group id.
+         *
+         * @return the Stats of the group.
+         */
+        public Stats get(final int group)
+        {
+            return new Stats(this.partial.counts[group], this.partial.nans[group], this.partial.sums[group], this.partial.mins[group], this.partial.maxs[group]);
+        }
+
+        /**
+         * Returns exact percentiles within one group.
+         *
+         * @param label     is the label of the group.
+         * @param fractions are the percentiles between 0 and 1.
+         *
+         * @return the value at each percentile, in the order requested; NaN if the group has no values other than NaN.
+         */
+        public double[] percentiles(final String label, final double... fractions)
+        {
+            final int group;
+            group = this.indexOf(label);
+
+            if(group < 0)
+            {
+                return pick(new double[0], 0, 0, fractions);
+            }
+
+            this.sortGroups();
+
+            return pick(this.sorted, this.offsets[group], this.offsets[group + 1], fractions);
+        }
+
+        /**
+         * Returns the groups as a String, one line per group with values, NaN included.
+         *
+         * @return the label and Stats of each group.
+         */
+        @Override
+        public String toString()
+        {
+            final StringBuilder sb;
+            sb = new StringBuilder();
+
+            for(int group = 0; group < this.labels.length; group++)
+            {
+                if(this.partial.counts[group] + this.partial.nans[group] > 0)
+                {
+                    sb.append(this.labels[group]).append(": ").append(this.get(group)).append(System.lineSeparator());
+                }
+            }
+
+            return sb.toString();
+        }
+
+        /*
+         * Returns the id of a label, or -1.
+         */
+        private int indexOf(final String label)
+        {
+            for(int group = 0; group < this.labels.length; group++)
+            {
+                if(label == null ? this.labels[group] == null : this.ignoreCase ? label.equalsIgnoreCase(this.labels[group]) : label.equals(this.labels[group]))
+                {
+                    return group;
+                }
+            }
+
+            return -1;
+        }
+
+        /*
+         * Lays the values out group after group with a counting sort, then sorts each group; done once.
+         */
+        private synchronized void sortGroups()
+        {
+            if(this.sorted != null)
+            {
+                return;
+            }
+
+            final int[]    starts;
+            final double[] sorted;
+            final int[]    next;
+
+            starts = new int[this.labels.length + 1];
+            sorted = new double[(int) Arrays.stream(this.partial.counts).sum()];
+
+            for(int group = 0; group < this.labels.length; group++)
+            {
+                starts[group + 1] = starts[group] + (int) this.partial.counts[group];
+            }
+
+            next = Arrays.copyOf(starts, this.labels.length);
+
+            for(int i = 0; i < this.values.length; i++)
+            {
+                // NaN is left out, as it is of the group's Stats
+                if(this.values[i] == this.values[i])
+                {
+                    sorted[next[this.keys[i]]++] = this.values[i];
+                }
+            }
+
+            for(int group = 0; group < this.labels.length; group++)
+            {
+                Arrays.parallelSort(sorted, starts[group], starts[group + 1]);
+            }
+
+            this.offsets = starts;
+            this.sorted  = sorted;
+        }
+    }
+
+    /**
+     * Counts of a column in equal-width buckets, with separate counts below and above the range.
+     */
+    public static final class Histogram
+    {
+        private final double low;
+        private final double high;
+        private final long[] counts;
+
+        private Histogram(final double low, final double high, final long[] counts)
+        {
+            this.low    = low;
+            this.high   = high;
+            this.counts = counts;
+        }
+
+        /**
+         * Getter for the number of buckets.
+         *
+         * @return the number of buckets as an int.
+         */
+        public int buckets()
+        {
+            return this.counts.length - 3;
+        }
+
+        /**
+         * Returns the number of values in one bucket.
+         *
+         * @param bucket is the bucket, from 0 to buckets() - 1.
+         *
+         * @return the count as a long.
+         */
+        public long count(final int bucket)
+        {
+            if(bucket < 0 || bucket >= this.buckets())
+            {
+                throw new IndexOutOfBoundsException("No bucket " + bucket);
+            }
+
+            return this.counts[bucket];
+        }
+
+        /**
+         * Returns the lower bound of one bucket.
+         *
+         * @param bucket is the bucket, from 0 to buckets().
+         *
+         * @return the lower bound as a double; bucket buckets() gives the upper bound of the last bucket.
+         */
+        public double lowerBound(final int bucket)
+        {
+            return this.low + (this.high - this.low) * bucket / this.buckets();
+        }
+
+        /**
+         * Getter for the number of values below the first bucket.
+         *
+         * @return the count as a long.
+         */
+        public long getBelow()
+        {
+            return this.counts[this.buckets()];
+        }
+
+        /**
+         * Getter for the number of values at or above the upper bound of the last bucket.
+         *
+         * @return the count as a long.
+         */
+        public long getAbove()
+        {
+            return this.counts[this.buckets() + 1];
+        }
+
+        /**
+         * Getter for the number of NaN values, which are in no bucket.
+         *
+         * @return the count as a long.
+         */
+        public long getNaNCount()
+        {
+            return this.counts[this.buckets() + 2];
+        }
+
+        /**
+         * Returns the Histogram as a String, one line per bucket.
+         *
+         * @return the bounds and count of each bucket.
+         */
+        @Override
+        public String toString()
+        {
+            final StringBuilder sb;
+            sb = new StringBuilder();
+
+            for(int bucket = 0; bucket < this.buckets(); bucket++)
+            {
+                sb.append(String.format("[%.4f, %.4f) %d%n", this.lowerBound(bucket), this.lowerBound(bucket + 1), this.counts[bucket]));
+            }
+
+            return sb.append("below ").append(this.getBelow()).append(", above ").append(this.getAbove()).append(", NaN ").append(this.getNaNCount()).toString();
+        }
+    }
+
+    /*
+     * Per-group counts, sums, minimums and maximums of one range.
+     */
+    private static final class Partial
+    {
+        private final long[]   counts;
+        private final long[]   nans;
+        private final double[] sums;
+        private final double[] mins;
+        private final double[] maxs;
+
+        private Partial(final int groups)
+        {
+            this.counts = new long[groups];
+            this.nans   = new long[groups];
+            this.sums   = new double[groups];
+            this.mins   = new double[groups];
+            this.maxs   = new double[groups];
+
+            Arrays.fill(this.mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(this.maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        private static Partial of(final int[] keys, final double[] values, final int groups, final int from, final int to)
+        {
+            final Partial  partial;
+            final long[]   counts;
+            final long[]   nans;
+            final double[] sums;
+            final double[] mins;
+            final double[] maxs;
+
+            partial = new Partial(groups);
+            counts  = partial.counts;
+            nans    = partial.nans;
+            sums    = partial.sums;
+            mins    = partial.mins;
+            maxs    = partial.maxs;
+
+            for(int i = from; i < to; i++)
+            {
+                final int    key;
+                final double value;
+
+                key   = keys[i];
+                value = values[i];
+
+                if(value != value)
+                {
+                    nans[key]++;
+                    continue;
+                }
+
+                counts[key]++;
+                sums[key] += value;
+                mins[key] = value < mins[key] ? value : mins[key];
+                maxs[key] = value > maxs[key] ? value : maxs[key];
+            }
+
+            return partial;
+        }
+
+        private Partial merge(final Partial other)
+        {
+            for(int group = 0; group < this.counts.length; group++)
+            {
+                this.counts[group] += other.counts[group];
+                this.nans[group]   += other.nans[group];
+                this.sums[group]   += other.sums[group];
+                this.mins[group]   = Math.min(this.mins[group], other.mins[group]);
+                this.maxs[group]   = Math.max(this.maxs[group], other.maxs[group]);
+            }
+
+            return this;
+        }
+    }
+
+    /*
+     * Summarizes a range of a column, splitting until the range fits in a leaf.
+     */
+    private static final class StatsTask extends RecursiveTask<Stats>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final int      from;
+        private final int      to;
+
+        private StatsTask(final double[] values, final int from, final int to)
+        {
+            this.values = values;
+            this.from   = from;
+            this.to     = to;
+        }
+
+        @Override
+        protected Stats compute()
+        {
+            if(this.to - this.from <= LEAF_SIZE)
+            {
+                return stats(this.values, this.from, this.to);
+            }
+
+            final int       middle;
+            final StatsTask left;
+            final StatsTask right;
+
+            middle = (this.from + this.to) >>> 1;
+            left   = new StatsTask(this.values, this.from, middle);
+            right  = new StatsTask(this.values, middle, this.to);
+
+            left.fork();
+
+            final Stats rightStats;
+            rightStats = right.compute();
+
+            return left.join().merge(rightStats);
+        }
+    }
+
+    /*
+     * Summarizes a range of a column per group, splitting until the range fits in a leaf.
+     */
+    private static final class GroupTask extends RecursiveTask<Partial>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[]    keys;
+        private final double[] values;
+        private final int      groups;
+        private final int      from;
+        private final int      to;
+
+        private GroupTask(final int[] keys, final double[] values, final int groups, final int from, final int to)
+        {
+            this.keys   = keys;
+            this.values = values;
+            this.groups = groups;
+            this.from   = from;
+            this.to     = to;
+        }
+
+        @Override
+        protected Partial compute()
+        {
+            if(this.to - this.from <= LEAF_SIZE)
+            {
+                return Partial.of(this.keys, this.values, this.groups, this.from, this.to);
+            }
+
+            final int       middle;
+            final GroupTask left;
+            final GroupTask right;
+
+            middle = (this.from + this.to) >>> 1;
+            left   = new GroupTask(this.keys, this.values, this.groups, this.from, middle);
+            right  = new GroupTask(this.keys, this.values, this.groups, middle, this.to);
+
+            left.fork();
+
+            final Partial rightPartial;
+            rightPartial = right.compute();
+
+            return left.join().merge(rightPartial);
+        }
+    }
+
+    /*
+     * Counts a range of a column into buckets, splitting until the range fits in a leaf.
+     */
+    private static final class HistogramTask extends RecursiveTask<long[]>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] values;
+        private final double   low;
+        private final double   high;
+        private final int      buckets;
+        private final int      from;
+        private final int      to;
+
+        private HistogramTask(final double[] values, final double low, final double high, final int buckets, final int from, final int to)
+        {
+            this.values  = values;
+            this.low     = low;
+            this.high    = high;
+            this.buckets = buckets;
+            this.from    = from;
+            this.to      = to;
+        }
+
+        @Override
+        protected long[] compute()
+        {
+            if(this.to - this.from <= LEAF_SIZE)
+            {
+                return count(this.values, this.low, this.high, this.buckets, this.from, this.to);
+            }
+
+            final int           middle;
+            final HistogramTask left;
+            final HistogramTask right;
+
+            middle = (this.from + this.to) >>> 1;
+            left   = new HistogramTask(this.values, this.low, this.high, this.buckets, this.from, middle);
+            right  = new HistogramTask(this.values, this.low, this.high, this.buckets, middle, this.to);
+
+            left.fork();
+
+            final long[] rightCounts;
+            final long[] leftCounts;
+
+            rightCounts = right.compute();
+            leftCounts  = left.join();
+
+            for(int i = 0; i < leftCounts.length; i++)
+            {
+                leftCounts[i] += rightCounts[i];
+            }
+
+            return leftCounts;
+        }
+    }
+
+    /*
+     * Growable primitive columns filled while reading devices; strings are dictionary-encoded as id + 1, 0 for null.
+     */
+    private static final class Columns
+    {
+        private final StringDictionary         carriers   = new StringDictionary();
+        private final StringDictionary         osVersions = new StringDictionary();
+        private final HashMap<String, Integer> foldedOs   = new HashMap<>();
+
+        private double[] phoneMinutes  = new double[INITIAL_CAPACITY];
+        private int[]    phoneCarrier  = new int[INITIAL_CAPACITY];
+        private int      phoneCount;
+        private int[]    phone16Memory = new int[INITIAL_CAPACITY];
+        private double[] phone16Camera = new double[INITIAL_CAPACITY];
+        private int      phone16Count;
+        private int[]    padOs         = new int[INITIAL_CAPACITY];
+        private double[] padCase       = new double[INITIAL_CAPACITY];
+        private int      padCount;
+        private double[] podSongs      = new double[INITIAL_CAPACITY];
+        private double[] podMaxVol     = new double[INITIAL_CAPACITY];
+        private int      podCount;
+
+        private void add(final IDevice device)
+        {
+            final DeviceType type;
+            type = DeviceType.of(device);
+
+            if(type == DeviceType.IPHONE || type == DeviceType.IPHONE16)
+            {
+                final IPhone phone;
+                phone = (IPhone) device;
+
+                this.addPhone(phone.getMinutesRemaining(), phone.getCarrier());
+
+                if(type == DeviceType.IPHONE16)
+                {
+                    this.addPhone16(((IPhone16) phone).getMemoryGB(), ((IPhone16) phone).hasHighResCamera());
+                }
+            }
+            else if(type == DeviceType.IPAD)
+            {
+                this.addPad(((IPad) device).getHasCase(), ((IPad) device).getOpSystemVersion());
+            }
+            else
+            {
+                this.addPod(((IPod) device).getNumSongsStored(), ((IPod) device).getMaxVolDecibels());
+            }
+        }
+
+        private void addPhone(final double minutes, final String carrier)
+        {
+            if(this.phoneCount == this.phoneMinutes.length)
+            {
+                this.phoneMinutes = Arrays.copyOf(this.phoneMinutes, this.phoneCount * 2);
+                this.phoneCarrier = Arrays.copyOf(this.phoneCarrier, this.phoneCount * 2);
+            }
+
+            this.phoneMinutes[this.phoneCount] = minutes;
+            this.phoneCarrier[this.phoneCount] = this.carriers.encode(carrier) + 1;
+            this.phoneCount++;
+        }
+
+        private void addPhone16(final int memoryGB, final boolean cameraRes)
+        {
+            if(this.phone16Count == this.phone16Memory.length)
+            {
+                this.phone16Memory = Arrays.copyOf(this.phone16Memory, this.phone16Count * 2);
+                this.phone16Camera = Arrays.copyOf(this.phone16Camera, this.phone16Count * 2);
+            }
+
+            this.phone16Memory[this.phone16Count] = memoryGB;
+            this.phone16Camera[this.phone16Count] = cameraRes ? 1.0 : 0.0;
+            this.phone16Count++;
+        }
+
+        private void addPad(final boolean hasCase, final String os)
+        {
+            if(this.padCount == this.padOs.length)
+            {
+                this.padOs   = Arrays.copyOf(this.padOs, this.padCount * 2);
+                this.padCase = Arrays.copyOf(this.padCase, this.padCount * 2);
+            }
+
+            this.padOs[this.padCount]   = this.osVersionId(os) + 1;
+            this.padCase[this.padCount] = hasCase ? 1.0 : 0.0;
+            this.padCount++;
+        }
+
+        /*
+         * Returns the id of the first spelling seen that is equalsIgnoreCase to os, so every spelling of a version
+         * shares one group.
+         */
+        private int osVersionId(final String os)
+        {
+            final String key;
+            Integer      id;
+
+            key = os == null ? null : OsVersionTable.fold(os);
+            id  = this.foldedOs.get(key);
+
+            if(id == null)
+            {
+                id = this.osVersions.encode(os);
+                this.foldedOs.put(key, id);
+            }
+
+            return id;
+        }
+
+        private void addPod(final int songs, final double maxVol)
+        {
+            if(this.podCount == this.podSongs.length)
+            {
+                this.podSongs  = Arrays.copyOf(this.podSongs, this.podCount * 2);
+                this.podMaxVol = Arrays.copyOf(this.podMaxVol, this.podCount * 2);
+            }
+
+            this.podSongs[this.podCount]  = songs;
+            this.podMaxVol[this.podCount] = maxVol;
+            this.podCount++;
+        }
+
+        /*
+         * Labels for ids + 1, with label 0 standing for null.
+         */
+        private String[] labels(final StringDictionary dictionary)
+        {
+            final String[] labels;
+            labels = new String[dictionary.size() + 1];
+
+            for(int id = 0; id < dictionary.size(); id++)
+            {
+                labels[id + 1] = dictionary.decode(id);
+            }
+
+            return labels;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The CountViews a fleet dashboard reads: phones per carrier, IPads per operating system version ignoring case and per
+ * case, and IPhone16s per memory size.
+ * <p>
+ * add and remove route each device to the views for its type, so a caller that registers every device once gets
+ * every count kept up to date by the devices' own setters. Reads never lock; see CountView.
+ * </p>
+ * <p>
+ * A fleet view is counted through a copy of its row taken when it is added, since views are not IPhones or IPads and
+ * fleet setters do not notify anyone: later changes to the fleet do not reach the counts. Removing any view of the same
+ * row removes the copy.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class FleetCounts
+{
+    private final CountView<IPhone, String>    phonesByCarrier;
+    private final CountView<IPhone16, Integer> phone16sByMemoryGB;
+    private final CountView<IPad, String>      padsByOpSystemVersion;
+    private final CountView<IPad, Boolean>     padsByHasCase;
+
+    private final Map<DeviceFleet, Map<Integer, IDevice>> viewCopies;
+
+    /**
+     * Constructor for FleetCounts with no devices.
+     */
+    public FleetCounts()
+    {
+        this.phonesByCarrier       = CountView.byCarrier();
+        this.phone16sByMemoryGB    = CountView.byMemoryGB();
+        this.padsByOpSystemVersion = CountView.byOpSystemVersion();
+        this.padsByHasCase         = CountView.byHasCase();
+        this.viewCopies            = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds a device to the views for its type; IPods are not counted by any view.
+     *
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @return a boolean; true if the device was added, false if it was already counted or is an IPod.
+     */
+    public boolean add(final IDevice element)
+    {
+        final IDevice    device;
+        final DeviceType type;
+
+        if(element instanceof DeviceFleet.View)
+        {
+            device = this.copyToAdd((DeviceFleet.View) element);
+
+            if(device == null)
+            {
+                return false;
+            }
+        }
+        else
+        {
+            device = element;
+        }
+
+        type = DeviceType.of(device);
+
+        if(type == DeviceType.IPHONE16)
+        {
+            this.phone16sByMemoryGB.add((IPhone16) device);
+        }
+
+        if(type == DeviceType.IPHONE || type == DeviceType.IPHONE16)
+        {
+            return this.phonesByCarrier.add((IPhone) device);
+        }
+
+        if(type == DeviceType.IPAD)
+        {
+            this.padsByHasCase.add((IPad) device);
+
+            return this.padsByOpSystemVersion.add((IPad) device);
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a device from the views for its type.
+     *
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @return a boolean; true if the device was counted, otherwise false.
+     */
+    public boolean remove(final IDevice element)
+    {
+        final IDevice    device;
+        final DeviceType type;
+
+        if(element instanceof DeviceFleet.View)
+        {
+            device = this.copyToRemove((DeviceFleet.View) element);
+
+            if(device == null)
+            {
+                return false;
+            }
+        }
+        else
+        {
+            device = element;
+        }
+
+        type = DeviceType.of(device);
+
+        if(type == DeviceType.IPHONE16)
+        {
+            this.phone16sByMemoryGB.remove((IPhone16) device);
+        }
+
+        if(type == DeviceType.IPHONE || type == DeviceType.IPHONE16)
+        {
+            return this.phonesByCarrier.remove((IPhone) device);
+        }
+
+        if(type == DeviceType.IPAD)
+        {
+            this.padsByHasCase.remove((IPad) device);
+
+            return this.padsByOpSystemVersion.remove((IPad) device);
+        }
+
+        return false;
+    }
+
+    /**
+     * Getter for the count of IPhones and IPhone16s per carrier.
+     *
+     * @return the CountView by carrier.
+     */
+    public CountView<IPhone, String> phonesByCarrier()
+    {
+        return this.phonesByCarrier;
+    }
+
+    /**
+     * Getter for the count of IPhone16s per memory size.
+     *
+     * @return the CountView by memory in GB.
+     */
+    public CountView<IPhone16, Integer> phone16sByMemoryGB()
+    {
+        return this.phone16sByMemoryGB;
+    }
+
+    /**
+     * Getter for the count of IPads per operating system version.
+     *
+     * @return the CountView by operating system version.
+     */
+    public CountView<IPad, String> padsByOpSystemVersion()
+    {
+        return this.padsByOpSystemVersion;
+    }
+
+    /**
+     * Getter for the count of IPads with and without a case.
+     *
+     * @return the CountView by case.
+     */
+    public CountView<IPad, Boolean> padsByHasCase()
+    {
+        return this.padsByHasCase;
+    }
+
+    /*
+     * Takes and keeps a copy of a view's row, or returns null if a view of that row is already counted.
+     */
+    private IDevice copyToAdd(final DeviceFleet.View view)
+    {
+        synchronized(this.viewCopies)
+        {
+            final Map<Integer, IDevice> rows;
+            final IDevice               copy;
+
+            rows = this.viewCopies.computeIfAbsent(view.getFleet(), fleet -> new HashMap<>());
+
+            if(rows.containsKey(view.getHandle()))
+            {
+                return null;
+            }
+
+            copy = DeviceFleet.concrete(view);
+            rows.put(view.getHandle(), copy);
+
+            return copy;
+        }
+    }
+
+    /*
+     * Forgets and returns the copy kept for a view's row, or returns null if no view of that row is counted.
+     */
+    private IDevice copyToRemove(final DeviceFleet.View view)
+    {
+        synchronized(this.viewCopies)
+        {
+            final Map<Integer, IDevice> rows;
+            final IDevice               copy;
+
+            rows = this.viewCopies.get(view.getFleet());
+
+            if(rows == null)
+            {
+                return null;
+            }
+
+            copy = rows.remove(view.getHandle());
+
+            if(rows.isEmpty())
+            {
+                this.viewCopies.remove(view.getFleet());
+            }
+
+            return copy;
+        }
+    }
+}
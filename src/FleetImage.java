@@ -0,0 +1,880 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A built fleet and its indexes in one file that opens by mapping, without constructing a device.
+ * <p>
+ * An image is a snapshot file, readable by DeviceSnapshot and DeviceArena.open, followed by an index section and a
+ * fixed-size trailer. The index section holds sorted arrays of record indices, so every query is a binary search or
+ * an array range over mapped memory:
+ * </p>
+ * <pre>
+ * long[phones]      minutes sort keys of the IPhones and IPhone16s, ascending
+ * int[phones]       their record indices, in the same order
+ * int[pods]         songs stored of the IPods, ascending
+ * int[pods]         their record indices, in the same order
+ * int[strings + 2]  start of each carrier's run below, by string id + 1 (0 is null), then the end
+ * int[phones]       record indices of the phones grouped by carrier
+ * int[strings + 2]  start of each operating system version's run below, by string id + 1, then the end
+ * int[pads]         record indices of the IPads grouped by operating system version
+ * </pre>
+ * <p>
+ * The section starts on an 8-byte boundary after the snapshot's string table. The trailer is the last TRAILER_SIZE
+ * bytes of the file, little-endian:
+ * </p>
+ * <pre>
+ *  0  int   MAGIC
+ *  4  short VERSION
+ *  6  short reserved, zero
+ *  8  long  file offset of the index section
+ * 16  int   number of IPhones
+ * 20  int   number of IPhone16s
+ * 24  int   number of IPads
+ * 28  int   number of IPods
+ * 32  int   number of strings
+ * 36  int   reserved, zero
+ * </pre>
+ * <p>
+ * Opening an image reads the trailer, maps the index arrays and decodes the string table once, so every device
+ * built from the image shares one String per distinct carrier and operating system version. Records are mapped a
+ * chunk at a time on first use and devices are only built for the results of a query. Minutes follow the ordering
+ * of MinutesIndex and operating system versions match case-insensitively, like IPadVersionIndex.
+ * </p>
+ * <p>
+ * An image reflects the fleet as it was written; the devices it returns are independent copies. An image holds at
+ * most Integer.MAX_VALUE devices. Safe for concurrent use.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class FleetImage implements Closeable
+{
+    static final int   MAGIC        = 0x474D4946;
+    static final short VERSION      = 1;
+    static final int   TRAILER_SIZE = 40;
+
+    private static final int WRITE_BUFFER = 1 << 16;
+
+    private final DeviceSnapshotReader records;
+    private final int[]                typeCounts;
+    private final String[]             strings;
+    private final Map<String, Integer> ids;
+    private final LongBuffer           minutesKeys;
+    private final IntBuffer            phonesByMinutes;
+    private final IntBuffer            songs;
+    private final IntBuffer            podsBySongs;
+    private final IntBuffer            carrierStarts;
+    private final IntBuffer            phonesByCarrier;
+    private final IntBuffer            versionStarts;
+    private final IntBuffer            padsByVersion;
+
+    /*
+     * Maps an image's sections; see open.
+     */
+    private FleetImage(final Path path) throws IOException
+    {
+        this.records = DeviceSnapshot.open(path);
+
+        try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final ByteBuffer trailer;
+            final int        phones;
+            final int        pads;
+            final int        pods;
+            final int        stringCount;
+            long             position;
+
+            if(channel.size() < DeviceSnapshot.HEADER_SIZE + TRAILER_SIZE)
+            {
+                throw new IOException("Not a fleet image: " + path);
+            }
+
+            trailer = ByteBuffer.allocate(TRAILER_SIZE).order(DeviceRecord.ORDER);
+
+            while(trailer.hasRemaining())
+            {
+                if(channel.read(trailer, channel.size() - TRAILER_SIZE + trailer.position()) < 0)
+                {
+                    throw new IOException("Truncated fleet image trailer: " + path);
+                }
+            }
+
+            if(trailer.getInt(0) != MAGIC)
+            {
+                throw new IOException("Not a fleet image: " + path);
+            }
+
+            if(trailer.getShort(4) != VERSION)
+            {
+                throw new IOException("Unsupported fleet image version " + trailer.getShort(4) + ": " + path);
+            }
+
+            this.typeCounts = new int[] {trailer.getInt(16), trailer.getInt(20), trailer.getInt(24), trailer.getInt(28)};
+            phones          = this.typeCounts[DeviceType.IPHONE.ordinal()] + this.typeCounts[DeviceType.IPHONE16.ordinal()];
+            pads            = this.typeCounts[DeviceType.IPAD.ordinal()];
+            pods            = this.typeCounts[DeviceType.IPOD.ordinal()];
+            stringCount     = trailer.getInt(32);
+            position        = trailer.getLong(8);
+
+            if(stringCount != this.records.stringCount() || (long) phones + pads + pods != this.records.size() || position + indexBytes(phones, pads, pods, stringCount) + TRAILER_SIZE != channel.size())
+            {
+                throw new IOException("Corrupt fleet image trailer: " + path);
+            }
+
+            this.minutesKeys     = map(channel, position, (long) phones * Long.BYTES).asLongBuffer();
+            position            += (long) phones * Long.BYTES;
+            this.phonesByMinutes = mapInts(channel, position, phones);
+            position            += (long) phones * Integer.BYTES;
+            this.songs           = mapInts(channel, position, pods);
+            position            += (long) pods * Integer.BYTES;
+            this.podsBySongs     = mapInts(channel, position, pods);
+            position            += (long) pods * Integer.BYTES;
+            this.carrierStarts   = mapInts(channel, position, stringCount + 2);
+            position            += (long) (stringCount + 2) * Integer.BYTES;
+            this.phonesByCarrier = mapInts(channel, position, phones);
+            position            += (long) phones * Integer.BYTES;
+            this.versionStarts   = mapInts(channel, position, stringCount + 2);
+            position            += (long) (stringCount + 2) * Integer.BYTES;
+            this.padsByVersion   = mapInts(channel, position, pads);
+
+            this.strings = new String[stringCount];
+            this.ids     = new HashMap<>(stringCount * 2);
+
+            for(int id = 0; id < stringCount; id++)
+            {
+                this.strings[id] = this.records.string(id);
+                this.ids.put(this.strings[id], id);
+            }
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            this.records.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes every device and the indexes over them to a new image file, replacing any existing file.
+     *
+     * @param path    is the image file.
+     * @param devices is the collection of devices to be written.
+     *
+     * @return the number of devices written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static long write(final Path path, final Iterable<? extends IDevice> devices) throws IOException
+    {
+        final long count;
+        count = DeviceSnapshot.write(path, devices);
+
+        appendIndexes(path);
+
+        return count;
+    }
+
+    /**
+     * Writes every device of an arena and the indexes over them to a new image file, replacing any existing file.
+     *
+     * @param path  is the image file; not the file the arena was opened from.
+     * @param arena is the arena to be written.
+     *
+     * @return the number of devices written.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public static long write(final Path path, final DeviceArena arena) throws IOException
+    {
+        arena.writeTo(path);
+        appendIndexes(path);
+
+        return arena.size();
+    }
+
+    /**
+     * Opens an image file for querying.
+     *
+     * @param path is an image file written by write.
+     *
+     * @return the FleetImage over the file.
+     *
+     * @throws IOException if the file cannot be read or is not an image.
+     */
+    public static FleetImage open(final Path path) throws IOException
+    {
+        return new FleetImage(path);
+    }
+
+    /**
+     * Getter for the number of devices in the image.
+     *
+     * @return the number of devices as an int.
+     */
+    public int size()
+    {
+        return (int) this.records.size();
+    }
+
+    /**
+     * Returns the number of devices of one type, without a subtype's devices.
+     *
+     * @param type is the DeviceType counted.
+     *
+     * @return the number of devices as an int.
+     */
+    public int count(final DeviceType type)
+    {
+        return this.typeCounts[type.ordinal()];
+    }
+
+    /**
+     * Builds one device from the image.
+     *
+     * @param index is the device's position in the fleet the image was written from.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod.
+     */
+    public IDevice get(final int index)
+    {
+        return this.records.get(index);
+    }
+
+    /**
+     * Returns the IPhones and IPhone16s with minutes remaining in [low, high], fewest minutes first.
+     *
+     * @param low  is the smallest number of minutes, inclusive.
+     * @param high is the largest number of minutes, inclusive.
+     *
+     * @return a new list of new phones.
+     */
+    public List<IPhone> phonesBetween(final double low, final double high)
+    {
+        final int          first;
+        final int          end;
+        final List<IPhone> phones;
+
+        first  = lowerBound(this.minutesKeys, RangeIndex.sortableKey(low));
+        end    = Math.max(first, upperBound(this.minutesKeys, RangeIndex.sortableKey(high)));
+        phones = new ArrayList<>(end - first);
+
+        for(int i = first; i < end; i++)
+        {
+            phones.add((IPhone) this.get(this.phonesByMinutes.get(i)));
+        }
+
+        return phones;
+    }
+
+    /**
+     * Counts the IPhones and IPhone16s with minutes remaining in [low, high].
+     *
+     * @param low  is the smallest number of minutes, inclusive.
+     * @param high is the largest number of minutes, inclusive.
+     *
+     * @return the number of phones as an int.
+     */
+    public int countPhonesBetween(final double low, final double high)
+    {
+        final int first;
+        first = lowerBound(this.minutesKeys, RangeIndex.sortableKey(low));
+
+        return Math.max(0, upperBound(this.minutesKeys, RangeIndex.sortableKey(high)) - first);
+    }
+
+    /**
+     * Returns the IPods with a number of songs stored in [low, high], fewest songs first.
+     *
+     * @param low  is the smallest number of songs, inclusive.
+     * @param high is the largest number of songs, inclusive.
+     *
+     * @return a new list of new IPods.
+     */
+    public List<IPod> podsBetween(final int low, final int high)
+    {
+        final int        first;
+        final int        end;
+        final List<IPod> pods;
+
+        first = lowerBound(this.songs, low);
+        end   = Math.max(first, upperBound(this.songs, high));
+        pods  = new ArrayList<>(end - first);
+
+        for(int i = first; i < end; i++)
+        {
+            pods.add((IPod) this.get(this.podsBySongs.get(i)));
+        }
+
+        return pods;
+    }
+
+    /**
+     * Counts the IPods with a number of songs stored in [low, high].
+     *
+     * @param low  is the smallest number of songs, inclusive.
+     * @param high is the largest number of songs, inclusive.
+     *
+     * @return the number of IPods as an int.
+     */
+    public int countPodsBetween(final int low, final int high)
+    {
+        final int first;
+        first = lowerBound(this.songs, low);
+
+        return Math.max(0, upperBound(this.songs, high) - first);
+    }
+
+    /**
+     * Returns the IPhones and IPhone16s on a carrier, in fleet order.
+     *
+     * @param carrier is the carrier, may be null.
+     *
+     * @return a new list of new phones.
+     */
+    public List<IPhone> phonesWithCarrier(final String carrier)
+    {
+        final List<IPhone> phones;
+        phones = new ArrayList<>();
+
+        if(carrier == null || this.ids.containsKey(carrier))
+        {
+            final int slot;
+            slot = this.slotOf(carrier);
+
+            for(int i = this.carrierStarts.get(slot); i < this.carrierStarts.get(slot + 1); i++)
+            {
+                phones.add((IPhone) this.get(this.phonesByCarrier.get(i)));
+            }
+        }
+
+        return phones;
+    }
+
+    /**
+     * Counts the IPhones and IPhone16s on a carrier.
+     *
+     * @param carrier is the carrier, may be null.
+     *
+     * @return the number of phones as an int.
+     */
+    public int countPhonesWithCarrier(final String carrier)
+    {
+        final int slot;
+
+        if(carrier != null && !this.ids.containsKey(carrier))
+        {
+            return 0;
+        }
+
+        slot = this.slotOf(carrier);
+
+        return this.carrierStarts.get(slot + 1) - this.carrierStarts.get(slot);
+    }
+
+    /**
+     * Returns the IPads on an operating system version, ignoring case, grouped by spelling and then in fleet order.
+     *
+     * @param os is the operating system version, may be null.
+     *
+     * @return a new list of new IPads.
+     */
+    public List<IPad> padsWithVersion(final String os)
+    {
+        final List<IPad> pads;
+        pads = new ArrayList<>();
+
+        for(final int slot : this.versionSlots(os))
+        {
+            for(int i = this.versionStarts.get(slot); i < this.versionStarts.get(slot + 1); i++)
+            {
+                pads.add((IPad) this.get(this.padsByVersion.get(i)));
+            }
+        }
+
+        return pads;
+    }
+
+    /**
+     * Counts the IPads on an operating system version, ignoring case.
+     *
+     * @param os is the operating system version, may be null.
+     *
+     * @return the number of IPads as an int.
+     */
+    public int countPadsWithVersion(final String os)
+    {
+        int count;
+        count = 0;
+
+        for(final int slot : this.versionSlots(os))
+        {
+            count += this.versionStarts.get(slot + 1) - this.versionStarts.get(slot);
+        }
+
+        return count;
+    }
+
+    /**
+     * Closes the image file; devices already built stay usable.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this.records.close();
+    }
+
+    /*
+     * Returns the run slot of a String: its id + 1, or 0 for null.
+     */
+    private int slotOf(final String value)
+    {
+        return value == null ? 0 : this.ids.get(value) + 1;
+    }
+
+    /*
+     * Returns the run slots of every spelling of an operating system version.
+     */
+    private int[] versionSlots(final String os)
+    {
+        int[] slots;
+        int   count;
+
+        if(os == null)
+        {
+            return new int[] {0};
+        }
+
+        slots = new int[1];
+        count = 0;
+
+        for(int id = 0; id < this.strings.length; id++)
+        {
+            if(os.equalsIgnoreCase(this.strings[id]))
+            {
+                if(count == slots.length)
+                {
+                    slots = Arrays.copyOf(slots, count * 2);
+                }
+
+                slots[count++] = id + 1;
+            }
+        }
+
+        return Arrays.copyOf(slots, count);
+    }
+
+    /*
+     * Builds the indexes over a snapshot file's records and appends them and the trailer to it.
+     */
+    private static void appendIndexes(final Path path) throws IOException
+    {
+        try(final DeviceSnapshotReader reader = DeviceSnapshot.open(path))
+        {
+            final int[] typeCounts;
+            final int   stringCount;
+            final int   phones;
+            final int   pads;
+            final int   pods;
+
+            if(reader.size() > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("Too many devices for a fleet image: " + reader.size());
+            }
+
+            typeCounts  = new int[DeviceType.values().length];
+            stringCount = reader.stringCount();
+
+            for(int index = 0; index < reader.size(); index++)
+            {
+                typeCounts[reader.typeAt(index).ordinal()]++;
+            }
+
+            phones = typeCounts[DeviceType.IPHONE.ordinal()] + typeCounts[DeviceType.IPHONE16.ordinal()];
+            pads   = typeCounts[DeviceType.IPAD.ordinal()];
+            pods   = typeCounts[DeviceType.IPOD.ordinal()];
+
+            if((long) phones * Long.BYTES > Integer.MAX_VALUE || (long) pods * Integer.BYTES > Integer.MAX_VALUE || (long) pads * Integer.BYTES > Integer.MAX_VALUE)
+            {
+                throw new IllegalArgumentException("Too many devices of one kind for a fleet image: " + reader.size());
+            }
+
+            final long[] minutesKeys;
+            final int[]  phonesByMinutes;
+            final long[] songKeys;
+            final int[]  carrierStarts;
+            final int[]  phonesByCarrier;
+            final int[]  versionStarts;
+            final int[]  padsByVersion;
+            int          phone;
+            int          pod;
+
+            minutesKeys     = new long[phones];
+            phonesByMinutes = new int[phones];
+            songKeys        = new long[pods];
+            carrierStarts   = new int[stringCount + 2];
+            phonesByCarrier = new int[phones];
+            versionStarts   = new int[stringCount + 2];
+            padsByVersion   = new int[pads];
+            phone           = 0;
+            pod             = 0;
+
+            // first pass: sort keys in fleet order and the size of every carrier's and version's run
+            for(int index = 0; index < reader.size(); index++)
+            {
+                final ByteBuffer chunk;
+                final int        offset;
+
+                chunk  = reader.chunk(index);
+                offset = DeviceSnapshotReader.offsetOf(index);
+
+                switch(DeviceRecord.typeAt(chunk, offset))
+                {
+                    case IPHONE:
+                    case IPHONE16:
+                        minutesKeys[phone]     = RangeIndex.sortableKey(chunk.getDouble(offset + DeviceRecord.DOUBLE_OFFSET));
+                        phonesByMinutes[phone] = index;
+                        phone++;
+                        carrierStarts[chunk.getInt(offset + DeviceRecord.INT_OFFSET) + 2]++;
+                        break;
+                    case IPAD:
+                        versionStarts[chunk.getInt(offset + DeviceRecord.INT_OFFSET) + 2]++;
+                        break;
+                    default:
+                        // songs in the high half and the index in the low half sort by songs, then by fleet order
+                        songKeys[pod] = (long) chunk.getInt(offset + DeviceRecord.INT_OFFSET) << 32 | index;
+                        pod++;
+                }
+            }
+
+            for(int slot = 1; slot < carrierStarts.length; slot++)
+            {
+                carrierStarts[slot] += carrierStarts[slot - 1];
+                versionStarts[slot] += versionStarts[slot - 1];
+            }
+
+            // second pass: the runs, filled in fleet order; each start is advanced and ends up where the next run starts
+            final int[] carrierFill;
+            final int[] versionFill;
+
+            carrierFill = Arrays.copyOf(carrierStarts, carrierStarts.length);
+            versionFill = Arrays.copyOf(versionStarts, versionStarts.length);
+
+            for(int index = 0; index < reader.size(); index++)
+            {
+                final ByteBuffer chunk;
+                final int        offset;
+                final DeviceType type;
+
+                chunk  = reader.chunk(index);
+                offset = DeviceSnapshotReader.offsetOf(index);
+                type   = DeviceRecord.typeAt(chunk, offset);
+
+                if(type == DeviceType.IPHONE || type == DeviceType.IPHONE16)
+                {
+                    phonesByCarrier[carrierFill[chunk.getInt(offset + DeviceRecord.INT_OFFSET) + 1]++] = index;
+                }
+                else if(type == DeviceType.IPAD)
+                {
+                    padsByVersion[versionFill[chunk.getInt(offset + DeviceRecord.INT_OFFSET) + 1]++] = index;
+                }
+            }
+
+            sortByKey(minutesKeys, phonesByMinutes);
+            Arrays.sort(songKeys);
+
+            try(final FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+            {
+                final long        start;
+                final IndexWriter writer;
+
+                start  = (channel.size() + Long.BYTES - 1) & -Long.BYTES;
+                writer = new IndexWriter(channel, start);
+
+                writer.putLongs(minutesKeys);
+                writer.putInts(phonesByMinutes);
+
+                for(final long key : songKeys)
+                {
+                    writer.putInt((int) (key >> 32));
+                }
+
+                for(final long key : songKeys)
+                {
+                    writer.putInt((int) key);
+                }
+
+                writer.putInts(carrierStarts);
+                writer.putInts(phonesByCarrier);
+                writer.putInts(versionStarts);
+                writer.putInts(padsByVersion);
+
+                writer.putInt(MAGIC);
+                writer.putInt(VERSION & 0xFFFF);
+                writer.putLong(start);
+
+                for(final int count : typeCounts)
+                {
+                    writer.putInt(count);
+                }
+
+                writer.putInt(stringCount);
+                writer.putInt(0);
+                writer.flush();
+
+                channel.force(true);
+            }
+        }
+    }
+
+    /*
+     * Returns the size of an index section in bytes.
+     */
+    private static long indexBytes(final int phones, final int pads, final int pods, final int stringCount)
+    {
+        return (long) phones * (Long.BYTES + Integer.BYTES * 2) + (long) pods * Integer.BYTES * 2 + (long) pads * Integer.BYTES + (stringCount + 2L) * Integer.BYTES * 2;
+    }
+
+    /*
+     * Maps a read-only little-endian section of a file.
+     */
+    private static ByteBuffer map(final FileChannel channel, final long position, final long bytes) throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes).order(DeviceRecord.ORDER);
+    }
+
+    /*
+     * Maps a section of a file as ints.
+     */
+    private static IntBuffer mapInts(final FileChannel channel, final long position, final int count) throws IOException
+    {
+        return map(channel, position, (long) count * Integer.BYTES).asIntBuffer();
+    }
+
+    /*
+     * Returns the position of the first key not below a key.
+     */
+    private static int lowerBound(final LongBuffer keys, final long key)
+    {
+        int low;
+        int high;
+
+        low  = 0;
+        high = keys.limit();
+
+        while(low < high)
+        {
+            final int middle;
+            middle = (low + high) >>> 1;
+
+            if(keys.get(middle) < key)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Returns the position of the first key above a key.
+     */
+    private static int upperBound(final LongBuffer keys, final long key)
+    {
+        return key == Long.MAX_VALUE ? keys.limit() : lowerBound(keys, key + 1);
+    }
+
+    /*
+     * Returns the position of the first key not below a key.
+     */
+    private static int lowerBound(final IntBuffer keys, final int key)
+    {
+        int low;
+        int high;
+
+        low  = 0;
+        high = keys.limit();
+
+        while(low < high)
+        {
+            final int middle;
+            middle = (low + high) >>> 1;
+
+            if(keys.get(middle) < key)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Returns the position of the first key above a key.
+     */
+    private static int upperBound(final IntBuffer keys, final int key)
+    {
+        return key == Integer.MAX_VALUE ? keys.limit() : lowerBound(keys, key + 1);
+    }
+
+    /*
+     * Sorts keys ascending, moving each value with its key, in four stable passes of 16 bits; a pass is skipped when
+     * every key has the same digit.
+     */
+    private static void sortByKey(final long[] keys, final int[] values)
+    {
+        long[] fromKeys;
+        int[]  fromValues;
+        long[] toKeys;
+        int[]  toValues;
+
+        fromKeys   = keys;
+        fromValues = values;
+        toKeys     = new long[keys.length];
+        toValues   = new int[values.length];
+
+        for(int shift = 0; shift < Long.SIZE; shift += 16)
+        {
+            final int[] starts;
+            boolean     skip;
+
+            starts = new int[(1 << 16) + 1];
+            skip   = false;
+
+            // the sign bit is flipped so negative keys sort first
+            for(final long key : fromKeys)
+            {
+                starts[digit(key, shift) + 1]++;
+            }
+
+            for(int digit = 1; digit < starts.length; digit++)
+            {
+                skip          |= starts[digit] == keys.length;
+                starts[digit] += starts[digit - 1];
+            }
+
+            if(skip)
+            {
+                continue;
+            }
+
+            for(int i = 0; i < fromKeys.length; i++)
+            {
+                final int to;
+                to = starts[digit(fromKeys[i], shift)]++;
+
+                toKeys[to]   = fromKeys[i];
+                toValues[to] = fromValues[i];
+            }
+
+            final long[] swapKeys;
+            final int[]  swapValues;
+
+            swapKeys   = fromKeys;
+            swapValues = fromValues;
+            fromKeys   = toKeys;
+            fromValues = toValues;
+            toKeys     = swapKeys;
+            toValues   = swapValues;
+        }
+
+        if(fromKeys != keys)
+        {
+            System.arraycopy(fromKeys, 0, keys, 0, keys.length);
+            System.arraycopy(fromValues, 0, values, 0, values.length);
+        }
+    }
+
+    /*
+     * Returns one 16-bit digit of a key with its sign bit flipped.
+     */
+    private static int digit(final long key, final int shift)
+    {
+        return (int) (((key ^ Long.MIN_VALUE) >>> shift) & 0xFFFF);
+    }
+
+    /*
+     * Writes little-endian values to a channel through one buffer.
+     */
+    private static final class IndexWriter
+    {
+        private final FileChannel channel;
+        private final ByteBuffer  buffer;
+        private long              position;
+
+        private IndexWriter(final FileChannel channel, final long position)
+        {
+            this.channel  = channel;
+            this.buffer   = ByteBuffer.allocateDirect(WRITE_BUFFER).order(DeviceRecord.ORDER);
+            this.position = position;
+        }
+
+        private void putLongs(final long[] values) throws IOException
+        {
+            for(final long value : values)
+            {
+                this.putLong(value);
+            }
+        }
+
+        private void putInts(final int[] values) throws IOException
+        {
+            for(final int value : values)
+            {
+                this.putInt(value);
+            }
+        }
+
+        private void putLong(final long value) throws IOException
+        {
+            if(this.buffer.remaining() < Long.BYTES)
+            {
+                this.flush();
+            }
+
+            this.buffer.putLong(value);
+        }
+
+        private void putInt(final int value) throws IOException
+        {
+            if(this.buffer.remaining() < Integer.BYTES)
+            {
+                this.flush();
+            }
+
+            this.buffer.putInt(value);
+        }
+
+        private void flush() throws IOException
+        {
+            this.buffer.flip();
+
+            while(this.buffer.hasRemaining())
+            {
+                this.position += this.channel.write(this.buffer, this.position);
+            }
+
+            this.buffer.clear();
+        }
+    }
+}
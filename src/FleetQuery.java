@@ -0,0 +1,412 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A query over a collection of IDevices with typed predicates on their fields.
+ * <p>
+ * Each predicate also narrows the query to the device types that have the field, so numSongsStored(n -&gt; n &gt; 100)
+ * only ever matches IPods and memoryGB(...) only ever matches IPhone16s. The minutes and carrier predicates apply to
+ * both IPhones and IPhone16s.
+ * </p>
+ * <p>
+ * Execution splits the input by DeviceType, skips types the query cannot match, and filters each type's devices in
+ * parallel on a ForkJoinPool, so every task only ever sees one concrete class. The cheap primitive predicates are
+ * always evaluated before the String predicates. Results are grouped by DeviceType in declaration order and keep
+ * the input order within a type. Fleet views are matched, and returned, as independent copies of their rows.
+ * </p>
+ * <p>
+ * A query may be reused and executed concurrently once built, but not changed while it executes.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class FleetQuery
+{
+    private static final int LEAF_SIZE          = 4096;
+    private static final int INITIAL_GROUP_SIZE = 16;
+
+    private final EnumSet<DeviceType> types;
+
+    private DoublePredicate   minutesRemaining;
+    private Predicate<String> carrier;
+    private Boolean           highResCamera;
+    private IntPredicate      memoryGB;
+    private Boolean           hasCase;
+    private Predicate<String> opSystemVersion;
+    private IntPredicate      numSongsStored;
+    private DoublePredicate   maxVolDecibels;
+
+    /**
+     * Constructor for a FleetQuery that matches every device.
+     */
+    public FleetQuery()
+    {
+        this.types = EnumSet.allOf(DeviceType.class);
+    }
+
+    /**
+     * Restricts the query to some device types.
+     *
+     * @param first is a DeviceType to be kept.
+     * @param rest  are more DeviceTypes to be kept.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery types(final DeviceType first, final DeviceType... rest)
+    {
+        this.types.retainAll(EnumSet.of(first, rest));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPhone and IPhone16 minutes remaining.
+     *
+     * @param predicate is the predicate on the minutes remaining.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery minutesRemaining(final DoublePredicate predicate)
+    {
+        this.minutesRemaining = and(this.minutesRemaining, predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPHONE, DeviceType.IPHONE16));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPhone and IPhone16 carriers.
+     *
+     * @param predicate is the predicate on the carrier.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery carrier(final Predicate<String> predicate)
+    {
+        this.carrier = this.carrier == null ? predicate : this.carrier.and(predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPHONE, DeviceType.IPHONE16));
+
+        return this;
+    }
+
+    /**
+     * Requires IPhone16s with or without a high resolution camera.
+     *
+     * @param cameraRes is a boolean; true to match high resolution cameras, otherwise false.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery highResCamera(final boolean cameraRes)
+    {
+        this.highResCamera = cameraRes;
+        this.types.retainAll(EnumSet.of(DeviceType.IPHONE16));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPhone16 memory in GB.
+     *
+     * @param predicate is the predicate on the memory.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery memoryGB(final IntPredicate predicate)
+    {
+        this.memoryGB = this.memoryGB == null ? predicate : this.memoryGB.and(predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPHONE16));
+
+        return this;
+    }
+
+    /**
+     * Requires IPads with or without a case.
+     *
+     * @param x is a boolean; true to match IPads with a case, otherwise false.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery hasCase(final boolean x)
+    {
+        this.hasCase = x;
+        this.types.retainAll(EnumSet.of(DeviceType.IPAD));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPad operating system versions.
+     *
+     * @param predicate is the predicate on the operating system version.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery opSystemVersion(final Predicate<String> predicate)
+    {
+        this.opSystemVersion = this.opSystemVersion == null ? predicate : this.opSystemVersion.and(predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPAD));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPod songs stored.
+     *
+     * @param predicate is the predicate on the number of songs stored.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery numSongsStored(final IntPredicate predicate)
+    {
+        this.numSongsStored = this.numSongsStored == null ? predicate : this.numSongsStored.and(predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPOD));
+
+        return this;
+    }
+
+    /**
+     * Adds a predicate on IPod maximum volume in decibels.
+     *
+     * @param predicate is the predicate on the maximum volume.
+     *
+     * @return this FleetQuery.
+     */
+    public FleetQuery maxVolDecibels(final DoublePredicate predicate)
+    {
+        this.maxVolDecibels = and(this.maxVolDecibels, predicate);
+        this.types.retainAll(EnumSet.of(DeviceType.IPOD));
+
+        return this;
+    }
+
+    /**
+     * Runs the query on the common ForkJoinPool.
+     *
+     * @param devices is a collection of IPhones, IPhone16s, IPads and IPods, or fleet views of them.
+     *
+     * @return the matching devices, grouped by DeviceType.
+     */
+    public List<IDevice> execute(final Collection<? extends IDevice> devices)
+    {
+        return this.execute(devices, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the query on a ForkJoinPool.
+     *
+     * @param devices is a collection of IPhones, IPhone16s, IPads and IPods, or fleet views of them.
+     * @param pool    is the ForkJoinPool the filtering runs on.
+     *
+     * @return the matching devices, grouped by DeviceType.
+     */
+    public List<IDevice> execute(final Collection<? extends IDevice> devices, final ForkJoinPool pool)
+    {
+        final IDevice[][]   groups;
+        final List<IDevice> result;
+
+        groups = this.partition(devices);
+        result = new ArrayList<>();
+
+        for(final DeviceType type : this.types)
+        {
+            final IDevice[] group;
+            group = groups[type.ordinal()];
+
+            if(group.length > 0)
+            {
+                result.addAll(pool.invoke(new FilterTask(this, type, group, 0, group.length)));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether one device matches the query.
+     *
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @return a boolean; true if the device matches, otherwise false.
+     */
+    public boolean matches(final IDevice element)
+    {
+        final IDevice    device;
+        final DeviceType type;
+
+        device = DeviceFleet.concrete(element);
+        type   = DeviceType.of(device);
+
+        return this.types.contains(type) && this.matches(type, device);
+    }
+
+    /*
+     * Splits the devices the query can match into one array per DeviceType, in input order.
+     */
+    private IDevice[][] partition(final Collection<? extends IDevice> devices)
+    {
+        final IDevice[][] groups;
+        final int[]       sizes;
+
+        groups = new IDevice[DeviceType.values().length][];
+        sizes  = new int[groups.length];
+
+        for(int i = 0; i < groups.length; i++)
+        {
+            groups[i] = new IDevice[INITIAL_GROUP_SIZE];
+        }
+
+        for(final IDevice element : devices)
+        {
+            final IDevice    device;
+            final DeviceType type;
+            final int        index;
+
+            device = DeviceFleet.concrete(element);
+            type   = DeviceType.of(device);
+            index = type.ordinal();
+
+            if(!this.types.contains(type))
+            {
+                continue;
+            }
+
+            if(sizes[index] == groups[index].length)
+            {
+                groups[index] = Arrays.copyOf(groups[index], sizes[index] * 2);
+            }
+
+            groups[index][sizes[index]++] = device;
+        }
+
+        for(int i = 0; i < groups.length; i++)
+        {
+            groups[i] = Arrays.copyOf(groups[i], sizes[i]);
+        }
+
+        return groups;
+    }
+
+    /*
+     * Evaluates the predicates of one type, primitive fields first.
+     */
+    private boolean matches(final DeviceType type, final IDevice device)
+    {
+        switch(type)
+        {
+            case IPHONE16:
+            {
+                final IPhone16 phone;
+                phone = (IPhone16) device;
+
+                return (this.highResCamera == null || phone.hasHighResCamera() == this.highResCamera)
+                    && (this.memoryGB == null || this.memoryGB.test(phone.getMemoryGB()))
+                    && (this.minutesRemaining == null || this.minutesRemaining.test(phone.getMinutesRemaining()))
+                    && (this.carrier == null || this.carrier.test(phone.getCarrier()));
+            }
+            case IPHONE:
+            {
+                final IPhone phone;
+                phone = (IPhone) device;
+
+                return (this.minutesRemaining == null || this.minutesRemaining.test(phone.getMinutesRemaining()))
+                    && (this.carrier == null || this.carrier.test(phone.getCarrier()));
+            }
+            case IPAD:
+            {
+                final IPad pad;
+                pad = (IPad) device;
+
+                return (this.hasCase == null || pad.getHasCase() == this.hasCase)
+                    && (this.opSystemVersion == null || this.opSystemVersion.test(pad.getOpSystemVersion()));
+            }
+            default:
+            {
+                final IPod pod;
+                pod = (IPod) device;
+
+                return (this.numSongsStored == null || this.numSongsStored.test(pod.getNumSongsStored()))
+                    && (this.maxVolDecibels == null || this.maxVolDecibels.test(pod.getMaxVolDecibels()));
+            }
+        }
+    }
+
+    /*
+     * Combines two double predicates, either of which may be null.
+     */
+    private static DoublePredicate and(final DoublePredicate first, final DoublePredicate second)
+    {
+        return first == null ? second : first.and(second);
+    }
+
+    /*
+     * Filters a range of one type's devices, splitting until the range is small enough to loop over.
+     */
+    private static final class FilterTask extends RecursiveTask<List<IDevice>>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final FleetQuery query;
+        private final DeviceType type;
+        private final IDevice[]  devices;
+        private final int        from;
+        private final int        to;
+
+        private FilterTask(final FleetQuery query, final DeviceType type, final IDevice[] devices, final int from, final int to)
+        {
+            this.query   = query;
+            this.type    = type;
+            this.devices = devices;
+            this.from    = from;
+            this.to      = to;
+        }
+
+        @Override
+        protected List<IDevice> compute()
+        {
+            if(this.to - this.from <= LEAF_SIZE)
+            {
+                final List<IDevice> matches;
+                matches = new ArrayList<>();
+
+                for(int i = this.from; i < this.to; i++)
+                {
+                    if(this.query.matches(this.type, this.devices[i]))
+                    {
+                        matches.add(this.devices[i]);
+                    }
+                }
+
+                return matches;
+            }
+
+            final int        middle;
+            final FilterTask left;
+            final FilterTask right;
+
+            middle = (this.from + this.to) >>> 1;
+            left   = new FilterTask(this.query, this.type, this.devices, this.from, middle);
+            right  = new FilterTask(this.query, this.type, this.devices, middle, this.to);
+
+            left.fork();
+
+            final List<IDevice> rightMatches;
+            final List<IDevice> leftMatches;
+
+            rightMatches = right.compute();
+            leftMatches  = left.join();
+
+            leftMatches.addAll(rightMatches);
+
+            return leftMatches;
+        }
+    }
+}
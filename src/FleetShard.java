@@ -0,0 +1,347 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The devices one node of a ShardedFleetRegistry holds, grouped by partition.
+ * <p>
+ * A shard only ever sees ShardProtocol frames: handle decodes a request, runs it against the partitions held here
+ * and encodes the response. Devices are stored as the copies decoded from requests, so nothing a caller does to its
+ * own device objects reaches a shard, whether the shard runs in the same JVM or on another node.
+ * </p>
+ * <p>
+ * Partitions are concurrent maps, so requests from several connections run at the same time. While the registry
+ * moves a partition to another shard, it reads the partition with COPY and only removes it with DROP once the new
+ * owner has acknowledged its copy. A partition is not written while it moves, so the pages of a COPY, which skip by
+ * position, see the same iteration order.
+ * </p>
+ * <p>
+ * PADS_BY_OS pages skip by position too. A query is not a snapshot of the shard: an IPad put or removed while its
+ * partition is being paged may be missed or returned twice, as a device moving between shards may be for any query.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class FleetShard
+{
+    private final ConcurrentHashMap<Integer, ConcurrentHashMap<String, IDevice>> partitions;
+
+    /**
+     * Constructor for FleetShard with no devices.
+     */
+    public FleetShard()
+    {
+        this.partitions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Runs one request.
+     *
+     * @param request is the encoded request.
+     *
+     * @return the encoded response; a request that fails returns an error response instead of throwing.
+     */
+    public byte[] handle(final byte[] request)
+    {
+        final DataInputStream       in;
+        final ByteArrayOutputStream bytes;
+        final DataOutputStream      out;
+
+        in    = new DataInputStream(new ByteArrayInputStream(request));
+        bytes = new ByteArrayOutputStream();
+        out   = new DataOutputStream(bytes);
+
+        try
+        {
+            out.writeByte(ShardProtocol.OK);
+
+            switch(in.readByte())
+            {
+                case ShardProtocol.PUT:
+                    this.put(in);
+                    break;
+                case ShardProtocol.GET:
+                    this.get(in, out);
+                    break;
+                case ShardProtocol.REMOVE:
+                    this.remove(in, out);
+                    break;
+                case ShardProtocol.COPY:
+                    this.copy(in, out);
+                    break;
+                case ShardProtocol.SIZE:
+                    out.writeLong(this.size());
+                    break;
+                case ShardProtocol.CARRIER_COUNTS:
+                    this.carrierCounts(out);
+                    break;
+                case ShardProtocol.PADS_BY_OS:
+                    this.padsByOpSystemVersion(in, out);
+                    break;
+                case ShardProtocol.DROP:
+                    this.drop(in, out);
+                    break;
+                default:
+                    throw new IOException("Unknown request " + request[0]);
+            }
+
+            out.flush();
+        }
+        catch(final IOException | RuntimeException e)
+        {
+            return ShardProtocol.error(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Getter for the number of devices held by this shard.
+     *
+     * @return the number of devices as a long.
+     */
+    public long size()
+    {
+        long size;
+        size = 0L;
+
+        for(final Map<String, IDevice> partition : this.partitions.values())
+        {
+            size += partition.size();
+        }
+
+        return size;
+    }
+
+    /*
+     * Stores a batch of devices, replacing any held under the same keys.
+     */
+    private void put(final DataInputStream in) throws IOException
+    {
+        final int count;
+        count = in.readInt();
+
+        for(int i = 0; i < count; i++)
+        {
+            final Map<String, IDevice> partition;
+            partition = this.partitions.computeIfAbsent(in.readInt(), p -> new ConcurrentHashMap<>());
+
+            partition.put(in.readUTF(), ShardProtocol.readDevice(in));
+        }
+    }
+
+    /*
+     * Writes the device held under a key, if any.
+     */
+    private void get(final DataInputStream in, final DataOutputStream out) throws IOException
+    {
+        final Map<String, IDevice> partition;
+        final String               key;
+        final IDevice              device;
+
+        partition = this.partitions.get(in.readInt());
+        key       = in.readUTF();
+        device    = partition == null ? null : partition.get(key);
+
+        out.writeBoolean(device != null);
+
+        if(device != null)
+        {
+            ShardProtocol.writeDevice(out, device);
+        }
+    }
+
+    /*
+     * Removes the device held under a key.
+     */
+    private void remove(final DataInputStream in, final DataOutputStream out) throws IOException
+    {
+        final Map<String, IDevice> partition;
+        final String               key;
+
+        partition = this.partitions.get(in.readInt());
+        key       = in.readUTF();
+
+        out.writeBoolean(partition != null && partition.remove(key) != null);
+    }
+
+    /*
+     * Writes one page of a partition's devices and keeps them, so the registry can hand a copy to the partition's new
+     * owner.
+     */
+    private void copy(final DataInputStream in, final DataOutputStream out) throws IOException
+    {
+        final Map<String, IDevice> partition;
+        final int                  skip;
+        final Page                 page;
+        boolean                    more;
+
+        partition = this.partitions.get(in.readInt());
+        skip      = in.readInt();
+        page      = new Page();
+        more      = false;
+
+        if(partition != null)
+        {
+            int index;
+            index = 0;
+
+            for(final Map.Entry<String, IDevice> entry : partition.entrySet())
+            {
+                if(page.isFull())
+                {
+                    more = true;
+                    break;
+                }
+
+                if(index++ >= skip)
+                {
+                    page.out.writeUTF(entry.getKey());
+                    page.add(entry.getValue());
+                }
+            }
+        }
+
+        page.writeTo(out);
+        out.writeBoolean(more);
+    }
+
+    /*
+     * Removes a whole partition and writes how many devices it held.
+     */
+    private void drop(final DataInputStream in, final DataOutputStream out) throws IOException
+    {
+        final Map<String, IDevice> partition;
+        partition = this.partitions.remove(in.readInt());
+
+        out.writeInt(partition == null ? 0 : partition.size());
+    }
+
+    /*
+     * Writes the number of IPhones and IPhone16s per carrier.
+     */
+    private void carrierCounts(final DataOutputStream out) throws IOException
+    {
+        final Map<String, Long> counts;
+        counts = new HashMap<>();
+
+        for(final Map<String, IDevice> partition : this.partitions.values())
+        {
+            for(final IDevice device : partition.values())
+            {
+                final DeviceType type;
+                type = device.getType();
+
+                if(type == DeviceType.IPHONE || type == DeviceType.IPHONE16)
+                {
+                    counts.merge(((IPhone) device).getCarrier(), 1L, Long::sum);
+                }
+            }
+        }
+
+        out.writeInt(counts.size());
+
+        for(final Map.Entry<String, Long> entry : counts.entrySet())
+        {
+            ShardProtocol.writeString(out, entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /*
+     * Writes one page of the IPads held here, from a cursor over the partitions in ascending order; the registry groups
+     * them by operating system version.
+     */
+    private void padsByOpSystemVersion(final DataInputStream in, final DataOutputStream out) throws IOException
+    {
+        final int           first;
+        final int           skip;
+        final List<Integer> numbers;
+        final Page          page;
+
+        first   = in.readInt();
+        skip    = in.readInt();
+        numbers = new ArrayList<>(this.partitions.keySet());
+        page    = new Page();
+
+        Collections.sort(numbers);
+
+        for(final int number : numbers)
+        {
+            final Map<String, IDevice> partition;
+            int                        index;
+
+            partition = this.partitions.get(number);
+            index     = 0;
+
+            if(number < first || partition == null)
+            {
+                continue;
+            }
+
+            for(final IDevice device : partition.values())
+            {
+                if(page.isFull())
+                {
+                    page.writeTo(out);
+                    out.writeBoolean(true);
+                    out.writeInt(number);
+                    out.writeInt(index);
+                    return;
+                }
+
+                if((number > first || index >= skip) && device.getType() == DeviceType.IPAD)
+                {
+                    page.add(device);
+                }
+
+                index++;
+            }
+        }
+
+        page.writeTo(out);
+        out.writeBoolean(false);
+    }
+
+    /*
+     * The entries of one response page, counted as they are written and closed once they pass PAGE_BYTES.
+     */
+    private static final class Page
+    {
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream      out;
+        private int                         count;
+
+        private Page()
+        {
+            this.bytes = new ByteArrayOutputStream();
+            this.out   = new DataOutputStream(this.bytes);
+        }
+
+        private void add(final IDevice device) throws IOException
+        {
+            ShardProtocol.writeDevice(this.out, device);
+            this.count++;
+        }
+
+        private boolean isFull()
+        {
+            return this.bytes.size() >= ShardProtocol.PAGE_BYTES;
+        }
+
+        private void writeTo(final DataOutputStream response) throws IOException
+        {
+            response.writeInt(this.count);
+            this.bytes.writeTo(response);
+        }
+    }
+}
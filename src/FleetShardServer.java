@@ -0,0 +1,209 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a FleetShard to SocketTransports on other nodes.
+ * <p>
+ * An accept thread hands every connection to its own daemon thread, which reads request frames, runs them on the
+ * shard and writes back the responses in order. Connections run concurrently against the shard.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class FleetShardServer implements Closeable
+{
+    static final long ACCEPT_RETRY_MILLIS = 100;
+
+    private final FleetShard   shard;
+    private final ServerSocket server;
+    private final Set<Socket>  connections;
+    private final Thread       acceptor;
+
+    /**
+     * Constructor for FleetShardServer; starts accepting connections.
+     *
+     * @param shard   is the shard to be served.
+     * @param address is the address to listen on; port 0 picks a free port.
+     *
+     * @throws IOException if the address cannot be bound.
+     */
+    public FleetShardServer(final FleetShard shard, final InetSocketAddress address) throws IOException
+    {
+        if(shard == null || address == null)
+        {
+            throw new IllegalArgumentException("Shard and address must not be null");
+        }
+
+        this.shard       = shard;
+        this.server      = new ServerSocket();
+        this.connections = ConcurrentHashMap.newKeySet();
+
+        try
+        {
+            this.server.bind(address);
+        }
+        catch(final IOException e)
+        {
+            this.server.close();
+            throw e;
+        }
+
+        this.acceptor = new Thread(this::accept, "FleetShardServer-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    /**
+     * Getter for the address the server listens on.
+     *
+     * @return the bound address as an InetSocketAddress.
+     */
+    public InetSocketAddress getAddress()
+    {
+        return (InetSocketAddress) this.server.getLocalSocketAddress();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones; the shard keeps its devices.
+     *
+     * @throws IOException if the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        this.server.close();
+
+        for(final Socket connection : this.connections)
+        {
+            connection.close();
+        }
+    }
+
+    /*
+     * Accepts connections until the server socket is closed.
+     */
+    private void accept()
+    {
+        while(!this.server.isClosed())
+        {
+            final Socket connection;
+            final Thread handler;
+
+            try
+            {
+                connection = this.server.accept();
+            }
+            catch(final IOException e)
+            {
+                if(this.server.isClosed())
+                {
+                    return;
+                }
+
+                // a failure that repeats, such as running out of file descriptors, must not spin the acceptor
+                pause();
+                continue;
+            }
+
+            try
+            {
+                connection.setTcpNoDelay(true);
+            }
+            catch(final IOException e)
+            {
+                closeQuietly(connection);
+                continue;
+            }
+
+            this.connections.add(connection);
+
+            // close may have run between accept and add, and would not have seen this connection
+            if(this.server.isClosed())
+            {
+                closeQuietly(connection);
+                return;
+            }
+
+            handler = new Thread(() -> this.serve(connection), "FleetShardServer-connection");
+            handler.setDaemon(true);
+            handler.start();
+        }
+    }
+
+    /*
+     * Waits before the next accept, keeping the thread's interrupt status.
+     */
+    private static void pause()
+    {
+        try
+        {
+            Thread.sleep(ACCEPT_RETRY_MILLIS);
+        }
+        catch(final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * Closes a connection that will not be served.
+     */
+    private static void closeQuietly(final Socket connection)
+    {
+        try
+        {
+            connection.close();
+        }
+        catch(final IOException e)
+        {
+            // nothing more can be done with it
+        }
+    }
+
+    /*
+     * Answers the requests of one connection until it is closed.
+     */
+    private void serve(final Socket connection)
+    {
+        try(connection)
+        {
+            final DataInputStream  in;
+            final DataOutputStream out;
+
+            in  = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            for(byte[] request = ShardProtocol.readFrame(in); request != null; request = ShardProtocol.readFrame(in))
+            {
+                byte[] response;
+                response = this.shard.handle(request);
+
+                // an answer too long for one frame is reported to the client, whose connection stays usable
+                if(response.length > ShardProtocol.MAX_FRAME_BYTES)
+                {
+                    response = ShardProtocol.error(new IOException("Response of " + response.length + " bytes exceeds " + ShardProtocol.MAX_FRAME_BYTES));
+                }
+
+                ShardProtocol.writeFrame(out, response);
+            }
+        }
+        catch(final IOException e)
+        {
+            // the client went away; its transport reports the failure
+        }
+        finally
+        {
+            this.connections.remove(connection);
+        }
+    }
+}
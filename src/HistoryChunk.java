@@ -0,0 +1,432 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A block of (timestamp, value) points compressed the way the Gorilla time-series store does.
+ * <p>
+ * The first point is stored in full. Every later timestamp is stored as the change in its delta from the previous
+ * one, which is zero for evenly spaced points and takes a single bit; every later value is XORed with the previous
+ * value, which is zero for an unchanged value and takes a single bit, and otherwise only the bits between the
+ * leading and trailing zeros are stored, reusing the previous window when they fit in it:
+ * </p>
+ * <pre>
+ * delta of delta   0                     '0'
+ *                  [-64, 63]             '10'   + 7 bits
+ *                  [-256, 255]           '110'  + 9 bits
+ *                  [-2048, 2047]         '1110' + 12 bits
+ *                  otherwise             '1111' + 64 bits
+ * value XOR        0                     '0'
+ *                  fits previous window  '10'   + the window's bits
+ *                  otherwise             '11'   + 5 bits leading zeros + 6 bits length (0 for 64) + the bits
+ * </pre>
+ * <p>
+ * A chunk is appended to until it holds CAPACITY points and is then sealed into a read-only ByteBuffer, on the heap
+ * or in a mapped file, which readers decode without locking. The summary fields let readers skip a chunk without
+ * decoding it. An open chunk is not thread-safe.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+final class HistoryChunk
+{
+    static final int CAPACITY = 512;
+
+    private long[]     words;
+    private ByteBuffer sealed;
+    private long       bits;
+    private int        count;
+    private long       firstTimestamp;
+    private long       lastTimestamp;
+    private long       lastDelta;
+    private long       lastValueBits;
+    private int        lastLeading;
+    private int        lastTrailing;
+
+    /**
+     * Constructor for an empty, open HistoryChunk.
+     */
+    HistoryChunk()
+    {
+        this.words        = new long[16];
+        this.lastLeading  = -1;
+        this.lastTrailing = -1;
+    }
+
+    /**
+     * Appends a point.
+     *
+     * @param timestamp is the time of the point; not before the last point's.
+     * @param value     is the value of the point.
+     */
+    void append(final long timestamp, final double value)
+    {
+        final long valueBits;
+        valueBits = Double.doubleToRawLongBits(value);
+
+        if(this.count == 0)
+        {
+            this.write(timestamp, 64);
+            this.write(valueBits, 64);
+
+            this.firstTimestamp = timestamp;
+        }
+        else
+        {
+            final long delta;
+            final long deltaOfDelta;
+
+            delta        = timestamp - this.lastTimestamp;
+            deltaOfDelta = delta - this.lastDelta;
+
+            if(deltaOfDelta == 0)
+            {
+                this.write(0b0, 1);
+            }
+            else if(deltaOfDelta >= -64 && deltaOfDelta <= 63)
+            {
+                this.write(0b10, 2);
+                this.write(deltaOfDelta, 7);
+            }
+            else if(deltaOfDelta >= -256 && deltaOfDelta <= 255)
+            {
+                this.write(0b110, 3);
+                this.write(deltaOfDelta, 9);
+            }
+            else if(deltaOfDelta >= -2048 && deltaOfDelta <= 2047)
+            {
+                this.write(0b1110, 4);
+                this.write(deltaOfDelta, 12);
+            }
+            else
+            {
+                this.write(0b1111, 4);
+                this.write(deltaOfDelta, 64);
+            }
+
+            this.lastDelta = delta;
+            this.writeValue(valueBits ^ this.lastValueBits);
+        }
+
+        this.lastTimestamp = timestamp;
+        this.lastValueBits = valueBits;
+        this.count++;
+    }
+
+    /**
+     * Seals the chunk: its bits are copied into a buffer and it takes no more points.
+     *
+     * @param into is a big-endian buffer with at least encodedBytes() bytes remaining, or null for a new heap buffer.
+     */
+    void seal(final ByteBuffer into)
+    {
+        final int        length;
+        final ByteBuffer target;
+
+        length = this.encodedBytes();
+        target = into == null ? ByteBuffer.allocate(length) : into.slice().limit(length);
+
+        target.order(ByteOrder.BIG_ENDIAN);
+
+        for(int i = 0; i < length / Long.BYTES; i++)
+        {
+            target.putLong(i * Long.BYTES, this.words[i]);
+        }
+
+        if(into != null)
+        {
+            into.position(into.position() + length);
+        }
+
+        this.sealed = target.asReadOnlyBuffer();
+        this.words  = null;
+    }
+
+    /**
+     * Getter for whether the chunk is sealed.
+     *
+     * @return a boolean; true if the chunk is sealed, otherwise false.
+     */
+    boolean isSealed()
+    {
+        return this.sealed != null;
+    }
+
+    /**
+     * Getter for whether the chunk holds CAPACITY points.
+     *
+     * @return a boolean; true if the chunk is full, otherwise false.
+     */
+    boolean isFull()
+    {
+        return this.count >= CAPACITY;
+    }
+
+    /**
+     * Getter for the number of points.
+     *
+     * @return the number of points as an int.
+     */
+    int count()
+    {
+        return this.count;
+    }
+
+    /**
+     * Getter for the timestamp of the first point.
+     *
+     * @return the timestamp as a long.
+     */
+    long firstTimestamp()
+    {
+        return this.firstTimestamp;
+    }
+
+    /**
+     * Getter for the timestamp of the last point.
+     *
+     * @return the timestamp as a long.
+     */
+    long lastTimestamp()
+    {
+        return this.lastTimestamp;
+    }
+
+    /**
+     * Getter for the value of the last point.
+     *
+     * @return the value as a double.
+     */
+    double lastValue()
+    {
+        return Double.longBitsToDouble(this.lastValueBits);
+    }
+
+    /**
+     * Getter for the size of the encoded points, rounded up to whole longs.
+     *
+     * @return the number of bytes as an int.
+     */
+    int encodedBytes()
+    {
+        return this.sealed != null ? this.sealed.limit() : (int) ((this.bits + 63) >>> 6) * Long.BYTES;
+    }
+
+    /**
+     * Decodes the points from a timestamp, inclusive, to another, exclusive.
+     *
+     * @param from     is the first timestamp wanted.
+     * @param to       is the first timestamp not wanted.
+     * @param consumer is the consumer of the points, in time order.
+     *
+     * @return the number of points passed to the consumer.
+     */
+    int read(final long from, final long to, final DeviceHistory.PointConsumer consumer)
+    {
+        final Reader reader;
+        long         timestamp;
+        long         delta;
+        long         valueBits;
+        int          leading;
+        int          trailing;
+        int          delivered;
+
+        reader    = new Reader(this.sealed, this.words);
+        timestamp = reader.read(64);
+        valueBits = reader.read(64);
+        delta     = 0;
+        leading   = 0;
+        trailing  = 0;
+        delivered = 0;
+
+        for(int i = 0; i < this.count; i++)
+        {
+            if(i > 0)
+            {
+                final long deltaOfDelta;
+
+                if(reader.read(1) == 0)
+                {
+                    deltaOfDelta = 0;
+                }
+                else if(reader.read(1) == 0)
+                {
+                    deltaOfDelta = signed(reader.read(7), 7);
+                }
+                else if(reader.read(1) == 0)
+                {
+                    deltaOfDelta = signed(reader.read(9), 9);
+                }
+                else if(reader.read(1) == 0)
+                {
+                    deltaOfDelta = signed(reader.read(12), 12);
+                }
+                else
+                {
+                    deltaOfDelta = reader.read(64);
+                }
+
+                delta     += deltaOfDelta;
+                timestamp += delta;
+
+                if(reader.read(1) == 1)
+                {
+                    if(reader.read(1) == 1)
+                    {
+                        final int length;
+
+                        leading  = (int) reader.read(5);
+                        length   = (int) reader.read(6);
+                        trailing = 64 - leading - (length == 0 ? 64 : length);
+                    }
+
+                    valueBits ^= reader.read(64 - leading - trailing) << trailing;
+                }
+            }
+
+            if(timestamp >= to)
+            {
+                break;
+            }
+
+            if(timestamp >= from)
+            {
+                consumer.accept(timestamp, Double.longBitsToDouble(valueBits));
+                delivered++;
+            }
+        }
+
+        return delivered;
+    }
+
+    /*
+     * Writes a changed value's XOR, reusing the previous window of meaningful bits when it fits.
+     */
+    private void writeValue(final long xor)
+    {
+        if(xor == 0)
+        {
+            this.write(0b0, 1);
+            return;
+        }
+
+        final int leading;
+        final int trailing;
+
+        // 5 bits hold at most 31 leading zeros
+        leading  = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        trailing = Long.numberOfTrailingZeros(xor);
+
+        if(this.lastLeading >= 0 && leading >= this.lastLeading && trailing >= this.lastTrailing)
+        {
+            this.write(0b10, 2);
+            this.write(xor >>> this.lastTrailing, 64 - this.lastLeading - this.lastTrailing);
+        }
+        else
+        {
+            final int length;
+            length = 64 - leading - trailing;
+
+            this.write(0b11, 2);
+            this.write(leading, 5);
+            this.write(length & 63, 6);
+            this.write(xor >>> trailing, length);
+
+            this.lastLeading  = leading;
+            this.lastTrailing = trailing;
+        }
+    }
+
+    /*
+     * Appends the low bits of a value, most significant first.
+     */
+    private void write(final long value, final int width)
+    {
+        final int  word;
+        final int  used;
+        final int  free;
+        final long masked;
+
+        if(this.words.length * 64L < this.bits + width)
+        {
+            this.words = Arrays.copyOf(this.words, this.words.length * 2);
+        }
+
+        word   = (int) (this.bits >>> 6);
+        used   = (int) (this.bits & 63);
+        free   = 64 - used;
+        masked = width == 64 ? value : value & ((1L << width) - 1);
+
+        if(width <= free)
+        {
+            this.words[word] |= masked << (free - width);
+        }
+        else
+        {
+            this.words[word]     |= masked >>> (width - free);
+            this.words[word + 1] |= masked << (64 - (width - free));
+        }
+
+        this.bits += width;
+    }
+
+    /*
+     * Sign-extends the low bits of a value.
+     */
+    private static long signed(final long value, final int width)
+    {
+        return (value << (64 - width)) >> (64 - width);
+    }
+
+    /*
+     * Reads bits from a sealed buffer or an open chunk's words, most significant first.
+     */
+    private static final class Reader
+    {
+        private final ByteBuffer buffer;
+        private final long[]     words;
+        private long             position;
+
+        private Reader(final ByteBuffer buffer, final long[] words)
+        {
+            this.buffer = buffer;
+            this.words  = words;
+        }
+
+        private long read(final int width)
+        {
+            final int  word;
+            final int  used;
+            final int  free;
+            final long value;
+
+            if(width == 0)
+            {
+                return 0;
+            }
+
+            word = (int) (this.position >>> 6);
+            used = (int) (this.position & 63);
+            free = 64 - used;
+
+            if(width <= free)
+            {
+                value = (this.word(word) << used) >>> (64 - width);
+            }
+            else
+            {
+                value = ((this.word(word) << used) >>> (64 - width)) | (this.word(word + 1) >>> (64 - (width - free)));
+            }
+
+            this.position += width;
+
+            return value;
+        }
+
+        private long word(final int index)
+        {
+            return this.buffer != null ? this.buffer.getLong(index * Long.BYTES) : this.words[index];
+        }
+    }
+}
@@ -1,21 +1,42 @@
+import java.util.Arrays;
+
 /**
  * Represents a device in the Apple ecosystem.
  * <p>
  * Its constructor sets up the device's purpose.
  * </p>
  * <p>
- * Provides getters for purpose, and overrides toString to print its instance variables.
+ * Provides getters for purpose, and overrides toString to print its instance variables. toString renders through
+ * appendTo, which child classes override to add their own details without building intermediate Strings.
+ * </p>
+ * <p>
+ * DeviceObservers registered with addObserver are told about every change made through the setters. Devices without
+ * observers skip the notification entirely.
+ * </p>
+ * <p>
+ * snapshot takes an immutable, thread-safe ImmutableDevice copy of the current values; thaw turns it back.
+ * </p>
+ * <p>
+ * toString, and equals, hashCode, printDetails and the setters of the child classes, are timed by DeviceMetrics when
+ * it is enabled with -Ddevice.metrics=true.
  * </p>
  * <p>
  * Provides abstract methods for printing details, equals, and hashcode.
  * </p>
+ * <p>
+ * IPhone, IPhone16, IPad and IPod, and their subclasses, carry a DeviceType tag that accept and DeviceType.of read
+ * instead of an instanceof chain. Other subclasses, fleet views included, have no tag.
+ * </p>
  *  * @author Neriyel Reyes
  *  * @author Yujin Jeong
  *  * @version 1.0
  */
 public abstract class IDevice
 {
-    private final String purpose;
+    private final String     purpose;
+    private final DeviceType type;
+
+    private volatile DeviceObserver[] observers;
 
     /**
      * Constructor for IDevice, called when its subclass is instantiated.
@@ -23,8 +44,20 @@ public abstract class IDevice
      * @param purpose is the device's purpose as a String.
      */
     public IDevice(final String purpose)
+    {
+        this(purpose, null);
+    }
+
+    /**
+     * Constructor for IPhone, IPad and IPod, which tag their instances.
+     *
+     * @param purpose is the device's purpose as a String.
+     * @param type    is the DeviceType of the subclass.
+     */
+    IDevice(final String purpose, final DeviceType type)
     {
         this.purpose = purpose;
+        this.type    = type;
     }
 
     /**
@@ -37,24 +70,237 @@ public abstract class IDevice
         return this.purpose;
     }
 
+    /**
+     * Getter for the type tag, which tells the concrete kind of device without an instanceof chain.
+     *
+     * @return the DeviceType, or null for a device that is not an IPhone, IPhone16, IPad or IPod.
+     */
+    public final DeviceType getType()
+    {
+        return this.type;
+    }
+
+    /**
+     * Calls the visitor method for this device's type.
+     * <p>
+     * Compares the type tag with the DeviceType constants rather than switching on it: in tests/DispatchBenchmark, a
+     * per-device enum switch, which goes through an ordinal lookup table, measured slower than the instanceof chain it
+     * was meant to replace. The tags are exclusive, so unlike the chain the order of the tests does not matter.
+     * </p>
+     *
+     * @param visitor is the DeviceVisitor to be called.
+     * @param <R>     is the type of the result.
+     *
+     * @return the result of the visitor method.
+     *
+     * @throws IllegalArgumentException if this device has no type tag and does not override accept.
+     */
+    public <R> R accept(final DeviceVisitor<R> visitor)
+    {
+        final DeviceType tag;
+        tag = this.type;
+
+        if(tag == null)
+        {
+            throw new IllegalArgumentException("Unsupported device: " + this);
+        }
+
+        if(tag == DeviceType.IPHONE)
+        {
+            return visitor.visitIPhone((IPhone) this);
+        }
+
+        if(tag == DeviceType.IPHONE16)
+        {
+            return visitor.visitIPhone16((IPhone16) this);
+        }
+
+        if(tag == DeviceType.IPAD)
+        {
+            return visitor.visitIPad((IPad) this);
+        }
+
+        return visitor.visitIPod((IPod) this);
+    }
+
+    /**
+     * Registers an observer of this IDevice's field changes.
+     *
+     * @param observer is the DeviceObserver to be notified.
+     */
+    public final synchronized void addObserver(final DeviceObserver observer)
+    {
+        final DeviceObserver[] current;
+        final DeviceObserver[] next;
+
+        current = this.observers;
+
+        if(current == null)
+        {
+            next = new DeviceObserver[] {observer};
+        }
+        else
+        {
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = observer;
+        }
+
+        this.observers = next;
+    }
+
+    /**
+     * Unregisters an observer of this IDevice's field changes.
+     *
+     * @param observer is the DeviceObserver to be removed.
+     *
+     * @return a boolean; true if the observer was registered, otherwise false.
+     */
+    public final synchronized boolean removeObserver(final DeviceObserver observer)
+    {
+        final DeviceObserver[] current;
+        current = this.observers;
+
+        if(current == null)
+        {
+            return false;
+        }
+
+        for(int i = 0; i < current.length; i++)
+        {
+            if(current[i] == observer)
+            {
+                final DeviceObserver[] next;
+                next = new DeviceObserver[current.length - 1];
+
+                System.arraycopy(current, 0, next, 0, i);
+                System.arraycopy(current, i + 1, next, i, next.length - i);
+
+                this.observers = next.length == 0 ? null : next;
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether any observer is registered; setters skip notification work when there is none.
+     *
+     * @return a boolean; true if the IDevice has observers, otherwise false.
+     */
+    protected final boolean isObserved()
+    {
+        return this.observers != null;
+    }
+
+    /**
+     * Notifies the observers of a numeric field change.
+     *
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    protected final void fireNumberChanged(final DeviceField field, final double oldValue, final double newValue)
+    {
+        final DeviceObserver[] current;
+        current = this.observers;
+
+        if(current != null)
+        {
+            for(final DeviceObserver observer : current)
+            {
+                observer.numberChanged(this, field, oldValue, newValue);
+            }
+        }
+    }
+
+    /**
+     * Notifies the observers of a text field change.
+     *
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    protected final void fireTextChanged(final DeviceField field, final String oldValue, final String newValue)
+    {
+        final DeviceObserver[] current;
+        current = this.observers;
+
+        if(current != null)
+        {
+            for(final DeviceObserver observer : current)
+            {
+                observer.textChanged(this, field, oldValue, newValue);
+            }
+        }
+    }
+
     /**
      * Abstract method for printing the child classes' details.
      */
     public abstract void printDetails();
 
     /**
-     * Override's the toString method; returns the IDevice's purpose as a String.
+     * Takes an immutable copy of the IDevice's current values.
      *
-     * @return the device's purpose as a String.
+     * @return the ImmutableDevice.
+     */
+    public abstract ImmutableDevice snapshot();
+
+    /**
+     * Appends the same text toString returns.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        return this.appendPurposeTo(sb);
+    }
+
+    /**
+     * Appends the same text printDetails prints, without the trailing line separator.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    public StringBuilder appendDetailsTo(final StringBuilder sb)
+    {
+        return this.appendTo(sb);
+    }
+
+    /**
+     * Appends the line describing the IDevice's purpose.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    protected final StringBuilder appendPurposeTo(final StringBuilder sb)
+    {
+        return DeviceFormat.appendPurpose(sb, this.purpose);
+    }
+
+    /**
+     * Override's the toString method; returns the IDevice's details as a String.
+     *
+     * @return the device's details as a String.
      */
     @Override
     public String toString()
     {
-        final String purpose;
+        final long   start;
+        final String text;
+
+        start = DeviceMetrics.start();
+        text  = this.appendTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)).toString();
 
-        purpose = this.purpose;
+        DeviceMetrics.record(this, DeviceMetrics.Op.TO_STRING, start);
 
-        return String.format("The purpose of this IDevice is %s.\n", purpose);
+        return text;
     }
 
     /**
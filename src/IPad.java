@@ -1,21 +1,23 @@
-import java.util.Objects;
-
 /**
  * IPad is a child of IDevice.
  * <p>
  * Its purpose is "learning".
  * </p>
  * <p>
- * Provides getters for whether it has a case, and its current operating system version. Overrides the toString method to print additional information (contains a case and OS version).
+ * Provides getters for whether it has a case, and its current operating system version. Overrides appendTo, which toString renders through, to print additional information (contains a case and OS version).
+ * </p>
+ * <p>
+ * Overrides the equals and hashcode methods. IPads are equal if they have the same OS version, ignoring case.
  * </p>
  * <p>
- * Overrides the equals and hashcode methods. IPads are equal if they have the same OS version.
+ * OS versions are interned in the shared OsVersionTable, so tablets on the same version share one String, and equals
+ * and hashCode compare the version's case-insensitive id and case-folded hash.
  * </p>
  */
 public class IPad extends IDevice
 {
-    private boolean hasCase;
-    private String  opSystemVersion;
+    private boolean                hasCase;
+    private OsVersionTable.Version opSystemVersion;
 
     final static String IPAD_PURPOSE = "learning";
 
@@ -27,10 +29,10 @@ public class IPad extends IDevice
      */
     public IPad(final boolean hasCase, final String os)
     {
-        super(IPAD_PURPOSE);
+        super(IPAD_PURPOSE, DeviceType.IPAD);
 
         this.hasCase         = hasCase;
-        this.opSystemVersion = os;
+        this.opSystemVersion = OsVersionTable.shared().intern(os);
     }
 
     /**
@@ -47,6 +49,15 @@ public class IPad extends IDevice
      * @return the operating system version as a String.
      */
     final public String getOpSystemVersion()
+    {
+        return this.opSystemVersion.getSpelling();
+    }
+
+    /**
+     * Getter for the interned operating system version.
+     * @return the operating system version as an OsVersionTable.Version.
+     */
+    final public OsVersionTable.Version getOsVersion()
     {
         return this.opSystemVersion;
     }
@@ -57,7 +68,20 @@ public class IPad extends IDevice
      */
     final public void setHasCase(final boolean x)
     {
+        final long start;
+        start = DeviceMetrics.start();
+
+        final boolean old;
+        old = this.hasCase;
+
         this.hasCase = x;
+
+        if(this.isObserved())
+        {
+            this.fireNumberChanged(DeviceField.HAS_CASE, old ? 1.0 : 0.0, x ? 1.0 : 0.0);
+        }
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.SET_HAS_CASE, start);
     }
 
     /**
@@ -66,7 +90,30 @@ public class IPad extends IDevice
      */
     final public void setOpSystemVersion(final String os)
     {
-        this.opSystemVersion = os;
+        final long start;
+        start = DeviceMetrics.start();
+
+        final OsVersionTable.Version old;
+        old = this.opSystemVersion;
+
+        this.opSystemVersion = OsVersionTable.shared().intern(os);
+
+        if(this.isObserved())
+        {
+            this.fireTextChanged(DeviceField.OP_SYSTEM_VERSION, old.getSpelling(), this.opSystemVersion.getSpelling());
+        }
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.SET_OP_SYSTEM_VERSION, start);
+    }
+
+    /**
+     * Takes an immutable copy of the IPad's current values.
+     * @return the IPadSnapshot.
+     */
+    @Override
+    public IPadSnapshot snapshot()
+    {
+        return new IPadSnapshot(this.hasCase, this.opSystemVersion);
     }
 
     /**
@@ -74,31 +121,25 @@ public class IPad extends IDevice
      */
     final public void printDetails()
     {
-        final String  purpose;
-        final boolean hasCase;
-        final String  os;
+        final long start;
+        start = DeviceMetrics.start();
 
-        purpose = this.getPurpose();
-        hasCase = this.hasCase;
-        os      = this.opSystemVersion;
+        System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
 
-        System.out.println(String.format("The purpose of this IDevice is %s.\nThis device has a case: %b.\nThe current operating system version is %s.\n", purpose, hasCase, os));
+        DeviceMetrics.record(this, DeviceMetrics.Op.PRINT_DETAILS, start);
     }
 
     /**
-     * Returns the IPad's details as a String.
-     * @return the IPad's details as a String.
+     * Appends the IPad's details as returned by toString.
+     * @param sb is the StringBuilder to be appended to.
+     * @return the StringBuilder.
      */
     @Override
-    public String toString()
+    public StringBuilder appendTo(final StringBuilder sb)
     {
-        final boolean hasCase;
-        final String  os;
-
-        hasCase = this.hasCase;
-        os      = this.opSystemVersion;
+        super.appendTo(sb);
 
-        return super.toString() + String.format("This device has a case: %b.\nThe current operating system version is %s.\n", hasCase, os);
+        return DeviceFormat.appendPadFields(sb, this.hasCase, this.opSystemVersion.getSpelling());
     }
 
     /**
@@ -108,6 +149,22 @@ public class IPad extends IDevice
      */
     @Override
     public boolean equals(Object o)
+    {
+        final long    start;
+        final boolean equal;
+
+        start = DeviceMetrics.start();
+        equal = this.isEqualTo(o);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.EQUALS, start);
+
+        return equal;
+    }
+
+    /*
+     * Compares with another object; the untimed body of equals.
+     */
+    private boolean isEqualTo(final Object o)
     {
         // if null object return false
         if(o == null)
@@ -131,7 +188,8 @@ public class IPad extends IDevice
         final IPad that;
         that = (IPad) o;
 
-        return this.opSystemVersion.equalsIgnoreCase(that.opSystemVersion);
+        // versions that are equalsIgnoreCase to each other share one id
+        return this.opSystemVersion.getId() == that.opSystemVersion.getId();
     }
 
     /**
@@ -142,8 +200,17 @@ public class IPad extends IDevice
     @Override
     public int hashCode()
     {
-        // FYI: for equal IPad objects, returns identical hashcode
-        return Objects.hashCode(opSystemVersion);
+        final long start;
+        final int  hash;
+
+        start = DeviceMetrics.start();
+
+        // FYI: for equal IPad objects, returns identical hashcode because it ignores case like equals
+        hash  = this.opSystemVersion.getFoldedHash();
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.HASH_CODE, start);
+
+        return hash;
     }
 
 }
@@ -0,0 +1,130 @@
+/**
+ * An immutable snapshot of an IPad.
+ * <p>
+ * Equal to other IPadSnapshots on the same operating system version ignoring case, like IPad. The version stays
+ * interned in the shared OsVersionTable, so equality compares ints.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class IPadSnapshot extends ImmutableDevice
+{
+    private final boolean                hasCase;
+    private final OsVersionTable.Version opSystemVersion;
+
+    /**
+     * Constructor for IPadSnapshot.
+     *
+     * @param hasCase is a boolean; true if the IPad has a case, otherwise false.
+     * @param os      is the operating system version as a String.
+     */
+    public IPadSnapshot(final boolean hasCase, final String os)
+    {
+        this(hasCase, OsVersionTable.shared().intern(os));
+    }
+
+    /**
+     * Constructor for IPadSnapshot with an already interned version.
+     *
+     * @param hasCase is a boolean; true if the IPad has a case, otherwise false.
+     * @param version is the interned operating system version.
+     */
+    IPadSnapshot(final boolean hasCase, final OsVersionTable.Version version)
+    {
+        super(IPad.IPAD_PURPOSE);
+
+        this.hasCase         = hasCase;
+        this.opSystemVersion = version;
+    }
+
+    /**
+     * Getter for whether the IPad has a case.
+     *
+     * @return a boolean; true if has a case, otherwise false.
+     */
+    public boolean getHasCase()
+    {
+        return this.hasCase;
+    }
+
+    /**
+     * Getter for operating system version.
+     *
+     * @return the operating system version as a String.
+     */
+    public String getOpSystemVersion()
+    {
+        return this.opSystemVersion.getSpelling();
+    }
+
+    /**
+     * Getter for the interned operating system version.
+     *
+     * @return the operating system version as an OsVersionTable.Version.
+     */
+    public OsVersionTable.Version getOsVersion()
+    {
+        return this.opSystemVersion;
+    }
+
+    /**
+     * Builds a new IPad holding the same values.
+     *
+     * @return a new IPad.
+     */
+    @Override
+    public IPad thaw()
+    {
+        return new IPad(this.hasCase, this.opSystemVersion.getSpelling());
+    }
+
+    /**
+     * Appends the IPad's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
+
+        return DeviceFormat.appendPadFields(sb, this.hasCase, this.opSystemVersion.getSpelling());
+    }
+
+    /**
+     * IPadSnapshots are equal if they have some operating system version, ignoring case.
+     *
+     * @param o is the IPadSnapshot object to be compared to.
+     *
+     * @return a boolean; true if equal otherwise false.
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if(o == this)
+        {
+            return true;
+        }
+
+        if(!(o instanceof IPadSnapshot))
+        {
+            return false;
+        }
+
+        return this.opSystemVersion.getId() == ((IPadSnapshot) o).opSystemVersion.getId();
+    }
+
+    /**
+     * Returns the case-folded hash of the version, precomputed when it was interned.
+     *
+     * @return a hashcode as an int.
+     */
+    @Override
+    public int hashCode()
+    {
+        return this.opSystemVersion.getFoldedHash();
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * An inverted index from operating system version to the IPads running it.
+ * <p>
+ * Buckets are addressed directly by the case-insensitive version id from the shared OsVersionTable, so "all IPads on
+ * version X" is an array lookup instead of a scan, and "iPadOS 15" finds tablets on "IPADOS 15" too.
+ * </p>
+ * <p>
+ * Tablets are tracked by identity. Call update after setOpSystemVersion to move a tablet to its new bucket.
+ * Removal swaps the last tablet of a bucket into the hole, so it is O(1) and bucket order is not preserved.
+ * Not thread-safe.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class IPadVersionIndex
+{
+    private final ArrayList<ArrayList<IPad>>   buckets;
+    private final IdentityHashMap<IPad, int[]> positions;
+
+    /**
+     * Constructor for an empty IPadVersionIndex.
+     */
+    public IPadVersionIndex()
+    {
+        this.buckets   = new ArrayList<>();
+        this.positions = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds a tablet under its current version.
+     *
+     * @param pad is the IPad to be added.
+     *
+     * @return a boolean; true if the tablet was added, false if it was already indexed.
+     */
+    public boolean add(final IPad pad)
+    {
+        if(this.positions.containsKey(pad))
+        {
+            return false;
+        }
+
+        this.insert(pad, pad.getOsVersion().getId());
+
+        return true;
+    }
+
+    /**
+     * Removes a tablet.
+     *
+     * @param pad is the IPad to be removed.
+     *
+     * @return a boolean; true if the tablet was indexed, otherwise false.
+     */
+    public boolean remove(final IPad pad)
+    {
+        final int[] position;
+        position = this.positions.remove(pad);
+
+        if(position == null)
+        {
+            return false;
+        }
+
+        final ArrayList<IPad> bucket;
+        final IPad            last;
+
+        bucket = this.buckets.get(position[0]);
+        last   = bucket.remove(bucket.size() - 1);
+
+        if(last != pad)
+        {
+            bucket.set(position[1], last);
+            this.positions.get(last)[1] = position[1];
+        }
+
+        return true;
+    }
+
+    /**
+     * Moves a tablet to the bucket of its current version, adding it if it is not indexed.
+     *
+     * @param pad is the IPad whose version may have changed.
+     */
+    public void update(final IPad pad)
+    {
+        final int[] position;
+        position = this.positions.get(pad);
+
+        if(position != null && position[0] == pad.getOsVersion().getId())
+        {
+            return;
+        }
+
+        this.remove(pad);
+        this.insert(pad, pad.getOsVersion().getId());
+    }
+
+    /**
+     * Returns every indexed tablet on a version, ignoring case.
+     *
+     * @param os is the operating system version as a String, may be null.
+     *
+     * @return an unmodifiable view of the tablets on that version.
+     */
+    public List<IPad> withVersion(final String os)
+    {
+        final int id;
+        id = OsVersionTable.shared().idOf(os);
+
+        if(id < 0 || id >= this.buckets.size())
+        {
+            return Collections.emptyList();
+        }
+
+        return Collections.unmodifiableList(this.buckets.get(id));
+    }
+
+    /**
+     * Returns the number of indexed tablets on a version, ignoring case.
+     *
+     * @param os is the operating system version as a String, may be null.
+     *
+     * @return the number of tablets as an int.
+     */
+    public int count(final String os)
+    {
+        return this.withVersion(os).size();
+    }
+
+    /**
+     * Getter for the number of indexed tablets.
+     *
+     * @return the number of tablets as an int.
+     */
+    public int size()
+    {
+        return this.positions.size();
+    }
+
+    /*
+     * Appends a tablet to the bucket of a version id.
+     */
+    private void insert(final IPad pad, final int id)
+    {
+        while(this.buckets.size() <= id)
+        {
+            this.buckets.add(new ArrayList<>());
+        }
+
+        final ArrayList<IPad> bucket;
+        bucket = this.buckets.get(id);
+
+        this.positions.put(pad, new int[] {id, bucket.size()});
+        bucket.add(pad);
+    }
+}
@@ -1,3 +1,5 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 /**
@@ -6,7 +8,11 @@ import java.util.Objects;
  * Its purpose is "talking".
  * </p>
  * <p>
- * Provides getters for the minutes remaining on its plan, and its carrier. Overrides the toString method to print additional information (minutes remaining and carrier).
+ * Provides getters for the minutes remaining on its plan, and its carrier. Overrides appendTo, which toString renders through, to print additional information (minutes remaining and carrier).
+ * </p>
+ * <p>
+ * Minutes remaining can be debited and credited atomically from many threads. The updates compare-and-set the raw long
+ * bits of the double, so no update is lost and no lock is taken. Very hot accounts can use a StripedMinuteAccount.
  * </p>
  * <p>
  * Overrides the equals and hashcode methods. IPods are equal if they have the same number of minutes remaining.
@@ -14,12 +20,26 @@ import java.util.Objects;
  */
 public class IPhone extends IDevice
 {
-    private double minutesRemaining;
-    private String carrier;
+    private volatile double minutesRemaining;
+    private          String carrier;
 
     static final String IPHONE_PURPOSE = "talking";
     static final double EPSILON        = 0.000001;
 
+    private static final VarHandle MINUTES_REMAINING;
+
+    static
+    {
+        try
+        {
+            MINUTES_REMAINING = MethodHandles.lookup().findVarHandle(IPhone.class, "minutesRemaining", double.class);
+        }
+        catch(final ReflectiveOperationException e)
+        {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     /**
      * Constructor for IPhone.
      *
@@ -28,7 +48,19 @@ public class IPhone extends IDevice
      */
     public IPhone(final double mins, final String carrier)
     {
-        super(IPHONE_PURPOSE);
+        this(mins, carrier, DeviceType.IPHONE);
+    }
+
+    /**
+     * Constructor for IPhone and IPhone16.
+     *
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     * @param type    is the DeviceType of the phone.
+     */
+    IPhone(final double mins, final String carrier, final DeviceType type)
+    {
+        super(IPHONE_PURPOSE, type);
 
         this.minutesRemaining = mins;
         this.carrier          = carrier;
@@ -61,7 +93,120 @@ public class IPhone extends IDevice
      */
     public final void setMinutesRemaining(final double min)
     {
-        this.minutesRemaining = min;
+        final long start;
+        start = DeviceMetrics.start();
+
+        if(this.isObserved())
+        {
+            final double old;
+            old = (double) MINUTES_REMAINING.getAndSet(this, min);
+
+            this.fireNumberChanged(DeviceField.MINUTES_REMAINING, old, min);
+        }
+        else
+        {
+            this.minutesRemaining = min;
+        }
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.SET_MINUTES_REMAINING, start);
+    }
+
+    /**
+     * Atomically subtracts minutes from the minutes remaining.
+     *
+     * @param mins is the number of minutes used as a double.
+     *
+     * @return the minutes remaining after the debit.
+     */
+    public final double debitMinutes(final double mins)
+    {
+        while(true)
+        {
+            final double current;
+            final double next;
+
+            current = this.minutesRemaining;
+            next    = current - mins;
+
+            if(MINUTES_REMAINING.compareAndSet(this, current, next))
+            {
+                if(this.isObserved())
+                {
+                    this.fireNumberChanged(DeviceField.MINUTES_REMAINING, current, next);
+                }
+
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Atomically adds minutes to the minutes remaining.
+     *
+     * @param mins is the number of minutes added as a double.
+     *
+     * @return the minutes remaining after the credit.
+     */
+    public final double creditMinutes(final double mins)
+    {
+        return this.debitMinutes(-mins);
+    }
+
+    /**
+     * Atomically sets the minutes remaining if they are still the expected value.
+     * <p>
+     * Values are compared by their raw bits, so 0.0 and -0.0 differ and a NaN matches the same NaN.
+     * </p>
+     *
+     * @param expected is the minutes remaining the caller last saw.
+     * @param update   is the new number of minutes remaining.
+     *
+     * @return a boolean; true if the minutes were updated, otherwise false.
+     */
+    public final boolean compareAndSetMinutes(final double expected, final double update)
+    {
+        if(!MINUTES_REMAINING.compareAndSet(this, expected, update))
+        {
+            return false;
+        }
+
+        if(this.isObserved())
+        {
+            this.fireNumberChanged(DeviceField.MINUTES_REMAINING, expected, update);
+        }
+
+        return true;
+    }
+
+    /**
+     * Atomically subtracts minutes only if at least that many minutes remain.
+     *
+     * @param mins is the number of minutes used as a double.
+     *
+     * @return a boolean; true if the minutes were debited, false if too few minutes remain.
+     */
+    public final boolean debitMinutesIfSufficient(final double mins)
+    {
+        while(true)
+        {
+            final double current;
+            current = this.minutesRemaining;
+
+            if(!(current >= mins))
+            {
+                return false;
+            }
+
+            if(MINUTES_REMAINING.compareAndSet(this, current, current - mins))
+            {
+                if(this.isObserved())
+                {
+                    this.fireNumberChanged(DeviceField.MINUTES_REMAINING, current, current - mins);
+                }
+
+                return true;
+            }
+        }
     }
 
     /**
@@ -71,7 +216,31 @@ public class IPhone extends IDevice
      */
     public final void setCarrier(final String carrier)
     {
+        final long start;
+        start = DeviceMetrics.start();
+
+        final String old;
+        old = this.carrier;
+
         this.carrier = carrier;
+
+        if(this.isObserved())
+        {
+            this.fireTextChanged(DeviceField.CARRIER, old, carrier);
+        }
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.SET_CARRIER, start);
+    }
+
+    /**
+     * Takes an immutable copy of the IPhone's current values.
+     *
+     * @return the IPhoneSnapshot.
+     */
+    @Override
+    public IPhoneSnapshot snapshot()
+    {
+        return new IPhoneSnapshot(this.minutesRemaining, this.carrier);
     }
 
     /**
@@ -79,32 +248,42 @@ public class IPhone extends IDevice
      */
     final public void printDetails()
     {
-        final String purpose;
-        final double minsRemain;
-        final String carrier;
+        final long start;
+        start = DeviceMetrics.start();
 
-        purpose    = this.getPurpose();
-        minsRemain = this.minutesRemaining;
-        carrier    = this.carrier;
+        System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
 
-        System.out.println(String.format("The purpose of this IDevice is %s.\nThis device has %f minutes remaining.\nThe carrier is %s.\n", purpose, minsRemain, carrier));
+        DeviceMetrics.record(this, DeviceMetrics.Op.PRINT_DETAILS, start);
     }
 
     /**
-     * Returns the IPhone's details as a String.
+     * Appends the IPhone's details; IPhone16s print the same details as any IPhone.
+     *
+     * @param sb is the StringBuilder to be appended to.
      *
-     * @return the IPhone's details as a String.
+     * @return the StringBuilder.
      */
     @Override
-    public String toString()
+    public final StringBuilder appendDetailsTo(final StringBuilder sb)
     {
-        final double minsRemain;
-        final String carrier;
+        this.appendPurposeTo(sb);
 
-        minsRemain = this.minutesRemaining;
-        carrier    = this.carrier;
+        return DeviceFormat.appendPhoneFields(sb, this.minutesRemaining, this.carrier);
+    }
 
-        return super.toString() + String.format("This device has %f minutes remaining.\nThe carrier is %s.\n", minsRemain, carrier);
+    /**
+     * Appends the IPhone's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
+
+        return DeviceFormat.appendPhoneFields(sb, this.minutesRemaining, this.carrier);
     }
 
     /**
@@ -116,6 +295,22 @@ public class IPhone extends IDevice
      */
     @Override
     public boolean equals(Object o)
+    {
+        final long    start;
+        final boolean equal;
+
+        start = DeviceMetrics.start();
+        equal = this.isEqualTo(o);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.EQUALS, start);
+
+        return equal;
+    }
+
+    /*
+     * Compares with another object; the untimed body of equals.
+     */
+    private boolean isEqualTo(final Object o)
     {
 
         if(o == null)
@@ -147,7 +342,15 @@ public class IPhone extends IDevice
     @Override
     public int hashCode()
     {
-        return Double.hashCode(minutesRemaining);
+        final long start;
+        final int  hash;
+
+        start = DeviceMetrics.start();
+        hash  = Double.hashCode(this.minutesRemaining);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.HASH_CODE, start);
+
+        return hash;
     }
 }
 
@@ -6,7 +6,7 @@ import java.util.Objects;
  * Its purpose is "talking".
  * </p>
  * <p>
- * Provides getters for whether it has a high resolution camera, and its memory storage in GB. Overrides the toString method to print additional information (high res camera and memory space).
+ * Provides getters for whether it has a high resolution camera, and its memory storage in GB. Overrides appendTo, which toString renders through, to print additional information (high res camera and memory space).
  * </p>
  * <p>
  * Overrides the equals and hashcode methods. IPods are equal if they have the same camera resolution and same number of minutes remaining.
@@ -30,7 +30,7 @@ public class IPhone16 extends IPhone
      */
     public IPhone16(final double mins, final String carrier, final boolean cameraRes, final int memoryGB)
     {
-        super(mins, carrier);
+        super(mins, carrier, DeviceType.IPHONE16);
 
         this.highResCamera = cameraRes;
         this.memoryGB      = memoryGB;
@@ -57,20 +57,29 @@ public class IPhone16 extends IPhone
     }
 
     /**
-     * Returns the IPhone16's details as a String.
+     * Takes an immutable copy of the IPhone16's current values.
      *
-     * @return the IPhone16's details as a String.
+     * @return the IPhone16Snapshot.
      */
     @Override
-    public String toString()
+    public IPhone16Snapshot snapshot()
     {
-        final boolean cameraReso;
-        final int     memoryGB;
+        return new IPhone16Snapshot(this.getMinutesRemaining(), this.getCarrier(), this.highResCamera, this.memoryGB);
+    }
 
-        cameraReso = this.highResCamera;
-        memoryGB   = this.memoryGB;
+    /**
+     * Appends the IPhone16's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
 
-        return super.toString() + String.format("This device has a high resolution camera: %b\nThis device has %d GB of memory.", cameraReso, memoryGB);
+        return DeviceFormat.appendPhone16Fields(sb, this.highResCamera, this.memoryGB);
     }
 
     /**
@@ -82,6 +91,22 @@ public class IPhone16 extends IPhone
      */
     @Override
     public boolean equals(Object o)
+    {
+        final long    start;
+        final boolean equal;
+
+        start = DeviceMetrics.start();
+        equal = this.isEqualTo(o);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.EQUALS, start);
+
+        return equal;
+    }
+
+    /*
+     * Compares with another object; the untimed body of equals.
+     */
+    private boolean isEqualTo(final Object o)
     {
         if(o == null)
         {
@@ -118,6 +143,14 @@ public class IPhone16 extends IPhone
     @Override
     public int hashCode()
     {
-        return Objects.hashCode(this.getMinutesRemaining());
+        final long start;
+        final int  hash;
+
+        start = DeviceMetrics.start();
+        hash  = Objects.hashCode(this.getMinutesRemaining());
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.HASH_CODE, start);
+
+        return hash;
     }
 }
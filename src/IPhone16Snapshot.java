@@ -0,0 +1,104 @@
+/**
+ * An immutable snapshot of an IPhone16.
+ * <p>
+ * Equal to other IPhone16Snapshots with the same camera resolution and exactly the same number of minutes remaining,
+ * compared bit for bit like IPhoneSnapshot.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class IPhone16Snapshot extends IPhoneSnapshot
+{
+    private final boolean highResCamera;
+    private final int     memoryGB;
+
+    /**
+     * Constructor for IPhone16Snapshot.
+     *
+     * @param mins      is the number of minutes remaining as a double.
+     * @param carrier   is the carrier as a String.
+     * @param cameraRes is a boolean; true if high resolution camera, otherwise false.
+     * @param memoryGB  is the memory storage in GB as an int.
+     */
+    public IPhone16Snapshot(final double mins, final String carrier, final boolean cameraRes, final int memoryGB)
+    {
+        super(mins, carrier, Double.hashCode(mins));
+
+        this.highResCamera = cameraRes;
+        this.memoryGB      = memoryGB;
+    }
+
+    /**
+     * Getter for the high resolution camera feature.
+     *
+     * @return true if the device has a high resolution camera, false otherwise.
+     */
+    public boolean hasHighResCamera()
+    {
+        return this.highResCamera;
+    }
+
+    /**
+     * Getter for the memory storage of the device.
+     *
+     * @return the memory storage of the device in GB.
+     */
+    public int getMemoryGB()
+    {
+        return this.memoryGB;
+    }
+
+    /**
+     * Builds a new IPhone16 holding the same values.
+     *
+     * @return a new IPhone16.
+     */
+    @Override
+    public IPhone16 thaw()
+    {
+        return new IPhone16(this.getMinutesRemaining(), this.getCarrier(), this.highResCamera, this.memoryGB);
+    }
+
+    /**
+     * Appends the IPhone16's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
+
+        return DeviceFormat.appendPhone16Fields(sb, this.highResCamera, this.memoryGB);
+    }
+
+    /**
+     * IPhone16Snapshots are equal if they have the same camera resolution and exactly the same number of remaining minutes.
+     *
+     * @param o is the IPhone16Snapshot object to be compared to.
+     *
+     * @return a boolean; true if equal otherwise false.
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if(o == this)
+        {
+            return true;
+        }
+
+        if(!(o instanceof IPhone16Snapshot))
+        {
+            return false;
+        }
+
+        final IPhone16Snapshot that;
+        that = (IPhone16Snapshot) o;
+
+        return that.highResCamera == this.highResCamera
+            && Double.doubleToLongBits(this.getMinutesRemaining()) == Double.doubleToLongBits(that.getMinutesRemaining());
+    }
+}
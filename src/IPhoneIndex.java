@@ -0,0 +1,316 @@
+import java.util.Arrays;
+
+/**
+ * A hash index over IPhones and IPhone16s that agrees with their EPSILON-tolerant equals.
+ * <p>
+ * IPhone.hashCode hashes the exact minutes, so two phones within EPSILON of each other can land in different HashSet
+ * buckets even though equals says they are the same. This index instead quantizes minutes onto a grid of width
+ * 2 * EPSILON. Two equal phones are always in the same or adjacent grid cells, so a lookup probes three cells and
+ * then asks equals, giving the same answers as a linear scan in O(1) expected time.
+ * </p>
+ * <p>
+ * The final decision is always made by probe.equals(candidate), so the IPhone16 camera rule applies as well: an
+ * IPhone16 probe only matches IPhone16s with the same camera resolution, while an IPhone probe matches any phone.
+ * </p>
+ * <p>
+ * Like a HashSet, the minutes of an indexed phone must not change until it is removed. Not thread-safe.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ *
+ * @param <T> is IPhone or IPhone16.
+ */
+public class IPhoneIndex<T extends IPhone>
+{
+    static final double CELL_WIDTH = 2 * IPhone.EPSILON;
+
+    private static final int  INITIAL_CAPACITY = 16;
+    private static final long PHI              = 0x9E3779B97F4A7C15L;
+
+    private static final int NEVER_USED = 0;
+    private static final int DRAINED    = -1;
+
+    // open-addressed table from grid cell to the first entry in that cell (entry + 1), NEVER_USED or DRAINED
+    private long[] cells;
+    private int[]  heads;
+    private int    usedCells;
+
+    // entries chained per cell
+    private Object[] items;
+    private int[]    next;
+    private int      entryCount;
+    private int      freeEntry;
+    private int      size;
+
+    /**
+     * Constructor for an empty IPhoneIndex.
+     */
+    public IPhoneIndex()
+    {
+        this.cells     = new long[INITIAL_CAPACITY * 2];
+        this.heads     = new int[INITIAL_CAPACITY * 2];
+        this.items     = new Object[INITIAL_CAPACITY];
+        this.next      = new int[INITIAL_CAPACITY];
+        this.freeEntry = -1;
+    }
+
+    /**
+     * Returns the grid cell of a number of minutes.
+     *
+     * @param minutes is a number of minutes remaining.
+     *
+     * @return the grid cell as a long.
+     */
+    static long cellOf(final double minutes)
+    {
+        return (long) Math.floor(minutes / CELL_WIDTH);
+    }
+
+    /**
+     * Adds a phone, even if an equal phone is already indexed.
+     *
+     * @param phone is the phone to be added.
+     */
+    public void add(final T phone)
+    {
+        this.insert(phone, cellOf(phone.getMinutesRemaining()));
+    }
+
+    /**
+     * Adds a phone only if no equal phone is indexed.
+     *
+     * @param phone is the phone to be added.
+     *
+     * @return the already indexed phone equal to it, or null if the phone was added.
+     */
+    public T addIfAbsent(final T phone)
+    {
+        final T existing;
+        existing = this.find(phone);
+
+        if(existing == null)
+        {
+            this.add(phone);
+        }
+
+        return existing;
+    }
+
+    /**
+     * Finds an indexed phone that the probe is equal to.
+     *
+     * @param probe is the phone to be looked up.
+     *
+     * @return the first indexed phone for which probe.equals returns true, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public T find(final IPhone probe)
+    {
+        final long cell;
+        cell = cellOf(probe.getMinutesRemaining());
+
+        // counts the three cells instead of comparing with cell + 1, which overflows for saturated minutes
+        for(int offset = -1; offset <= 1; offset++)
+        {
+            int entry;
+            entry = firstEntry(this.heads[this.slotOf(cell + offset)]);
+
+            while(entry >= 0)
+            {
+                if(probe.equals(this.items[entry]))
+                {
+                    return (T) this.items[entry];
+                }
+
+                entry = this.next[entry];
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns whether an equal phone is indexed.
+     *
+     * @param probe is the phone to be looked up.
+     *
+     * @return a boolean; true if an equal phone is indexed, otherwise false.
+     */
+    public boolean contains(final IPhone probe)
+    {
+        return this.find(probe) != null;
+    }
+
+    /**
+     * Removes a phone, compared by identity.
+     *
+     * @param phone is the phone to be removed.
+     *
+     * @return a boolean; true if the phone was indexed, otherwise false.
+     */
+    public boolean remove(final T phone)
+    {
+        final int slot;
+        int       entry;
+        int       previous;
+
+        slot     = this.slotOf(cellOf(phone.getMinutesRemaining()));
+        entry    = firstEntry(this.heads[slot]);
+        previous = -1;
+
+        while(entry >= 0)
+        {
+            if(this.items[entry] == phone)
+            {
+                if(previous < 0)
+                {
+                    this.heads[slot] = this.next[entry] < 0 ? DRAINED : this.next[entry] + 1;
+                }
+                else
+                {
+                    this.next[previous] = this.next[entry];
+                }
+
+                this.items[entry] = null;
+                this.next[entry]  = this.freeEntry;
+                this.freeEntry    = entry;
+                this.size--;
+
+                return true;
+            }
+
+            previous = entry;
+            entry    = this.next[entry];
+        }
+
+        return false;
+    }
+
+    /**
+     * Getter for the number of indexed phones.
+     *
+     * @return the number of indexed phones as an int.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /*
+     * Links a phone into the chain of a grid cell.
+     */
+    private void insert(final T phone, final long cell)
+    {
+        final int entry;
+
+        if(this.freeEntry >= 0)
+        {
+            entry          = this.freeEntry;
+            this.freeEntry = this.next[entry];
+        }
+        else
+        {
+            if(this.entryCount == this.items.length)
+            {
+                this.items = Arrays.copyOf(this.items, this.entryCount * 2);
+                this.next  = Arrays.copyOf(this.next, this.entryCount * 2);
+            }
+
+            entry = this.entryCount++;
+        }
+
+        int slot;
+        slot = this.slotOf(cell);
+
+        if(this.heads[slot] == NEVER_USED)
+        {
+            this.cells[slot] = cell;
+            this.usedCells++;
+        }
+
+        this.items[entry] = phone;
+        this.next[entry]  = firstEntry(this.heads[slot]);
+        this.heads[slot]  = entry + 1;
+        this.size++;
+
+        if(this.usedCells * 2 > this.cells.length)
+        {
+            this.rehash();
+        }
+    }
+
+    /*
+     * Returns the slot holding a cell, or the never used slot where it would go.
+     * A slot whose chain drained keeps its cell so that probing past it still works.
+     */
+    private int slotOf(final long cell)
+    {
+        final int mask;
+        int       slot;
+
+        mask = this.cells.length - 1;
+        slot = (int) ((cell * PHI) >>> 32) & mask;
+
+        while(this.heads[slot] != NEVER_USED && this.cells[slot] != cell)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    /*
+     * Returns the first entry of a chain, or -1 if the chain is empty.
+     */
+    private static int firstEntry(final int head)
+    {
+        return head > 0 ? head - 1 : -1;
+    }
+
+    /*
+     * Rebuilds the cell table, dropping cells whose chains drained.
+     */
+    private void rehash()
+    {
+        final long[] oldCells;
+        final int[]  oldHeads;
+        int          live;
+
+        oldCells = this.cells;
+        oldHeads = this.heads;
+        live     = 0;
+
+        for(final int head : oldHeads)
+        {
+            if(head > 0)
+            {
+                live++;
+            }
+        }
+
+        int capacity;
+        capacity = INITIAL_CAPACITY * 2;
+
+        while(capacity < live * 4)
+        {
+            capacity *= 2;
+        }
+
+        this.cells     = new long[capacity];
+        this.heads     = new int[capacity];
+        this.usedCells = live;
+
+        for(int i = 0; i < oldCells.length; i++)
+        {
+            if(oldHeads[i] > 0)
+            {
+                final int slot;
+                slot = this.slotOf(oldCells[i]);
+
+                this.cells[slot] = oldCells[i];
+                this.heads[slot] = oldHeads[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * An immutable snapshot of an IPhone.
+ * <p>
+ * Equal to other IPhoneSnapshots with the same number of minutes remaining, like IPhone. IPhone16Snapshot extends it
+ * the way IPhone16 extends IPhone.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class IPhoneSnapshot extends ImmutableDevice
+{
+    private final double minutesRemaining;
+    private final String carrier;
+    private final int    hash;
+
+    /**
+     * Constructor for IPhoneSnapshot.
+     *
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     */
+    public IPhoneSnapshot(final double mins, final String carrier)
+    {
+        this(mins, carrier, Double.hashCode(mins));
+    }
+
+    /**
+     * Constructor for IPhoneSnapshot and IPhone16Snapshot with a precomputed hash.
+     *
+     * @param mins    is the number of minutes remaining as a double.
+     * @param carrier is the carrier as a String.
+     * @param hash    is the hashcode of the snapshot.
+     */
+    IPhoneSnapshot(final double mins, final String carrier, final int hash)
+    {
+        super(IPhone.IPHONE_PURPOSE);
+
+        this.minutesRemaining = mins;
+        this.carrier          = carrier;
+        this.hash             = hash;
+    }
+
+    /**
+     * Getter for the number of minutes remaining.
+     *
+     * @return the number of minutes remaining as a double.
+     */
+    public final double getMinutesRemaining()
+    {
+        return this.minutesRemaining;
+    }
+
+    /**
+     * Getter for the carrier.
+     *
+     * @return the carrier as a String.
+     */
+    public final String getCarrier()
+    {
+        return this.carrier;
+    }
+
+    /**
+     * Builds a new IPhone holding the same values.
+     *
+     * @return a new IPhone.
+     */
+    @Override
+    public IPhone thaw()
+    {
+        return new IPhone(this.minutesRemaining, this.carrier);
+    }
+
+    /**
+     * Appends the IPhone's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
+
+        return DeviceFormat.appendPhoneFields(sb, this.minutesRemaining, this.carrier);
+    }
+
+    /**
+     * IPhoneSnapshots are equal if they have exactly the same number of remaining minutes.
+     *
+     * @param o is the IPhoneSnapshot object to be compared to.
+     *
+     * @return a boolean; true if equal otherwise false.
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if(o == this)
+        {
+            return true;
+        }
+
+        if(!(o instanceof IPhoneSnapshot))
+        {
+            return false;
+        }
+
+        final IPhoneSnapshot that;
+        that = (IPhoneSnapshot) o;
+
+        return Double.doubleToLongBits(this.minutesRemaining) == Double.doubleToLongBits(that.minutesRemaining);
+    }
+
+    /**
+     * Returns the hashcode computed when the snapshot was taken.
+     *
+     * @return a hashcode as an int.
+     */
+    @Override
+    public final int hashCode()
+    {
+        return this.hash;
+    }
+}
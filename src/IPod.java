@@ -6,7 +6,7 @@ import java.util.Objects;
  * Its purpose is "music".
  * </p>
  * <p>
- * Provides getters for the number of songs currently stored, and its max volume in decibels. Overrides the toString method to print additional information (songs stored and max volume).
+ * Provides getters for the number of songs currently stored, and its max volume in decibels. Overrides appendTo, which toString renders through, to print additional information (songs stored and max volume).
  * </p>
  * <p>
  * Overrides the equals and hashcode methods. IPods are equal if they have the same number of songs stored.
@@ -27,7 +27,7 @@ public class IPod extends IDevice
      */
     public IPod(final int songs, final double maxVol)
     {
-        super(IPOD_PURPOSE);
+        super(IPOD_PURPOSE, DeviceType.IPOD);
 
         this.numSongsStored = songs;
         this.maxVolDecibels = maxVol;
@@ -60,7 +60,31 @@ public class IPod extends IDevice
      */
     final public void setNumSongsStored(final int num)
     {
+        final long start;
+        start = DeviceMetrics.start();
+
+        final int old;
+        old = this.numSongsStored;
+
         this.numSongsStored = num;
+
+        if(this.isObserved())
+        {
+            this.fireNumberChanged(DeviceField.NUM_SONGS_STORED, old, num);
+        }
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.SET_NUM_SONGS_STORED, start);
+    }
+
+    /**
+     * Takes an immutable copy of the IPod's current values.
+     *
+     * @return the IPodSnapshot.
+     */
+    @Override
+    public IPodSnapshot snapshot()
+    {
+        return new IPodSnapshot(this.numSongsStored, this.maxVolDecibels);
     }
 
     /**
@@ -68,32 +92,27 @@ public class IPod extends IDevice
      */
     final public void printDetails()
     {
-        final String purpose;
-        final int    songsStored;
-        final double maxVol;
+        final long start;
+        start = DeviceMetrics.start();
 
-        purpose     = this.getPurpose();
-        songsStored = this.numSongsStored;
-        maxVol      = this.maxVolDecibels;
+        System.out.println(this.appendDetailsTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)));
 
-        System.out.println(String.format("The purpose of this IDevice is %s.\nThe number of songs stored is %d.\nThe maximum volume in decibels is %f.\n", purpose, songsStored, maxVol));
+        DeviceMetrics.record(this, DeviceMetrics.Op.PRINT_DETAILS, start);
     }
 
     /**
-     * Returns the IPod object's details in a single String.
+     * Appends the IPod object's details as returned by toString.
      *
-     * @return the IPod's details as a String.
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
      */
     @Override
-    public String toString()
+    public StringBuilder appendTo(final StringBuilder sb)
     {
-        final int    songsStored;
-        final double maxVol;
-
-        songsStored = this.numSongsStored;
-        maxVol      = this.maxVolDecibels;
+        super.appendTo(sb);
 
-        return super.toString() + String.format("The number of songs stored is %d.\nThe maximum volume in decibels is %f.\n", songsStored, maxVol);
+        return DeviceFormat.appendPodFields(sb, this.numSongsStored, this.maxVolDecibels);
     }
 
     /**
@@ -103,6 +122,22 @@ public class IPod extends IDevice
      */
     @Override
     public boolean equals(Object o)
+    {
+        final long    start;
+        final boolean equal;
+
+        start = DeviceMetrics.start();
+        equal = this.isEqualTo(o);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.EQUALS, start);
+
+        return equal;
+    }
+
+    /*
+     * Compares with another object; the untimed body of equals.
+     */
+    private boolean isEqualTo(final Object o)
     {
         // if null object return false
         if(o == null)
@@ -138,7 +173,16 @@ public class IPod extends IDevice
     @Override
     public int hashCode()
     {
+        final long start;
+        final int  hash;
+
+        start = DeviceMetrics.start();
+
         // FYI: for equal IPod objects, returns identical hashcode
-        return Integer.hashCode(numSongsStored);
+        hash  = Integer.hashCode(this.numSongsStored);
+
+        DeviceMetrics.record(this, DeviceMetrics.Op.HASH_CODE, start);
+
+        return hash;
     }
 }
@@ -0,0 +1,108 @@
+/**
+ * An immutable snapshot of an IPod.
+ * <p>
+ * Equal to other IPodSnapshots with the same number of songs stored, like IPod.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class IPodSnapshot extends ImmutableDevice
+{
+    private final int    numSongsStored;
+    private final double maxVolDecibels;
+
+    /**
+     * Constructor for IPodSnapshot.
+     *
+     * @param songs  is the number of songs stored as an int.
+     * @param maxVol is the maximum volume in decibels.
+     */
+    public IPodSnapshot(final int songs, final double maxVol)
+    {
+        super(IPod.IPOD_PURPOSE);
+
+        this.numSongsStored = songs;
+        this.maxVolDecibels = maxVol;
+    }
+
+    /**
+     * Getter for number of songs stored.
+     *
+     * @return number of songs stored as an int.
+     */
+    public int getNumSongsStored()
+    {
+        return this.numSongsStored;
+    }
+
+    /**
+     * Getter for maximum volume in decibels.
+     *
+     * @return max volume in decibels.
+     */
+    public double getMaxVolDecibels()
+    {
+        return this.maxVolDecibels;
+    }
+
+    /**
+     * Builds a new IPod holding the same values.
+     *
+     * @return a new IPod.
+     */
+    @Override
+    public IPod thaw()
+    {
+        return new IPod(this.numSongsStored, this.maxVolDecibels);
+    }
+
+    /**
+     * Appends the IPod's details as returned by toString.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    @Override
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        super.appendTo(sb);
+
+        return DeviceFormat.appendPodFields(sb, this.numSongsStored, this.maxVolDecibels);
+    }
+
+    /**
+     * IPodSnapshots are equal if they have some number of songs stored.
+     *
+     * @param o is the IPodSnapshot object to be compared to.
+     *
+     * @return a boolean; true if equal otherwise false.
+     */
+    @Override
+    public boolean equals(final Object o)
+    {
+        if(o == this)
+        {
+            return true;
+        }
+
+        if(!(o instanceof IPodSnapshot))
+        {
+            return false;
+        }
+
+        return this.numSongsStored == ((IPodSnapshot) o).numSongsStored;
+    }
+
+    /**
+     * Returns a hashcode; the number of songs is the hash, so there is nothing to cache.
+     *
+     * @return a hashcode as an int.
+     */
+    @Override
+    public int hashCode()
+    {
+        return Integer.hashCode(this.numSongsStored);
+    }
+}
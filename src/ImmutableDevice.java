@@ -0,0 +1,100 @@
+/**
+ * An immutable, value-based copy of an IDevice.
+ * <p>
+ * Snapshots are taken with IDevice.snapshot and turned back into mutable devices with thaw. Every field is final and
+ * the hash code is computed once in the constructor, so a snapshot can be shared between any number of threads and
+ * used as a key in hash-based collections without defensive copies or locks. toString is rendered on first use and
+ * cached; two threads racing on the first call may both render it, but they store equal Strings.
+ * </p>
+ * <p>
+ * Snapshots are equal by the same rules as the class they were taken from, but only to other snapshots. Phone
+ * snapshots are the exception: they compare minutes exactly rather than within IPhone.EPSILON, because a tolerance
+ * is not transitive and no hash of the minutes can agree with it.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public abstract class ImmutableDevice
+{
+    private final String purpose;
+    private       String text;
+
+    /**
+     * Constructor for ImmutableDevice, called when its subclass is instantiated.
+     *
+     * @param purpose is the device's purpose as a String.
+     */
+    ImmutableDevice(final String purpose)
+    {
+        this.purpose = purpose;
+    }
+
+    /**
+     * Getter method for the device's purpose.
+     *
+     * @return purpose as a String
+     */
+    public final String getPurpose()
+    {
+        return this.purpose;
+    }
+
+    /**
+     * Builds a new mutable device holding the same values.
+     *
+     * @return a new IDevice.
+     */
+    public abstract IDevice thaw();
+
+    /**
+     * Appends the same text toString returns.
+     *
+     * @param sb is the StringBuilder to be appended to.
+     *
+     * @return the StringBuilder.
+     */
+    public StringBuilder appendTo(final StringBuilder sb)
+    {
+        return DeviceFormat.appendPurpose(sb, this.purpose);
+    }
+
+    /**
+     * Returns the same text as toString of the device the snapshot was taken from, rendered once.
+     *
+     * @return the device's details as a String.
+     */
+    @Override
+    public final String toString()
+    {
+        String rendered;
+        rendered = this.text;
+
+        if(rendered == null)
+        {
+            // Strings are immutable, so publishing one through a plain field is safe
+            rendered  = this.appendTo(new StringBuilder(DeviceFormat.RENDER_CAPACITY)).toString();
+            this.text = rendered;
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Abstract method that compares equality of two ImmutableDevices.
+     *
+     * @param obj is the object to be compared to.
+     *
+     * @return a boolean; true if equal otherwise false.
+     */
+    @Override
+    public abstract boolean equals(Object obj);
+
+    /**
+     * Abstract method that returns the cached hashcode of ImmutableDevices.
+     *
+     * @return a hashcode as an int.
+     */
+    @Override
+    public abstract int hashCode();
+}
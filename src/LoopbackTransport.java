@@ -0,0 +1,76 @@
+import java.io.IOException;
+
+/**
+ * A ShardTransport to a FleetShard in the same JVM.
+ * <p>
+ * Requests still go through the ShardProtocol encoding, so a registry built on loopback shards exercises the same
+ * frames, copies and error paths as one spread over nodes, without opening any sockets. Calls run concurrently on
+ * the caller's thread.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class LoopbackTransport implements ShardTransport
+{
+    private final String     name;
+    private final FleetShard shard;
+    private volatile boolean closed;
+
+    /**
+     * Constructor for LoopbackTransport.
+     *
+     * @param name  is the name of the shard.
+     * @param shard is the shard requests are handed to.
+     */
+    public LoopbackTransport(final String name, final FleetShard shard)
+    {
+        if(name == null || shard == null)
+        {
+            throw new IllegalArgumentException("Name and shard must not be null");
+        }
+
+        this.name  = name;
+        this.shard = shard;
+    }
+
+    /**
+     * Hands a request to the shard.
+     *
+     * @param request is the encoded request.
+     *
+     * @return the encoded response.
+     *
+     * @throws IOException if the transport is closed.
+     */
+    @Override
+    public byte[] call(final byte[] request) throws IOException
+    {
+        if(this.closed)
+        {
+            throw new IOException("Transport to " + this.name + " is closed");
+        }
+
+        return this.shard.handle(request);
+    }
+
+    /**
+     * Getter for the name of the shard.
+     *
+     * @return the shard name as a String.
+     */
+    @Override
+    public String shardName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Closes the transport; the shard keeps its devices.
+     */
+    @Override
+    public void close()
+    {
+        this.closed = true;
+    }
+}
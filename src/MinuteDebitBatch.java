@@ -0,0 +1,546 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Applies batches of minute debits to a fixed array of IPhones, addressed by their index in the array.
+ * <p>
+ * A batch is given as parallel arrays of device ids and minutes used. apply sorts the debits by device with a stable
+ * radix sort, so every phone's debits end up next to each other in the order they were given, then walks each
+ * phone's run once: it reads the minutes remaining, subtracts the run in order and writes the result back with a
+ * single compareAndSetMinutes. If another thread changed the phone in between, the run is recomputed from the new
+ * value, so no debit from either side is lost. Runs are applied in parallel on a ForkJoinPool.
+ * </p>
+ * <p>
+ * A debit overdraws when it would leave the phone below zero minutes. With Overdraft.ALLOW it is still applied and
+ * marked; with Overdraft.REJECT it is skipped, like debitMinutesIfSufficient, and the debits after it are tried
+ * against the balance without it. Observers see one change per phone per batch.
+ * </p>
+ * <p>
+ * The sort keys, group bounds and Result arrays are kept between batches and only grow, so applying a batch
+ * allocates nothing per debit. A MinuteDebitBatch is meant for one thread at a time; batches from several
+ * MinuteDebitBatches over the same phones may run concurrently.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class MinuteDebitBatch
+{
+    private static final int RADIX_BITS  = 16;
+    private static final int RADIX       = 1 << RADIX_BITS;
+    private static final int SMALL_BATCH = 4096;
+    private static final int LEAF_GROUPS = 2048;
+
+    private final IPhone[]     phones;
+    private final ForkJoinPool pool;
+    private final int[]        lowCounts;
+    private final int[]        highCounts;
+    private final Result       result;
+
+    private long[] keys;
+    private long[] scratch;
+    private int[]  groupStarts;
+
+    /**
+     * Whether a debit that would leave a phone below zero minutes is applied.
+     */
+    public enum Overdraft
+    {
+        /** The debit is applied and marked as overdrawn. */
+        ALLOW,
+        /** The debit is skipped and marked as overdrawn. */
+        REJECT
+    }
+
+    /**
+     * Constructor for MinuteDebitBatch that applies runs on the common ForkJoinPool.
+     *
+     * @param phones is the list of phones; a phone's index in the list is its device id.
+     */
+    public MinuteDebitBatch(final List<? extends IPhone> phones)
+    {
+        this(phones, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for MinuteDebitBatch.
+     *
+     * @param phones is the list of phones; a phone's index in the list is its device id.
+     * @param pool   is the ForkJoinPool that runs are applied on.
+     */
+    public MinuteDebitBatch(final List<? extends IPhone> phones, final ForkJoinPool pool)
+    {
+        if(phones == null || pool == null)
+        {
+            throw new IllegalArgumentException("Phones and pool must not be null");
+        }
+
+        this.phones     = phones.toArray(new IPhone[0]);
+        this.pool       = pool;
+        this.lowCounts  = new int[RADIX];
+        this.highCounts = new int[RADIX];
+        this.result     = new Result();
+
+        for(int i = 0; i < this.phones.length; i++)
+        {
+            if(this.phones[i] == null)
+            {
+                throw new IllegalArgumentException("Null phone at index " + i);
+            }
+        }
+
+        this.ensureCapacity(0);
+    }
+
+    /**
+     * Applies a batch of debits.
+     *
+     * @param deviceIds is the array of device ids, one per debit.
+     * @param minutes   is the array of minutes used, one per debit; a negative amount is a credit.
+     * @param count     is the number of debits, taken from the start of both arrays.
+     * @param overdraft is what happens to debits that would leave a phone below zero minutes.
+     *
+     * @return the Result of the batch; reused by the next call to apply.
+     *
+     * @throws IllegalArgumentException if an array is shorter than count or a device id is out of range; no debit is
+     *                                  applied.
+     */
+    public Result apply(final int[] deviceIds, final double[] minutes, final int count, final Overdraft overdraft)
+    {
+        if(count < 0 || deviceIds.length < count || minutes.length < count || overdraft == null)
+        {
+            throw new IllegalArgumentException("Invalid batch of " + count + " debits");
+        }
+
+        this.ensureCapacity(count);
+        this.sort(deviceIds, count);
+
+        final int groups;
+        groups = this.group(count);
+
+        this.result.debits  = count;
+        this.result.devices = groups;
+        this.result.minutes = minutes;
+
+        if(groups <= LEAF_GROUPS)
+        {
+            this.result.overdrawn = this.applyGroups(0, groups, overdraft);
+        }
+        else
+        {
+            this.result.overdrawn = this.pool.invoke(new ApplyTask(this, overdraft, 0, groups));
+        }
+
+        // the caller owns the minutes array again once apply returns
+        this.result.minutes = null;
+
+        return this.result;
+    }
+
+    /*
+     * Sorts (device id, debit index) keys by device id, keeping debits in order within a device.
+     */
+    private void sort(final int[] deviceIds, final int count)
+    {
+        final long[]  keys;
+        final int[]   low;
+        final int[]   high;
+        final boolean small;
+
+        keys  = this.keys;
+        low   = this.lowCounts;
+        high  = this.highCounts;
+        small = count < SMALL_BATCH;
+
+        if(!small)
+        {
+            Arrays.fill(low, 0);
+            Arrays.fill(high, 0);
+        }
+
+        // both radix digits are counted while the keys are built, so each pass only moves keys
+        for(int i = 0; i < count; i++)
+        {
+            final int id;
+            id = deviceIds[i];
+
+            if(id < 0 || id >= this.phones.length)
+            {
+                throw new IllegalArgumentException("Device id out of range at debit " + i + ": " + id);
+            }
+
+            keys[i] = ((long) id << 32) | i;
+
+            if(!small)
+            {
+                low[id & (RADIX - 1)]++;
+                high[id >>> RADIX_BITS]++;
+            }
+        }
+
+        // the debit index in the low bits makes a plain sort stable; it beats clearing the radix counts on small batches
+        if(small)
+        {
+            Arrays.sort(keys, 0, count);
+            return;
+        }
+
+        this.radixPass(count, 32, low);
+
+        // when every id has the same high digit, the first pass has already sorted the keys
+        if(high[0] != count)
+        {
+            this.radixPass(count, 32 + RADIX_BITS, high);
+        }
+    }
+
+    /*
+     * One stable counting-sort pass on 16 bits of the keys, from keys into scratch, then swapping the two.
+     */
+    private void radixPass(final int count, final int shift, final int[] counts)
+    {
+        final long[] from;
+        final long[] to;
+
+        from = this.keys;
+        to   = this.scratch;
+
+        int position;
+        position = 0;
+
+        for(int digit = 0; digit < RADIX; digit++)
+        {
+            final int n;
+            n = counts[digit];
+
+            counts[digit] = position;
+            position += n;
+        }
+
+        for(int i = 0; i < count; i++)
+        {
+            final long key;
+            key = from[i];
+
+            to[counts[(int) (key >>> shift) & (RADIX - 1)]++] = key;
+        }
+
+        this.keys    = to;
+        this.scratch = from;
+    }
+
+    /*
+     * Records where each device's run of sorted keys starts, returning the number of devices.
+     */
+    private int group(final int count)
+    {
+        int groups;
+        groups = 0;
+
+        for(int i = 0; i < count; i++)
+        {
+            if(i == 0 || (this.keys[i] >>> 32) != (this.keys[i - 1] >>> 32))
+            {
+                this.groupStarts[groups++] = i;
+            }
+        }
+
+        this.groupStarts[groups] = count;
+
+        return groups;
+    }
+
+    /*
+     * Applies the runs of a range of devices, returning the number of debits that overdrew.
+     */
+    private int applyGroups(final int fromGroup, final int toGroup, final Overdraft overdraft)
+    {
+        final long[]   keys;
+        final double[] minutes;
+        final byte[]   status;
+        final boolean  reject;
+        int            overdrawn;
+
+        keys      = this.keys;
+        minutes   = this.result.minutes;
+        status    = this.result.status;
+        reject    = overdraft == Overdraft.REJECT;
+        overdrawn = 0;
+
+        for(int g = fromGroup; g < toGroup; g++)
+        {
+            final int    from;
+            final int    to;
+            final int    id;
+            final IPhone phone;
+            double       before;
+            double       after;
+            int          groupOverdrawn;
+
+            from  = this.groupStarts[g];
+            to    = this.groupStarts[g + 1];
+            id    = (int) (keys[from] >>> 32);
+            phone = this.phones[id];
+
+            // recompute the whole run if another thread changed the phone since it was read
+            do
+            {
+                before         = phone.getMinutesRemaining();
+                after          = before;
+                groupOverdrawn = 0;
+
+                for(int k = from; k < to; k++)
+                {
+                    final int    debit;
+                    final double next;
+
+                    debit = (int) keys[k];
+                    next  = after - minutes[debit];
+
+                    if(next < 0.0)
+                    {
+                        groupOverdrawn++;
+
+                        if(reject)
+                        {
+                            status[debit] = Result.REJECTED;
+                            continue;
+                        }
+
+                        status[debit] = Result.OVERDRAWN;
+                    }
+                    else
+                    {
+                        status[debit] = Result.APPLIED;
+                    }
+
+                    after = next;
+                }
+            }
+            while(Double.doubleToRawLongBits(after) != Double.doubleToRawLongBits(before) && !phone.compareAndSetMinutes(before, after));
+
+            this.result.deviceIds[g]     = id;
+            this.result.minutesBefore[g] = before;
+            this.result.minutesAfter[g]  = after;
+
+            overdrawn += groupOverdrawn;
+        }
+
+        return overdrawn;
+    }
+
+    /*
+     * Grows the sort keys, group bounds and Result arrays to hold a batch of the given size.
+     */
+    private void ensureCapacity(final int count)
+    {
+        if(this.keys != null && this.keys.length >= count)
+        {
+            return;
+        }
+
+        final int capacity;
+        capacity = Math.max(count, this.keys == null ? 1024 : Math.min(Integer.MAX_VALUE - 8, this.keys.length * 2));
+
+        this.keys                 = new long[capacity];
+        this.scratch              = new long[capacity];
+        this.groupStarts          = new int[capacity + 1];
+        this.result.deviceIds     = new int[capacity];
+        this.result.minutesBefore = new double[capacity];
+        this.result.minutesAfter  = new double[capacity];
+        this.result.status        = new byte[capacity];
+    }
+
+    /**
+     * The outcome of one batch: per-device balances and per-debit status.
+     * <p>
+     * Devices are numbered 0 to devices() - 1 in device id order; debits keep the index they had in the batch. A
+     * Result is only valid until the next call to apply on the same MinuteDebitBatch.
+     * </p>
+     */
+    public static final class Result
+    {
+        static final byte APPLIED   = 0;
+        static final byte OVERDRAWN = 1;
+        static final byte REJECTED  = 2;
+
+        private int      debits;
+        private int      devices;
+        private int      overdrawn;
+        private double[] minutes;
+        private int[]    deviceIds;
+        private double[] minutesBefore;
+        private double[] minutesAfter;
+        private byte[]   status;
+
+        /*
+         * Created only by MinuteDebitBatch.
+         */
+        private Result()
+        {
+        }
+
+        /**
+         * Getter for the number of debits in the batch.
+         *
+         * @return the number of debits as an int.
+         */
+        public int debits()
+        {
+            return this.debits;
+        }
+
+        /**
+         * Getter for the number of distinct devices debited.
+         *
+         * @return the number of devices as an int.
+         */
+        public int devices()
+        {
+            return this.devices;
+        }
+
+        /**
+         * Getter for the number of debits that would have left their phone below zero minutes.
+         *
+         * @return the number of debits as an int.
+         */
+        public int overdrawnCount()
+        {
+            return this.overdrawn;
+        }
+
+        /**
+         * Returns the device id of a debited device.
+         *
+         * @param device is a device number from 0 to devices() - 1.
+         *
+         * @return the device id as an int.
+         */
+        public int deviceId(final int device)
+        {
+            return this.deviceIds[this.checkDevice(device)];
+        }
+
+        /**
+         * Returns a device's minutes remaining just before its debits were applied.
+         *
+         * @param device is a device number from 0 to devices() - 1.
+         *
+         * @return the minutes remaining as a double.
+         */
+        public double minutesBefore(final int device)
+        {
+            return this.minutesBefore[this.checkDevice(device)];
+        }
+
+        /**
+         * Returns a device's minutes remaining just after its debits were applied.
+         *
+         * @param device is a device number from 0 to devices() - 1.
+         *
+         * @return the minutes remaining as a double.
+         */
+        public double minutesAfter(final int device)
+        {
+            return this.minutesAfter[this.checkDevice(device)];
+        }
+
+        /**
+         * Returns whether a debit would have left its phone below zero minutes.
+         *
+         * @param debit is the index of the debit in the batch.
+         *
+         * @return a boolean; true if the debit overdrew, whether or not it was applied.
+         */
+        public boolean overdrawn(final int debit)
+        {
+            return this.status[this.checkDebit(debit)] != APPLIED;
+        }
+
+        /**
+         * Returns whether a debit was applied.
+         *
+         * @param debit is the index of the debit in the batch.
+         *
+         * @return a boolean; false only for a debit rejected under Overdraft.REJECT.
+         */
+        public boolean applied(final int debit)
+        {
+            return this.status[this.checkDebit(debit)] != REJECTED;
+        }
+
+        /*
+         * Checks a device number.
+         */
+        private int checkDevice(final int device)
+        {
+            if(device < 0 || device >= this.devices)
+            {
+                throw new IndexOutOfBoundsException("Device " + device + " of " + this.devices);
+            }
+
+            return device;
+        }
+
+        /*
+         * Checks a debit index.
+         */
+        private int checkDebit(final int debit)
+        {
+            if(debit < 0 || debit >= this.debits)
+            {
+                throw new IndexOutOfBoundsException("Debit " + debit + " of " + this.debits);
+            }
+
+            return debit;
+        }
+    }
+
+    /*
+     * Applies a range of devices' runs, splitting until the range fits in a leaf.
+     */
+    private static final class ApplyTask extends RecursiveTask<Integer>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final MinuteDebitBatch batch;
+        private final Overdraft        overdraft;
+        private final int              from;
+        private final int              to;
+
+        private ApplyTask(final MinuteDebitBatch batch, final Overdraft overdraft, final int from, final int to)
+        {
+            this.batch     = batch;
+            this.overdraft = overdraft;
+            this.from      = from;
+            this.to        = to;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if(this.to - this.from <= LEAF_GROUPS)
+            {
+                return this.batch.applyGroups(this.from, this.to, this.overdraft);
+            }
+
+            final int       middle;
+            final ApplyTask left;
+            final ApplyTask right;
+
+            middle = (this.from + this.to) >>> 1;
+            left   = new ApplyTask(this.batch, this.overdraft, this.from, middle);
+            right  = new ApplyTask(this.batch, this.overdraft, middle, this.to);
+
+            left.fork();
+
+            final int rightOverdrawn;
+            rightOverdrawn = right.compute();
+
+            return left.join() + rightOverdrawn;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.List;
+
+/**
+ * A sorted index of IPhones and IPhone16s by minutes remaining.
+ * <p>
+ * Follows setMinutesRemaining and the atomic debit and credit methods, so answers reflect the latest minutes. NaN
+ * minutes sort after positive infinity and never fall in a range with finite bounds.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ * @param <T> is the type of phone indexed.
+ */
+public class MinutesIndex<T extends IPhone> extends RangeIndex<T>
+{
+    /**
+     * Constructor for an empty MinutesIndex.
+     */
+    public MinutesIndex()
+    {
+        super(DeviceField.MINUTES_REMAINING);
+    }
+
+    @Override
+    long keyOf(final T phone)
+    {
+        return sortableKey(phone.getMinutesRemaining());
+    }
+
+    /**
+     * Returns the phones with minutes remaining in [low, high], fewest minutes first.
+     *
+     * @param low  is the smallest number of minutes, inclusive.
+     * @param high is the largest number of minutes, inclusive.
+     *
+     * @return a new list of phones.
+     */
+    public List<T> between(final double low, final double high)
+    {
+        return this.keysBetween(sortableKey(low), sortableKey(high));
+    }
+
+    /**
+     * Returns the phones with fewer than a number of minutes remaining, fewest minutes first.
+     *
+     * @param mins is the number of minutes, exclusive.
+     *
+     * @return a new list of phones.
+     */
+    public List<T> lessThan(final double mins)
+    {
+        return this.keysBetween(sortableKey(Double.NEGATIVE_INFINITY), sortableKey(mins) - 1);
+    }
+
+    /**
+     * Counts the phones with minutes remaining in [low, high].
+     *
+     * @param low  is the smallest number of minutes, inclusive.
+     * @param high is the largest number of minutes, inclusive.
+     *
+     * @return the number of phones as an int.
+     */
+    public int count(final double low, final double high)
+    {
+        return this.countKeys(sortableKey(low), sortableKey(high));
+    }
+
+    /**
+     * Counts the phones with fewer than a number of minutes remaining.
+     *
+     * @param mins is the number of minutes, exclusive.
+     *
+     * @return the number of phones as an int.
+     */
+    public int countLessThan(final double mins)
+    {
+        return this.countKeys(sortableKey(Double.NEGATIVE_INFINITY), sortableKey(mins) - 1);
+    }
+}
@@ -0,0 +1,368 @@
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalizes operating system version Strings for IPads.
+ * <p>
+ * Each distinct spelling is interned once, so tablets on the same version share one String. Spellings that are
+ * equalsIgnoreCase to each other share one small int id and one precomputed hash of the case-folded String, so IPad
+ * equality and hashing can compare ints and always agree with each other.
+ * </p>
+ * <p>
+ * Case folding maps each code point to Character.toLowerCase(Character.toUpperCase(c)), which is exactly when
+ * String.equalsIgnoreCase considers two characters equal. Ids start at 1 and NULL_ID stands for null.
+ * </p>
+ * <p>
+ * The table only holds versions that are in use. Spellings and ids are held weakly: once no IPad, snapshot or other
+ * holder of a Version refers to a spelling, its entry is dropped, and once no spelling of a version is left, its id is
+ * freed and handed to the next new version. Ids therefore stay dense, and an unbounded feed of distinct versions costs
+ * memory only for the versions still referenced. Code that keeps a bare id must also keep its Version, or the id may
+ * come to mean another version. Lookups are lock-free; adding a spelling takes the table's lock. Safe for concurrent
+ * use.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class OsVersionTable
+{
+    static final int NULL_ID = 0;
+
+    private static final OsVersionTable SHARED = new OsVersionTable();
+
+    private final Version                                nullVersion;
+    private final ConcurrentHashMap<String, SpellingRef> spellings;
+    private final ConcurrentHashMap<String, FoldedRef>   foldedIds;
+    private final ReferenceQueue<Object>                 cleared;
+    private int[]                                        freeIds;
+    private int                                          freeCount;
+    private volatile int                                 nextId;
+
+    /**
+     * Constructor for an empty OsVersionTable.
+     */
+    public OsVersionTable()
+    {
+        this.nullVersion = new Version(null, new Folded(NULL_ID, 0));
+        this.spellings   = new ConcurrentHashMap<>();
+        this.foldedIds   = new ConcurrentHashMap<>();
+        this.cleared     = new ReferenceQueue<>();
+        this.freeIds     = new int[16];
+        this.freeCount   = 0;
+        this.nextId      = NULL_ID + 1;
+    }
+
+    /**
+     * Returns the table shared by every IPad.
+     *
+     * @return the shared OsVersionTable.
+     */
+    public static OsVersionTable shared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical Version of a spelling, adding it if it is new.
+     *
+     * @param os is the operating system version as a String, may be null.
+     *
+     * @return the Version of the spelling.
+     */
+    public Version intern(final String os)
+    {
+        if(os == null)
+        {
+            return this.nullVersion;
+        }
+
+        final Version known;
+        known = dereference(this.spellings.get(os));
+
+        if(known != null)
+        {
+            return known;
+        }
+
+        return this.add(os);
+    }
+
+    /**
+     * Returns the id of a version without adding it.
+     *
+     * @param os is the operating system version as a String, may be null.
+     *
+     * @return the id shared by every spelling that is equalsIgnoreCase to os, or -1 if there is none yet.
+     */
+    public int idOf(final String os)
+    {
+        if(os == null)
+        {
+            return NULL_ID;
+        }
+
+        final Version known;
+        final Folded  folded;
+
+        known = dereference(this.spellings.get(os));
+
+        if(known != null)
+        {
+            return known.getId();
+        }
+
+        folded = dereference(this.foldedIds.get(fold(os)));
+
+        return folded == null ? -1 : folded.id;
+    }
+
+    /**
+     * Getter for one more than the largest id handed out so far.
+     *
+     * @return the id bound as an int.
+     */
+    public int idBound()
+    {
+        return this.nextId;
+    }
+
+    /**
+     * Returns the hash of the case-folded String, which every equalsIgnoreCase spelling shares.
+     *
+     * @param os is the operating system version as a String, may be null.
+     *
+     * @return the case-folded hash, or 0 for null.
+     */
+    public static int foldedHash(final String os)
+    {
+        return os == null ? 0 : fold(os).hashCode();
+    }
+
+    /*
+     * Adds a spelling under the lock, reusing its case-folded id if another live spelling has one; a racing caller may
+     * have added it first.
+     */
+    private synchronized Version add(final String os)
+    {
+        this.expunge();
+
+        final Version known;
+        known = dereference(this.spellings.get(os));
+
+        if(known != null)
+        {
+            return known;
+        }
+
+        final String    key;
+        final FoldedRef entry;
+        final Version   version;
+        Folded          folded;
+
+        key    = fold(os);
+        entry  = this.foldedIds.get(key);
+        folded = dereference(entry);
+
+        if(folded == null)
+        {
+            if(entry != null)
+            {
+                // the entry is replaced before it is polled, so its id is freed here rather than in expunge
+                this.freeId(entry.id);
+            }
+
+            folded = new Folded(this.claimId(), key.hashCode());
+            this.foldedIds.put(key, new FoldedRef(key, folded, this.cleared));
+        }
+
+        version = new Version(os, folded);
+        this.spellings.put(os, new SpellingRef(os, version, this.cleared));
+
+        return version;
+    }
+
+    /*
+     * Drops the entries of spellings and versions that are no longer referenced, freeing the ids of the versions.
+     * Called holding the lock.
+     */
+    private void expunge()
+    {
+        Reference<?> reference;
+
+        while((reference = this.cleared.poll()) != null)
+        {
+            if(reference instanceof SpellingRef)
+            {
+                this.spellings.remove(((SpellingRef) reference).key, reference);
+            }
+            else if(this.foldedIds.remove(((FoldedRef) reference).key, reference))
+            {
+                this.freeId(((FoldedRef) reference).id);
+            }
+        }
+    }
+
+    /*
+     * Returns a freed id, or the next new one. Called holding the lock.
+     */
+    private int claimId()
+    {
+        if(this.freeCount > 0)
+        {
+            return this.freeIds[--this.freeCount];
+        }
+
+        return this.nextId++;
+    }
+
+    /*
+     * Keeps an id for reuse. Called holding the lock.
+     */
+    private void freeId(final int id)
+    {
+        if(this.freeCount == this.freeIds.length)
+        {
+            this.freeIds = Arrays.copyOf(this.freeIds, this.freeCount * 2);
+        }
+
+        this.freeIds[this.freeCount++] = id;
+    }
+
+    /*
+     * Returns the referent of a possibly null reference.
+     */
+    private static <T> T dereference(final WeakReference<T> reference)
+    {
+        return reference == null ? null : reference.get();
+    }
+
+    /*
+     * Folds every code point the way equalsIgnoreCase compares characters; two spellings are equalsIgnoreCase exactly
+     * when their folds are equal.
+     */
+    static String fold(final String os)
+    {
+        final StringBuilder sb;
+        sb = new StringBuilder(os.length());
+
+        for(int i = 0; i < os.length(); )
+        {
+            final int codePoint;
+            codePoint = os.codePointAt(i);
+
+            sb.appendCodePoint(Character.toLowerCase(Character.toUpperCase(codePoint)));
+            i += Character.charCount(codePoint);
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * One interned spelling of an operating system version.
+     */
+    public static final class Version
+    {
+        private final String spelling;
+        private final Folded folded;
+
+        /*
+         * Only the table creates Versions; every spelling of one version shares its Folded, which keeps the id alive.
+         */
+        private Version(final String spelling, final Folded folded)
+        {
+            this.spelling = spelling;
+            this.folded   = folded;
+        }
+
+        /**
+         * Getter for the interned spelling.
+         *
+         * @return the operating system version as a String, or null.
+         */
+        public String getSpelling()
+        {
+            return this.spelling;
+        }
+
+        /**
+         * Getter for the id shared by every equalsIgnoreCase spelling.
+         *
+         * @return the id as an int.
+         */
+        public int getId()
+        {
+            return this.folded.id;
+        }
+
+        /**
+         * Getter for the hash of the case-folded spelling.
+         *
+         * @return the case-folded hash as an int.
+         */
+        public int getFoldedHash()
+        {
+            return this.folded.hash;
+        }
+
+        /**
+         * Returns the interned spelling.
+         *
+         * @return the operating system version as a String.
+         */
+        @Override
+        public String toString()
+        {
+            return String.valueOf(this.spelling);
+        }
+    }
+
+    /*
+     * The id and case-folded hash shared by every spelling of one version.
+     */
+    private static final class Folded
+    {
+        private final int id;
+        private final int hash;
+
+        private Folded(final int id, final int hash)
+        {
+            this.id   = id;
+            this.hash = hash;
+        }
+    }
+
+    /*
+     * A weak map entry for a spelling, which remembers its key so the entry can be removed once it is cleared.
+     */
+    private static final class SpellingRef extends WeakReference<Version>
+    {
+        private final String key;
+
+        private SpellingRef(final String key, final Version version, final ReferenceQueue<Object> queue)
+        {
+            super(version, queue);
+
+            this.key = key;
+        }
+    }
+
+    /*
+     * A weak map entry for a case-folded version, which remembers its key and id so the id can be freed.
+     */
+    private static final class FoldedRef extends WeakReference<Folded>
+    {
+        private final String key;
+        private final int    id;
+
+        private FoldedRef(final String key, final Folded folded, final ReferenceQueue<Object> queue)
+        {
+            super(folded, queue);
+
+            this.key = key;
+            this.id  = folded.id;
+        }
+    }
+}
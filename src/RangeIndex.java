@@ -0,0 +1,620 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A sorted index of devices by one numeric field, kept up to date as the field changes.
+ * <p>
+ * Devices are stored in key order in a list of sorted chunks of primitive long keys, like the leaves of a B+ tree
+ * without the inner nodes: finding a key is a binary search over the chunks and then within one chunk, and inserting
+ * or removing shifts at most one chunk. Range, count and top-K queries walk chunks in order, and count adds whole
+ * chunks that lie inside the range without visiting their entries. No key is ever boxed.
+ * </p>
+ * <p>
+ * The index registers itself as a DeviceObserver of every device it holds and moves a device when its field changes.
+ * It remembers the key each device is filed under and re-reads the field on every change, so notifications that
+ * arrive out of order from racing threads still leave the device under its latest value. Queries share a read lock
+ * and updates take the write lock. Devices are tracked by identity.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ * @param <T> is the type of device indexed.
+ */
+public abstract class RangeIndex<T extends IDevice> implements DeviceObserver
+{
+    private static final int CHUNK_SIZE = 256;
+
+    private final DeviceField                field;
+    private final IdentityHashMap<T, long[]> keys;
+    private final ReentrantReadWriteLock     lock;
+    private       Chunk[]                    chunks;
+    private       int                        chunkCount;
+
+    /**
+     * Constructor for RangeIndex, called when its subclass is instantiated.
+     *
+     * @param field is the DeviceField the index is sorted by.
+     */
+    RangeIndex(final DeviceField field)
+    {
+        this.field  = field;
+        this.keys   = new IdentityHashMap<>();
+        this.lock   = new ReentrantReadWriteLock();
+        this.chunks = new Chunk[8];
+    }
+
+    /**
+     * Returns the sort key of a device's current value.
+     *
+     * @param device is the indexed device.
+     *
+     * @return the sort key as a long.
+     */
+    abstract long keyOf(T device);
+
+    /**
+     * Adds a device and starts following its changes.
+     *
+     * @param device is the device to be added.
+     *
+     * @return a boolean; true if the device was added, false if it was already indexed.
+     */
+    public boolean add(final T device)
+    {
+        this.lock.writeLock().lock();
+
+        try
+        {
+            if(this.keys.containsKey(device))
+            {
+                return false;
+            }
+
+            // observe first, so a change racing with the insert is either seen by keyOf or re-read by update
+            device.addObserver(this);
+
+            final long key;
+            key = this.keyOf(device);
+
+            this.keys.put(device, new long[] {key});
+            this.insert(key, device);
+
+            return true;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a device and stops following its changes.
+     *
+     * @param device is the device to be removed.
+     *
+     * @return a boolean; true if the device was indexed, otherwise false.
+     */
+    public boolean remove(final T device)
+    {
+        this.lock.writeLock().lock();
+
+        try
+        {
+            final long[] key;
+            key = this.keys.remove(device);
+
+            if(key == null)
+            {
+                return false;
+            }
+
+            device.removeObserver(this);
+            this.delete(key[0], device);
+
+            return true;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Getter for the number of indexed devices.
+     *
+     * @return the number of devices as an int.
+     */
+    public int size()
+    {
+        this.lock.readLock().lock();
+
+        try
+        {
+            return this.keys.size();
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a device when the indexed field changes.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+        if(field == this.field)
+        {
+            this.update((T) device);
+        }
+    }
+
+    /*
+     * Re-files a device under the current value of its field.
+     */
+    private void update(final T device)
+    {
+        this.lock.writeLock().lock();
+
+        try
+        {
+            final long[] filed;
+            filed = this.keys.get(device);
+
+            if(filed == null)
+            {
+                return;
+            }
+
+            final long key;
+            key = this.keyOf(device);
+
+            if(key != filed[0])
+            {
+                this.delete(filed[0], device);
+                this.insert(key, device);
+                filed[0] = key;
+            }
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the devices with keys in [low, high], in ascending key order.
+     *
+     * @param low  is the smallest key, inclusive.
+     * @param high is the largest key, inclusive.
+     *
+     * @return a new list of devices.
+     */
+    final List<T> keysBetween(final long low, final long high)
+    {
+        final List<T> result;
+        result = new ArrayList<>();
+
+        this.lock.readLock().lock();
+
+        try
+        {
+            for(int c = this.firstChunkAtLeast(low); c < this.chunkCount; c++)
+            {
+                final Chunk chunk;
+                chunk = this.chunks[c];
+
+                for(int i = chunk.keys[0] < low ? chunk.lowerBound(low) : 0; i < chunk.size; i++)
+                {
+                    if(chunk.keys[i] > high)
+                    {
+                        return result;
+                    }
+
+                    result.add(chunk.value(i));
+                }
+            }
+
+            return result;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the devices with keys in [low, high].
+     *
+     * @param low  is the smallest key, inclusive.
+     * @param high is the largest key, inclusive.
+     *
+     * @return the number of devices as an int.
+     */
+    final int countKeys(final long low, final long high)
+    {
+        if(low > high)
+        {
+            return 0;
+        }
+
+        this.lock.readLock().lock();
+
+        try
+        {
+            int count;
+            count = 0;
+
+            for(int c = this.firstChunkAtLeast(low); c < this.chunkCount; c++)
+            {
+                final Chunk chunk;
+                final int   from;
+
+                chunk = this.chunks[c];
+
+                if(chunk.keys[0] > high)
+                {
+                    break;
+                }
+
+                from = chunk.keys[0] < low ? chunk.lowerBound(low) : 0;
+
+                if(chunk.keys[chunk.size - 1] <= high)
+                {
+                    count += chunk.size - from;
+                }
+                else
+                {
+                    count += chunk.upperBound(high) - from;
+                    break;
+                }
+            }
+
+            return count;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k devices with the smallest keys, in ascending key order.
+     *
+     * @param k is the maximum number of devices.
+     *
+     * @return a new list of devices.
+     */
+    public final List<T> lowest(final int k)
+    {
+        final List<T> result;
+        result = new ArrayList<>(Math.min(k, 1024));
+
+        this.lock.readLock().lock();
+
+        try
+        {
+            for(int c = 0; c < this.chunkCount && result.size() < k; c++)
+            {
+                final Chunk chunk;
+                chunk = this.chunks[c];
+
+                for(int i = 0; i < chunk.size && result.size() < k; i++)
+                {
+                    result.add(chunk.value(i));
+                }
+            }
+
+            return result;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to k devices with the largest keys, in descending key order.
+     *
+     * @param k is the maximum number of devices.
+     *
+     * @return a new list of devices.
+     */
+    public final List<T> highest(final int k)
+    {
+        final List<T> result;
+        result = new ArrayList<>(Math.min(k, 1024));
+
+        this.lock.readLock().lock();
+
+        try
+        {
+            for(int c = this.chunkCount - 1; c >= 0 && result.size() < k; c--)
+            {
+                final Chunk chunk;
+                chunk = this.chunks[c];
+
+                for(int i = chunk.size - 1; i >= 0 && result.size() < k; i--)
+                {
+                    result.add(chunk.value(i));
+                }
+            }
+
+            return result;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the first chunk whose last key is at least key, or chunkCount if there is none.
+     */
+    private int firstChunkAtLeast(final long key)
+    {
+        int low;
+        int high;
+
+        low  = 0;
+        high = this.chunkCount;
+
+        while(low < high)
+        {
+            final int   middle;
+            final Chunk chunk;
+
+            middle = (low + high) >>> 1;
+            chunk  = this.chunks[middle];
+
+            if(chunk.keys[chunk.size - 1] < key)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /*
+     * Inserts an entry after every entry with the same key.
+     */
+    private void insert(final long key, final T device)
+    {
+        if(this.chunkCount == 0)
+        {
+            this.chunks[0] = new Chunk();
+            this.chunkCount = 1;
+        }
+
+        int low;
+        int high;
+
+        // the last chunk whose first key is at most key, or the first chunk
+        low  = 0;
+        high = this.chunkCount - 1;
+
+        while(low < high)
+        {
+            final int middle;
+            middle = (low + high + 1) >>> 1;
+
+            if(this.chunks[middle].keys[0] <= key)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+
+        Chunk chunk;
+        int   position;
+
+        chunk    = this.chunks[low];
+        position = chunk.upperBound(key);
+
+        if(chunk.size == CHUNK_SIZE)
+        {
+            final Chunk right;
+            right = this.split(low);
+
+            if(position > chunk.size)
+            {
+                position -= chunk.size;
+                chunk     = right;
+            }
+        }
+
+        chunk.insert(position, key, device);
+    }
+
+    /*
+     * Removes the entry of a device filed under key.
+     */
+    private void delete(final long key, final T device)
+    {
+        for(int c = this.firstChunkAtLeast(key); c < this.chunkCount; c++)
+        {
+            final Chunk chunk;
+            chunk = this.chunks[c];
+
+            for(int i = chunk.lowerBound(key); i < chunk.size && chunk.keys[i] == key; i++)
+            {
+                if(chunk.values[i] == device)
+                {
+                    chunk.delete(i);
+
+                    if(chunk.size == 0)
+                    {
+                        System.arraycopy(this.chunks, c + 1, this.chunks, c, this.chunkCount - c - 1);
+                        this.chunks[--this.chunkCount] = null;
+                    }
+
+                    return;
+                }
+            }
+
+            if(chunk.keys[chunk.size - 1] != key)
+            {
+                break;
+            }
+        }
+
+        throw new IllegalStateException("Device is not filed under its key: " + device);
+    }
+
+    /*
+     * Moves the upper half of a full chunk into a new chunk after it, and returns the new chunk.
+     */
+    private Chunk split(final int index)
+    {
+        if(this.chunkCount == this.chunks.length)
+        {
+            this.chunks = Arrays.copyOf(this.chunks, this.chunkCount * 2);
+        }
+
+        final Chunk left;
+        final Chunk right;
+        final int   half;
+
+        left  = this.chunks[index];
+        right = new Chunk();
+        half  = left.size / 2;
+
+        System.arraycopy(left.keys, half, right.keys, 0, left.size - half);
+        System.arraycopy(left.values, half, right.values, 0, left.size - half);
+        Arrays.fill(left.values, half, left.size, null);
+
+        right.size = left.size - half;
+        left.size  = half;
+
+        System.arraycopy(this.chunks, index + 1, this.chunks, index + 2, this.chunkCount - index - 1);
+        this.chunks[index + 1] = right;
+        this.chunkCount++;
+
+        return right;
+    }
+
+    /**
+     * Maps a double to a long that sorts the same way, with -0.0 filed as 0.0 and NaN after positive infinity.
+     *
+     * @param value is the double.
+     *
+     * @return the sort key as a long.
+     */
+    static long sortableKey(final double value)
+    {
+        final long bits;
+        bits = Double.doubleToLongBits(value + 0.0);
+
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /*
+     * One sorted run of keys and the devices filed under them.
+     */
+    private static final class Chunk
+    {
+        private final long[]   keys;
+        private final Object[] values;
+        private int            size;
+
+        private Chunk()
+        {
+            this.keys   = new long[CHUNK_SIZE];
+            this.values = new Object[CHUNK_SIZE];
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> T value(final int index)
+        {
+            return (T) this.values[index];
+        }
+
+        private int lowerBound(final long key)
+        {
+            int low;
+            int high;
+
+            low  = 0;
+            high = this.size;
+
+            while(low < high)
+            {
+                final int middle;
+                middle = (low + high) >>> 1;
+
+                if(this.keys[middle] < key)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        private int upperBound(final long key)
+        {
+            int low;
+            int high;
+
+            low  = 0;
+            high = this.size;
+
+            while(low < high)
+            {
+                final int middle;
+                middle = (low + high) >>> 1;
+
+                if(this.keys[middle] <= key)
+                {
+                    low = middle + 1;
+                }
+                else
+                {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        private void insert(final int position, final long key, final Object value)
+        {
+            System.arraycopy(this.keys, position, this.keys, position + 1, this.size - position);
+            System.arraycopy(this.values, position, this.values, position + 1, this.size - position);
+
+            this.keys[position]   = key;
+            this.values[position] = value;
+            this.size++;
+        }
+
+        private void delete(final int position)
+        {
+            System.arraycopy(this.keys, position + 1, this.keys, position, this.size - position - 1);
+            System.arraycopy(this.values, position + 1, this.values, position, this.size - position - 1);
+
+            this.values[--this.size] = null;
+        }
+    }
+}
@@ -0,0 +1,537 @@
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of device toString results, keyed by device identity and invalidated by the devices' setters.
+ * <p>
+ * The table is set-associative: a device can only live in the WAYS slots of the bucket its identity hash selects, so
+ * a lookup reads at most WAYS slots of an AtomicReferenceArray and compares references. A hit takes no lock and never
+ * touches the renderer; besides the read it only bumps the hit counter and the frequency sketch.
+ * </p>
+ * <p>
+ * Admission follows TinyLFU. A small count-min sketch of 4-bit counters estimates how often each device has been
+ * asked for recently, and the counters are halved every SAMPLE_FACTOR * capacity accesses so old popularity fades. A
+ * miss always fills a free slot in its bucket. When the bucket is full, the new device only replaces the least
+ * frequently used entry if it has been asked for more often. A burst of one-off devices therefore cannot flush the
+ * hot ones.
+ * </p>
+ * <p>
+ * The cache observes every device it holds. Any setter call drops that device's entry, and the next get renders the
+ * new values. A miss registers the cache as an observer before it reads the stamp and renders, so a setter that races
+ * with the render always bumps the per-stripe invalidation stamp, and the render is discarded rather than cached
+ * stale. Misses, evictions and invalidations lock one stripe of buckets. Fleet views are rendered but never cached,
+ * because every call to DeviceFleet.view returns a new flyweight.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class RenderCache implements DeviceObserver
+{
+    static final int WAYS          = 4;
+    static final int SAMPLE_FACTOR = 10;
+
+    private static final int STRIPES        = 64;
+    private static final int SKETCH_ROWS    = 4;
+    private static final int MAX_FREQUENCY  = 15;
+    private static final int[] SKETCH_SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int                         bucketMask;
+    private final Object[]                    locks;
+    private final int[]                       stamps;
+    private final byte[]                      sketch;
+    private final int                         sketchMask;
+    private final int                         sampleSize;
+    private int                               accesses;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+    private final LongAdder rejections;
+    private final LongAdder invalidations;
+
+    /**
+     * Constructor for RenderCache.
+     *
+     * @param capacity is the largest number of rendered devices kept; rounded up to a power of two of at least WAYS.
+     */
+    public RenderCache(final int capacity)
+    {
+        final int buckets;
+        final int width;
+
+        if(capacity < 1 || capacity > 1 << 30)
+        {
+            throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        }
+
+        buckets = nextPowerOfTwo((capacity + WAYS - 1) / WAYS);
+        width   = Math.max(16, buckets * WAYS);
+
+        this.table      = new AtomicReferenceArray<>(buckets * WAYS);
+        this.bucketMask = buckets - 1;
+        this.locks      = new Object[STRIPES];
+        this.stamps     = new int[STRIPES];
+        this.sketch     = new byte[SKETCH_ROWS * width];
+        this.sketchMask = width - 1;
+        this.sampleSize = SAMPLE_FACTOR * buckets * WAYS;
+
+        this.hits          = new LongAdder();
+        this.misses        = new LongAdder();
+        this.evictions     = new LongAdder();
+        this.rejections    = new LongAdder();
+        this.invalidations = new LongAdder();
+
+        for(int i = 0; i < STRIPES; i++)
+        {
+            this.locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns what toString returns for a device, from the cache when possible.
+     *
+     * @param device is the device to be rendered.
+     *
+     * @return the rendered device as a String.
+     */
+    public String get(final IDevice device)
+    {
+        if(device instanceof DeviceFleet.View)
+        {
+            return device.toString();
+        }
+
+        final int hash;
+        final int first;
+
+        hash  = spread(System.identityHashCode(device));
+        first = (hash & this.bucketMask) * WAYS;
+
+        this.recordAccess(hash);
+
+        for(int way = 0; way < WAYS; way++)
+        {
+            final Entry entry;
+            entry = this.table.get(first + way);
+
+            if(entry != null && entry.device == device)
+            {
+                this.hits.increment();
+
+                return entry.text;
+            }
+        }
+
+        this.misses.increment();
+
+        return this.load(device, hash, first);
+    }
+
+    /**
+     * Drops the cached rendering of a device, if any.
+     *
+     * @param device is the device to be dropped.
+     *
+     * @return a boolean; true if the device was cached, otherwise false.
+     */
+    public boolean invalidate(final IDevice device)
+    {
+        final int bucket;
+        final int stripe;
+        final int first;
+
+        bucket = spread(System.identityHashCode(device)) & this.bucketMask;
+        stripe = bucket & (STRIPES - 1);
+        first  = bucket * WAYS;
+
+        synchronized(this.locks[stripe])
+        {
+            // bumped even when the device is not cached yet, so a render in progress, whose device load observes, is discarded
+            this.stamps[stripe]++;
+
+            for(int way = 0; way < WAYS; way++)
+            {
+                final Entry entry;
+                entry = this.table.get(first + way);
+
+                if(entry != null && entry.device == device)
+                {
+                    this.table.set(first + way, null);
+                    device.removeObserver(this);
+
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * Drops every cached rendering.
+     */
+    public void clear()
+    {
+        for(int stripe = 0; stripe < STRIPES; stripe++)
+        {
+            synchronized(this.locks[stripe])
+            {
+                this.stamps[stripe]++;
+
+                for(int bucket = stripe; bucket <= this.bucketMask; bucket += STRIPES)
+                {
+                    for(int way = 0; way < WAYS; way++)
+                    {
+                        final Entry entry;
+                        entry = this.table.getAndSet(bucket * WAYS + way, null);
+
+                        if(entry != null)
+                        {
+                            entry.device.removeObserver(this);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Getter for the number of devices the cache can hold.
+     *
+     * @return the capacity as an int.
+     */
+    public int capacity()
+    {
+        return this.table.length();
+    }
+
+    /**
+     * Returns the cache's counters.
+     *
+     * @return a new Stats.
+     */
+    public Stats stats()
+    {
+        return new Stats(this.hits.sum(), this.misses.sum(), this.evictions.sum(), this.rejections.sum(), this.invalidations.sum());
+    }
+
+    /**
+     * Drops a device's rendering when one of its numeric fields changes.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value.
+     * @param newValue is the new value.
+     */
+    @Override
+    public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+    {
+        this.invalidations.increment();
+        this.invalidate(device);
+    }
+
+    /**
+     * Drops a device's rendering when one of its text fields changes.
+     *
+     * @param device   is the IDevice that changed.
+     * @param field    is the DeviceField that changed.
+     * @param oldValue is the previous value, may be null.
+     * @param newValue is the new value, may be null.
+     */
+    @Override
+    public void textChanged(final IDevice device, final DeviceField field, final String oldValue, final String newValue)
+    {
+        this.invalidations.increment();
+        this.invalidate(device);
+    }
+
+    /*
+     * Renders a device that missed, then caches it if TinyLFU admits it and no setter ran meanwhile. Every cached entry
+     * holds one registration of the cache on its device; a load registers before rendering and drops its registration
+     * again unless it caches the device.
+     */
+    private String load(final IDevice device, final int hash, final int first)
+    {
+        final int    stripe;
+        final int    stamp;
+        final String text;
+
+        stripe = (hash & this.bucketMask) & (STRIPES - 1);
+
+        // observe first, so any setter from here on bumps the stamp read below
+        device.addObserver(this);
+
+        synchronized(this.locks[stripe])
+        {
+            stamp = this.stamps[stripe];
+        }
+
+        // render outside the lock; a setter that runs meanwhile invalidates through the observer registered above
+        text = device.toString();
+
+        synchronized(this.locks[stripe])
+        {
+            int victim;
+            int victimFrequency;
+
+            if(this.stamps[stripe] != stamp)
+            {
+                device.removeObserver(this);
+
+                return text;
+            }
+
+            victim          = -1;
+            victimFrequency = Integer.MAX_VALUE;
+
+            for(int way = 0; way < WAYS; way++)
+            {
+                final Entry entry;
+                entry = this.table.get(first + way);
+
+                if(entry == null)
+                {
+                    victim          = way;
+                    victimFrequency = -1;
+                }
+                else if(entry.device == device)
+                {
+                    // another thread cached it first, and its entry keeps a registration of its own
+                    device.removeObserver(this);
+
+                    return entry.text;
+                }
+                else if(victimFrequency >= 0)
+                {
+                    final int frequency;
+                    frequency = this.frequency(spread(System.identityHashCode(entry.device)));
+
+                    if(frequency < victimFrequency)
+                    {
+                        victim          = way;
+                        victimFrequency = frequency;
+                    }
+                }
+            }
+
+            if(victimFrequency >= 0 && this.frequency(hash) <= victimFrequency)
+            {
+                device.removeObserver(this);
+                this.rejections.increment();
+
+                return text;
+            }
+
+            final Entry evicted;
+            evicted = this.table.getAndSet(first + victim, new Entry(device, text));
+
+            if(evicted != null)
+            {
+                evicted.device.removeObserver(this);
+                this.evictions.increment();
+            }
+
+            return text;
+        }
+    }
+
+    /*
+     * Counts one access in the sketch, halving every counter once enough accesses have been counted.
+     */
+    private void recordAccess(final int hash)
+    {
+        // plain increments: a lost update only makes an estimate slightly low
+        for(int row = 0; row < SKETCH_ROWS; row++)
+        {
+            final int index;
+            index = this.sketchIndex(hash, row);
+
+            if(this.sketch[index] < MAX_FREQUENCY)
+            {
+                this.sketch[index]++;
+            }
+        }
+
+        if(++this.accesses >= this.sampleSize)
+        {
+            this.age();
+        }
+    }
+
+    /*
+     * Returns the sketch's estimate of how often a hash was accessed.
+     */
+    private int frequency(final int hash)
+    {
+        int frequency;
+        frequency = MAX_FREQUENCY;
+
+        for(int row = 0; row < SKETCH_ROWS; row++)
+        {
+            frequency = Math.min(frequency, this.sketch[this.sketchIndex(hash, row)]);
+        }
+
+        return frequency;
+    }
+
+    /*
+     * Halves every counter so the sketch favours recent popularity.
+     */
+    private synchronized void age()
+    {
+        if(this.accesses < this.sampleSize)
+        {
+            return;
+        }
+
+        for(int i = 0; i < this.sketch.length; i++)
+        {
+            this.sketch[i] = (byte) (this.sketch[i] >>> 1);
+        }
+
+        this.accesses = 0;
+    }
+
+    /*
+     * Returns the counter of a hash in one row of the sketch.
+     */
+    private int sketchIndex(final int hash, final int row)
+    {
+        final int mixed;
+        mixed = hash * SKETCH_SEEDS[row];
+
+        return row * (this.sketchMask + 1) + ((mixed ^ (mixed >>> 17)) & this.sketchMask);
+    }
+
+    /*
+     * Returns the smallest power of two at least value.
+     */
+    private static int nextPowerOfTwo(final int value)
+    {
+        return value <= 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /*
+     * Spreads the identity hash so the low bits used for buckets depend on all of its bits.
+     */
+    private static int spread(final int hash)
+    {
+        final int mixed;
+        mixed = hash * 0x9E3779B9;
+
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /*
+     * One cached rendering.
+     */
+    private static final class Entry
+    {
+        private final IDevice device;
+        private final String  text;
+
+        private Entry(final IDevice device, final String text)
+        {
+            this.device = device;
+            this.text   = text;
+        }
+    }
+
+    /**
+     * The counters of a RenderCache at one moment.
+     */
+    public static final class Stats
+    {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long rejections;
+        private final long invalidations;
+
+        private Stats(final long hits, final long misses, final long evictions, final long rejections, final long invalidations)
+        {
+            this.hits          = hits;
+            this.misses        = misses;
+            this.evictions     = evictions;
+            this.rejections    = rejections;
+            this.invalidations = invalidations;
+        }
+
+        /**
+         * Getter for the number of gets answered from the cache.
+         *
+         * @return the hits as a long.
+         */
+        public long getHits()
+        {
+            return this.hits;
+        }
+
+        /**
+         * Getter for the number of gets that had to render.
+         *
+         * @return the misses as a long.
+         */
+        public long getMisses()
+        {
+            return this.misses;
+        }
+
+        /**
+         * Getter for the number of entries replaced by a more frequently used device.
+         *
+         * @return the evictions as a long.
+         */
+        public long getEvictions()
+        {
+            return this.evictions;
+        }
+
+        /**
+         * Getter for the number of renderings not cached because the device was less popular than every entry in
+         * its bucket.
+         *
+         * @return the rejections as a long.
+         */
+        public long getRejections()
+        {
+            return this.rejections;
+        }
+
+        /**
+         * Getter for the number of setter calls seen on cached devices.
+         *
+         * @return the invalidations as a long.
+         */
+        public long getInvalidations()
+        {
+            return this.invalidations;
+        }
+
+        /**
+         * Getter for the share of gets answered from the cache.
+         *
+         * @return the hit rate between 0 and 1, or 0 if there were no gets.
+         */
+        public double hitRate()
+        {
+            final long gets;
+            gets = this.hits + this.misses;
+
+            return gets == 0 ? 0.0 : (double) this.hits / gets;
+        }
+
+        /**
+         * Returns the counters as a String.
+         *
+         * @return the counters and hit rate.
+         */
+        @Override
+        public String toString()
+        {
+            return String.format("hits=%d misses=%d evictions=%d rejections=%d invalidations=%d hitRate=%.4f", this.hits, this.misses, this.evictions, this.rejections, this.invalidations, this.hitRate());
+        }
+    }
+}
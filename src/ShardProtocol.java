@@ -0,0 +1,299 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * The frames exchanged between a ShardedFleetRegistry and its FleetShards.
+ * <p>
+ * A request is an opcode byte followed by its arguments; a response is a status byte followed by the result, or by
+ * an error message when the status is ERROR. Devices are written as their DeviceType ordinal and fields, and
+ * strings as a presence flag and modified UTF-8, so null carriers and operating system versions survive the trip.
+ * </p>
+ * <pre>
+ * PUT              int n, n x (int partition, key, device)           -&gt; nothing
+ * GET              int partition, key                                -&gt; boolean present [, device]
+ * REMOVE           int partition, key                                -&gt; boolean removed
+ * COPY             int partition, int skip                           -&gt; int n, n x (key, device), boolean more
+ * SIZE                                                               -&gt; long devices
+ * CARRIER_COUNTS                                                     -&gt; int n, n x (carrier, long count)
+ * PADS_BY_OS       int partition, int skip                           -&gt; int n, n x device, boolean more
+ *                                                                       [, int partition, int skip]
+ * DROP             int partition                                     -&gt; int n removed
+ * </pre>
+ * <p>
+ * Over a socket, every frame is preceded by its length as an int. Frames longer than MAX_FRAME_BYTES are refused on
+ * both ends, so a peer cannot make the other side allocate an arbitrary amount of memory with a forged length.
+ * </p>
+ * <p>
+ * Requests and responses that grow with the number of devices are split into pages that stop once they pass
+ * PAGE_BYTES, well under MAX_FRAME_BYTES since a single entry is at most a few hundred kilobytes. The registry splits
+ * PUT batches itself. COPY and PADS_BY_OS answer one page from a cursor and say whether more follow: COPY skips the
+ * first skip entries of the partition, and PADS_BY_OS starts at the skip-th entry of the given partition and walks
+ * the partitions in ascending order, returning the cursor of the next page when there is one.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+final class ShardProtocol
+{
+    static final byte PUT            = 1;
+    static final byte GET            = 2;
+    static final byte REMOVE         = 3;
+    static final byte COPY           = 4;
+    static final byte SIZE           = 5;
+    static final byte CARRIER_COUNTS = 6;
+    static final byte PADS_BY_OS     = 7;
+    static final byte DROP           = 8;
+
+    static final int MAX_FRAME_BYTES = 64 << 20;
+    static final int PAGE_BYTES      = MAX_FRAME_BYTES / 4;
+
+    static final byte OK    = 0;
+    static final byte ERROR = 1;
+
+    /*
+     * Not instantiable.
+     */
+    private ShardProtocol()
+    {
+    }
+
+    /**
+     * Returns a stream positioned after the status byte of a response, or throws the shard's error.
+     *
+     * @param response is the encoded response.
+     *
+     * @return a DataInputStream over the result.
+     *
+     * @throws IOException if the shard reported an error.
+     */
+    static DataInputStream result(final byte[] response) throws IOException
+    {
+        final DataInputStream in;
+        in = new DataInputStream(new ByteArrayInputStream(response));
+
+        if(in.readByte() != OK)
+        {
+            throw new IOException("Shard failed: " + in.readUTF());
+        }
+
+        return in;
+    }
+
+    /**
+     * Encodes the response to a request that failed.
+     *
+     * @param failure is the reason the request failed.
+     *
+     * @return the encoded response.
+     */
+    static byte[] error(final Exception failure)
+    {
+        final ByteArrayOutputStream bytes;
+        final DataOutputStream      out;
+
+        bytes = new ByteArrayOutputStream();
+        out   = new DataOutputStream(bytes);
+
+        try
+        {
+            out.writeByte(ERROR);
+            out.writeUTF(String.valueOf(failure));
+        }
+        catch(final IOException e)
+        {
+            // a ByteArrayOutputStream does not fail
+            throw new AssertionError(e);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes one length-prefixed frame to a socket stream.
+     *
+     * @param out   is the stream to be written to; it is flushed.
+     * @param frame is the frame to be written.
+     *
+     * @throws IOException if the stream cannot be written or the frame is longer than MAX_FRAME_BYTES.
+     */
+    static void writeFrame(final DataOutputStream out, final byte[] frame) throws IOException
+    {
+        if(frame.length > MAX_FRAME_BYTES)
+        {
+            throw new IOException("Frame of " + frame.length + " bytes exceeds " + MAX_FRAME_BYTES);
+        }
+
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    /**
+     * Reads one length-prefixed frame from a socket stream.
+     *
+     * @param in is the stream to be read from.
+     *
+     * @return the frame, or null if the stream ended between frames.
+     *
+     * @throws IOException if the stream cannot be read, ends inside a frame or holds a length that is negative or longer
+     *                     than MAX_FRAME_BYTES.
+     */
+    static byte[] readFrame(final DataInputStream in) throws IOException
+    {
+        final int    length;
+        final byte[] frame;
+
+        try
+        {
+            length = in.readInt();
+        }
+        catch(final EOFException e)
+        {
+            return null;
+        }
+
+        if(length < 0 || length > MAX_FRAME_BYTES)
+        {
+            throw new IOException("Corrupt frame length " + length);
+        }
+
+        frame = new byte[length];
+        in.readFully(frame);
+
+        return frame;
+    }
+
+    /**
+     * Writes a device.
+     *
+     * @param out     is the stream to be written to.
+     * @param element is an IPhone, IPhone16, IPad or IPod, or a fleet view of one.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    static void writeDevice(final DataOutputStream out, final IDevice element) throws IOException
+    {
+        final IDevice    device;
+        final DeviceType type;
+
+        device = DeviceFleet.concrete(element);
+        type   = DeviceType.of(device);
+
+        out.writeByte(type.ordinal());
+
+        switch(type)
+        {
+            case IPHONE:
+            case IPHONE16:
+            {
+                final IPhone phone;
+                phone = (IPhone) device;
+
+                // an IPhone16 sends its camera and memory before everything an IPhone sends
+                if(type == DeviceType.IPHONE16)
+                {
+                    out.writeBoolean(((IPhone16) phone).hasHighResCamera());
+                    out.writeInt(((IPhone16) phone).getMemoryGB());
+                }
+
+                out.writeDouble(phone.getMinutesRemaining());
+                writeString(out, phone.getCarrier());
+                break;
+            }
+            case IPAD:
+            {
+                final IPad pad;
+                pad = (IPad) device;
+
+                out.writeBoolean(pad.getHasCase());
+                writeString(out, pad.getOpSystemVersion());
+                break;
+            }
+            default:
+            {
+                final IPod pod;
+                pod = (IPod) device;
+
+                out.writeInt(pod.getNumSongsStored());
+                out.writeDouble(pod.getMaxVolDecibels());
+            }
+        }
+    }
+
+    /**
+     * Reads a device written by writeDevice.
+     *
+     * @param in is the stream to be read from.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod.
+     *
+     * @throws IOException if the stream cannot be read or holds an unknown type.
+     */
+    static IDevice readDevice(final DataInputStream in) throws IOException
+    {
+        final int ordinal;
+        ordinal = in.readByte();
+
+        if(ordinal < 0 || ordinal > DeviceType.IPOD.ordinal())
+        {
+            throw new IOException("Corrupt device type " + ordinal);
+        }
+
+        switch(DeviceType.fromOrdinal(ordinal))
+        {
+            case IPHONE:
+                return new IPhone(in.readDouble(), readString(in));
+            case IPHONE16:
+            {
+                final boolean highResCamera;
+                final int     memoryGB;
+
+                highResCamera = in.readBoolean();
+                memoryGB      = in.readInt();
+
+                return new IPhone16(in.readDouble(), readString(in), highResCamera, memoryGB);
+            }
+            case IPAD:
+                return new IPad(in.readBoolean(), readString(in));
+            default:
+                return new IPod(in.readInt(), in.readDouble());
+        }
+    }
+
+    /**
+     * Writes a String that may be null.
+     *
+     * @param out   is the stream to be written to.
+     * @param value is the String, may be null.
+     *
+     * @throws IOException if the stream cannot be written.
+     */
+    static void writeString(final DataOutputStream out, final String value) throws IOException
+    {
+        out.writeBoolean(value != null);
+
+        if(value != null)
+        {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads a String written by writeString.
+     *
+     * @param in is the stream to be read from.
+     *
+     * @return the String, may be null.
+     *
+     * @throws IOException if the stream cannot be read.
+     */
+    static String readString(final DataInputStream in) throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,42 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Carries requests from a ShardedFleetRegistry to one FleetShard and brings back its responses.
+ * <p>
+ * Requests and responses are opaque frames in the ShardProtocol format, so a transport only moves bytes and every
+ * transport sees exactly the same traffic: LoopbackTransport hands frames to a shard in the same JVM, and
+ * SocketTransport sends them to a FleetShardServer on another node.
+ * </p>
+ * <p>
+ * A registry may call a transport from several threads at once; an implementation either handles calls concurrently
+ * or serializes them.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public interface ShardTransport extends Closeable
+{
+    /**
+     * Sends one request frame and waits for its response frame.
+     *
+     * @param request is the encoded request.
+     *
+     * @return the encoded response.
+     *
+     * @throws IOException if the shard cannot be reached.
+     */
+    byte[] call(byte[] request) throws IOException;
+
+    /**
+     * Getter for a name that identifies the shard, used to place it on the hash ring.
+     * <p>
+     * Two transports to the same shard must return the same name, so the shard owns the same partitions every time
+     * a registry is built.
+     * </p>
+     *
+     * @return the shard name as a String.
+     */
+    String shardName();
+}
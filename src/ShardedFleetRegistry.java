@@ -0,0 +1,1012 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A registry of devices keyed by a caller's device key, such as a serial number, spread over FleetShards.
+ * <p>
+ * Keys hash to a fixed number of partitions, and partitions are placed on a consistent hash ring on which every
+ * shard owns VIRTUAL_NODES points; a partition belongs to the first shard point at or after its own. Adding a shard
+ * only takes over the partitions whose ring position now falls on one of its points, so only those partitions move,
+ * each one from its previous owner straight to the new shard.
+ * </p>
+ * <p>
+ * A move never leaves a partition's devices only in flight: the new owner is sent a copy, and the previous owner only
+ * drops the partition once the new owner has acknowledged it. If that drop fails, the previous owner keeps a stale
+ * copy, which queries count twice until rebalance drops it.
+ * </p>
+ * <p>
+ * Single-key operations go to the owning shard. Queries scatter to every shard in parallel and gather the partial
+ * results, decoding each shard's responses on its own task. Shards are reached through ShardTransports,
+ * so the same registry runs over LoopbackTransports in one JVM or SocketTransports across nodes.
+ * </p>
+ * <p>
+ * Devices are copied into the shards: changing a device after put does not change the registry until it is put
+ * again. Operations run concurrently; adding a shard waits for them and holds them off while partitions move.
+ * </p>
+ * <p>
+ * Nothing that grows with the number of devices travels in one frame: putAll sends each shard its batch in requests
+ * of about ShardProtocol.PAGE_BYTES, and moves and padsByOpSystemVersion read the shards a page at a time, so a shard
+ * of any size stays under ShardProtocol.MAX_FRAME_BYTES.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class ShardedFleetRegistry implements Closeable
+{
+    private static final int DEFAULT_PARTITIONS = 1024;
+    private static final int VIRTUAL_NODES      = 128;
+
+    private final int                    partitions;
+    private final List<ShardTransport>   shards;
+    private final TreeMap<Long, Integer> ring;
+    private final int[]                  owners;
+    private final Map<Integer, Integer>  leftovers;
+    private final ExecutorService        scatter;
+    private final ReentrantReadWriteLock topology;
+
+    /**
+     * Constructor for ShardedFleetRegistry with 1024 partitions.
+     *
+     * @param shards is the list of transports to the initial shards, which must be empty.
+     */
+    public ShardedFleetRegistry(final List<? extends ShardTransport> shards)
+    {
+        this(DEFAULT_PARTITIONS, shards);
+    }
+
+    /**
+     * Constructor for ShardedFleetRegistry.
+     *
+     * @param partitions is the number of partitions; the unit that moves between shards.
+     * @param shards     is the list of transports to the initial shards, which must be empty.
+     */
+    public ShardedFleetRegistry(final int partitions, final List<? extends ShardTransport> shards)
+    {
+        if(partitions < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of partitions: " + partitions);
+        }
+
+        if(shards == null || shards.isEmpty())
+        {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+
+        this.partitions = partitions;
+        this.shards     = new ArrayList<>();
+        this.ring       = new TreeMap<>();
+        this.owners     = new int[partitions];
+        this.leftovers  = new HashMap<>();
+        this.topology   = new ReentrantReadWriteLock();
+        this.scatter    = Executors.newCachedThreadPool(task ->
+        {
+            final Thread thread;
+            thread = new Thread(task, "ShardedFleetRegistry-scatter");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        for(final ShardTransport shard : shards)
+        {
+            this.join(shard);
+        }
+
+        // the shards start empty, so every partition starts where the ring puts it
+        for(int p = 0; p < partitions; p++)
+        {
+            this.owners[p] = this.ownerOnRing(p);
+        }
+    }
+
+    /**
+     * Adds a shard and moves to it the partitions it now owns on the ring.
+     * <p>
+     * If a move fails before the new shard acknowledges its copy, the partition stays with its previous owner, which
+     * keeps serving it, and the IOException is rethrown; rebalance retries the partitions that have not moved yet. If
+     * only the previous owner's drop fails, the partition has moved, and rebalance drops the stale copy.
+     * </p>
+     *
+     * @param shard is the transport to the new shard, which must be empty.
+     *
+     * @return the number of partitions moved.
+     *
+     * @throws IOException if a partition cannot be moved.
+     */
+    public int addShard(final ShardTransport shard) throws IOException
+    {
+        this.topology.writeLock().lock();
+
+        try
+        {
+            this.join(shard);
+
+            return this.moveMisplaced();
+        }
+        finally
+        {
+            this.topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves every partition that is not on the shard the ring assigns it to, such as those left behind by a failed
+     * addShard, after dropping the stale copies that failed moves left on previous owners.
+     *
+     * @return the number of partitions moved.
+     *
+     * @throws IOException if a partition cannot be moved.
+     */
+    public int rebalance() throws IOException
+    {
+        this.topology.writeLock().lock();
+
+        try
+        {
+            return this.moveMisplaced();
+        }
+        finally
+        {
+            this.topology.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stores a device under a key, replacing any device stored under it.
+     *
+     * @param key    is the device key.
+     * @param device is an IPhone, IPhone16, IPad or IPod.
+     *
+     * @throws IOException if the owning shard cannot be reached.
+     */
+    public void put(final String key, final IDevice device) throws IOException
+    {
+        final Map<String, IDevice> one;
+        one = new HashMap<>();
+
+        one.put(key, device);
+
+        this.putAll(one);
+    }
+
+    /**
+     * Stores many devices, sending each shard its batch in parallel.
+     *
+     * @param devices is a map from device key to device.
+     *
+     * @throws IOException if a shard cannot be reached; the other shards' batches may already be stored.
+     */
+    public void putAll(final Map<String, ? extends IDevice> devices) throws IOException
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            final Batch[]              batches;
+            final List<Callable<Void>> calls;
+
+            batches = new Batch[this.shards.size()];
+            calls   = new ArrayList<>();
+
+            for(final Map.Entry<String, ? extends IDevice> entry : devices.entrySet())
+            {
+                final int partition;
+                final int owner;
+
+                partition = this.partitionOf(entry.getKey());
+                owner     = this.owners[partition];
+
+                if(batches[owner] == null)
+                {
+                    batches[owner] = new Batch();
+                }
+
+                batches[owner].add(partition, entry.getKey(), entry.getValue());
+            }
+
+            for(int s = 0; s < batches.length; s++)
+            {
+                final ShardTransport shard;
+                final Batch          batch;
+
+                shard = this.shards.get(s);
+                batch = batches[s];
+
+                if(batch != null)
+                {
+                    calls.add(() ->
+                    {
+                        for(final byte[] request : batch.toRequests())
+                        {
+                            ShardProtocol.result(shard.call(request));
+                        }
+
+                        return null;
+                    });
+                }
+            }
+
+            this.gather(calls);
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the device stored under a key.
+     *
+     * @param key is the device key.
+     *
+     * @return a new IPhone, IPhone16, IPad or IPod, or null if no device is stored under the key.
+     *
+     * @throws IOException if the owning shard cannot be reached.
+     */
+    public IDevice get(final String key) throws IOException
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            final DataInputStream in;
+            in = this.callOwner(ShardProtocol.GET, key);
+
+            return in.readBoolean() ? ShardProtocol.readDevice(in) : null;
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the device stored under a key.
+     *
+     * @param key is the device key.
+     *
+     * @return a boolean; true if a device was stored under the key, otherwise false.
+     *
+     * @throws IOException if the owning shard cannot be reached.
+     */
+    public boolean remove(final String key) throws IOException
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            return this.callOwner(ShardProtocol.REMOVE, key).readBoolean();
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of devices across all shards.
+     *
+     * @return the number of devices as a long.
+     *
+     * @throws IOException if a shard cannot be reached.
+     */
+    public long size() throws IOException
+    {
+        long size;
+        size = 0L;
+
+        for(final Long shardSize : this.scatterGather(ShardProtocol.SIZE, DataInputStream::readLong))
+        {
+            size += shardSize;
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of IPhones and IPhone16s per carrier across all shards.
+     *
+     * @return a new map from carrier to count; a null carrier appears as a null key.
+     *
+     * @throws IOException if a shard cannot be reached.
+     */
+    public Map<String, Long> phoneCountsByCarrier() throws IOException
+    {
+        final Map<String, Long> counts;
+        counts = new HashMap<>();
+
+        for(final Map<String, Long> partial : this.scatterGather(ShardProtocol.CARRIER_COUNTS, in ->
+        {
+            final Map<String, Long> shardCounts;
+            final int               size;
+
+            shardCounts = new HashMap<>();
+            size        = in.readInt();
+
+            for(int i = 0; i < size; i++)
+            {
+                shardCounts.put(ShardProtocol.readString(in), in.readLong());
+            }
+
+            return shardCounts;
+        }))
+        {
+            partial.forEach((carrier, count) -> counts.merge(carrier, count, Long::sum));
+        }
+
+        return counts;
+    }
+
+    /**
+     * Returns copies of the IPads across all shards grouped by operating system version.
+     * <p>
+     * Versions are grouped ignoring case, like OsVersionTable, FleetAggregator and FleetCounts, and each group is keyed
+     * by the first spelling met, reading the shards in the order they joined.
+     * </p>
+     *
+     * @return a new map from operating system version to IPads; a null version appears as a null key.
+     *
+     * @throws IOException if a shard cannot be reached.
+     */
+    public Map<String, List<IPad>> padsByOpSystemVersion() throws IOException
+    {
+        final Map<String, List<IPad>> pads;
+        final Map<String, List<IPad>> folded;
+        final List<List<IPad>>        partials;
+
+        pads   = new HashMap<>();
+        folded = new HashMap<>();
+
+        this.topology.readLock().lock();
+
+        try
+        {
+            final List<Callable<List<IPad>>> calls;
+            calls = new ArrayList<>(this.shards.size());
+
+            for(final ShardTransport shard : this.shards)
+            {
+                calls.add(() -> padsOf(shard));
+            }
+
+            partials = this.gather(calls);
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+
+        for(final List<IPad> partial : partials)
+        {
+            for(final IPad pad : partial)
+            {
+                final String version;
+                final String key;
+                List<IPad>   group;
+
+                version = pad.getOpSystemVersion();
+                key     = version == null ? null : OsVersionTable.fold(version);
+                group   = folded.get(key);
+
+                if(group == null)
+                {
+                    group = new ArrayList<>();
+                    folded.put(key, group);
+                    pads.put(version, group);
+                }
+
+                group.add(pad);
+            }
+        }
+
+        return pads;
+    }
+
+    /**
+     * Returns the partition a key hashes to.
+     *
+     * @param key is the device key.
+     *
+     * @return the partition as an int.
+     */
+    public int partitionOf(final String key)
+    {
+        if(key == null)
+        {
+            throw new IllegalArgumentException("Key must not be null");
+        }
+
+        return (int) Long.remainderUnsigned(mix(key.hashCode()), this.partitions);
+    }
+
+    /**
+     * Returns the name of the shard that holds a key.
+     *
+     * @param key is the device key.
+     *
+     * @return the shard name as a String.
+     */
+    public String shardOf(final String key)
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            return this.shards.get(this.owners[this.partitionOf(key)]).shardName();
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Getter for the number of shards.
+     *
+     * @return the number of shards as an int.
+     */
+    public int shardCount()
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            return this.shards.size();
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes every transport; the shards keep their devices.
+     *
+     * @throws IOException if a transport cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        IOException failure;
+        failure = null;
+
+        this.topology.writeLock().lock();
+
+        try
+        {
+            this.scatter.shutdownNow();
+
+            for(final ShardTransport shard : this.shards)
+            {
+                try
+                {
+                    shard.close();
+                }
+                catch(final IOException e)
+                {
+                    if(failure == null)
+                    {
+                        failure = e;
+                    }
+                    else
+                    {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            this.topology.writeLock().unlock();
+        }
+
+        if(failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /*
+     * Adds a shard and its virtual nodes to the ring.
+     */
+    private void join(final ShardTransport shard)
+    {
+        final int    index;
+        final String name;
+        final long   seed;
+
+        if(shard == null)
+        {
+            throw new IllegalArgumentException("Shard must not be null");
+        }
+
+        name = shard.shardName();
+
+        for(final ShardTransport existing : this.shards)
+        {
+            if(existing.shardName().equals(name))
+            {
+                throw new IllegalArgumentException("Duplicate shard name: " + name);
+            }
+        }
+
+        index = this.shards.size();
+        seed  = nameHash(name);
+        this.shards.add(shard);
+
+        for(int v = 0; v < VIRTUAL_NODES; v++)
+        {
+            long point;
+            point = mix(seed + v * 0x9E3779B97F4A7C15L);
+
+            // a point taken by a shard that joined earlier is probed past, so every shard owns all its points
+            while(this.ring.putIfAbsent(point, index) != null)
+            {
+                point = mix(point + 1);
+            }
+        }
+    }
+
+    /*
+     * Drops the stale copies left by failed moves, then moves every partition whose recorded owner differs from its
+     * owner on the ring, in parallel.
+     */
+    private int moveMisplaced() throws IOException
+    {
+        final List<Callable<Void>> calls;
+        final int[]                moved;
+
+        calls = new ArrayList<>();
+        moved = new int[1];
+
+        // no move runs yet, and every leftover is dropped before its partition can move back to the same shard
+        for(final Map.Entry<Integer, Integer> leftover : new ArrayList<>(this.leftovers.entrySet()))
+        {
+            if(this.owners[leftover.getKey()] != leftover.getValue())
+            {
+                this.drop(this.shards.get(leftover.getValue()), leftover.getKey());
+            }
+
+            this.leftovers.remove(leftover.getKey());
+        }
+
+        for(int p = 0; p < this.partitions; p++)
+        {
+            final int partition;
+            final int target;
+
+            partition = p;
+            target    = this.ownerOnRing(p);
+
+            if(this.owners[p] != target)
+            {
+                calls.add(() ->
+                {
+                    this.move(partition, target);
+
+                    synchronized(moved)
+                    {
+                        moved[0]++;
+                    }
+
+                    return null;
+                });
+            }
+        }
+
+        this.gather(calls);
+
+        return moved[0];
+    }
+
+    /*
+     * Copies a partition from its owner to another shard a page at a time, and only then drops it from the previous
+     * owner. Runs under the topology write lock, so the partition does not change while it moves.
+     */
+    private void move(final int partition, final int target) throws IOException
+    {
+        final int            source;
+        final ShardTransport from;
+        final ShardTransport to;
+        int                  copied;
+        boolean              more;
+
+        source = this.owners[partition];
+        from   = this.shards.get(source);
+        to     = this.shards.get(target);
+        copied = 0;
+
+        // the target does not own the partition, so anything it holds for it is left over from an earlier attempt
+        this.drop(to, partition);
+
+        do
+        {
+            final byte[]          request;
+            final DataInputStream page;
+            final int             count;
+
+            request = new byte[] {ShardProtocol.COPY, 0, 0, 0, 0, 0, 0, 0, 0};
+
+            writeInt(request, 1, partition);
+            writeInt(request, 5, copied);
+
+            page  = ShardProtocol.result(from.call(request));
+            count = page.readInt();
+
+            ShardProtocol.result(to.call(this.repartition(page, partition, count)));
+
+            copied += count;
+            more    = page.readBoolean();
+        }
+        while(more);
+
+        // each task writes a different partition's slot, seen by the caller through Future.get
+        this.owners[partition] = target;
+
+        try
+        {
+            this.drop(from, partition);
+        }
+        catch(final IOException e)
+        {
+            synchronized(this.leftovers)
+            {
+                this.leftovers.put(partition, source);
+            }
+
+            throw e;
+        }
+    }
+
+    /*
+     * Removes a whole partition from a shard.
+     */
+    private void drop(final ShardTransport shard, final int partition) throws IOException
+    {
+        final byte[] request;
+        request = new byte[] {ShardProtocol.DROP, 0, 0, 0, 0};
+
+        writeInt(request, 1, partition);
+        ShardProtocol.result(shard.call(request));
+    }
+
+    /*
+     * Turns the entries of a COPY page into a PUT of the same devices.
+     */
+    private byte[] repartition(final DataInputStream taken, final int partition, final int count) throws IOException
+    {
+        final ByteArrayOutputStream bytes;
+        final DataOutputStream      out;
+
+        bytes = new ByteArrayOutputStream();
+        out   = new DataOutputStream(bytes);
+
+        out.writeByte(ShardProtocol.PUT);
+        out.writeInt(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            out.writeInt(partition);
+            out.writeUTF(taken.readUTF());
+            ShardProtocol.writeDevice(out, ShardProtocol.readDevice(taken));
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /*
+     * Sends a single-key request to the shard that owns the key.
+     */
+    private DataInputStream callOwner(final byte op, final String key) throws IOException
+    {
+        final int                   partition;
+        final ByteArrayOutputStream bytes;
+        final DataOutputStream      out;
+
+        partition = this.partitionOf(key);
+        bytes     = new ByteArrayOutputStream();
+        out       = new DataOutputStream(bytes);
+
+        out.writeByte(op);
+        out.writeInt(partition);
+        out.writeUTF(key);
+
+        return ShardProtocol.result(this.shards.get(this.owners[partition]).call(bytes.toByteArray()));
+    }
+
+    /*
+     * Sends the same argument-less request to every shard in parallel and decodes each response on its own task.
+     */
+    private <R> List<R> scatterGather(final byte op, final Decoder<R> decoder) throws IOException
+    {
+        this.topology.readLock().lock();
+
+        try
+        {
+            final byte[]            request;
+            final List<Callable<R>> calls;
+
+            request = new byte[] {op};
+            calls   = new ArrayList<>(this.shards.size());
+
+            for(final ShardTransport shard : this.shards)
+            {
+                calls.add(() -> decoder.decode(ShardProtocol.result(shard.call(request))));
+            }
+
+            return this.gather(calls);
+        }
+        finally
+        {
+            this.topology.readLock().unlock();
+        }
+    }
+
+    /*
+     * Reads every IPad a shard holds, a page at a time.
+     */
+    private static List<IPad> padsOf(final ShardTransport shard) throws IOException
+    {
+        final List<IPad> pads;
+        int              partition;
+        int              skip;
+        boolean          more;
+
+        pads      = new ArrayList<>();
+        partition = 0;
+        skip      = 0;
+
+        do
+        {
+            final byte[]          request;
+            final DataInputStream page;
+            final int             count;
+
+            request = new byte[] {ShardProtocol.PADS_BY_OS, 0, 0, 0, 0, 0, 0, 0, 0};
+
+            writeInt(request, 1, partition);
+            writeInt(request, 5, skip);
+
+            page  = ShardProtocol.result(shard.call(request));
+            count = page.readInt();
+
+            for(int i = 0; i < count; i++)
+            {
+                pads.add((IPad) ShardProtocol.readDevice(page));
+            }
+
+            more = page.readBoolean();
+
+            if(more)
+            {
+                partition = page.readInt();
+                skip      = page.readInt();
+            }
+        }
+        while(more);
+
+        return pads;
+    }
+
+    /*
+     * Runs the calls in parallel and waits for all of them, rethrowing the first failure.
+     */
+    private <R> List<R> gather(final List<Callable<R>> calls) throws IOException
+    {
+        final List<Future<R>> futures;
+        final List<R>         results;
+        Throwable             failure;
+
+        // a single call runs on the caller's thread
+        if(calls.size() == 1)
+        {
+            try
+            {
+                // a call may return null, as the PUT calls do, which List.of rejects
+                return Collections.singletonList(calls.get(0).call());
+            }
+            catch(final IOException | RuntimeException e)
+            {
+                throw e;
+            }
+            catch(final Exception e)
+            {
+                throw new IOException(e);
+            }
+        }
+
+        futures = new ArrayList<>(calls.size());
+        results = new ArrayList<>(calls.size());
+        failure = null;
+
+        for(final Callable<R> call : calls)
+        {
+            futures.add(this.scatter.submit(call));
+        }
+
+        // wait for every call, even after a failure, so none is still running when the lock is released
+        for(final Future<R> future : futures)
+        {
+            try
+            {
+                results.add(future.get());
+            }
+            catch(final ExecutionException e)
+            {
+                failure = failure == null ? e.getCause() : failure;
+            }
+            catch(final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+
+                for(final Future<R> pending : futures)
+                {
+                    pending.cancel(true);
+                }
+
+                throw new IOException("Interrupted while waiting for shards", e);
+            }
+        }
+
+        if(failure instanceof IOException)
+        {
+            throw (IOException) failure;
+        }
+
+        if(failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+
+        if(failure != null)
+        {
+            throw new IOException("Shard call failed", failure);
+        }
+
+        return results;
+    }
+
+    /*
+     * Returns the index of the shard that owns a partition on the ring.
+     */
+    private int ownerOnRing(final int partition)
+    {
+        final Map.Entry<Long, Integer> point;
+        point = this.ring.ceilingEntry(mix(~(long) partition));
+
+        return point != null ? point.getValue() : this.ring.firstEntry().getValue();
+    }
+
+    /*
+     * Spreads the bits of a hash over all 64 bits (the finalizer of MurmurHash3).
+     */
+    private static long mix(final long hash)
+    {
+        long h;
+        h = hash;
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+
+        return h;
+    }
+
+    /*
+     * Hashes a shard name to 64 bits (FNV-1a over its chars), so names with equal String.hashCode still get different
+     * ring points.
+     */
+    private static long nameHash(final String name)
+    {
+        long hash;
+        hash = 0xcbf29ce484222325L;
+
+        for(int i = 0; i < name.length(); i++)
+        {
+            hash ^= name.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    /*
+     * Writes a big-endian int into a request, matching DataOutputStream.
+     */
+    private static void writeInt(final byte[] bytes, final int offset, final int value)
+    {
+        bytes[offset]     = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /*
+     * Decodes one shard's response to a query.
+     */
+    @FunctionalInterface
+    private interface Decoder<R>
+    {
+        R decode(DataInputStream in) throws IOException;
+    }
+
+    /*
+     * The devices to be put on one shard, encoded as they are added into PUT requests of about PAGE_BYTES each.
+     */
+    private static final class Batch
+    {
+        private final List<byte[]>          requests;
+        private final ByteArrayOutputStream bytes;
+        private final DataOutputStream      out;
+        private int                         count;
+
+        private Batch()
+        {
+            this.requests = new ArrayList<>();
+            this.bytes    = new ByteArrayOutputStream();
+            this.out      = new DataOutputStream(this.bytes);
+        }
+
+        private void add(final int partition, final String key, final IDevice device) throws IOException
+        {
+            this.out.writeInt(partition);
+            this.out.writeUTF(key);
+            ShardProtocol.writeDevice(this.out, device);
+            this.count++;
+
+            if(this.bytes.size() >= ShardProtocol.PAGE_BYTES)
+            {
+                this.close();
+            }
+        }
+
+        private List<byte[]> toRequests()
+        {
+            if(this.count > 0)
+            {
+                this.close();
+            }
+
+            return this.requests;
+        }
+
+        /*
+         * Ends the current request and starts the next.
+         */
+        private void close()
+        {
+            final byte[] entries;
+            final byte[] request;
+
+            entries = this.bytes.toByteArray();
+            request = new byte[5 + entries.length];
+
+            request[0] = ShardProtocol.PUT;
+            writeInt(request, 1, this.count);
+            System.arraycopy(entries, 0, request, 5, entries.length);
+
+            this.requests.add(request);
+            this.bytes.reset();
+            this.count = 0;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * A ShardTransport to a FleetShardServer on another node.
+ * <p>
+ * Each transport holds one TCP connection and sends one length-prefixed frame at a time, waiting for its response
+ * before the next call may start. A registry calls each shard from its own task, so shards still answer in
+ * parallel; open more transports to the same server for more calls in flight.
+ * </p>
+ * <p>
+ * A call that fails on the connection, such as one whose frame is refused or whose server went away, closes the
+ * connection and throws; the next call opens a new one. A failed call is not retried, since it may have run on the
+ * shard before its response was lost.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class SocketTransport implements ShardTransport
+{
+    private final String            name;
+    private final InetSocketAddress address;
+    private volatile Socket         socket;
+    private DataInputStream         in;
+    private DataOutputStream        out;
+    private volatile boolean        closed;
+
+    /**
+     * Constructor for SocketTransport; connects to the server.
+     *
+     * @param name    is the name of the shard.
+     * @param address is the address of the shard's FleetShardServer.
+     *
+     * @throws IOException if the server cannot be reached.
+     */
+    public SocketTransport(final String name, final InetSocketAddress address) throws IOException
+    {
+        if(name == null || address == null)
+        {
+            throw new IllegalArgumentException("Name and address must not be null");
+        }
+
+        this.name    = name;
+        this.address = address;
+
+        this.connect();
+    }
+
+    /**
+     * Sends a request and waits for the response, reconnecting first if the previous call broke the connection.
+     *
+     * @param request is the encoded request.
+     *
+     * @return the encoded response.
+     *
+     * @throws IOException if the connection fails or is closed by the server.
+     */
+    @Override
+    public synchronized byte[] call(final byte[] request) throws IOException
+    {
+        final byte[] response;
+
+        if(this.closed)
+        {
+            throw new IOException("Transport to shard " + this.name + " is closed");
+        }
+
+        if(this.socket == null)
+        {
+            this.connect();
+        }
+
+        try
+        {
+            ShardProtocol.writeFrame(this.out, request);
+            response = ShardProtocol.readFrame(this.in);
+
+            if(response == null)
+            {
+                throw new IOException("Shard " + this.name + " closed the connection");
+            }
+        }
+        catch(final IOException e)
+        {
+            // the stream may be left inside a frame, so it cannot carry the next call
+            this.disconnect();
+            throw e;
+        }
+
+        return response;
+    }
+
+    /**
+     * Getter for the name of the shard.
+     *
+     * @return the shard name as a String.
+     */
+    @Override
+    public String shardName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Closes the connection; a call waiting for its response fails.
+     *
+     * @throws IOException if the socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        final Socket current;
+
+        this.closed = true;
+        current     = this.socket;
+
+        if(current != null)
+        {
+            current.close();
+        }
+    }
+
+    /*
+     * Opens a new connection to the server.
+     */
+    private void connect() throws IOException
+    {
+        final Socket connection;
+        connection = new Socket();
+
+        try
+        {
+            connection.setTcpNoDelay(true);
+            connection.connect(this.address);
+
+            this.in  = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+        }
+        catch(final IOException e)
+        {
+            connection.close();
+            throw e;
+        }
+
+        this.socket = connection;
+
+        // close does not wait for a call, so it may have run while this connection was opened
+        if(this.closed)
+        {
+            this.disconnect();
+            throw new IOException("Transport to shard " + this.name + " is closed");
+        }
+    }
+
+    /*
+     * Closes a connection that cannot carry another call.
+     */
+    private void disconnect()
+    {
+        try
+        {
+            this.socket.close();
+        }
+        catch(final IOException e)
+        {
+            // the connection is abandoned either way
+        }
+
+        this.socket = null;
+        this.in     = null;
+        this.out    = null;
+    }
+}
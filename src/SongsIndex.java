@@ -0,0 +1,53 @@
+import java.util.List;
+
+/**
+ * A sorted index of IPods by number of songs stored.
+ * <p>
+ * Follows setNumSongsStored, so answers reflect the latest song counts.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class SongsIndex extends RangeIndex<IPod>
+{
+    /**
+     * Constructor for an empty SongsIndex.
+     */
+    public SongsIndex()
+    {
+        super(DeviceField.NUM_SONGS_STORED);
+    }
+
+    @Override
+    long keyOf(final IPod pod)
+    {
+        return pod.getNumSongsStored();
+    }
+
+    /**
+     * Returns the IPods with a number of songs in [low, high], fewest songs first.
+     *
+     * @param low  is the smallest number of songs, inclusive.
+     * @param high is the largest number of songs, inclusive.
+     *
+     * @return a new list of IPods.
+     */
+    public List<IPod> between(final int low, final int high)
+    {
+        return this.keysBetween((long) low, (long) high);
+    }
+
+    /**
+     * Counts the IPods with a number of songs in [low, high].
+     *
+     * @param low  is the smallest number of songs, inclusive.
+     * @param high is the largest number of songs, inclusive.
+     *
+     * @return the number of IPods as an int.
+     */
+    public int count(final int low, final int high)
+    {
+        return this.countKeys((long) low, (long) high);
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.Arrays;
+
+/**
+ * Dictionary-encodes Strings as small dense ints.
+ * <p>
+ * Each distinct String is stored once and given the next free id, starting at 0. Null is encoded as NULL_ID.
+ * Used by the fleet stores for carriers and operating system versions, which repeat across millions of devices.
+ * </p>
+ * <p>
+ * Not thread-safe; callers must synchronize writers externally.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class StringDictionary
+{
+    static final int NULL_ID = -1;
+    static final int ABSENT  = -2;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] values;
+    private int[]    slots;
+    private int      size;
+
+    /**
+     * Constructor for an empty StringDictionary.
+     */
+    public StringDictionary()
+    {
+        this.values = new String[INITIAL_CAPACITY];
+        this.slots  = new int[INITIAL_CAPACITY * 2];
+        this.size   = 0;
+    }
+
+    /**
+     * Returns the id of a String, adding it to the dictionary if it is new.
+     *
+     * @param value is the String to be encoded, may be null.
+     *
+     * @return the id of the String, or NULL_ID for null.
+     */
+    public int encode(final String value)
+    {
+        if(value == null)
+        {
+            return NULL_ID;
+        }
+
+        final int mask;
+        int       slot;
+
+        mask = this.slots.length - 1;
+        slot = mix(value.hashCode()) & mask;
+
+        // slots hold id + 1 so that 0 marks an empty slot
+        while(this.slots[slot] != 0)
+        {
+            final int id;
+            id = this.slots[slot] - 1;
+
+            if(this.values[id].equals(value))
+            {
+                return id;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        final int id;
+        id = this.size;
+
+        if(id == this.values.length)
+        {
+            this.values = Arrays.copyOf(this.values, id * 2);
+        }
+
+        this.values[id]  = value;
+        this.slots[slot] = id + 1;
+        this.size++;
+
+        if(this.size * 2 > this.slots.length)
+        {
+            this.rehash();
+        }
+
+        return id;
+    }
+
+    /**
+     * Returns the id of a String without adding it.
+     *
+     * @param value is the String to be looked up, may be null.
+     *
+     * @return the id of the String, NULL_ID for null, or ABSENT if the String is not in the dictionary.
+     */
+    public int lookup(final String value)
+    {
+        if(value == null)
+        {
+            return NULL_ID;
+        }
+
+        final int mask;
+        int       slot;
+
+        mask = this.slots.length - 1;
+        slot = mix(value.hashCode()) & mask;
+
+        while(this.slots[slot] != 0)
+        {
+            final int id;
+            id = this.slots[slot] - 1;
+
+            if(this.values[id].equals(value))
+            {
+                return id;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        return ABSENT;
+    }
+
+    /**
+     * Returns the String with the given id.
+     *
+     * @param id is the id returned by encode.
+     *
+     * @return the String, or null for NULL_ID.
+     */
+    public String decode(final int id)
+    {
+        if(id == NULL_ID)
+        {
+            return null;
+        }
+
+        if(id < 0 || id >= this.size)
+        {
+            throw new IndexOutOfBoundsException("No string with id " + id);
+        }
+
+        return this.values[id];
+    }
+
+    /**
+     * Getter for the number of distinct Strings.
+     *
+     * @return the number of distinct Strings as an int.
+     */
+    public int size()
+    {
+        return this.size;
+    }
+
+    /*
+     * Doubles the slot table and re-inserts every id.
+     */
+    private void rehash()
+    {
+        final int[] newSlots;
+        final int   mask;
+
+        newSlots = new int[this.slots.length * 2];
+        mask     = newSlots.length - 1;
+
+        for(int id = 0; id < this.size; id++)
+        {
+            int slot;
+            slot = mix(this.values[id].hashCode()) & mask;
+
+            while(newSlots[slot] != 0)
+            {
+                slot = (slot + 1) & mask;
+            }
+
+            newSlots[slot] = id + 1;
+        }
+
+        this.slots = newSlots;
+    }
+
+    /*
+     * Spreads the high bits of a String hash into the low bits used for the slot.
+     */
+    private static int mix(final int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,182 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates minute debits for one very hot IPhone across striped cells.
+ * <p>
+ * When many threads debit the same phone, compare-and-set on its single minutes field keeps failing and retrying.
+ * A StripedMinuteAccount spreads the debits over padded cells picked by thread, each updated by CAS on the double's
+ * long bits, and folds them into the phone on flush. Draining a cell swaps it back to zero atomically, so no debit
+ * is ever lost or applied twice.
+ * </p>
+ * <p>
+ * The phone's own minutes lag behind until flush is called, and balance is exact once writers are quiet. debit and
+ * credit are unconditional. debitIfSufficient flushes and then checks the phone atomically, so it never takes the
+ * minutes below zero itself, but debits recorded through debit after its flush are not checked against it and can
+ * still overdraw the phone when they are flushed. Callers that need a hard floor must use debitIfSufficient for every
+ * debit.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class StripedMinuteAccount
+{
+    // 8 longs = 64 bytes between used slots so that cells do not share a cache line
+    private static final int  PADDING = 8;
+    private static final long ZERO    = Double.doubleToRawLongBits(0.0);
+
+    private final IPhone          phone;
+    private final AtomicLongArray cells;
+    private final int             mask;
+
+    /**
+     * Constructor for StripedMinuteAccount with one cell per available processor.
+     *
+     * @param phone is the IPhone whose minutes are debited.
+     */
+    public StripedMinuteAccount(final IPhone phone)
+    {
+        this(phone, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for StripedMinuteAccount.
+     *
+     * @param phone   is the IPhone whose minutes are debited.
+     * @param stripes is the minimum number of cells; rounded up to a power of two.
+     */
+    public StripedMinuteAccount(final IPhone phone, final int stripes)
+    {
+        if(stripes < 1)
+        {
+            throw new IllegalArgumentException("stripes must be positive: " + stripes);
+        }
+
+        final int count;
+        count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+
+        this.phone = phone;
+        this.cells = new AtomicLongArray(count * PADDING);
+        this.mask  = count - 1;
+    }
+
+    /**
+     * Getter for the IPhone this account debits.
+     *
+     * @return the IPhone.
+     */
+    public IPhone getPhone()
+    {
+        return this.phone;
+    }
+
+    /**
+     * Records a debit without touching the phone.
+     *
+     * @param mins is the number of minutes used as a double.
+     */
+    public void debit(final double mins)
+    {
+        final int index;
+        index = this.cellOf(Thread.currentThread());
+
+        while(true)
+        {
+            final long current;
+            final long next;
+
+            current = this.cells.get(index);
+            next    = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + mins);
+
+            if(this.cells.compareAndSet(index, current, next))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records a credit without touching the phone.
+     *
+     * @param mins is the number of minutes added as a double.
+     */
+    public void credit(final double mins)
+    {
+        this.debit(-mins);
+    }
+
+    /**
+     * Returns the sum of the debits recorded but not yet flushed.
+     *
+     * @return the pending debits as a double.
+     */
+    public double pending()
+    {
+        double sum;
+        sum = 0.0;
+
+        for(int i = 0; i < this.cells.length(); i += PADDING)
+        {
+            sum += Double.longBitsToDouble(this.cells.get(i));
+        }
+
+        return sum;
+    }
+
+    /**
+     * Returns the minutes remaining once pending debits are applied.
+     *
+     * @return the minutes remaining as a double.
+     */
+    public double balance()
+    {
+        return this.phone.getMinutesRemaining() - this.pending();
+    }
+
+    /**
+     * Drains every cell and applies the total to the phone in one atomic debit.
+     *
+     * @return the minutes remaining on the phone after the flush.
+     */
+    public double flush()
+    {
+        double sum;
+        sum = 0.0;
+
+        for(int i = 0; i < this.cells.length(); i += PADDING)
+        {
+            sum += Double.longBitsToDouble(this.cells.getAndSet(i, ZERO));
+        }
+
+        return this.phone.debitMinutes(sum);
+    }
+
+    /**
+     * Flushes, then debits the phone only if at least that many minutes remain.
+     * <p>
+     * Only this debit is checked: debits recorded through debit by other threads after the flush are applied by a
+     * later flush whether or not the minutes cover them.
+     * </p>
+     *
+     * @param mins is the number of minutes used as a double.
+     *
+     * @return a boolean; true if the minutes were debited, false if too few minutes remain.
+     */
+    public boolean debitIfSufficient(final double mins)
+    {
+        this.flush();
+
+        return this.phone.debitMinutesIfSufficient(mins);
+    }
+
+    /*
+     * Picks the cell of a thread.
+     */
+    private int cellOf(final Thread thread)
+    {
+        final long id;
+        id = thread.getId() * 0x9E3779B97F4A7C15L;
+
+        return ((int) (id >>> 32) & this.mask) * PADDING;
+    }
+}
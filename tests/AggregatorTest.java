@@ -0,0 +1,197 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Drives FleetAggregator. Tests that NaN is skipped by the stats, grouped stats, percentiles and histogram of a column,
+ * on one thread and in parallel, and that each reports how many NaN values it skipped.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class AggregatorTest
+{
+    private static final int      VALUES    = 200_000;
+    private static final int      NAN_EVERY = 7;
+    private static final String[] LABELS    = {"Bell", "Rogers", "Telus", "Fido"};
+
+    public static void main(final String[] args)
+    {
+        final ForkJoinPool pool;
+        final double[]     values;
+        final int[]        keys;
+        final double[]     kept;
+        final long         nans;
+
+        pool   = ForkJoinPool.commonPool();
+        values = new double[VALUES];
+        keys   = new int[VALUES];
+
+        // the last group holds nothing but NaN
+        for(int i = 0; i < VALUES; i++)
+        {
+            values[i] = i % NAN_EVERY == 0 ? Double.NaN : i - VALUES / 2;
+            keys[i]   = i % NAN_EVERY == 0 && i % 2 == 0 ? LABELS.length - 1 : i % (LABELS.length - 1);
+        }
+
+        kept = Arrays.stream(values).filter(value -> value == value).toArray();
+        nans = VALUES - kept.length;
+
+        final FleetAggregator.Stats small;
+        final FleetAggregator.Stats large;
+
+        small = FleetAggregator.stats(values, 0, 1000);
+        large = FleetAggregator.stats(values, pool);
+
+        System.out.println("FleetAggregator NaN Test:");
+        Checks.check(matches(small, Arrays.copyOf(values, 1000)), "a short column's stats skip NaN and count it");
+        Checks.check(matches(large, values), "a long column's stats, merged from parallel ranges, skip NaN and count it");
+        Checks.check(large.getCount() == kept.length && large.getNaNCount() == nans, "the count and the NaN count add up to the column");
+        Checks.check(groupsMatch(FleetAggregator.groupBy(keys, LABELS, values, pool), keys, values), "each group's stats and percentiles skip NaN and count it");
+        Checks.check(Arrays.equals(FleetAggregator.percentiles(values, 0.0, 0.5, 1.0), expectedPercentiles(kept, 0.0, 0.5, 1.0)), "percentiles skip NaN instead of ranking it above every value");
+        Checks.check(histogramMatches(FleetAggregator.histogram(values, -50_000.0, 50_000.0, 10, pool), values, nans), "a histogram counts NaN apart from every bucket and both bounds");
+        Checks.check(fleetSkipsNaN(), "a fleet's minutes remaining skip a phone with NaN minutes");
+        System.out.println();
+    }
+
+    /*
+     * Returns whether Stats agree with a brute-force scan of a column that skips NaN.
+     */
+    private static boolean matches(final FleetAggregator.Stats stats, final double[] values)
+    {
+        long   count;
+        long   nans;
+        double sum;
+        double min;
+        double max;
+
+        count = 0;
+        nans  = 0;
+        sum   = 0.0;
+        min   = Double.POSITIVE_INFINITY;
+        max   = Double.NEGATIVE_INFINITY;
+
+        for(final double value : values)
+        {
+            if(value != value)
+            {
+                nans++;
+            }
+            else
+            {
+                count++;
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        if(count == 0)
+        {
+            return stats.getCount() == 0 && stats.getNaNCount() == nans && Double.isNaN(stats.getMin()) && Double.isNaN(stats.getMax()) && Double.isNaN(stats.getMean());
+        }
+
+        // the values are whole numbers well below 2^53, so the sum is exact in any order
+        return stats.getCount() == count && stats.getNaNCount() == nans && stats.getSum() == sum && stats.getMin() == min && stats.getMax() == max;
+    }
+
+    /*
+     * Returns whether every group's Stats and percentiles agree with a brute-force scan of that group's values.
+     */
+    private static boolean groupsMatch(final FleetAggregator.Grouped grouped, final int[] keys, final double[] values)
+    {
+        for(int group = 0; group < LABELS.length; group++)
+        {
+            final List<Double> members;
+            final double[]     column;
+            final double[]     kept;
+
+            members = new ArrayList<>();
+
+            for(int i = 0; i < keys.length; i++)
+            {
+                if(keys[i] == group)
+                {
+                    members.add(values[i]);
+                }
+            }
+
+            column = members.stream().mapToDouble(Double::doubleValue).toArray();
+            kept   = Arrays.stream(column).filter(value -> value == value).toArray();
+
+            if(!matches(grouped.get(LABELS[group]), column))
+            {
+                return false;
+            }
+
+            if(!Arrays.equals(grouped.percentiles(LABELS[group], 0.0, 0.5, 1.0), expectedPercentiles(kept, 0.0, 0.5, 1.0)))
+            {
+                return false;
+            }
+        }
+
+        // the all-NaN group still shows, so its skipped values are reported
+        return grouped.get(LABELS[LABELS.length - 1]).getCount() == 0 && grouped.toString().contains(LABELS[LABELS.length - 1]);
+    }
+
+    /*
+     * Returns the nearest-rank percentiles of values with no NaN, or NaN for each if there are none.
+     */
+    private static double[] expectedPercentiles(final double[] kept, final double... fractions)
+    {
+        final double[] sorted;
+        final double[] result;
+
+        sorted = kept.clone();
+        result = new double[fractions.length];
+
+        Arrays.sort(sorted);
+
+        for(int i = 0; i < fractions.length; i++)
+        {
+            result[i] = sorted.length == 0 ? Double.NaN : sorted[(int) Math.max(1, Math.ceil(fractions[i] * sorted.length)) - 1];
+        }
+
+        return result;
+    }
+
+    /*
+     * Returns whether a Histogram's buckets, bounds and NaN count add up to the column and its NaN count is right.
+     */
+    private static boolean histogramMatches(final FleetAggregator.Histogram histogram, final double[] values, final long nans)
+    {
+        long total;
+        total = histogram.getBelow() + histogram.getAbove() + histogram.getNaNCount();
+
+        for(int bucket = 0; bucket < histogram.buckets(); bucket++)
+        {
+            total += histogram.count(bucket);
+        }
+
+        return histogram.buckets() == 10 && histogram.getNaNCount() == nans && total == values.length;
+    }
+
+    /*
+     * Aggregates a fleet with one phone whose minutes are NaN, and returns whether every aggregation of the minutes
+     * leaves it out.
+     */
+    private static boolean fleetSkipsNaN()
+    {
+        final List<IDevice>   devices;
+        final FleetAggregator aggregator;
+        final IPhone          unknown;
+
+        devices = new ArrayList<>();
+        unknown = new IPhone(0.0, "Bell");
+
+        unknown.setMinutesRemaining(Double.NaN);
+        devices.add(new IPhone(10.0, "Bell"));
+        devices.add(unknown);
+        devices.add(new IPhone(30.0, "Rogers"));
+
+        aggregator = FleetAggregator.of(devices);
+
+        return aggregator.minutesRemaining().getMean() == 20.0 && aggregator.minutesRemaining().getNaNCount() == 1 && aggregator.minutesRemainingByCarrier().get("Bell").getMean() == 10.0 && aggregator.minutesRemainingPercentiles(1.0)[0] == 30.0 && aggregator.minutesRemainingHistogram(0.0, 40.0, 4).getNaNCount() == 1;
+    }
+}
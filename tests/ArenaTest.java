@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Drives DeviceArena. Tests that devices added as objects and as raw fields read back the same, survive a snapshot
+ * file round trip, and cannot be read once the arena is closed.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class ArenaTest
+{
+    public static void main(final String[] args) throws IOException
+    {
+        final IDevice[] devices;
+        final Path      file;
+
+        devices = new IDevice[] {new IPhone(120.5, "Bell"),
+                                 new IPhone16(42.0, "Rogers", true, 512),
+                                 new IPad(true, "iPadOS 17"),
+                                 new IPad(false, null),
+                                 new IPod(300, 85.0)};
+        file    = Files.createTempFile("arena-test", ".snapshot");
+
+        try(final DeviceArena arena = new DeviceArena())
+        {
+            for(final IDevice device : devices)
+            {
+                arena.add(device);
+            }
+
+            arena.addIPhone(120.5, "Bell");
+            arena.addIPhone16(42.0, "Rogers", true, 512);
+            arena.addIPad(true, "iPadOS 17");
+            arena.addIPad(false, null);
+            arena.addIPod(300, 85.0);
+
+            System.out.println("DeviceArena Test:");
+            Checks.check(arena.size() == 2L * devices.length, "the arena holds every added device");
+            Checks.check(sameDevices(arena, devices, 0), "devices added as objects read back equal");
+            Checks.check(sameDevices(arena, devices, devices.length), "devices added as fields read back equal");
+            Checks.check("Rogers".equals(arena.getCarrier(6)) && arena.getMemoryGB(6) == 512 && arena.hasHighResCamera(6), "an iphone16 added as fields keeps its carrier, memory and camera");
+            Checks.check(arena.getOpSystemVersion(8) == null, "an ipad with no version reads back null");
+
+            arena.setMinutesRemaining(0, 7.25);
+            arena.setHasCase(2, false);
+            Checks.check(arena.getMinutesRemaining(0) == 7.25 && !arena.getHasCase(2), "setters change the stored record");
+
+            arena.writeTo(file);
+        }
+
+        try(final DeviceArena reopened = DeviceArena.open(file))
+        {
+            Checks.check(reopened.size() == 2L * devices.length, "a reopened snapshot holds every device");
+            Checks.check(reopened.getMinutesRemaining(0) == 7.25 && sameDevices(reopened, devices, devices.length), "a reopened snapshot reads back the same devices");
+
+            reopened.addIPod(10, 60.0);
+            Checks.check(reopened.getNumSongsStored(2L * devices.length) == 10, "a reopened snapshot accepts new devices");
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+
+        final DeviceArena closed;
+        boolean           rejected;
+
+        closed = new DeviceArena();
+        closed.addIPod(1, 1.0);
+        closed.close();
+
+        try
+        {
+            closed.getNumSongsStored(0);
+            rejected = false;
+        }
+        catch(final IllegalStateException e)
+        {
+            rejected = true;
+        }
+
+        Checks.check(rejected, "a closed arena rejects reads");
+        System.out.println();
+    }
+
+    /*
+     * Returns whether the records from start on materialize to devices equal to the expected ones, of the same type.
+     */
+    private static boolean sameDevices(final DeviceArena arena, final IDevice[] expected, final int start)
+    {
+        for(int i = 0; i < expected.length; i++)
+        {
+            final IDevice actual;
+            actual = arena.materialize(start + i);
+
+            if(actual.getType() != expected[i].getType() || !actual.equals(expected[i]) || !actual.toString().equals(expected[i].toString()))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
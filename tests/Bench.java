@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * A small benchmark harness: warms up, measures timed iterations and reports results as JSON.
+ * <p>
+ * Each benchmark body returns a long which is folded into a volatile sink so the JIT cannot remove the work.
+ * Iteration counts and durations can be changed with the bench.warmups, bench.iterations and bench.millis system
+ * properties.
+ * </p>
+ * <p>
+ * This harness stands in for JMH. The project is an IDE module with no Maven or Gradle build to host a JMH module
+ * and its annotation processor, so benchmarks here are plain main programs compiled with the rest of tests. Results
+ * use the field names of JMH's JSON output so they can be compared with the same tools. Unlike JMH it runs every
+ * benchmark in the same JVM without forking, so a benchmark can be affected by the profile left by earlier ones;
+ * compare results of the same run, or pass one benchmark's arguments at a time.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class Bench
+{
+    private static final int  WARMUPS    = Integer.getInteger("bench.warmups", 3);
+    private static final int  ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long MILLIS     = Long.getLong("bench.millis", 500L);
+
+    static volatile long sink;
+
+    private final List<String> results;
+
+    /**
+     * Constructor for an empty Bench.
+     */
+    public Bench()
+    {
+        this.results = new ArrayList<>();
+    }
+
+    /**
+     * Runs one benchmark and records its result.
+     *
+     * @param name             is the benchmark name.
+     * @param params           is a short description of the parameters, such as "size=1000".
+     * @param opsPerInvocation is the number of operations one call of body performs.
+     * @param body             is the code being measured.
+     *
+     * @return the mean time per operation in nanoseconds.
+     */
+    public double run(final String name, final String params, final long opsPerInvocation, final LongSupplier body)
+    {
+        final double[] nanosPerOp;
+        double         mean;
+        double         min;
+
+        for(int i = 0; i < WARMUPS; i++)
+        {
+            iteration(opsPerInvocation, body);
+        }
+
+        nanosPerOp = new double[ITERATIONS];
+        mean       = 0.0;
+        min        = Double.MAX_VALUE;
+
+        for(int i = 0; i < ITERATIONS; i++)
+        {
+            nanosPerOp[i] = iteration(opsPerInvocation, body);
+            mean         += nanosPerOp[i] / ITERATIONS;
+            min           = Math.min(min, nanosPerOp[i]);
+        }
+
+        double variance;
+        variance = 0.0;
+
+        for(final double value : nanosPerOp)
+        {
+            variance += (value - mean) * (value - mean) / Math.max(1, ITERATIONS - 1);
+        }
+
+        this.results.add(String.format(java.util.Locale.ROOT, "{\"benchmark\":\"%s\",\"params\":\"%s\",\"mode\":\"avgt\",\"unit\":\"ns/op\",\"score\":%.3f,\"error\":%.3f,\"min\":%.3f,\"iterations\":%d}", name, params, mean, Math.sqrt(variance), min, ITERATIONS));
+        System.err.printf(java.util.Locale.ROOT, "%-40s %-16s %12.3f ns/op%n", name, params, mean);
+
+        return mean;
+    }
+
+    /**
+     * Returns every recorded result as a JSON array.
+     *
+     * @return the results as a JSON String.
+     */
+    public String toJson()
+    {
+        return "[\n  " + String.join(",\n  ", this.results) + "\n]\n";
+    }
+
+    /*
+     * Calls body until MILLIS have passed and returns the time per operation.
+     */
+    private static double iteration(final long opsPerInvocation, final LongSupplier body)
+    {
+        final long deadline;
+        final long begin;
+        long       calls;
+        long       acc;
+
+        begin    = System.nanoTime();
+        deadline = begin + MILLIS * 1_000_000L;
+        calls    = 0;
+        acc      = 0;
+
+        do
+        {
+            acc += body.getAsLong();
+            calls++;
+        }
+        while(System.nanoTime() < deadline);
+
+        sink += acc;
+
+        return (double) (System.nanoTime() - begin) / (calls * opsPerInvocation);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives RenderCache. Tests that it returns what toString returns, counts hits and misses, drops a device's rendering
+ * when a setter runs, keeps hot devices through a scan of one-off devices, never caches fleet views, and never
+ * caches a rendering that a racing setter made stale.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class CacheTest
+{
+    private static final int CAPACITY = 256;
+    private static final int HOT      = 64;
+    private static final int SCAN     = 2000;
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final RenderCache cache;
+        final IPhone16    phone;
+        final String      first;
+        final String      second;
+
+        cache  = new RenderCache(CAPACITY);
+        phone  = new IPhone16(42.5, "Bell", true, 256);
+        first  = cache.get(phone);
+        second = cache.get(phone);
+
+        System.out.println("RenderCache Test:");
+        Checks.check(first.equals(phone.toString()) && second == first, "a second get returns the cached rendering");
+        Checks.check(cache.stats().getHits() == 1 && cache.stats().getMisses() == 1, "hits and misses are counted");
+
+        phone.setCarrier("Rogers");
+
+        Checks.check(cache.get(phone).equals(phone.toString()) && cache.stats().getInvalidations() == 1, "a setter drops the rendering and the next get renders the new values");
+
+        phone.debitMinutes(2.5);
+
+        Checks.check(cache.get(phone).contains("40.000000") && cache.stats().getMisses() == 3, "a debit drops the rendering too");
+
+        final DeviceFleet fleet;
+        final IDevice     view;
+
+        fleet = new DeviceFleet();
+        view  = fleet.view(fleet.addIPod(10, 80.0));
+
+        cache.get(view);
+        cache.get(view);
+
+        Checks.check(cache.stats().getHits() == 1 && cache.stats().getMisses() == 3 && cache.get(view).equals(view.toString()), "fleet views are rendered but not cached");
+        Checks.check(hotSurvivesScan(), "hot devices stay cached through a scan of one-off devices");
+        Checks.check(cache.capacity() == CAPACITY, "the capacity is the requested power of two");
+        System.out.println();
+
+        System.out.println("Concurrent RenderCache Test:");
+        Checks.check(racingSetterNotCachedStale(), "a setter that runs while a miss renders keeps the stale rendering out of the cache");
+        System.out.println();
+    }
+
+    /*
+     * Warms the cache with hot devices, scans many devices asked for once each, and returns whether nearly all the hot
+     * devices still hit while most of the scan was turned away.
+     */
+    private static boolean hotSurvivesScan()
+    {
+        final RenderCache  cache;
+        final List<IPod>   hot;
+        final long         hitsBefore;
+        final long         hitsAfter;
+
+        cache = new RenderCache(CAPACITY);
+        hot   = new ArrayList<>();
+
+        for(int i = 0; i < HOT; i++)
+        {
+            hot.add(new IPod(i, 80.0));
+        }
+
+        for(int round = 0; round < 20; round++)
+        {
+            for(final IPod pod : hot)
+            {
+                cache.get(pod);
+            }
+        }
+
+        for(int i = 0; i < SCAN; i++)
+        {
+            cache.get(new IPod(i, 90.0));
+        }
+
+        hitsBefore = cache.stats().getHits();
+
+        for(final IPod pod : hot)
+        {
+            cache.get(pod);
+        }
+
+        hitsAfter = cache.stats().getHits();
+
+        return hitsAfter - hitsBefore >= HOT * 9 / 10 && cache.stats().getRejections() > SCAN / 2;
+    }
+
+    /*
+     * Holds a miss's render after it has read the old carrier, changes the carrier on another thread, and returns
+     * whether the next get renders the new carrier.
+     */
+    private static boolean racingSetterNotCachedStale() throws InterruptedException
+    {
+        final RenderCache    cache;
+        final CountDownLatch held;
+        final CountDownLatch released;
+        final HeldPhone      phone;
+        final Thread         reader;
+
+        cache    = new RenderCache(CAPACITY);
+        held     = new CountDownLatch(1);
+        released = new CountDownLatch(1);
+        phone    = new HeldPhone(held, released);
+        reader   = new Thread(() -> cache.get(phone));
+
+        reader.start();
+        held.await();
+        phone.setCarrier("Rogers");
+        released.countDown();
+        reader.join();
+
+        return cache.get(phone).contains("Rogers");
+    }
+
+    /*
+     * A phone whose first rendering parks after reading its fields until it is released.
+     */
+    private static final class HeldPhone extends IPhone
+    {
+        private final CountDownLatch held;
+        private final CountDownLatch released;
+
+        private HeldPhone(final CountDownLatch held, final CountDownLatch released)
+        {
+            super(100.0, "Bell");
+
+            this.held     = held;
+            this.released = released;
+        }
+
+        @Override
+        public StringBuilder appendTo(final StringBuilder sb)
+        {
+            super.appendTo(sb);
+
+            if(this.held.getCount() > 0)
+            {
+                this.held.countDown();
+
+                try
+                {
+                    this.released.await();
+                }
+                catch(final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return sb;
+        }
+    }
+}
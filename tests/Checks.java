@@ -0,0 +1,26 @@
+/**
+ * Prints the results of the test drivers in the CORRECT/INCORRECT style of Main, one line per claim.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public final class Checks
+{
+    /*
+     * Not instantiated.
+     */
+    private Checks()
+    {
+    }
+
+    /**
+     * Prints whether a claim held.
+     *
+     * @param held  is whether the claim held.
+     * @param claim is what was checked, as a sentence fragment.
+     */
+    public static void check(final boolean held, final String claim)
+    {
+        System.out.println((held ? "CORRECT: " : "INCORRECT: ") + claim);
+    }
+}
@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives FleetCounts. Tests that devices are counted per carrier, operating system version, case and memory, that
+ * versions are counted ignoring case, and that setters, including racing ones, move devices between counts.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class CountsTest
+{
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final FleetCounts counts;
+        final IPhone      phone;
+        final IPhone16    phone16;
+        final IPad        pad1;
+        final IPad        pad2;
+        final IPad        pad3;
+
+        counts  = new FleetCounts();
+        phone   = new IPhone(100.0, "Bell");
+        phone16 = new IPhone16(50.0, "Bell", true, 256);
+        pad1    = new IPad(true, "iPadOS 17");
+        pad2    = new IPad(false, "IPADOS 17");
+        pad3    = new IPad(true, null);
+
+        counts.add(phone);
+        counts.add(phone16);
+        counts.add(pad1);
+        counts.add(pad2);
+        counts.add(pad3);
+
+        System.out.println("FleetCounts Test:");
+        Checks.check(!counts.add(pad1), "a device is only counted once");
+        Checks.check(!counts.add(new IPod(10, 60.0)), "ipods are not counted");
+        Checks.check(counts.phonesByCarrier().count("Bell") == 2, "an iphone16 counts as a phone per carrier");
+        Checks.check(counts.phone16sByMemoryGB().count(256) == 1, "an iphone16 is counted per memory size");
+        Checks.check(counts.padsByOpSystemVersion().count("ipados 17") == 2, "iPadOS 17 and IPADOS 17 are counted together");
+        Checks.check(counts.padsByOpSystemVersion().count(null) == 1, "an ipad with no version is counted under null");
+
+        final Map<String, Long> versions;
+        versions = counts.padsByOpSystemVersion().counts();
+
+        Checks.check(versions.size() == 2 && versions.get("iPadOS 17") == 2L, "counts reports a version under its first spelling");
+
+        phone.setCarrier("Rogers");
+        pad2.setOpSystemVersion("iPadOS 18");
+        pad1.setOpSystemVersion("IPADOS 17");
+        pad3.setHasCase(false);
+
+        Checks.check(counts.phonesByCarrier().count("Bell") == 1 && counts.phonesByCarrier().count("Rogers") == 1, "setCarrier moves a phone to its new carrier");
+        Checks.check(counts.padsByOpSystemVersion().count("iPadOS 17") == 1 && counts.padsByOpSystemVersion().count("iPadOS 18") == 1, "setOpSystemVersion moves an ipad to its new version");
+        Checks.check(counts.padsByHasCase().count(true) == 1 && counts.padsByHasCase().count(false) == 2, "setHasCase moves an ipad between case counts");
+
+        counts.remove(phone16);
+
+        Checks.check(counts.phonesByCarrier().count("Bell") == 0 && counts.phone16sByMemoryGB().count(256) == 0, "a removed device leaves every count");
+
+        phone16.setCarrier("Telus");
+
+        Checks.check(counts.phonesByCarrier().count("Telus") == 0, "a removed device is no longer followed");
+        System.out.println();
+
+        final FleetCounts  raced;
+        final List<IPad>   pads;
+        final List<Thread> threads;
+        final String[]     spellings;
+        boolean            settled;
+
+        raced     = new FleetCounts();
+        pads      = new ArrayList<>();
+        threads   = new ArrayList<>();
+        spellings = new String[] {"iPadOS 16", "iPadOS 17", "IPADOS 17", "iPadOS 18"};
+
+        for(int i = 0; i < 100; i++)
+        {
+            final IPad pad;
+            pad = new IPad(true, "iPadOS 16");
+
+            pads.add(pad);
+            raced.add(pad);
+        }
+
+        // four threads set every tablet's version at once; notifications may arrive out of order
+        for(int t = 0; t < 4; t++)
+        {
+            final int thread;
+            thread = t;
+
+            threads.add(new Thread(() ->
+            {
+                for(int round = 0; round < 200; round++)
+                {
+                    for(final IPad pad : pads)
+                    {
+                        pad.setOpSystemVersion(spellings[(round + thread) % spellings.length]);
+                    }
+                }
+            }));
+        }
+
+        for(final Thread thread : threads)
+        {
+            thread.start();
+        }
+
+        for(final Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        settled = raced.padsByOpSystemVersion().counts().values().stream().mapToLong(Long::longValue).sum() == pads.size();
+
+        for(final String spelling : spellings)
+        {
+            long expected;
+            expected = 0;
+
+            for(final IPad pad : pads)
+            {
+                expected += spelling.equalsIgnoreCase(pad.getOpSystemVersion()) ? 1 : 0;
+            }
+
+            settled &= raced.padsByOpSystemVersion().count(spelling) == expected;
+        }
+
+        System.out.println("Concurrent FleetCounts Test:");
+        Checks.check(settled, "after racing setters every ipad is counted under its current version");
+        System.out.println();
+    }
+}
@@ -0,0 +1,191 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drives DeviceCsvLoader. Tests that a dump larger than the read buffer, with CRLF endings, comments, blank lines and
+ * numbers in every spelling Double.toString and hand-written dumps use, loads into the same devices, bit for bit, as
+ * splitting each line and calling the constructors, and that malformed lines are reported with their line number.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class CsvTest
+{
+    private static final int      ROWS     = 80_000;
+    private static final String[] CARRIERS = {"Bell", "Rogers", "T\u00e9l\u00e9-Qu\u00e9bec", ""};
+    private static final String[] NUMBERS  = {"0", "-0.0", "+12.5", "1e3", "2.5E-7", "123456789012345678", "0.30000000000000004", "1.7976931348623157E308", "4.9E-324", "000123.4500", ".5", "7."};
+
+    public static void main(final String[] args) throws IOException
+    {
+        final Path          file;
+        final Random        random;
+        final StringBuilder text;
+        final List<String>  lines;
+        final List<IDevice> loaded;
+
+        file   = Files.createTempFile("csv-test", ".csv");
+        random = new Random(9);
+        text   = new StringBuilder();
+        lines  = new ArrayList<>();
+        loaded = new ArrayList<>();
+
+        try
+        {
+            text.append("# nightly dump\n\n");
+
+            for(int i = 0; i < ROWS; i++)
+            {
+                final String line;
+                line = line(random);
+
+                lines.add(line);
+                text.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+            }
+
+            // the last line has no line ending
+            text.setLength(text.length() - (text.charAt(text.length() - 2) == '\r' ? 2 : 1));
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            final DeviceCsvLoader.LoadStats stats;
+            stats = DeviceCsvLoader.load(file, loaded::add);
+
+            System.out.println("DeviceCsvLoader Test:");
+            Checks.check(Files.size(file) > (1 << 20) && stats.getRows() == ROWS && loaded.size() == ROWS, "a dump larger than the read buffer loads every row");
+            Checks.check(sameAsSplit(lines, loaded), "every device matches splitting its line and calling the constructor, bit for bit");
+            Checks.check(rejects(file, "IPHONE,12.5,Bell\nIPOD,2147483648,80.0\n", ":2: int overflow"), "an int overflow is reported with its line number");
+            Checks.check(rejects(file, "IPAD,maybe,iPadOS 17\n", ":1: bad boolean"), "a bad boolean is reported");
+            Checks.check(rejects(file, "# header\nIPHONE16,1.0,Bell,true\n", ":2: expected 5 fields"), "a missing field is reported");
+            Checks.check(rejects(file, "IWATCH,1\n", "unknown device type"), "an unknown type is reported");
+            Checks.check(rejects(file, "IPHONE,1.2.3,Bell\n", "bad double"), "a bad double is reported");
+            System.out.println();
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    /*
+     * Builds one random line in the dump format.
+     */
+    private static String line(final Random random)
+    {
+        switch(random.nextInt(4))
+        {
+            case 0:
+                return "IPHONE," + number(random) + "," + CARRIERS[random.nextInt(CARRIERS.length)];
+            case 1:
+                return "IPHONE16," + number(random) + "," + CARRIERS[random.nextInt(CARRIERS.length)] + "," + (random.nextBoolean() ? "TRUE" : "false") + "," + (random.nextInt(2001) - 1000);
+            case 2:
+                return "IPAD," + (random.nextBoolean() ? "true" : "False") + ",iPadOS " + random.nextInt(20);
+            default:
+                return "IPOD," + random.nextInt() + "," + number(random);
+        }
+    }
+
+    /*
+     * Returns a double spelled by Double.toString, with a fixed number of decimals, or as one of the odd spellings.
+     */
+    private static String number(final Random random)
+    {
+        switch(random.nextInt(3))
+        {
+            case 0:
+                return Double.toString(Double.longBitsToDouble(random.nextLong() & 0x7fef_ffff_ffff_ffffL) * (random.nextBoolean() ? 1 : -1));
+            case 1:
+                return String.format("%.4f", random.nextDouble() * 1000.0).replace(',', '.');
+            default:
+                return NUMBERS[random.nextInt(NUMBERS.length)];
+        }
+    }
+
+    /*
+     * Returns whether every loaded device holds exactly the values its line spells.
+     */
+    private static boolean sameAsSplit(final List<String> lines, final List<IDevice> loaded)
+    {
+        for(int i = 0; i < lines.size(); i++)
+        {
+            final String[] fields;
+            final IDevice  device;
+
+            fields = lines.get(i).split(",", -1);
+            device = loaded.get(i);
+
+            switch(fields[0])
+            {
+                case "IPHONE16":
+                {
+                    final IPhone16 phone;
+                    phone = (IPhone16) device;
+
+                    if(!same(phone.getMinutesRemaining(), fields[1]) || !phone.getCarrier().equals(fields[2]) || phone.hasHighResCamera() != Boolean.parseBoolean(fields[3]) || phone.getMemoryGB() != Integer.parseInt(fields[4]))
+                    {
+                        return false;
+                    }
+
+                    break;
+                }
+                case "IPHONE":
+                {
+                    if(device instanceof IPhone16 || !same(((IPhone) device).getMinutesRemaining(), fields[1]) || !((IPhone) device).getCarrier().equals(fields[2]))
+                    {
+                        return false;
+                    }
+
+                    break;
+                }
+                case "IPAD":
+                {
+                    if(((IPad) device).getHasCase() != Boolean.parseBoolean(fields[1]) || !((IPad) device).getOpSystemVersion().equals(fields[2]))
+                    {
+                        return false;
+                    }
+
+                    break;
+                }
+                default:
+                {
+                    if(((IPod) device).getNumSongsStored() != Integer.parseInt(fields[1]) || !same(((IPod) device).getMaxVolDecibels(), fields[2]))
+                    {
+                        return false;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns whether a parsed double has exactly the bits Double.parseDouble gives its spelling.
+     */
+    private static boolean same(final double value, final String spelling)
+    {
+        return Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(Double.parseDouble(spelling));
+    }
+
+    /*
+     * Loads a dump and returns whether it fails with an IllegalArgumentException whose message contains a fragment.
+     */
+    private static boolean rejects(final Path file, final String dump, final String fragment) throws IOException
+    {
+        Files.write(file, dump.getBytes(StandardCharsets.UTF_8));
+
+        try
+        {
+            DeviceCsvLoader.load(file, device -> { });
+
+            return false;
+        }
+        catch(final IllegalArgumentException e)
+        {
+            return e.getMessage().contains(fragment);
+        }
+    }
+}
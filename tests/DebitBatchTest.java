@@ -0,0 +1,164 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Drives MinuteDebitBatch. Tests that small and large batches leave every phone where debiting it one debit at a time
+ * would, that overdrawing debits are marked or skipped, that an invalid batch applies nothing, and that no debit is
+ * lost to debits racing on another thread.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DebitBatchTest
+{
+    private static final int SMALL_PHONES  = 50;
+    private static final int SMALL_DEBITS  = 1000;
+    private static final int LARGE_PHONES  = 70_000;
+    private static final int LARGE_DEBITS  = 200_000;
+    private static final int RACED_BATCHES = 200;
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final List<IPhone>      phones;
+        final MinuteDebitBatch  batch;
+        MinuteDebitBatch.Result result;
+
+        phones = phones(3, 10.0);
+        batch  = new MinuteDebitBatch(phones);
+        result = batch.apply(new int[] {2, 0, 2, 2}, new double[] {4.0, 3.0, 5.0, 2.0}, 4, MinuteDebitBatch.Overdraft.ALLOW);
+
+        System.out.println("MinuteDebitBatch Test:");
+        Checks.check(result.debits() == 4 && result.devices() == 2, "a batch reports its debits and distinct devices");
+        Checks.check(result.deviceId(0) == 0 && result.minutesBefore(0) == 10.0 && result.minutesAfter(0) == 7.0, "a device's minutes before and after are reported");
+        Checks.check(phones.get(2).getMinutesRemaining() == -1.0 && phones.get(1).getMinutesRemaining() == 10.0, "with ALLOW an overdrawing debit is applied");
+        Checks.check(result.overdrawnCount() == 1 && result.overdrawn(3) && result.applied(3), "with ALLOW an overdrawing debit is marked and applied");
+
+        result = batch.apply(new int[] {1, 1, 1}, new double[] {8.0, 5.0, 2.0}, 3, MinuteDebitBatch.Overdraft.REJECT);
+
+        Checks.check(phones.get(1).getMinutesRemaining() == 0.0, "with REJECT the debits after a skipped one are tried without it");
+        Checks.check(result.overdrawn(1) && !result.applied(1) && result.applied(2), "with REJECT an overdrawing debit is marked and skipped");
+
+        boolean rejected;
+
+        try
+        {
+            batch.apply(new int[] {0, 3}, new double[] {1.0, 1.0}, 2, MinuteDebitBatch.Overdraft.ALLOW);
+            rejected = false;
+        }
+        catch(final IllegalArgumentException e)
+        {
+            rejected = true;
+        }
+
+        Checks.check(rejected && phones.get(0).getMinutesRemaining() == 7.0, "a batch with an out of range id applies no debit");
+        Checks.check(matchesSequential(SMALL_PHONES, SMALL_DEBITS), "a small batch leaves every phone where one debit at a time would");
+        Checks.check(matchesSequential(LARGE_PHONES, LARGE_DEBITS), "a large batch, radix sorted and applied in parallel, does too");
+        System.out.println();
+
+        final List<IPhone>     raced;
+        final MinuteDebitBatch racedBatch;
+        final int[]            ids;
+        final double[]         minutes;
+        final Thread           other;
+
+        raced      = phones(SMALL_PHONES, 1_000_000.0);
+        racedBatch = new MinuteDebitBatch(raced);
+        ids        = new int[SMALL_DEBITS];
+        minutes    = new double[SMALL_DEBITS];
+
+        for(int i = 0; i < SMALL_DEBITS; i++)
+        {
+            ids[i]     = i % SMALL_PHONES;
+            minutes[i] = 1.0;
+        }
+
+        // another thread debits the same phones one at a time while the batches run
+        other = new Thread(() ->
+        {
+            for(int i = 0; i < RACED_BATCHES * SMALL_DEBITS; i++)
+            {
+                raced.get(i % SMALL_PHONES).debitMinutes(1.0);
+            }
+        });
+
+        other.start();
+
+        for(int i = 0; i < RACED_BATCHES; i++)
+        {
+            racedBatch.apply(ids, minutes, SMALL_DEBITS, MinuteDebitBatch.Overdraft.ALLOW);
+        }
+
+        other.join();
+
+        boolean kept;
+        kept = true;
+
+        for(final IPhone phone : raced)
+        {
+            kept &= phone.getMinutesRemaining() == 1_000_000.0 - 2.0 * RACED_BATCHES * SMALL_DEBITS / SMALL_PHONES;
+        }
+
+        System.out.println("Concurrent MinuteDebitBatch Test:");
+        Checks.check(kept, "no debit is lost when batches race with single debits");
+        System.out.println();
+    }
+
+    /*
+     * Applies one random batch, with credits and overdrafts, and returns whether every phone ends where applying the
+     * debits one at a time with debitMinutesIfSufficient ends.
+     */
+    private static boolean matchesSequential(final int phoneCount, final int debits)
+    {
+        final Random       random;
+        final List<IPhone> batched;
+        final List<IPhone> sequential;
+        final int[]        ids;
+        final double[]     minutes;
+
+        random     = new Random(phoneCount);
+        batched    = phones(phoneCount, 20.0);
+        sequential = phones(phoneCount, 20.0);
+        ids        = new int[debits];
+        minutes    = new double[debits];
+
+        for(int i = 0; i < debits; i++)
+        {
+            ids[i]     = random.nextInt(phoneCount);
+            minutes[i] = random.nextInt(15) - 4;
+        }
+
+        new MinuteDebitBatch(batched).apply(ids, minutes, debits, MinuteDebitBatch.Overdraft.REJECT);
+
+        for(int i = 0; i < debits; i++)
+        {
+            sequential.get(ids[i]).debitMinutesIfSufficient(minutes[i]);
+        }
+
+        for(int i = 0; i < phoneCount; i++)
+        {
+            if(batched.get(i).getMinutesRemaining() != sequential.get(i).getMinutesRemaining())
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Builds a list of phones with the same minutes remaining.
+     */
+    private static List<IPhone> phones(final int count, final double mins)
+    {
+        final List<IPhone> phones;
+        phones = new ArrayList<>(count);
+
+        for(int i = 0; i < count; i++)
+        {
+            phones.add(new IPhone(mins, "Bell"));
+        }
+
+        return phones;
+    }
+}
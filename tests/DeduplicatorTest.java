@@ -0,0 +1,50 @@
+/**
+ * Drives DeviceDeduplicator. Tests that each device type is dropped exactly when it equals one passed before, and
+ * that the exact indexes stop growing at their cap.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeduplicatorTest
+{
+    public static void main(final String[] args)
+    {
+        final DeviceDeduplicator dedup;
+        dedup = new DeviceDeduplicator(1000, 10_000, 0.01);
+
+        System.out.println("DeviceDeduplicator Test:");
+        Checks.check(dedup.offer(new IPod(300, 80.0)), "the first ipod with 300 songs is new");
+        Checks.check(!dedup.offer(new IPod(300, 70.0)), "an ipod with 300 songs again is a duplicate");
+        Checks.check(dedup.offer(new IPad(true, "iPadOS 17")), "the first ipad on iPadOS 17 is new");
+        Checks.check(!dedup.offer(new IPad(false, "IPADOS 17")), "an ipad on IPADOS 17 is a duplicate of iPadOS 17");
+        Checks.check(dedup.offer(new IPad(false, null)), "the first ipad with no version is new");
+        Checks.check(!dedup.offer(new IPad(true, null)), "a second ipad with no version is a duplicate");
+        Checks.check(dedup.offer(new IPhone(100.0, "Bell")), "the first iphone with 100 minutes is new");
+        Checks.check(!dedup.offer(new IPhone(100.0 + IPhone.EPSILON / 2, "Rogers")), "an iphone within EPSILON is a duplicate");
+        Checks.check(dedup.offer(new IPhone16(100.0, "Bell", true, 256)), "an iphone16 is kept apart from iphones");
+        Checks.check(dedup.offer(new IPhone16(100.0, "Bell", false, 256)), "an iphone16 without the camera is new");
+        Checks.check(dedup.offer(new IPhone(Double.MAX_VALUE, "Bell")), "an iphone with saturated minutes is new");
+        Checks.check(!dedup.offer(new IPhone(Double.MAX_VALUE, "Bell")), "an iphone with saturated minutes again is a duplicate");
+        System.out.println();
+
+        final DeviceDeduplicator capped;
+        final int                versions;
+        int                      kept;
+
+        capped   = new DeviceDeduplicator(2, 100_000, 0.000001);
+        versions = 1000;
+        kept     = 0;
+
+        // past the cap of two, the filter alone decides, and a sparse filter still lets every new version through
+        for(int i = 0; i < versions; i++)
+        {
+            kept += capped.offer(new IPad(true, "iPadOS " + i)) ? 1 : 0;
+        }
+
+        System.out.println("Capped DeviceDeduplicator Test:");
+        Checks.check(kept == versions, "every distinct version past the cap is new");
+        Checks.check(!capped.offer(new IPad(true, "IPADOS 999")), "a version past the cap is still a duplicate by the filter");
+        Checks.check(capped.stats(DeviceType.IPAD).getApproximate() == 1, "that duplicate is counted as approximate");
+        System.out.println();
+    }
+}
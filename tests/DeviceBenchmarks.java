@@ -0,0 +1,312 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks the IDevice methods that are called billions of times: equals, hashCode, toString and printDetails
+ * for every subtype, plus HashSet and HashMap insertion and lookup from 1K devices up to bench.maxSize devices.
+ * <p>
+ * Usage: DeviceBenchmarks [results.json]. Results are written as JSON to the given file, or to System.out.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DeviceBenchmarks
+{
+    private static final int BATCH    = 1024;
+    private static final int MAX_SIZE = Integer.getInteger("bench.maxSize", 10_000_000);
+
+    public static void main(final String[] args) throws IOException
+    {
+        final Bench bench;
+        bench = new Bench();
+
+        equalsAndHashCode(bench);
+        rendering(bench);
+        collections(bench);
+
+        if(args.length > 0)
+        {
+            Files.write(Paths.get(args[0]), bench.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        else
+        {
+            System.out.print(bench.toJson());
+        }
+    }
+
+    /*
+     * equals on matching pairs, including IPads whose versions differ only in case and the IPhone16 camera and minutes
+     * path, then the case folding IPads pay once per spelling when OsVersionTable interns it.
+     */
+    private static void equalsAndHashCode(final Bench bench)
+    {
+        final IDevice[][] pairs;
+
+        pairs = new IDevice[][]
+        {
+            devices(DeviceType.IPHONE, 1),
+            devices(DeviceType.IPHONE16, 1),
+            devices(DeviceType.IPAD, 1),
+            devices(DeviceType.IPOD, 1),
+        };
+
+        for(final IDevice[] left : pairs)
+        {
+            final DeviceType type;
+            final IDevice[]  right;
+
+            type  = DeviceType.of(left[0]);
+            right = devices(type, 1);
+
+            if(type == DeviceType.IPAD)
+            {
+                // same versions in another case; equals compares their shared case-insensitive id
+                for(int i = 0; i < BATCH; i++)
+                {
+                    right[i] = new IPad(false, ((IPad) left[i]).getOpSystemVersion().toUpperCase());
+                }
+            }
+
+            bench.run("equals." + type, "pairs=" + BATCH, BATCH, () ->
+            {
+                long matches;
+                matches = 0;
+
+                for(int i = 0; i < BATCH; i++)
+                {
+                    if(left[i].equals(right[i]))
+                    {
+                        matches++;
+                    }
+                }
+
+                return matches;
+            });
+
+            bench.run("hashCode." + type, "devices=" + BATCH, BATCH, () ->
+            {
+                long hash;
+                hash = 0;
+
+                for(int i = 0; i < BATCH; i++)
+                {
+                    hash += left[i].hashCode();
+                }
+
+                return hash;
+            });
+        }
+
+        caseFolding(bench);
+    }
+
+    /*
+     * The cost IPad equals used to pay with equalsIgnoreCase, which is now paid when a spelling is first interned:
+     * constructing an IPad with a known spelling, and looking up spellings the table has not seen, which folds them.
+     */
+    private static void caseFolding(final Bench bench)
+    {
+        final String[]       known;
+        final String[]       unseen;
+        final OsVersionTable table;
+
+        known  = new String[BATCH];
+        unseen = new String[BATCH];
+        table  = new OsVersionTable();
+
+        for(int i = 0; i < BATCH; i++)
+        {
+            known[i]  = "iPadOS " + i;
+            unseen[i] = "IPADOS " + i;
+
+            table.intern(known[i]);
+        }
+
+        bench.run("construct.IPAD", "spellings=" + BATCH, BATCH, () ->
+        {
+            long cases;
+            cases = 0;
+
+            for(final String os : known)
+            {
+                cases += new IPad(true, os).getHasCase() ? 1 : 0;
+            }
+
+            return cases;
+        });
+
+        bench.run("fold.IPAD", "spellings=" + BATCH, BATCH, () ->
+        {
+            long ids;
+            ids = 0;
+
+            for(final String os : unseen)
+            {
+                ids += table.idOf(os);
+            }
+
+            return ids;
+        });
+    }
+
+    /*
+     * toString, appendTo into a reused builder, and printDetails into a discarding stream.
+     */
+    private static void rendering(final Bench bench)
+    {
+        final PrintStream   console;
+        final StringBuilder sb;
+
+        console = System.out;
+        sb      = new StringBuilder(DeviceFormat.RENDER_CAPACITY);
+
+        for(final DeviceType type : DeviceType.values())
+        {
+            final IDevice[] devices;
+            devices = devices(type, 1);
+
+            bench.run("toString." + type, "devices=" + BATCH, BATCH, () ->
+            {
+                long length;
+                length = 0;
+
+                for(final IDevice device : devices)
+                {
+                    length += device.toString().length();
+                }
+
+                return length;
+            });
+
+            bench.run("appendTo." + type, "devices=" + BATCH, BATCH, () ->
+            {
+                long length;
+                length = 0;
+
+                for(final IDevice device : devices)
+                {
+                    sb.setLength(0);
+                    length += device.appendTo(sb).length();
+                }
+
+                return length;
+            });
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream(), false));
+
+            try
+            {
+                bench.run("printDetails." + type, "devices=" + BATCH, BATCH, () ->
+                {
+                    for(final IDevice device : devices)
+                    {
+                        device.printDetails();
+                    }
+
+                    return devices.length;
+                });
+            }
+            finally
+            {
+                System.setOut(console);
+            }
+        }
+    }
+
+    /*
+     * HashSet and HashMap insertion and lookup at growing sizes.
+     */
+    private static void collections(final Bench bench)
+    {
+        for(int size = 1_000; size <= MAX_SIZE; size *= 10)
+        {
+            for(final DeviceType type : DeviceType.values())
+            {
+                final IDevice[] devices;
+                final int       count;
+
+                devices = devices(type, size / BATCH + 1);
+                count   = size;
+
+                bench.run("hashSet.add." + type, "size=" + size, count, () ->
+                {
+                    final Set<IDevice> set;
+                    set = new HashSet<>();
+
+                    for(int i = 0; i < count; i++)
+                    {
+                        set.add(devices[i]);
+                    }
+
+                    return set.size();
+                });
+
+                final Map<IDevice, Integer> map;
+                map = new HashMap<>();
+
+                for(int i = 0; i < count; i++)
+                {
+                    map.put(devices[i], i);
+                }
+
+                bench.run("hashMap.get." + type, "size=" + size, count, () ->
+                {
+                    long found;
+                    found = 0;
+
+                    for(int i = 0; i < count; i++)
+                    {
+                        if(map.get(devices[i]) != null)
+                        {
+                            found++;
+                        }
+                    }
+
+                    return found;
+                });
+            }
+        }
+    }
+
+    /*
+     * Builds batches * BATCH distinct devices of one type from a fixed seed.
+     */
+    private static IDevice[] devices(final DeviceType type, final int batches)
+    {
+        final Random    random;
+        final IDevice[] devices;
+
+        random  = new Random(2522);
+        devices = new IDevice[batches * BATCH];
+
+        for(int i = 0; i < devices.length; i++)
+        {
+            switch(type)
+            {
+                case IPHONE:
+                    devices[i] = new IPhone(i * 0.5, "Carrier" + random.nextInt(8));
+                    break;
+                case IPHONE16:
+                    devices[i] = new IPhone16(i * 0.5, "Carrier" + random.nextInt(8), i % 2 == 0, 128 << random.nextInt(4));
+                    break;
+                case IPAD:
+                    devices[i] = new IPad(random.nextBoolean(), "iPadOS " + i);
+                    break;
+                default:
+                    devices[i] = new IPod(i, 60.0 + random.nextInt(40));
+            }
+        }
+
+        return devices;
+    }
+}
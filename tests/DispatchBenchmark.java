@@ -0,0 +1,260 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares ways of dispatching on the concrete type of a mixed list of devices: an instanceof chain, a switch on the
+ * type tag, identity tests on the type tag, a DeviceVisitor, and DeviceGroups' per-type loops.
+ * <p>
+ * Every strategy sums the same per-type field (minutes, memory, case, songs) over the same shuffled devices, so the
+ * scores differ only by the cost of dispatch.
+ * </p>
+ * <p>
+ * Usage: DispatchBenchmark [results.json]. Results are written as JSON to the given file, or to System.out.
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class DispatchBenchmark
+{
+    private static final int SIZE = Integer.getInteger("bench.size", 1_000_000);
+
+    private static final DeviceVisitor<Long> SUM = new DeviceVisitor<Long>()
+    {
+        @Override
+        public Long visitIPhone(final IPhone phone)
+        {
+            return (long) phone.getMinutesRemaining();
+        }
+
+        @Override
+        public Long visitIPhone16(final IPhone16 phone)
+        {
+            return (long) phone.getMemoryGB();
+        }
+
+        @Override
+        public Long visitIPad(final IPad pad)
+        {
+            return pad.getHasCase() ? 1L : 0L;
+        }
+
+        @Override
+        public Long visitIPod(final IPod pod)
+        {
+            return (long) pod.getNumSongsStored();
+        }
+    };
+
+    public static void main(final String[] args) throws IOException
+    {
+        final Bench         bench;
+        final List<IDevice> devices;
+        final IDevice[]     array;
+        final DeviceGroups  groups;
+
+        bench   = new Bench();
+        devices = devices();
+        array   = devices.toArray(new IDevice[0]);
+        groups  = DeviceGroups.of(devices);
+
+        bench.run("dispatch.instanceofChain", "size=" + SIZE, SIZE, () -> instanceofChain(array));
+        bench.run("dispatch.typeTagSwitch", "size=" + SIZE, SIZE, () -> typeTagSwitch(array));
+        bench.run("dispatch.typeTagCompare", "size=" + SIZE, SIZE, () -> typeTagCompare(array));
+        bench.run("dispatch.visitor", "size=" + SIZE, SIZE, () -> visitor(array));
+        bench.run("dispatch.groupedLoops", "size=" + SIZE, SIZE, () -> groupedLoops(groups));
+        bench.run("dispatch.groupThenLoop", "size=" + SIZE, SIZE, () -> groupedLoops(DeviceGroups.of(devices)));
+
+        if(args.length > 0)
+        {
+            Files.write(Paths.get(args[0]), bench.toJson().getBytes(StandardCharsets.UTF_8));
+        }
+        else
+        {
+            System.out.print(bench.toJson());
+        }
+    }
+
+    /*
+     * The chain every caller used to write; IPhone16 must come before IPhone.
+     */
+    private static long instanceofChain(final IDevice[] devices)
+    {
+        long sum;
+        sum = 0L;
+
+        for(final IDevice device : devices)
+        {
+            if(device instanceof IPhone16)
+            {
+                sum += ((IPhone16) device).getMemoryGB();
+            }
+            else if(device instanceof IPhone)
+            {
+                sum += (long) ((IPhone) device).getMinutesRemaining();
+            }
+            else if(device instanceof IPad)
+            {
+                sum += ((IPad) device).getHasCase() ? 1L : 0L;
+            }
+            else if(device instanceof IPod)
+            {
+                sum += ((IPod) device).getNumSongsStored();
+            }
+        }
+
+        return sum;
+    }
+
+    /*
+     * A switch on the type tag followed by one checked cast; javac compiles it through an ordinal lookup table.
+     */
+    private static long typeTagSwitch(final IDevice[] devices)
+    {
+        long sum;
+        sum = 0L;
+
+        for(final IDevice device : devices)
+        {
+            switch(device.getType())
+            {
+                case IPHONE:
+                    sum += (long) ((IPhone) device).getMinutesRemaining();
+                    break;
+                case IPHONE16:
+                    sum += ((IPhone16) device).getMemoryGB();
+                    break;
+                case IPAD:
+                    sum += ((IPad) device).getHasCase() ? 1L : 0L;
+                    break;
+                default:
+                    sum += ((IPod) device).getNumSongsStored();
+                    break;
+            }
+        }
+
+        return sum;
+    }
+
+    /*
+     * Identity tests of the type tag against the DeviceType constants, as IDevice.accept does.
+     */
+    private static long typeTagCompare(final IDevice[] devices)
+    {
+        long sum;
+        sum = 0L;
+
+        for(final IDevice device : devices)
+        {
+            final DeviceType type;
+            type = device.getType();
+
+            if(type == DeviceType.IPHONE)
+            {
+                sum += (long) ((IPhone) device).getMinutesRemaining();
+            }
+            else if(type == DeviceType.IPHONE16)
+            {
+                sum += ((IPhone16) device).getMemoryGB();
+            }
+            else if(type == DeviceType.IPAD)
+            {
+                sum += ((IPad) device).getHasCase() ? 1L : 0L;
+            }
+            else
+            {
+                sum += ((IPod) device).getNumSongsStored();
+            }
+        }
+
+        return sum;
+    }
+
+    /*
+     * IDevice.accept with a visitor; the results are small Longs from the box cache.
+     */
+    private static long visitor(final IDevice[] devices)
+    {
+        long sum;
+        sum = 0L;
+
+        for(final IDevice device : devices)
+        {
+            sum += device.accept(SUM);
+        }
+
+        return sum;
+    }
+
+    /*
+     * One monomorphic loop per type over already grouped devices.
+     */
+    private static long groupedLoops(final DeviceGroups groups)
+    {
+        long sum;
+        sum = 0L;
+
+        for(final IPhone phone : groups.phones())
+        {
+            sum += (long) phone.getMinutesRemaining();
+        }
+
+        for(final IPhone16 phone : groups.phone16s())
+        {
+            sum += phone.getMemoryGB();
+        }
+
+        for(final IPad pad : groups.pads())
+        {
+            sum += pad.getHasCase() ? 1L : 0L;
+        }
+
+        for(final IPod pod : groups.pods())
+        {
+            sum += pod.getNumSongsStored();
+        }
+
+        return sum;
+    }
+
+    /*
+     * A shuffled mix of the four device types with small field values.
+     */
+    private static List<IDevice> devices()
+    {
+        final Random        random;
+        final List<IDevice> devices;
+
+        random  = new Random(42);
+        devices = new ArrayList<>(SIZE);
+
+        for(int i = 0; i < SIZE; i++)
+        {
+            switch(i & 3)
+            {
+                case 0:
+                    devices.add(new IPhone(random.nextInt(100), "Carrier" + (i & 7)));
+                    break;
+                case 1:
+                    devices.add(new IPhone16(random.nextInt(100), "Carrier" + (i & 7), random.nextBoolean(), 64 << random.nextInt(4)));
+                    break;
+                case 2:
+                    devices.add(new IPad(random.nextBoolean(), "iPadOS " + random.nextInt(20)));
+                    break;
+                default:
+                    devices.add(new IPod(random.nextInt(100), 80.0));
+                    break;
+            }
+        }
+
+        Collections.shuffle(devices, random);
+
+        return devices;
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drives DeviceFleet. Tests that a fleet's own views can be queried, snapshotted, counted and copied into another
+ * fleet, as the devices they stand in for.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class FleetTest
+{
+    public static void main(final String[] args) throws IOException
+    {
+        final DeviceFleet   fleet;
+        final List<IDevice> views;
+        final List<IDevice> found;
+        final Path          file;
+
+        fleet = new DeviceFleet();
+        views = new ArrayList<>();
+
+        fleet.addIPhone(120.0, "Bell");
+        fleet.addIPhone16(30.0, "Rogers", true, 256);
+        fleet.addIPad(true, "iPadOS 17");
+        fleet.addIPod(300, 85.0);
+        fleet.addIPhone(10.0, "Telus");
+
+        for(final IDevice view : fleet)
+        {
+            views.add(view);
+        }
+
+        found = new FleetQuery().minutesRemaining(mins -> mins > 20.0).execute(views);
+
+        System.out.println("DeviceFleet Test:");
+        Checks.check(found.size() == 2 && found.get(0).equals(new IPhone(120.0, "Bell")) && found.get(1).equals(new IPhone16(30.0, "Rogers", true, 256)), "a query over a fleet's views finds the matching devices");
+        Checks.check(new FleetQuery().numSongsStored(songs -> songs == 300).matches(views.get(4)), "a query matches a single view");
+
+        file = Files.createTempFile("fleet-test", ".snapshot");
+
+        try
+        {
+            try(final DeviceSnapshotWriter writer = new DeviceSnapshotWriter(file))
+            {
+                for(final IDevice view : fleet)
+                {
+                    writer.write(view);
+                }
+            }
+
+            try(final DeviceSnapshotReader reader = new DeviceSnapshotReader(file))
+            {
+                boolean same;
+                same = reader.size() == views.size();
+
+                for(int i = 0; same && i < views.size(); i++)
+                {
+                    same = reader.get(i).equals(((DeviceFleet.View) views.get(i)).materialize());
+                }
+
+                Checks.check(same, "a snapshot of a fleet's views reads back as the devices they stand in for");
+            }
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+
+        final FleetCounts counts;
+        final DeviceFleet copy;
+        final int         bell;
+
+        counts = new FleetCounts();
+        copy   = new DeviceFleet();
+        bell   = ((DeviceFleet.View) views.get(0)).getHandle();
+
+        for(final IDevice view : fleet)
+        {
+            counts.add(view);
+            copy.add(view);
+        }
+
+        Checks.check(counts.phonesByCarrier().size() == 3 && counts.padsByHasCase().count(true) == 1, "a fleet's views are counted by type");
+        Checks.check(!counts.add(fleet.view(bell)), "a second view of a counted row is not counted again");
+        Checks.check(counts.remove(fleet.view(bell)) && counts.phonesByCarrier().count("Bell") == 0, "removing another view of a row uncounts it");
+        Checks.check(copy.size() == fleet.size() && copy.view(((DeviceFleet.View) views.get(2)).getHandle()).equals(views.get(2)), "a fleet's views are copied into another fleet");
+        System.out.println();
+    }
+}
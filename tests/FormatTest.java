@@ -0,0 +1,141 @@
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Drives DeviceFormat. Tests that appendFixed and appendInt write exactly what the %f and %d conversions write, for
+ * ties, values on both sides of one million, negatives, NaN and infinities, in an ASCII locale and in locales with
+ * another decimal separator or other digits, and that a rendered device matches its old String.format text.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class FormatTest
+{
+    private static final int RANDOM_VALUES = 200_000;
+
+    private static final double[] EDGES =
+    {
+        0.0, -0.0, 0.5, 0.0000005, 0.0000015, 0.0000025, 1.0000005, 2.5e-7, 4.9999995e-7, 5.0000005e-7,
+        0.1234565, 123.4564995, 123.4565005, 999999.9999995, 999999.99999949, 999999.9999994,
+        Math.nextDown(1.0e6), 1.0e6, Math.nextUp(1.0e6), 1.0e6 + 0.0000005, 9_007_199_254_740_993.0, 1.0e300,
+        Double.MIN_VALUE, Double.MIN_NORMAL, Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+        Double.NEGATIVE_INFINITY, -0.0000005, -1.0000005, -999999.9999995, -1.0e6, -123.4567
+    };
+
+    private static final int[] INTS = {0, 1, -1, 7, 256, -1000, 1_000_000, Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    public static void main(final String[] args)
+    {
+        final Locale original;
+        original = Locale.getDefault(Locale.Category.FORMAT);
+
+        try
+        {
+            System.out.println("DeviceFormat Test:");
+
+            for(final String tag : new String[] {"en-US", "de-DE", "th-TH-u-nu-thai", "ar-EG"})
+            {
+                Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(tag));
+
+                Checks.check(matchesEdges(), "appendFixed writes what %f writes for ties, values near 1e6, negatives, NaN and infinities in " + tag);
+                Checks.check(matchesRandom(), "appendFixed writes what %f writes for random values with seven fraction digits in " + tag);
+                Checks.check(matchesInts(), "appendInt writes what %d writes in " + tag);
+                Checks.check(matchesDevices(), "devices render what their old String.format text was in " + tag);
+            }
+        }
+        finally
+        {
+            Locale.setDefault(Locale.Category.FORMAT, original);
+        }
+
+        System.out.println();
+    }
+
+    /*
+     * Returns whether every edge value, and its negation, is written as %f writes it.
+     */
+    private static boolean matchesEdges()
+    {
+        for(final double value : EDGES)
+        {
+            if(!matchesFixed(value) || !matchesFixed(-value))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns whether random values below and just above one million, many of them exact decimal ties at the seventh
+     * fraction digit, are written as %f writes them.
+     */
+    private static boolean matchesRandom()
+    {
+        final Random random;
+        random = new Random(3);
+
+        for(int i = 0; i < RANDOM_VALUES; i++)
+        {
+            final double value;
+
+            switch(i % 3)
+            {
+                case 0:
+                    value = Math.round(random.nextDouble() * 1.0e13) / 1.0e7;
+                    break;
+                case 1:
+                    value = 1.0e6 + (random.nextInt(2_000_001) - 1_000_000) / 1.0e7;
+                    break;
+                default:
+                    value = (random.nextDouble() - 0.5) * 2.0e6;
+            }
+
+            if(!matchesFixed(value))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns whether the edge ints are written as %d writes them.
+     */
+    private static boolean matchesInts()
+    {
+        for(final int value : INTS)
+        {
+            if(!DeviceFormat.appendInt(new StringBuilder(), value).toString().equals(String.format("%d", value)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns whether each kind of device renders the text the String.format calls it replaced produced.
+     */
+    private static boolean matchesDevices()
+    {
+        final String purpose;
+        purpose = "The purpose of this IDevice is %s.\n";
+
+        return new IPhone(-12.5000005, "Bell").toString().equals(String.format(purpose + "This device has %f minutes remaining.\nThe carrier is %s.\n", "talking", -12.5000005, "Bell"))
+            && new IPhone16(999999.9999995, "Rogers", true, 512).toString().equals(String.format(purpose + "This device has %f minutes remaining.\nThe carrier is %s.\nThis device has a high resolution camera: %b\nThis device has %d GB of memory.", "talking", 999999.9999995, "Rogers", true, 512))
+            && new IPad(false, "iPadOS 17").toString().equals(String.format(purpose + "This device has a case: %b.\nThe current operating system version is %s.\n", "learning", false, "iPadOS 17"))
+            && new IPod(-3, Double.NaN).toString().equals(String.format(purpose + "The number of songs stored is %d.\nThe maximum volume in decibels is %f.\n", "music", -3, Double.NaN));
+    }
+
+    /*
+     * Returns whether one value is written as %f writes it.
+     */
+    private static boolean matchesFixed(final double value)
+    {
+        return DeviceFormat.appendFixed(new StringBuilder(), value).toString().equals(String.format("%f", value));
+    }
+}
@@ -0,0 +1,244 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives DeviceHistory. Tests that recorded points read back bit for bit, on the heap and spilled to a file, that
+ * downsampling buckets them, and that a history ends on the device's current value when tracking or debits race.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class HistoryTest
+{
+    private static final int CHANGES = 20_000;
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final Path spillFile;
+        spillFile = Files.createTempFile("history-test", ".spill");
+
+        System.out.println("DeviceHistory Test:");
+        Checks.check(roundTrips(null), "random changes read back bit for bit from chunks on the heap");
+        Checks.check(roundTrips(spillFile), "random changes read back bit for bit from chunks spilled to a file");
+
+        final long[]        now;
+        final IPod          pod;
+        final DeviceHistory history;
+
+        now     = new long[] {5};
+        pod     = new IPod(100, 70.0);
+        history = new DeviceHistory(() -> now[0], null);
+
+        history.track(pod);
+
+        for(final int songs : new int[] {110, 90, 130})
+        {
+            now[0] += 10;
+            pod.setNumSongsStored(songs);
+        }
+
+        final DeviceHistory.Downsampled buckets;
+        buckets = history.downsample(pod, 10, 50, 20);
+
+        Checks.check(!history.track(pod) && history.pointCount() == 4, "an ipod is tracked once, from its current value");
+        Checks.check(buckets.buckets() == 2 && buckets.count(0) == 2 && buckets.count(1) == 1, "downsample counts the changes in each bucket");
+        Checks.check(buckets.min(0) == 90 && buckets.max(0) == 110 && buckets.mean(0) == 100 && buckets.last(0) == 90, "downsample reduces a bucket to its min, max, mean and last value");
+        Checks.check(buckets.last(1) == 130 && history.downsample(pod, 40, 80, 20).last(1) == 130, "downsample carries the last value forward");
+        history.close();
+        System.out.println();
+
+        System.out.println("Concurrent DeviceHistory Test:");
+        Checks.check(trackRaceEndsCurrent(), "a change racing with track is the last point recorded");
+        Checks.check(heldDebitEndsCurrent(), "a debit whose notification is overtaken by a later debit leaves the live minutes last");
+        System.out.println();
+    }
+
+    /*
+     * Records random changes, with NaN, -0.0, long gaps and a clock that goes backwards, and returns whether range
+     * reads every point back with the expected timestamp and the exact bits of its value.
+     */
+    private static boolean roundTrips(final Path spillFile) throws IOException
+    {
+        final Random       random;
+        final long[]       now;
+        final IPhone       phone;
+        final List<long[]> expected;
+        final List<long[]> actual;
+        long               lastTimestamp;
+
+        random   = new Random(42);
+        now      = new long[] {1_700_000_000_000L};
+        phone    = new IPhone(1000.0, "Bell");
+        expected = new ArrayList<>();
+        actual   = new ArrayList<>();
+
+        try(final DeviceHistory history = new DeviceHistory(() -> now[0], spillFile))
+        {
+            history.track(phone);
+            expected.add(new long[] {now[0], Double.doubleToRawLongBits(1000.0)});
+            lastTimestamp = now[0];
+
+            for(int i = 0; i < CHANGES; i++)
+            {
+                final double value;
+
+                switch(random.nextInt(8))
+                {
+                    case 0:
+                        now[0] += random.nextInt(1 << 30);
+                        break;
+                    case 1:
+                        now[0] -= random.nextInt(1000);
+                        break;
+                    default:
+                        now[0] += 60_000;
+                }
+
+                switch(random.nextInt(10))
+                {
+                    case 0:
+                        value = Double.NaN;
+                        break;
+                    case 1:
+                        value = -0.0;
+                        break;
+                    case 2:
+                        value = random.nextDouble() * 1e6;
+                        break;
+                    default:
+                        value = phone.getMinutesRemaining() - 1.0;
+                }
+
+                phone.setMinutesRemaining(value);
+
+                // a change stamped before the previous one is recorded at the previous timestamp
+                lastTimestamp = Math.max(lastTimestamp, now[0]);
+                expected.add(new long[] {lastTimestamp, Double.doubleToRawLongBits(value)});
+            }
+
+            history.range(phone, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> actual.add(new long[] {timestamp, Double.doubleToRawLongBits(value)}));
+
+            if(spillFile != null && history.spilledBytes() == 0)
+            {
+                return false;
+            }
+        }
+
+        if(actual.size() != expected.size())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < expected.size(); i++)
+        {
+            if(actual.get(i)[0] != expected.get(i)[0] || actual.get(i)[1] != expected.get(i)[1])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Changes a phone while track is blocked registering its observer, and returns whether the history ends on the
+     * phone's minutes.
+     */
+    private static boolean trackRaceEndsCurrent() throws InterruptedException
+    {
+        final IPhone        phone;
+        final DeviceHistory history;
+        final Thread        tracker;
+
+        phone   = new IPhone(1000.0, "Bell");
+        history = new DeviceHistory();
+        tracker = new Thread(() -> history.track(phone));
+
+        // addObserver locks the phone, so holding it parks track inside its registration
+        synchronized(phone)
+        {
+            tracker.start();
+
+            while(tracker.getState() != Thread.State.BLOCKED)
+            {
+                Thread.yield();
+            }
+
+            phone.setMinutesRemaining(500.0);
+        }
+
+        tracker.join();
+
+        return lastValue(history, phone) == phone.getMinutesRemaining();
+    }
+
+    /*
+     * Holds the notification of one debit until a second debit on another thread has been recorded, so the history is
+     * told about the two out of order, then returns whether it ends on the phone's minutes.
+     */
+    private static boolean heldDebitEndsCurrent() throws InterruptedException
+    {
+        final IPhone         phone;
+        final DeviceHistory  history;
+        final CountDownLatch held;
+        final CountDownLatch released;
+        final Thread         first;
+        final DeviceObserver holder;
+
+        phone    = new IPhone(100.0, "Bell");
+        history  = new DeviceHistory();
+        held     = new CountDownLatch(1);
+        released = new CountDownLatch(1);
+        first    = new Thread(() -> phone.debitMinutes(1.0));
+        holder   = new DeviceObserver()
+        {
+            @Override
+            public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+            {
+                if(Thread.currentThread() == first)
+                {
+                    held.countDown();
+
+                    try
+                    {
+                        released.await();
+                    }
+                    catch(final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+
+        // registered before the history, so it runs between the first debit's compare-and-set and its point
+        phone.addObserver(holder);
+        history.track(phone);
+
+        first.start();
+        held.await();
+        phone.debitMinutes(1.0);
+        released.countDown();
+        first.join();
+
+        return phone.getMinutesRemaining() == 98.0 && lastValue(history, phone) == 98.0;
+    }
+
+    /*
+     * Returns the value of the last point recorded for a phone.
+     */
+    private static double lastValue(final DeviceHistory history, final IPhone phone)
+    {
+        final double[] last;
+        last = new double[] {Double.NaN};
+
+        history.range(phone, Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, value) -> last[0] = value);
+
+        return last[0];
+    }
+}
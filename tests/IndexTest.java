@@ -0,0 +1,257 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Drives MinutesIndex and SongsIndex. Tests that range, count and top-K answers match a brute-force scan of the same
+ * devices while the devices change through their setters, are debited and credited, and are added and removed.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class IndexTest
+{
+    private static final int      DEVICES = 5000;
+    private static final int      ROUNDS  = 40;
+    private static final double[] ODD     = {Double.NaN, -0.0, 0.0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 30.0};
+
+    public static void main(final String[] args)
+    {
+        final Random               random;
+        final MinutesIndex<IPhone> minutes;
+        final SongsIndex           songs;
+        final List<IPhone>         phones;
+        final List<IPod>           pods;
+        boolean                    minutesMatch;
+        boolean                    songsMatch;
+
+        random       = new Random(12);
+        minutes      = new MinutesIndex<>();
+        songs        = new SongsIndex();
+        phones       = new ArrayList<>();
+        pods         = new ArrayList<>();
+        minutesMatch = true;
+        songsMatch   = true;
+
+        for(int i = 0; i < DEVICES; i++)
+        {
+            final IPhone phone;
+            final IPod   pod;
+
+            phone = random.nextBoolean() ? new IPhone(minutes(random), "Bell") : new IPhone16(minutes(random), "Rogers", true, 256);
+            pod   = new IPod(random.nextInt(6000) - 500, 80.0);
+
+            phones.add(phone);
+            pods.add(pod);
+            minutes.add(phone);
+            songs.add(pod);
+        }
+
+        for(int round = 0; round < ROUNDS; round++)
+        {
+            for(int i = 0; i < DEVICES / 10; i++)
+            {
+                final IPhone phone;
+                final IPod   pod;
+
+                phone = phones.get(random.nextInt(phones.size()));
+                pod   = pods.get(random.nextInt(pods.size()));
+
+                switch(random.nextInt(3))
+                {
+                    case 0:
+                        phone.setMinutesRemaining(minutes(random));
+                        break;
+                    case 1:
+                        phone.debitMinutes(random.nextInt(20));
+                        break;
+                    default:
+                        phone.creditMinutes(random.nextInt(20));
+                }
+
+                pod.setNumSongsStored(random.nextInt(6000) - 500);
+            }
+
+            // swap a few devices out for new ones
+            for(int i = 0; i < 20; i++)
+            {
+                final int    index;
+                final IPhone phone;
+                final IPod   pod;
+
+                index = random.nextInt(phones.size());
+                phone = new IPhone(minutes(random), "Telus");
+                pod   = new IPod(random.nextInt(6000), 90.0);
+
+                minutesMatch &= minutes.remove(phones.get(index)) && minutes.add(phone) && !minutes.add(phone);
+                songsMatch   &= songs.remove(pods.get(index)) && songs.add(pod) && !songs.remove(pods.get(index));
+
+                phones.set(index, phone);
+                pods.set(index, pod);
+            }
+
+            final double low;
+            final double high;
+            final int    songLow;
+            final int    songHigh;
+            final int    k;
+
+            low      = random.nextInt(200) - 20;
+            high     = low + random.nextInt(100);
+            songLow  = random.nextInt(6000) - 500;
+            songHigh = songLow + random.nextInt(3000);
+            k        = random.nextInt(300);
+
+            minutesMatch &= minutes.size() == phones.size();
+            minutesMatch &= same(minutes.between(low, high), scan(phones, phone -> inRange(phone.getMinutesRemaining(), low, high)), IndexTest::minutesKey);
+            minutesMatch &= same(minutes.lessThan(high), scan(phones, phone -> compare(phone.getMinutesRemaining(), high) < 0), IndexTest::minutesKey);
+            minutesMatch &= same(minutes.between(Double.NEGATIVE_INFINITY, Double.NaN), scan(phones, phone -> true), IndexTest::minutesKey);
+            minutesMatch &= minutes.count(low, high) == scan(phones, phone -> inRange(phone.getMinutesRemaining(), low, high)).size();
+            minutesMatch &= minutes.countLessThan(high) == scan(phones, phone -> compare(phone.getMinutesRemaining(), high) < 0).size();
+            minutesMatch &= sameKeys(minutes.lowest(k), top(phones, IndexTest::minutesKey, k, false), IndexTest::minutesKey);
+            minutesMatch &= sameKeys(minutes.highest(k), top(phones, IndexTest::minutesKey, k, true), IndexTest::minutesKey);
+
+            songsMatch &= songs.size() == pods.size();
+            songsMatch &= same(songs.between(songLow, songHigh), scan(pods, pod -> pod.getNumSongsStored() >= songLow && pod.getNumSongsStored() <= songHigh), IndexTest::songsKey);
+            songsMatch &= songs.count(songLow, songHigh) == scan(pods, pod -> pod.getNumSongsStored() >= songLow && pod.getNumSongsStored() <= songHigh).size();
+            songsMatch &= songs.count(Integer.MIN_VALUE, Integer.MAX_VALUE) == pods.size();
+            songsMatch &= sameKeys(songs.lowest(k), top(pods, IndexTest::songsKey, k, false), IndexTest::songsKey);
+            songsMatch &= sameKeys(songs.highest(k), top(pods, IndexTest::songsKey, k, true), IndexTest::songsKey);
+        }
+
+        System.out.println("RangeIndex Test:");
+        Checks.check(minutesMatch, "minutes ranges, counts and top-k match a scan while phones change, including NaN, -0.0 and infinities");
+        Checks.check(songsMatch, "song ranges, counts and top-k match a scan while ipods change");
+        System.out.println();
+    }
+
+    /*
+     * Returns random minutes, sometimes NaN, a signed zero, an infinity or a value many phones share.
+     */
+    private static double minutes(final Random random)
+    {
+        return random.nextInt(10) == 0 ? ODD[random.nextInt(ODD.length)] : random.nextInt(20_000) / 100.0;
+    }
+
+    /*
+     * Orders doubles the way the index does: by Double.compare, with -0.0 equal to 0.0.
+     */
+    private static int compare(final double a, final double b)
+    {
+        return Double.compare(a + 0.0, b + 0.0);
+    }
+
+    /*
+     * Returns whether a value lies in [low, high] in the index's order.
+     */
+    private static boolean inRange(final double value, final double low, final double high)
+    {
+        return compare(value, low) >= 0 && compare(value, high) <= 0;
+    }
+
+    /*
+     * Returns the key a MinutesIndex files a phone under.
+     */
+    private static long minutesKey(final IPhone phone)
+    {
+        return RangeIndex.sortableKey(phone.getMinutesRemaining());
+    }
+
+    /*
+     * Returns the key a SongsIndex files an ipod under.
+     */
+    private static long songsKey(final IPod pod)
+    {
+        return pod.getNumSongsStored();
+    }
+
+    /*
+     * Returns the devices a predicate accepts, by a full scan.
+     */
+    private static <T> List<T> scan(final List<T> devices, final Predicate<T> predicate)
+    {
+        final List<T> matches;
+        matches = new ArrayList<>();
+
+        for(final T device : devices)
+        {
+            if(predicate.test(device))
+            {
+                matches.add(device);
+            }
+        }
+
+        return matches;
+    }
+
+    /*
+     * Returns the keys of the k devices with the smallest, or largest, keys, in the order the index returns them.
+     */
+    private static <T> List<Long> top(final List<T> devices, final ToLongFunction<T> key, final int k, final boolean largest)
+    {
+        final List<Long> keys;
+        keys = new ArrayList<>();
+
+        for(final T device : devices)
+        {
+            keys.add(key.applyAsLong(device));
+        }
+
+        keys.sort(largest ? Comparator.reverseOrder() : Comparator.naturalOrder());
+
+        return keys.subList(0, Math.min(k, keys.size()));
+    }
+
+    /*
+     * Returns whether an answer holds exactly the expected devices, by identity, in ascending key order.
+     */
+    private static <T> boolean same(final List<T> actual, final List<T> expected, final ToLongFunction<T> key)
+    {
+        final Set<T> expectedSet;
+        expectedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        expectedSet.addAll(expected);
+
+        if(actual.size() != expected.size() || !expectedSet.containsAll(actual))
+        {
+            return false;
+        }
+
+        for(int i = 1; i < actual.size(); i++)
+        {
+            if(key.applyAsLong(actual.get(i - 1)) > key.applyAsLong(actual.get(i)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns whether the keys of a top-k answer are the expected keys, in order.
+     */
+    private static <T> boolean sameKeys(final List<T> actual, final List<Long> expected, final ToLongFunction<T> key)
+    {
+        if(actual.size() != expected.size())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < actual.size(); i++)
+        {
+            if(key.applyAsLong(actual.get(i)) != expected.get(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
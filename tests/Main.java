@@ -65,6 +65,18 @@ public class Main
         {
             System.out.println("INCORRECT: ipad1 should be equal to ipad3");
         }
+
+        final IPad ipad4;
+        ipad4 = new IPad(false, "IPADOS 15"); // No case, OS version iPadOS 15 in another case
+
+        if(ipad1.equals(ipad4) && ipad1.hashCode() == ipad4.hashCode())
+        {
+            System.out.println("CORRECT: ipad1 is equal to ipad4 and has the same hashcode");
+        }
+        else
+        {
+            System.out.println("INCORRECT: ipad1 should be equal to ipad4 and have the same hashcode");
+        }
         System.out.println();
         // Create IPhone objects
         final IPhone iphone1;
@@ -0,0 +1,113 @@
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures minute accounting on one IPhone under contention from many threads.
+ * <p>
+ * Compares a lock around setMinutesRemaining(getMinutesRemaining() - used), the lock-free debitMinutes, and a
+ * StripedMinuteAccount, and checks that every mode ends with the exact expected balance.
+ * </p>
+ * <p>
+ * Usage: MinuteAccountingBenchmark [threads] [debitsPerThread]
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class MinuteAccountingBenchmark
+{
+    private static final double START_MINUTES = 1.0e12;
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final int threads;
+        final int debits;
+
+        threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        debits  = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        System.out.println("threads=" + threads + " debitsPerThread=" + debits);
+
+        for(int round = 0; round < 3; round++)
+        {
+            run("locked", threads, debits, round == 2, (phone, striped) ->
+            {
+                synchronized(phone)
+                {
+                    phone.setMinutesRemaining(phone.getMinutesRemaining() - 1.0);
+                }
+            });
+
+            run("cas", threads, debits, round == 2, (phone, striped) -> phone.debitMinutes(1.0));
+
+            run("striped", threads, debits, round == 2, (phone, striped) -> striped.debit(1.0));
+        }
+    }
+
+    /*
+     * Runs one mode with every thread debiting one minute at a time, and prints its throughput.
+     */
+    private static void run(final String mode, final int threads, final int debits, final boolean report, final Debit debit) throws InterruptedException
+    {
+        final IPhone               phone;
+        final StripedMinuteAccount striped;
+        final CountDownLatch       start;
+        final Thread[]             workers;
+
+        phone   = new IPhone(START_MINUTES, "Verizon");
+        striped = new StripedMinuteAccount(phone);
+        start   = new CountDownLatch(1);
+        workers = new Thread[threads];
+
+        for(int t = 0; t < threads; t++)
+        {
+            workers[t] = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch(final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for(int i = 0; i < debits; i++)
+                {
+                    debit.apply(phone, striped);
+                }
+            });
+            workers[t].start();
+        }
+
+        final long begin;
+        final long elapsed;
+
+        begin = System.nanoTime();
+        start.countDown();
+
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        striped.flush();
+        elapsed = System.nanoTime() - begin;
+
+        final double expected;
+        expected = START_MINUTES - (double) threads * debits;
+
+        if(report)
+        {
+            System.out.printf("%-8s %,15.0f debits/s  %s%n", mode, (double) threads * debits * 1.0e9 / elapsed, phone.getMinutesRemaining() == expected ? "CORRECT" : "INCORRECT: lost updates, balance " + phone.getMinutesRemaining());
+        }
+    }
+
+    /*
+     * One debit in one of the accounting modes.
+     */
+    private interface Debit
+    {
+        void apply(IPhone phone, StripedMinuteAccount striped);
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Drives FleetQuery. Tests that queries split across a ForkJoinPool return the same devices, in the same order, as a
+ * plain loop over the input, and that the String predicates only see devices the primitive predicates let through.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class QueryTest
+{
+    private static final int      DEVICES  = 60_000;
+    private static final String[] CARRIERS = {"Bell", "Rogers", "Telus", "Fido"};
+    private static final String[] VERSIONS = {"iPadOS 16", "iPadOS 17", "IPADOS 17", null};
+
+    public static void main(final String[] args)
+    {
+        final List<IDevice> devices;
+        final ForkJoinPool  pool;
+
+        devices = devices();
+        pool    = new ForkJoinPool(4);
+
+        System.out.println("FleetQuery Test:");
+        Checks.check(same(new FleetQuery().execute(devices, pool), brute(devices, device -> true)), "an empty query returns every device grouped by type in input order");
+        Checks.check(same(new FleetQuery().highResCamera(true).memoryGB(gb -> gb >= 256).carrier("Bell"::equals).execute(devices, pool),
+                          brute(devices, device -> device instanceof IPhone16 && ((IPhone16) device).hasHighResCamera() && ((IPhone16) device).getMemoryGB() >= 256 && "Bell".equals(((IPhone16) device).getCarrier()))),
+                     "iphone16s with a high resolution camera, 256 GB or more, on one carrier match a loop");
+        Checks.check(same(new FleetQuery().minutesRemaining(mins -> mins < 30.0).execute(devices, pool),
+                          brute(devices, device -> device instanceof IPhone && ((IPhone) device).getMinutesRemaining() < 30.0)),
+                     "phones with few minutes left, iphone16s included, match a loop");
+        Checks.check(same(new FleetQuery().hasCase(false).opSystemVersion(os -> os != null && os.endsWith("17")).execute(devices, pool),
+                          brute(devices, device -> device instanceof IPad && !((IPad) device).getHasCase() && ((IPad) device).getOpSystemVersion() != null && ((IPad) device).getOpSystemVersion().endsWith("17"))),
+                     "ipads without a case on one version match a loop");
+        Checks.check(same(new FleetQuery().numSongsStored(songs -> songs > 1000).maxVolDecibels(vol -> vol >= 90.0).execute(devices, pool),
+                          brute(devices, device -> device instanceof IPod && ((IPod) device).getNumSongsStored() > 1000 && ((IPod) device).getMaxVolDecibels() >= 90.0)),
+                     "ipods with many songs and a loud maximum match a loop");
+        Checks.check(new FleetQuery().numSongsStored(songs -> true).carrier(carrier -> true).execute(devices, pool).isEmpty(), "predicates on fields of different types match nothing");
+
+        final AtomicInteger carrierTests;
+        carrierTests = new AtomicInteger();
+
+        new FleetQuery().minutesRemaining(mins -> false).carrier(carrier -> carrierTests.incrementAndGet() > 0).execute(devices, pool);
+
+        Checks.check(carrierTests.get() == 0, "the carrier predicate is not run on phones the minutes predicate rejects");
+        System.out.println();
+
+        pool.shutdown();
+    }
+
+    /*
+     * Builds random devices of every type, interleaved.
+     */
+    private static List<IDevice> devices()
+    {
+        final Random        random;
+        final List<IDevice> devices;
+
+        random  = new Random(5);
+        devices = new ArrayList<>(DEVICES);
+
+        for(int i = 0; i < DEVICES; i++)
+        {
+            switch(random.nextInt(4))
+            {
+                case 0:
+                    devices.add(new IPhone(random.nextDouble() * 200.0, CARRIERS[random.nextInt(CARRIERS.length)]));
+                    break;
+                case 1:
+                    devices.add(new IPhone16(random.nextDouble() * 200.0, CARRIERS[random.nextInt(CARRIERS.length)], random.nextBoolean(), 128 << random.nextInt(3)));
+                    break;
+                case 2:
+                    devices.add(new IPad(random.nextBoolean(), VERSIONS[random.nextInt(VERSIONS.length)]));
+                    break;
+                default:
+                    devices.add(new IPod(random.nextInt(5000), 70.0 + random.nextInt(40)));
+            }
+        }
+
+        return devices;
+    }
+
+    /*
+     * Filters the devices with a plain loop, one pass per DeviceType in declaration order.
+     */
+    private static List<IDevice> brute(final List<IDevice> devices, final Predicate<IDevice> predicate)
+    {
+        final List<IDevice> matches;
+        matches = new ArrayList<>();
+
+        for(final DeviceType type : DeviceType.values())
+        {
+            for(final IDevice device : devices)
+            {
+                if(DeviceType.of(device) == type && predicate.test(device))
+                {
+                    matches.add(device);
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    /*
+     * Returns whether two lists hold the same devices, by identity, in the same order.
+     */
+    private static boolean same(final List<IDevice> actual, final List<IDevice> expected)
+    {
+        if(actual.size() != expected.size())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < expected.size(); i++)
+        {
+            if(actual.get(i) != expected.get(i))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,174 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Drives DeviceReportGenerator. Tests that a report is byte for byte what printDetails prints, in an explicit charset
+ * and in the default one, and that interrupting a report leaves the stream it writes to open.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class ReportTest
+{
+    private static final int DEVICES = 1000;
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final List<IDevice>         devices;
+        final ByteArrayOutputStream report;
+        final ByteArrayOutputStream defaultReport;
+
+        devices       = devices();
+        report        = new ByteArrayOutputStream();
+        defaultReport = new ByteArrayOutputStream();
+
+        new DeviceReportGenerator(7, 3, StandardCharsets.UTF_8).toStream(devices, report);
+        new DeviceReportGenerator().toStream(devices, defaultReport);
+
+        System.out.println("DeviceReportGenerator Test:");
+        Checks.check(Arrays.equals(report.toByteArray(), printed(devices, StandardCharsets.UTF_8)), "a report in UTF-8 is byte for byte what printDetails prints");
+        Checks.check(Arrays.equals(defaultReport.toByteArray(), printed(devices, DevicePrinter.stdoutCharset())), "a report in the default charset is byte for byte what printDetails prints to System.out");
+        Checks.check(interruptLeavesStreamOpen(devices), "interrupting a report does not close the stream it writes to");
+        System.out.println();
+    }
+
+    /*
+     * Builds devices of every type, with carriers and versions outside ASCII.
+     */
+    private static List<IDevice> devices()
+    {
+        final List<IDevice> devices;
+        devices = new ArrayList<>(DEVICES);
+
+        for(int i = 0; i < DEVICES; i++)
+        {
+            switch(i % 4)
+            {
+                case 0:
+                    devices.add(new IPhone(i * 1.5, "T\u00e9l\u00e9-Qu\u00e9bec " + i));
+                    break;
+                case 1:
+                    devices.add(new IPhone16(i / 3.0, "\u00dcnited", i % 2 == 0, 128));
+                    break;
+                case 2:
+                    devices.add(new IPad(i % 3 == 0, "iPadOS 17 \u2013 \u00df" + i));
+                    break;
+                default:
+                    devices.add(new IPod(i, 80.25));
+            }
+        }
+
+        return devices;
+    }
+
+    /*
+     * Returns what printDetails prints for every device in turn, through a System.out encoding with a charset.
+     */
+    private static byte[] printed(final List<IDevice> devices, final Charset charset)
+    {
+        final PrintStream           stdout;
+        final ByteArrayOutputStream bytes;
+
+        stdout = System.out;
+        bytes  = new ByteArrayOutputStream();
+
+        System.setOut(new PrintStream(bytes, true, charset));
+
+        try
+        {
+            for(final IDevice device : devices)
+            {
+                device.printDetails();
+            }
+        }
+        finally
+        {
+            System.out.flush();
+            System.setOut(stdout);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /*
+     * Interrupts a report while its writer is blocked inside a write, and returns whether the report failed and the
+     * stream was not closed.
+     */
+    private static boolean interruptLeavesStreamOpen(final List<IDevice> devices) throws InterruptedException
+    {
+        final CountDownLatch held;
+        final CountDownLatch released;
+        final boolean[]      closed;
+        final boolean[]      failed;
+        final OutputStream   out;
+        final Thread         reporter;
+
+        held     = new CountDownLatch(1);
+        released = new CountDownLatch(1);
+        closed   = new boolean[1];
+        failed   = new boolean[1];
+        out      = new OutputStream()
+        {
+            @Override
+            public void write(final int b)
+            {
+                this.write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(final byte[] b, final int off, final int len)
+            {
+                held.countDown();
+
+                try
+                {
+                    released.await();
+                }
+                catch(final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void close()
+            {
+                closed[0] = true;
+            }
+        };
+        reporter = new Thread(() ->
+        {
+            try
+            {
+                new DeviceReportGenerator(1, 2, StandardCharsets.UTF_8).toStream(devices, out);
+            }
+            catch(final IOException e)
+            {
+                failed[0] = true;
+            }
+        });
+
+        reporter.start();
+        held.await();
+
+        // the writer is parked in the first write and the reporter is blocked handing it more chunks
+        while(reporter.getState() != Thread.State.WAITING)
+        {
+            Thread.yield();
+        }
+
+        reporter.interrupt();
+        reporter.join();
+        released.countDown();
+
+        return failed[0] && !closed[0];
+    }
+}
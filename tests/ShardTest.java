@@ -0,0 +1,360 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives ShardedFleetRegistry over LoopbackTransports. Tests single-key operations and queries, that adding a shard
+ * moves partitions without losing a device even when a request or its reply is lost mid-move, that shard names with
+ * equal String hashcodes both own partitions, that oversized frames are refused, and that batches, moves and queries
+ * larger than a frame go through over sockets whose transports reconnect after a broken connection.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class ShardTest
+{
+    private static final int DEVICES       = 2000;
+    private static final int LARGE_PADS    = 80_000;
+    private static final int VERSION_CHARS = 2000;
+
+    public static void main(final String[] args) throws IOException
+    {
+        final List<ShardTransport> shards;
+
+        shards = new ArrayList<>();
+        shards.add(new LoopbackTransport("a", new FleetShard()));
+        shards.add(new LoopbackTransport("b", new FleetShard()));
+
+        try(final ShardedFleetRegistry registry = new ShardedFleetRegistry(64, shards))
+        {
+            registry.putAll(fleet());
+            registry.put("pad-x", new IPad(true, null));
+
+            System.out.println("ShardedFleetRegistry Test:");
+            Checks.check(registry.size() == DEVICES + 1, "the registry holds every device put");
+            Checks.check(new IPhone(5.0, "Bell").equals(registry.get("device-0")), "get returns a copy of the device put");
+            Checks.check(registry.get("missing") == null, "get returns null for a missing key");
+            Checks.check(registry.remove("pad-x") && !registry.remove("pad-x"), "remove removes a device once");
+            Checks.check(registry.phoneCountsByCarrier().get("Bell") == DEVICES / 4, "carrier counts are gathered from every shard");
+            Checks.check(registry.padsByOpSystemVersion().get("iPadOS 17").size() == DEVICES / 4, "ipads are gathered from every shard");
+            Checks.check(registry.addShard(new LoopbackTransport("c", new FleetShard())) > 0, "a new shard takes over partitions");
+            Checks.check(holdsFleet(registry), "no device is lost when a shard is added");
+            System.out.println();
+        }
+
+        System.out.println("Failed Move Test:");
+        Checks.check(survivesFault(ShardProtocol.COPY, true, false), "a lost COPY reply loses no device and the move retries");
+        Checks.check(survivesFault(ShardProtocol.PUT, false, false), "a refused PUT to the new owner loses no device");
+        Checks.check(survivesFault(ShardProtocol.PUT, true, false), "a lost PUT reply loses no device and leaves no duplicate");
+        Checks.check(survivesFault(ShardProtocol.DROP, false, true), "a failed DROP on the old owner loses no device");
+        System.out.println();
+
+        final List<ShardTransport> colliding;
+        final Map<String, Integer> owned;
+
+        colliding = new ArrayList<>();
+        owned     = new HashMap<>();
+
+        // "Aa" and "BB" have the same String.hashCode
+        colliding.add(new LoopbackTransport("Aa", new FleetShard()));
+        colliding.add(new LoopbackTransport("BB", new FleetShard()));
+
+        try(final ShardedFleetRegistry registry = new ShardedFleetRegistry(256, colliding))
+        {
+            for(int i = 0; i < DEVICES; i++)
+            {
+                owned.merge(registry.shardOf("device-" + i), 1, Integer::sum);
+            }
+        }
+
+        System.out.println("Shard Name Test:");
+        Checks.check(owned.size() == 2, "shards whose names share a String hashcode both own partitions");
+        System.out.println();
+
+        final ByteArrayOutputStream bytes;
+        final DataOutputStream      out;
+        boolean                     refused;
+
+        bytes = new ByteArrayOutputStream();
+        out   = new DataOutputStream(bytes);
+        out.writeInt(ShardProtocol.MAX_FRAME_BYTES + 1);
+
+        try
+        {
+            ShardProtocol.readFrame(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            refused = false;
+        }
+        catch(final IOException e)
+        {
+            refused = true;
+        }
+
+        System.out.println("ShardProtocol Test:");
+        Checks.check(refused, "a frame longer than MAX_FRAME_BYTES is refused before it is allocated");
+        System.out.println();
+
+        final InetSocketAddress    local;
+        final FleetShard           held;
+        final FleetShardServer     second;
+        final List<ShardTransport> remote;
+        final Map<String, IDevice> large;
+        FleetShardServer           first;
+
+        local  = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        held   = new FleetShard();
+        first  = new FleetShardServer(held, local);
+        second = new FleetShardServer(new FleetShard(), local);
+        remote = new ArrayList<>();
+        large  = largeFleet();
+
+        remote.add(new SocketTransport("s1", first.getAddress()));
+
+        // two partitions of about twice MAX_FRAME_BYTES between them, so every batch, copy and query has to be paged
+        try(final ShardedFleetRegistry registry = new ShardedFleetRegistry(2, remote))
+        {
+            final InetSocketAddress restarted;
+            boolean                 broken;
+
+            registry.putAll(large);
+
+            System.out.println("Large Frame Test:");
+            Checks.check(registry.size() == LARGE_PADS, "a batch larger than MAX_FRAME_BYTES is stored over a socket");
+            Checks.check(padCount(registry) == LARGE_PADS, "ipads larger than MAX_FRAME_BYTES are queried over a socket");
+            Checks.check(registry.padsByOpSystemVersion().size() == 1, "versions that differ only in case are grouped together");
+            Checks.check(registry.addShard(new SocketTransport("s2", second.getAddress())) > 0, "a partition larger than MAX_FRAME_BYTES moves over a socket");
+            Checks.check(registry.size() == LARGE_PADS && large.get("pad-7").equals(registry.get("pad-7")), "no ipad is lost by the move");
+
+            // a restarted server drops the connection under the transport
+            restarted = first.getAddress();
+            first.close();
+            first = new FleetShardServer(held, restarted);
+
+            try
+            {
+                registry.size();
+                broken = false;
+            }
+            catch(final IOException e)
+            {
+                broken = true;
+            }
+
+            Checks.check(broken && registry.size() == LARGE_PADS, "a transport reconnects on the call after its connection broke");
+            System.out.println();
+        }
+        finally
+        {
+            first.close();
+            second.close();
+        }
+    }
+
+    /*
+     * Returns the number of IPads the registry groups by operating system version.
+     */
+    private static int padCount(final ShardedFleetRegistry registry) throws IOException
+    {
+        int count;
+        count = 0;
+
+        for(final List<IPad> group : registry.padsByOpSystemVersion().values())
+        {
+            count += group.size();
+        }
+
+        return count;
+    }
+
+    /*
+     * Builds IPads with operating system versions long enough that LARGE_PADS of them fill several frames.
+     */
+    private static Map<String, IDevice> largeFleet()
+    {
+        final Map<String, IDevice> fleet;
+        final String[]             versions;
+
+        fleet    = new HashMap<>();
+        versions = new String[] {"iPadOS 17 " + "x".repeat(VERSION_CHARS), "IPADOS 17 " + "X".repeat(VERSION_CHARS)};
+
+        for(int i = 0; i < LARGE_PADS; i++)
+        {
+            fleet.put("pad-" + i, new IPad(i % 3 == 0, versions[i % versions.length]));
+        }
+
+        return fleet;
+    }
+
+    /*
+     * Adds a shard while every request with one opcode fails, then heals the shards and rebalances, and returns whether
+     * every device is still held exactly once.
+     */
+    private static boolean survivesFault(final byte op, final boolean applied, final boolean onOldOwner) throws IOException
+    {
+        final FaultyTransport      a;
+        final FaultyTransport      b;
+        final FaultyTransport      c;
+        final List<ShardTransport> shards;
+        boolean                    failed;
+
+        a      = new FaultyTransport(new LoopbackTransport("a", new FleetShard()));
+        b      = new FaultyTransport(new LoopbackTransport("b", new FleetShard()));
+        c      = new FaultyTransport(new LoopbackTransport("c", new FleetShard()));
+        shards = new ArrayList<>();
+
+        shards.add(a);
+        shards.add(b);
+
+        try(final ShardedFleetRegistry registry = new ShardedFleetRegistry(64, shards))
+        {
+            registry.putAll(fleet());
+
+            a.failOn(op, applied);
+            b.failOn(op, applied);
+
+            // the new shard also receives a DROP, of anything an earlier attempt left on it
+            if(!onOldOwner)
+            {
+                c.failOn(op, applied);
+            }
+
+            try
+            {
+                registry.addShard(c);
+                failed = false;
+            }
+            catch(final IOException e)
+            {
+                failed = true;
+            }
+
+            a.heal();
+            b.heal();
+            c.heal();
+            registry.rebalance();
+
+            return failed && holdsFleet(registry) && registry.size() == DEVICES;
+        }
+    }
+
+    /*
+     * Returns whether the registry holds an equal copy of every device of the fleet.
+     */
+    private static boolean holdsFleet(final ShardedFleetRegistry registry) throws IOException
+    {
+        final Map<String, IDevice> fleet;
+        fleet = fleet();
+
+        for(final Map.Entry<String, IDevice> entry : fleet.entrySet())
+        {
+            if(!entry.getValue().equals(registry.get(entry.getKey())))
+            {
+                return false;
+            }
+        }
+
+        return registry.size() == fleet.size();
+    }
+
+    /*
+     * Builds the same fleet of every device type each time.
+     */
+    private static Map<String, IDevice> fleet()
+    {
+        final Map<String, IDevice> fleet;
+        fleet = new HashMap<>();
+
+        for(int i = 0; i < DEVICES; i++)
+        {
+            final IDevice device;
+
+            switch(i % 4)
+            {
+                case 0:
+                    device = new IPhone(i + 5.0, "Bell");
+                    break;
+                case 1:
+                    device = new IPhone16(i, "Rogers", i % 8 == 1, 256);
+                    break;
+                case 2:
+                    device = new IPad(i % 3 == 0, "iPadOS 17");
+                    break;
+                default:
+                    device = new IPod(i, 70.0);
+            }
+
+            fleet.put("device-" + i, device);
+        }
+
+        return fleet;
+    }
+
+    /*
+     * A transport that fails every request with one opcode until it is healed, either before the shard sees it or after
+     * the shard has run it, as when a reply is lost on a dropped socket.
+     */
+    private static final class FaultyTransport implements ShardTransport
+    {
+        private final ShardTransport delegate;
+        private volatile byte        failOp;
+        private volatile boolean     failAfter;
+
+        private FaultyTransport(final ShardTransport delegate)
+        {
+            this.delegate = delegate;
+        }
+
+        private void failOn(final byte op, final boolean after)
+        {
+            this.failOp    = op;
+            this.failAfter = after;
+        }
+
+        private void heal()
+        {
+            this.failOp = 0;
+        }
+
+        @Override
+        public byte[] call(final byte[] request) throws IOException
+        {
+            final boolean fail;
+            final byte[]  response;
+
+            fail = request[0] == this.failOp;
+
+            if(fail && !this.failAfter)
+            {
+                throw new IOException("Refused " + request[0]);
+            }
+
+            response = this.delegate.call(request);
+
+            if(fail)
+            {
+                throw new IOException("Lost the reply to " + request[0]);
+            }
+
+            return response;
+        }
+
+        @Override
+        public String shardName()
+        {
+            return this.delegate.shardName();
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            this.delegate.close();
+        }
+    }
+}
@@ -0,0 +1,367 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Measures time to first query of a fresh JVM, from raw device data and from a FleetImage, with and without an
+ * AppCDS archive of the classes used.
+ * <p>
+ * The benchmark writes a device dump and an image of the same fleet, packs the class path into a jar because the
+ * JVM only archives classes loaded from jars, and trains one dynamic AppCDS archive per mode with
+ * -XX:ArchiveClassesAtExit. Every measured run is a new JVM started with the same java; its time runs from process
+ * start until the JVM prints the answers to a fixed set of queries, which must match answers computed from the
+ * fleet directly. The raw mode loads the dump with DeviceCsvLoader and builds the same indexes a service builds
+ * before it can answer: MinutesIndex, SongsIndex, a CountView by carrier and IPadVersionIndex.
+ * </p>
+ * <p>
+ * The same archive can be used outside the benchmark:
+ * </p>
+ * <pre>
+ * java -XX:ArchiveClassesAtExit=fleet.jsa -cp fleet.jar ...   (once, after a representative run)
+ * java -XX:SharedArchiveFile=fleet.jsa -cp fleet.jar ...
+ * </pre>
+ * <p>
+ * Usage: StartupBenchmark [devices] [runs]
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class StartupBenchmark
+{
+    private static final String[] CARRIERS = {"Bell", "Rogers", "Telus", "Freedom", "Fido", "Koodo"};
+    private static final String[] VERSIONS = {"iPadOS 15", "iPadOS 16", "iPadOS 17", "IPADOS 17", "iPadOS 18"};
+
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        if(args.length > 0 && args[0].equals("child"))
+        {
+            child(args[1], Paths.get(args[2]));
+            return;
+        }
+
+        final int  size;
+        final int  runs;
+        final Path directory;
+        final Path csv;
+        final Path image;
+        final Path jar;
+
+        size      = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        runs      = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        directory = Files.createTempDirectory("startup-benchmark");
+        csv       = directory.resolve("fleet.csv");
+        image     = directory.resolve("fleet.img");
+        jar       = directory.resolve("fleet.jar");
+
+        System.out.println("devices=" + size + " runs=" + runs);
+
+        writeDump(csv, size);
+
+        final List<IDevice> fleet;
+        final String        expected;
+        final long          begin;
+
+        fleet = new ArrayList<>(size);
+        DeviceCsvLoader.load(csv, fleet::add);
+
+        begin = System.nanoTime();
+        FleetImage.write(image, fleet);
+        System.out.printf("image written in %,.1f ms, %,d bytes (dump %,d bytes)%n", (System.nanoTime() - begin) / 1.0e6, Files.size(image), Files.size(csv));
+
+        expected = expectedAnswers(fleet);
+        fleet.clear();
+
+        packClassPath(jar);
+
+        measure("raw", csv, jar, null, runs, expected);
+        measure("raw", csv, jar, train("raw", csv, jar, directory.resolve("raw.jsa")), runs, expected);
+        measure("image", image, jar, null, runs, expected);
+        measure("image", image, jar, train("image", image, jar, directory.resolve("image.jsa")), runs, expected);
+
+        delete(directory);
+    }
+
+    /*
+     * Starts a JVM in one mode several times and prints the median time to its answers.
+     */
+    private static void measure(final String mode, final Path data, final Path jar, final Path archive, final int runs, final String expected) throws IOException, InterruptedException
+    {
+        final long[] millis;
+        boolean      correct;
+
+        millis  = new long[runs];
+        correct = true;
+
+        for(int run = 0; run < runs; run++)
+        {
+            final long[] answeredAt;
+            final long   begin;
+            final String answers;
+
+            answeredAt  = new long[1];
+            begin       = System.nanoTime();
+            answers     = launch(mode, data, jar, archive == null ? null : "-XX:SharedArchiveFile=" + archive, answeredAt);
+            millis[run] = (answeredAt[0] - begin) / 1_000_000;
+            correct    &= expected.equals(answers);
+        }
+
+        Arrays.sort(millis);
+
+        System.out.printf("%-6s %-8s %,8d ms to first query  %s%n", mode, archive == null ? "" : "+AppCDS", millis[runs / 2], correct ? "CORRECT" : "INCORRECT");
+    }
+
+    /*
+     * Runs one mode with -XX:ArchiveClassesAtExit and returns the archive, or null if the JVM did not write one.
+     */
+    private static Path train(final String mode, final Path data, final Path jar, final Path archive) throws IOException, InterruptedException
+    {
+        launch(mode, data, jar, "-XX:ArchiveClassesAtExit=" + archive, new long[1]);
+
+        if(!Files.exists(archive))
+        {
+            System.out.println(mode + ": this JVM did not write an AppCDS archive");
+            return null;
+        }
+
+        return archive;
+    }
+
+    /*
+     * Starts a JVM in child mode, notes the time its answers line was read, and returns the line once it exits.
+     */
+    private static String launch(final String mode, final Path data, final Path jar, final String option, final long[] answeredAt) throws IOException, InterruptedException
+    {
+        final List<String> command;
+        final Process      process;
+        String             answers;
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+        if(option != null)
+        {
+            command.add(option);
+        }
+
+        command.add("-Xlog:cds=off");
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add(StartupBenchmark.class.getName());
+        command.add("child");
+        command.add(mode);
+        command.add(data.toString());
+
+        process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        answers = null;
+
+        try(final BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)))
+        {
+            String line;
+
+            // the JVM may print warnings before the answers
+            while((line = output.readLine()) != null)
+            {
+                if(answers == null && line.startsWith("answers "))
+                {
+                    answeredAt[0] = System.nanoTime();
+                    answers       = line;
+                }
+            }
+        }
+
+        if(process.waitFor() != 0 || answers == null)
+        {
+            throw new IllegalStateException(mode + " run failed with exit code " + process.exitValue());
+        }
+
+        return answers;
+    }
+
+    /*
+     * The measured JVM: loads the fleet one way and prints the answers to the benchmark's queries.
+     */
+    private static void child(final String mode, final Path data) throws IOException
+    {
+        if(mode.equals("image"))
+        {
+            try(final FleetImage image = FleetImage.open(data))
+            {
+                System.out.println(answers(image.countPhonesWithCarrier("Bell"), image.countPadsWithVersion("ipados 17"), image.countPhonesBetween(0.0, 100.0), image.countPodsBetween(100, 200)));
+            }
+        }
+        else
+        {
+            final CountView<IPhone, String> carriers;
+            final IPadVersionIndex          versions;
+            final MinutesIndex<IPhone>      minutes;
+            final SongsIndex                songs;
+
+            carriers = CountView.byCarrier();
+            versions = new IPadVersionIndex();
+            minutes  = new MinutesIndex<>();
+            songs    = new SongsIndex();
+
+            DeviceCsvLoader.load(data, device ->
+            {
+                switch(device.getType())
+                {
+                    case IPHONE:
+                    case IPHONE16:
+                        carriers.add((IPhone) device);
+                        minutes.add((IPhone) device);
+                        break;
+                    case IPAD:
+                        versions.add((IPad) device);
+                        break;
+                    default:
+                        songs.add((IPod) device);
+                }
+            });
+
+            System.out.println(answers(carriers.count("Bell"), versions.count("ipados 17"), minutes.count(0.0, 100.0), songs.count(100, 200)));
+        }
+    }
+
+    /*
+     * Answers the benchmark's queries by scanning the fleet.
+     */
+    private static String expectedAnswers(final List<IDevice> fleet)
+    {
+        long bell;
+        long pads;
+        long phones;
+        long pods;
+
+        bell   = 0;
+        pads   = 0;
+        phones = 0;
+        pods   = 0;
+
+        for(final IDevice device : fleet)
+        {
+            switch(device.getType())
+            {
+                case IPHONE:
+                case IPHONE16:
+                {
+                    final IPhone phone;
+                    phone = (IPhone) device;
+
+                    bell   += "Bell".equals(phone.getCarrier()) ? 1 : 0;
+                    phones += phone.getMinutesRemaining() >= 0.0 && phone.getMinutesRemaining() <= 100.0 ? 1 : 0;
+                    break;
+                }
+                case IPAD:
+                    pads += "ipados 17".equalsIgnoreCase(((IPad) device).getOpSystemVersion()) ? 1 : 0;
+                    break;
+                default:
+                    pods += ((IPod) device).getNumSongsStored() >= 100 && ((IPod) device).getNumSongsStored() <= 200 ? 1 : 0;
+            }
+        }
+
+        return answers(bell, pads, phones, pods);
+    }
+
+    /*
+     * Formats the answers to the benchmark's queries.
+     */
+    private static String answers(final long bell, final long pads, final long phones, final long pods)
+    {
+        return "answers bell=" + bell + " ipados17=" + pads + " minutes0to100=" + phones + " songs100to200=" + pods;
+    }
+
+    /*
+     * Writes a device dump of every device type in turn.
+     */
+    private static void writeDump(final Path path, final int size) throws IOException
+    {
+        final Random random;
+        random = new Random(25);
+
+        try(final BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII))
+        {
+            for(int i = 0; i < size; i++)
+            {
+                switch(i % 4)
+                {
+                    case 0:
+                        writer.write("IPHONE," + random.nextInt(1000) + "." + random.nextInt(100) + "," + CARRIERS[random.nextInt(CARRIERS.length)]);
+                        break;
+                    case 1:
+                        writer.write("IPHONE16," + random.nextInt(1000) + "," + CARRIERS[random.nextInt(CARRIERS.length)] + "," + random.nextBoolean() + "," + (128 << random.nextInt(3)));
+                        break;
+                    case 2:
+                        writer.write("IPAD," + random.nextBoolean() + "," + VERSIONS[random.nextInt(VERSIONS.length)]);
+                        break;
+                    default:
+                        writer.write("IPOD," + random.nextInt(5000) + "," + (80 + random.nextInt(40)));
+                }
+
+                writer.newLine();
+            }
+        }
+    }
+
+    /*
+     * Packs every class file of this JVM's class path directories into one jar.
+     */
+    private static void packClassPath(final Path jar) throws IOException
+    {
+        try(final OutputStream stream = Files.newOutputStream(jar);
+            final JarOutputStream out = new JarOutputStream(stream))
+        {
+            for(final String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+            {
+                final Path root;
+                root = Paths.get(entry);
+
+                if(!Files.isDirectory(root))
+                {
+                    continue;
+                }
+
+                try(final Stream<Path> files = Files.walk(root))
+                {
+                    for(final Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator)
+                    {
+                        out.putNextEntry(new JarEntry(root.relativize(file).toString().replace(File.separatorChar, '/')));
+                        Files.copy(file, out);
+                        out.closeEntry();
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Deletes a directory and the files in it.
+     */
+    private static void delete(final Path directory) throws IOException
+    {
+        try(final Stream<Path> files = Files.list(directory))
+        {
+            for(final Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Drives DeviceChangeStream. Tests that every listener receives every change of the watched devices exactly once, in
+ * publication order, with old and new values and in bounded batches, while a small ring wraps many times, and that
+ * unwatched devices and changes made before a listener subscribes are not published.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class StreamTest
+{
+    private static final int  CHANGES       = 5000;
+    private static final int  THREADS       = 4;
+    private static final int  RACED_DEBITS  = 20_000;
+    private static final long TIMEOUT_NANOS = 30_000_000_000L;
+
+    public static void main(final String[] args) throws InterruptedException
+    {
+        final IPhone       phone;
+        final IPad         pad;
+        final IPod         pod;
+        final IPhone       unwatched;
+        final List<Change> expected;
+        final Recorder     first;
+        final Recorder     second;
+        final long         before;
+
+        phone     = new IPhone(100.0, "Bell");
+        pad       = new IPad(true, "iPadOS 17");
+        pod       = new IPod(10, 80.0);
+        unwatched = new IPhone(5.0, "Fido");
+        expected  = new ArrayList<>();
+        first     = new Recorder(3);
+        second    = new Recorder(3);
+
+        try(final DeviceChangeStream stream = new DeviceChangeStream(8, 3))
+        {
+            stream.watch(phone);
+            stream.watch(pad);
+            stream.watch(pod);
+
+            // no listener yet, so this change is not published
+            phone.setCarrier("Rogers");
+            before = stream.published();
+
+            stream.subscribe(first);
+            stream.subscribe(second);
+
+            for(int i = 0; i < CHANGES; i++)
+            {
+                switch(i % 4)
+                {
+                    case 0:
+                        expected.add(new Change(phone, DeviceField.MINUTES_REMAINING, phone.getMinutesRemaining(), phone.getMinutesRemaining() - 1.0, null, null));
+                        phone.debitMinutes(1.0);
+                        break;
+                    case 1:
+                        expected.add(new Change(pad, DeviceField.OP_SYSTEM_VERSION, Double.NaN, Double.NaN, pad.getOpSystemVersion(), "iPadOS " + i));
+                        pad.setOpSystemVersion("iPadOS " + i);
+                        break;
+                    case 2:
+                        expected.add(new Change(pod, DeviceField.NUM_SONGS_STORED, pod.getNumSongsStored(), i, null, null));
+                        pod.setNumSongsStored(i);
+                        break;
+                    default:
+                        unwatched.setMinutesRemaining(i);
+                }
+            }
+
+            awaitCount(first, expected.size());
+            awaitCount(second, expected.size());
+        }
+
+        System.out.println("DeviceChangeStream Test:");
+        Checks.check(before == 0, "changes made with no listener are not published");
+        Checks.check(first.changes.equals(expected) && second.changes.equals(expected), "every listener sees every watched change once, in order, with old and new values");
+        Checks.check(first.inOrder && second.inOrder && first.largest <= 3 && second.largest <= 3, "batches are contiguous and no larger than the batch size");
+        System.out.println();
+
+        System.out.println("Concurrent DeviceChangeStream Test:");
+        Checks.check(racedDebitsDelivered(), "debits racing on several threads through a small ring are all delivered, in each phone's order");
+        System.out.println();
+    }
+
+    /*
+     * Debits one phone per thread through a 64-slot ring and returns whether a listener saw every debit once, with each
+     * phone's new minutes going down by one at a time.
+     */
+    private static boolean racedDebitsDelivered() throws InterruptedException
+    {
+        final IPhone[] phones;
+        final Thread[] threads;
+        final Recorder recorder;
+
+        phones   = new IPhone[THREADS];
+        threads  = new Thread[THREADS];
+        recorder = new Recorder(16);
+
+        try(final DeviceChangeStream stream = new DeviceChangeStream(64, 16))
+        {
+            stream.subscribe(recorder);
+
+            for(int t = 0; t < THREADS; t++)
+            {
+                final IPhone phone;
+                phone = new IPhone(RACED_DEBITS, "Bell");
+
+                phones[t]  = phone;
+                threads[t] = new Thread(() ->
+                {
+                    for(int i = 0; i < RACED_DEBITS; i++)
+                    {
+                        phone.debitMinutes(1.0);
+                    }
+                });
+
+                stream.watch(phone);
+            }
+
+            for(final Thread thread : threads)
+            {
+                thread.start();
+            }
+
+            for(final Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            awaitCount(recorder, THREADS * RACED_DEBITS);
+        }
+
+        if(recorder.changes.size() != THREADS * RACED_DEBITS || !recorder.inOrder)
+        {
+            return false;
+        }
+
+        final double[] last;
+        last = new double[THREADS];
+
+        for(int t = 0; t < THREADS; t++)
+        {
+            last[t] = RACED_DEBITS;
+        }
+
+        for(final Change change : recorder.changes)
+        {
+            int t;
+            t = 0;
+
+            while(phones[t] != change.device)
+            {
+                t++;
+            }
+
+            // each phone is debited by one thread, so its changes are published in the order they were made
+            if(change.newNumber != last[t] - 1.0)
+            {
+                return false;
+            }
+
+            last[t] = change.newNumber;
+        }
+
+        return true;
+    }
+
+    /*
+     * Waits until a recorder has seen a number of changes, or gives up after the timeout.
+     */
+    private static void awaitCount(final Recorder recorder, final int count) throws InterruptedException
+    {
+        final long deadline;
+        deadline = System.nanoTime() + TIMEOUT_NANOS;
+
+        while(recorder.count < count && System.nanoTime() < deadline)
+        {
+            Thread.sleep(1);
+        }
+    }
+
+    /*
+     * A listener that copies every change out of its batches.
+     */
+    private static final class Recorder implements DeviceChangeListener
+    {
+        private final int          batchSize;
+        private final List<Change> changes;
+        private volatile int       count;
+        private boolean            inOrder;
+        private long               nextSequence;
+        private int                largest;
+
+        private Recorder(final int batchSize)
+        {
+            this.batchSize    = batchSize;
+            this.changes      = new ArrayList<>();
+            this.inOrder      = true;
+            this.nextSequence = -1;
+        }
+
+        @Override
+        public void onChanges(final DeviceChangeStream.Batch batch)
+        {
+            if(this.nextSequence >= 0 && batch.firstSequence() != this.nextSequence || batch.size() > this.batchSize)
+            {
+                this.inOrder = false;
+            }
+
+            this.nextSequence = batch.firstSequence() + batch.size();
+            this.largest      = Math.max(this.largest, batch.size());
+
+            for(int i = 0; i < batch.size(); i++)
+            {
+                this.changes.add(new Change(batch.device(i), batch.field(i), batch.oldNumber(i), batch.newNumber(i), batch.oldText(i), batch.newText(i)));
+            }
+
+            this.count = this.changes.size();
+        }
+    }
+
+    /*
+     * One change as a listener saw it.
+     */
+    private static final class Change
+    {
+        private final IDevice     device;
+        private final DeviceField field;
+        private final double      oldNumber;
+        private final double      newNumber;
+        private final String      oldText;
+        private final String      newText;
+
+        private Change(final IDevice device, final DeviceField field, final double oldNumber, final double newNumber, final String oldText, final String newText)
+        {
+            this.device    = device;
+            this.field     = field;
+            this.oldNumber = oldNumber;
+            this.newNumber = newNumber;
+            this.oldText   = oldText;
+            this.newText   = newText;
+        }
+
+        @Override
+        public boolean equals(final Object o)
+        {
+            if(!(o instanceof Change))
+            {
+                return false;
+            }
+
+            final Change other;
+            other = (Change) o;
+
+            return this.device == other.device
+                && this.field == other.field
+                && Double.compare(this.oldNumber, other.oldNumber) == 0
+                && Double.compare(this.newNumber, other.newNumber) == 0
+                && Objects.equals(this.oldText, other.oldText)
+                && Objects.equals(this.newText, other.newText);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(System.identityHashCode(this.device), this.field, this.oldNumber, this.newNumber, this.oldText, this.newText);
+        }
+    }
+}
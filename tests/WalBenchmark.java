@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Measures DeviceWal commit throughput and recovery time.
+ * <p>
+ * Commit throughput is measured with many threads calling setters on their own devices, once with Durability.SYNC and
+ * once with Durability.ASYNC, and reports how many entries each force to disk carried. Recovery is measured on a log
+ * of every change made, with and without a checkpoint after the changes, and checks that the recovered devices match
+ * the originals.
+ * </p>
+ * <p>
+ * Usage: WalBenchmark [threads] [changesPerThread] [devices]
+ * </p>
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class WalBenchmark
+{
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final int threads;
+        final int changes;
+        final int devices;
+
+        threads = args.length > 0 ? Integer.parseInt(args[0]) : Math.max(8, Runtime.getRuntime().availableProcessors() * 2);
+        changes = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        devices = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        System.out.println("threads=" + threads + " changesPerThread=" + changes + " devices=" + devices);
+
+        commit(DeviceWal.Durability.SYNC, threads, changes, devices);
+        commit(DeviceWal.Durability.ASYNC, threads, changes, devices);
+    }
+
+    /*
+     * Runs every thread's changes through a new log, prints the throughput, then recovers the log twice.
+     */
+    private static void commit(final DeviceWal.Durability durability, final int threads, final int changes, final int deviceCount) throws IOException, InterruptedException
+    {
+        final Path           directory;
+        final List<IDevice>  devices;
+        final DeviceWal      wal;
+        final CountDownLatch start;
+        final Thread[]       workers;
+
+        directory = Files.createTempDirectory("wal-benchmark");
+        devices   = fleet(deviceCount);
+        wal       = DeviceWal.create(directory, devices, durability);
+        start     = new CountDownLatch(1);
+        workers   = new Thread[threads];
+
+        for(int t = 0; t < threads; t++)
+        {
+            final int thread;
+            thread = t;
+
+            workers[t] = new Thread(() ->
+            {
+                try
+                {
+                    start.await();
+                }
+                catch(final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for(int i = 0; i < changes; i++)
+                {
+                    change(devices.get((thread + i * threads) % devices.size()), i);
+                }
+            });
+            workers[t].start();
+        }
+
+        final long begin;
+        final long elapsed;
+        final long entries;
+
+        begin = System.nanoTime();
+        start.countDown();
+
+        for(final Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        wal.sync();
+        elapsed = System.nanoTime() - begin;
+        entries = wal.lastLsn();
+
+        System.out.printf("%-5s %,12.0f changes/s  %,8d forces  %,8.1f entries/force%n", durability, entries * 1.0e9 / elapsed, wal.syncCount(), (double) entries / Math.max(1, wal.syncCount()));
+
+        wal.close();
+        recover("replay", directory, devices);
+
+        try(final DeviceWal reopened = DeviceWal.recover(directory, durability))
+        {
+            reopened.checkpoint();
+        }
+
+        recover("checkpoint", directory, devices);
+        delete(directory);
+    }
+
+    /*
+     * Recovers a closed log, prints how long it took and whether every device matches.
+     */
+    private static void recover(final String label, final Path directory, final List<IDevice> expected) throws IOException
+    {
+        final long begin;
+        final long elapsed;
+
+        begin = System.nanoTime();
+
+        try(final DeviceWal recovered = DeviceWal.recover(directory, DeviceWal.Durability.ASYNC))
+        {
+            elapsed = System.nanoTime() - begin;
+
+            System.out.printf("      recover after %-10s %,8.1f ms  %,10d entries replayed  %s%n", label, elapsed / 1.0e6, recovered.replayedEntries(), matches(expected, recovered.devices()) ? "CORRECT" : "INCORRECT");
+        }
+    }
+
+    /*
+     * Makes one change through a setter, cycling through every logged field.
+     */
+    private static void change(final IDevice device, final int i)
+    {
+        switch(device.getType())
+        {
+            case IPHONE:
+            case IPHONE16:
+                if(i % 8 == 0)
+                {
+                    ((IPhone) device).setCarrier(i % 16 == 0 ? "Rogers" : "Bell");
+                }
+                else
+                {
+                    ((IPhone) device).debitMinutes(1.0);
+                }
+                break;
+            case IPAD:
+                if(i % 2 == 0)
+                {
+                    ((IPad) device).setHasCase(!((IPad) device).getHasCase());
+                }
+                else
+                {
+                    ((IPad) device).setOpSystemVersion("iPadOS " + (i % 5));
+                }
+                break;
+            default:
+                ((IPod) device).setNumSongsStored(i);
+        }
+    }
+
+    /*
+     * Returns whether two lists hold devices with the same details, in the same order.
+     */
+    private static boolean matches(final List<IDevice> expected, final List<IDevice> actual)
+    {
+        if(expected.size() != actual.size())
+        {
+            return false;
+        }
+
+        for(int i = 0; i < expected.size(); i++)
+        {
+            final IDevice a;
+            final IDevice b;
+
+            a = expected.get(i);
+            b = actual.get(i);
+
+            if(a.getType() != b.getType() || !a.appendDetailsTo(new StringBuilder()).toString().equals(b.appendDetailsTo(new StringBuilder()).toString()))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /*
+     * Returns a fleet of every device type in turn.
+     */
+    private static List<IDevice> fleet(final int size)
+    {
+        final List<IDevice> devices;
+        devices = new ArrayList<>(size);
+
+        for(int i = 0; i < size; i++)
+        {
+            switch(i % 4)
+            {
+                case 0:
+                    devices.add(new IPhone(1.0e6, "Telus"));
+                    break;
+                case 1:
+                    devices.add(new IPhone16(1.0e6, "Telus", i % 3 == 0, 256));
+                    break;
+                case 2:
+                    devices.add(new IPad(false, "iPadOS 17"));
+                    break;
+                default:
+                    devices.add(new IPod(0, 90.0));
+            }
+        }
+
+        return devices;
+    }
+
+    /*
+     * Deletes a directory and the files in it.
+     */
+    private static void delete(final Path directory) throws IOException
+    {
+        try(final Stream<Path> files = Files.list(directory))
+        {
+            for(final Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(directory);
+    }
+}
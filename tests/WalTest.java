@@ -0,0 +1,164 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Drives DeviceWal. Tests that changes made through the setters, before and after a checkpoint, are rebuilt by
+ * recovery, and that after racing debits the recovered minutes equal the minutes the phone ended with.
+ * @author Neriyel Reyes
+ * @author Yujin Jeong
+ * @version 1.0
+ */
+public class WalTest
+{
+    public static void main(final String[] args) throws IOException, InterruptedException
+    {
+        final Path          directory;
+        final List<IDevice> devices;
+        final IPhone        phone;
+        final IPad          pad;
+        final IPod          pod;
+
+        directory = Files.createTempDirectory("wal-test");
+        phone     = new IPhone(100.0, "Bell");
+        pad       = new IPad(true, "iPadOS 17");
+        pod       = new IPod(300, 85.0);
+        devices   = new ArrayList<>();
+
+        devices.add(phone);
+        devices.add(pad);
+        devices.add(pod);
+
+        try
+        {
+            try(final DeviceWal wal = DeviceWal.create(directory, devices, DeviceWal.Durability.SYNC))
+            {
+                phone.debitMinutes(12.5);
+                pad.setHasCase(false);
+                wal.checkpoint();
+                phone.setCarrier("Rogers");
+                pad.setOpSystemVersion(null);
+                pod.setNumSongsStored(310);
+            }
+
+            try(final DeviceWal recovered = DeviceWal.recover(directory, DeviceWal.Durability.SYNC))
+            {
+                final IPhone phoneBack;
+                final IPad   padBack;
+                final IPod   podBack;
+
+                phoneBack = (IPhone) recovered.devices().get(0);
+                padBack   = (IPad) recovered.devices().get(1);
+                podBack   = (IPod) recovered.devices().get(2);
+
+                System.out.println("DeviceWal Test:");
+                Checks.check(recovered.devices().size() == devices.size(), "recovery rebuilds every device");
+                Checks.check(phoneBack.getMinutesRemaining() == 87.5 && "Rogers".equals(phoneBack.getCarrier()), "an iphone's changes on both sides of a checkpoint are recovered");
+                Checks.check(!padBack.getHasCase() && padBack.getOpSystemVersion() == null, "an ipad's case and null version are recovered");
+                Checks.check(podBack.getNumSongsStored() == 310, "an ipod's songs are recovered");
+                Checks.check(recovered.replayedEntries() == 3, "only the entries after the checkpoint are replayed");
+                System.out.println();
+            }
+        }
+        finally
+        {
+            delete(directory);
+        }
+
+        System.out.println("Concurrent DeviceWal Test:");
+        Checks.check(heldDebitRecovers(), "a debit whose notification is overtaken by a later debit recovers the live minutes");
+        System.out.println();
+    }
+
+    /*
+     * Holds the notification of one debit until a second debit on another thread has been logged, so the log is told
+     * about the two out of order, then returns whether recovery ends on the phone's live minutes.
+     */
+    private static boolean heldDebitRecovers() throws IOException, InterruptedException
+    {
+        final Path           directory;
+        final IPhone         phone;
+        final List<IDevice>  devices;
+        final CountDownLatch held;
+        final CountDownLatch released;
+        final Thread         first;
+        final DeviceObserver holder;
+        final double         live;
+
+        directory = Files.createTempDirectory("wal-race");
+        phone     = new IPhone(100.0, "Bell");
+        devices   = new ArrayList<>();
+        held      = new CountDownLatch(1);
+        released  = new CountDownLatch(1);
+        first     = new Thread(() -> phone.debitMinutes(1.0), "held-debit");
+        holder    = new DeviceObserver()
+        {
+            @Override
+            public void numberChanged(final IDevice device, final DeviceField field, final double oldValue, final double newValue)
+            {
+                if(Thread.currentThread() == first)
+                {
+                    held.countDown();
+
+                    try
+                    {
+                        released.await();
+                    }
+                    catch(final InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+
+        devices.add(phone);
+
+        try
+        {
+            // registered before the log, so it runs between the first debit's compare-and-set and its log entry
+            phone.addObserver(holder);
+
+            try(final DeviceWal wal = DeviceWal.create(directory, devices, DeviceWal.Durability.SYNC))
+            {
+                first.start();
+                held.await();
+                phone.debitMinutes(1.0);
+                released.countDown();
+                first.join();
+
+                wal.sync();
+                live = phone.getMinutesRemaining();
+            }
+
+            try(final DeviceWal recovered = DeviceWal.recover(directory, DeviceWal.Durability.SYNC))
+            {
+                return live == 98.0 && ((IPhone) recovered.devices().get(0)).getMinutesRemaining() == live;
+            }
+        }
+        finally
+        {
+            phone.removeObserver(holder);
+            delete(directory);
+        }
+    }
+
+    /*
+     * Deletes a log directory and everything in it.
+     */
+    private static void delete(final Path directory) throws IOException
+    {
+        try(final Stream<Path> paths = Files.walk(directory))
+        {
+            for(final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator)
+            {
+                Files.delete(path);
+            }
+        }
+    }
+}